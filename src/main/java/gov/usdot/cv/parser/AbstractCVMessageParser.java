@@ -3,6 +3,10 @@ package gov.usdot.cv.parser;
 import gov.usdot.asn1.generated.j2735.dsrc.DDateTime;
 import gov.usdot.asn1.generated.j2735.dsrc.Position3D;
 import gov.usdot.asn1.j2735.J2735Util;
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import java.util.Map;
+
 import net.sf.json.JSONObject;
 
 import org.apache.log4j.Logger;
@@ -10,12 +14,45 @@ import org.apache.log4j.Logger;
 import com.oss.asn1.AbstractData;
 import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
 
-public abstract class AbstractCVMessageParser implements CVMessageParser {
+public abstract class AbstractCVMessageParser implements TypedCVMessageParser {
 
 	private static final Logger logger = Logger.getLogger(AbstractCVMessageParser.class);
 
 	protected static final String DATE_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
 	
+	private static final ThreadLocal<SemiFields> semiFields = new ThreadLocal<SemiFields>() {
+		@Override
+		protected SemiFields initialValue() {
+			return new SemiFields();
+		}
+	};
+	
+	/**
+	 * Map contract kept for existing callers; builds the map from a typed record.
+	 */
+	public Map<String, String> parse(AbstractData message, DataBundle bundle) throws ParsePipelineException {
+		CVRecord record = new CVRecord();
+		parse(message, bundle, record);
+		return record.toMap();
+	}
+	
+	/**
+	 * @return the base64 payload carried over from the input line when the caller set one,
+	 * otherwise the payload encoded from the bundle
+	 */
+	protected static String encodePayload(DataBundle bundle, CVRecord record) {
+		String encodedPayload = record.getEncodedPayload();
+		return (encodedPayload != null) ? encodedPayload : bundle.encodePayload();
+	}
+	
+	/**
+	 * @return the calling thread's reusable holder for the SEMI header and region of the
+	 * message being parsed
+	 */
+	protected static SemiFields semiFields() {
+		return semiFields.get();
+	}
+	
 	protected void validateMessageType(AbstractData message, Class<?> clazz) throws ParsePipelineException {
 		if (!clazz.isInstance(message)) {
 			String errorMsg = String.format("Parser %s does not support messages of type %s",
@@ -0,0 +1,90 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Compact binary encoding of parsed records, laid out by the dialog's
+ * {@link RecordSchema}. A record is
+ * <pre>
+ *   dialog id     varint
+ *   source        varint length, UTF-8
+ *   access label  varint length, UTF-8
+ *   presence      (columns + 7) / 8 bytes, a bit per schema column, column 0 in the
+ *                 low bit of the first byte
+ *   values        of the present columns in schema order: longs as zigzag varints,
+ *                 doubles as 8 IEEE 754 bytes, big endian, booleans as a byte, strings as
+ *                 a varint length and UTF-8 and byte arrays as a varint length and the
+ *                 raw bytes
+ * </pre>
+ * Records are self-delimiting, so a buffer holds them back to back. Varints are unsigned
+ * LEB128. Records of dialogs without a schema are not encoded, and fields outside the
+ * schema are left out.
+ */
+public class BinaryRecordEncoder implements RecordEncoder {
+
+	public boolean encode(long dialogId, CVRecord record, String source, String accessLabel, RecordBuffer out) {
+		RecordSchema schema = RecordSchema.forDialog(dialogId);
+		if (schema == null) return false;
+		out.writeVarint(dialogId);
+		writeString(out, source);
+		writeString(out, accessLabel);
+
+		int columns = schema.getColumnCount();
+		for (int start = 0; start < columns; start += 8) {
+			int bits = 0;
+			for (int column = start; column < Math.min(start + 8, columns); column++) {
+				if (isPresent(record, schema, column)) {
+					bits |= 1 << (column - start);
+				}
+			}
+			out.write(bits);
+		}
+		for (int column = 0; column < columns; column++) {
+			if (!isPresent(record, schema, column)) continue;
+			CVField field = schema.getField(column);
+			switch (schema.getKind(column)) {
+			case LONG:
+				out.writeSignedVarint(record.getLong(field));
+				break;
+			case DOUBLE:
+				out.writeFixed64(Double.doubleToLongBits(record.getDouble(field)));
+				break;
+			case BOOLEAN:
+				out.write(record.getBoolean(field) ? 1 : 0);
+				break;
+			case BYTES: {
+				byte[] bytes = record.getBytes(field);
+				out.writeVarint(bytes.length);
+				out.write(bytes);
+				break;
+			}
+			default:
+				writeString(out, record.getString(field));
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the field is set with a different kind than its column
+	 */
+	private static boolean isPresent(CVRecord record, RecordSchema schema, int column) {
+		CVField field = schema.getField(column);
+		if (!record.has(field)) return false;
+		CVRecord.Kind kind = record.getKind(field);
+		if (kind != schema.getKind(column)) {
+			throw new IllegalArgumentException("Field " + field + " is a " + kind + ", column of "
+					+ schema + " is a " + schema.getKind(column));
+		}
+		if (kind == CVRecord.Kind.STRING) return record.getString(field) != null;
+		if (kind == CVRecord.Kind.BYTES) return record.getBytes(field) != null;
+		return true;
+	}
+
+	private static void writeString(RecordBuffer out, String s) {
+		if (s == null) {
+			out.writeVarint(0);
+			return;
+		}
+		out.writeVarint(RecordBuffer.utf8Length(s));
+		out.writeUtf8(s);
+	}
+}
@@ -0,0 +1,29 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import com.oss.asn1.AbstractData;
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * A {@link TypedCVMessageParser} for messages that carry a bundle of records. When
+ * {@link J2735Parser} runs with decodeBundle set, every record of the bundle becomes its
+ * own output record holding the message level fields plus that record's fields. The
+ * records are parsed one at a time as the output is consumed.
+ */
+public interface BundleCVMessageParser extends TypedCVMessageParser {
+
+	/**
+	 * @return the number of records in the message's bundle
+	 */
+	public int getRecordCount(AbstractData message) throws ParsePipelineException;
+
+	/**
+	 * Write the message level fields and the fields of the index'th bundle record.
+	 */
+	public void parseRecord(
+			AbstractData message,
+			DataBundle bundle,
+			int index,
+			CVRecord record) throws ParsePipelineException;
+}
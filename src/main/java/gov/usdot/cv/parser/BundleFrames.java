@@ -0,0 +1,110 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Binary framing of data bundles, the alternative to base64 lines read by
+ * {@link J2735Parser} when its inputFormat is frame. A frame is a big-endian int holding
+ * the length of the frame body, followed by the body:
+ *
+ * <pre>
+ * int    receipt id length, receipt id (UTF-8)
+ * int    destination host length, destination host (UTF-8)
+ * int    destination port
+ * byte   1 if the bundle came from a forwarder, else 0
+ * int    certificate length, certificate
+ * int    payload length, PER encoded payload
+ * </pre>
+ *
+ * Frames carry the same fields as {@link gov.usdot.cv.common.dialog.DataBundleUtil#encode}
+ * takes, so converting a line capture is a matter of decoding each line and writing
+ * its fields back out with {@link #write}.
+ */
+public final class BundleFrames {
+
+	/** Bytes of the length prefix in front of every frame body. */
+	public static final int PREFIX_LENGTH = 4;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte[] EMPTY = new byte[0];
+
+	private BundleFrames() {
+	}
+
+	/**
+	 * @return the length prefixed frame holding the given bundle fields
+	 */
+	public static byte[] encode(byte[] receiptId, byte[] destHost, int destPort, boolean fromForwarder, byte[] certificate, byte[] payload) {
+		receiptId = nonNull(receiptId);
+		destHost = nonNull(destHost);
+		certificate = nonNull(certificate);
+		payload = nonNull(payload);
+		int bodyLength = 4 + receiptId.length + 4 + destHost.length + 4 + 1 + 4 + certificate.length + 4 + payload.length;
+		ByteBuffer frame = ByteBuffer.allocate(PREFIX_LENGTH + bodyLength);
+		frame.putInt(bodyLength);
+		frame.putInt(receiptId.length).put(receiptId);
+		frame.putInt(destHost.length).put(destHost);
+		frame.putInt(destPort);
+		frame.put(fromForwarder ? (byte) 1 : (byte) 0);
+		frame.putInt(certificate.length).put(certificate);
+		frame.putInt(payload.length).put(payload);
+		return frame.array();
+	}
+
+	/**
+	 * Write one length prefixed frame holding the given bundle fields.
+	 */
+	public static void write(OutputStream out, byte[] receiptId, byte[] destHost, int destPort, boolean fromForwarder, byte[] certificate, byte[] payload) throws IOException {
+		out.write(encode(receiptId, destHost, destPort, fromForwarder, certificate, payload));
+	}
+
+	/**
+	 * Read a data bundle from a frame body, without its length prefix. Only the payload and
+	 * certificate are copied out of the buffer; the buffer's position is left unchanged.
+	 *
+	 * @throws IllegalArgumentException if the body is not a well formed frame
+	 */
+	public static DataBundle decode(ByteBuffer body) {
+		ByteBuffer in = body.duplicate();
+		String receiptId = new String(readBytes(in, "receipt id"), UTF8);
+		String destHost = new String(readBytes(in, "destination host"), UTF8);
+		int destPort = readInt(in, "destination port");
+		if (!in.hasRemaining()) {
+			throw new IllegalArgumentException("Frame ends before the forwarder flag");
+		}
+		boolean fromForwarder = in.get() != 0;
+		byte[] certificate = readBytes(in, "certificate");
+		byte[] payload = readBytes(in, "payload");
+		if (in.hasRemaining()) {
+			throw new IllegalArgumentException(in.remaining() + " bytes left over after the payload of the frame");
+		}
+		return new DataBundle(receiptId, destHost, destPort, fromForwarder, certificate, payload);
+	}
+
+	private static int readInt(ByteBuffer in, String field) {
+		if (in.remaining() < 4) {
+			throw new IllegalArgumentException("Frame ends before the " + field);
+		}
+		return in.getInt();
+	}
+
+	private static byte[] readBytes(ByteBuffer in, String field) {
+		int length = readInt(in, field + " length");
+		if (length < 0 || length > in.remaining()) {
+			throw new IllegalArgumentException("Bad " + field + " length " + length + " with " + in.remaining() + " bytes left in the frame");
+		}
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return bytes;
+	}
+
+	private static byte[] nonNull(byte[] bytes) {
+		return (bytes == null) ? EMPTY : bytes;
+	}
+}
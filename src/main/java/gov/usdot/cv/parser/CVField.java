@@ -0,0 +1,122 @@
+package gov.usdot.cv.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interned name of a parsed field. Every name maps to one instance with a small dense
+ * id, which {@link CVRecord} uses as an array index. The names are the keys of the map
+ * handed to the translator.
+ */
+public final class CVField {
+
+	private static final Map<String, CVField> fieldsByName = new HashMap<String, CVField>();
+	private static final List<CVField> fieldsById = new ArrayList<CVField>();
+
+	// SEMI header and data bundle
+	public static final CVField DIALOG_ID 			= intern("dialogId");
+	public static final CVField SEQUENCE_ID 		= intern("sequenceId");
+	public static final CVField GROUP_ID 			= intern("groupId");
+	public static final CVField REQUEST_ID 			= intern("requestId");
+	public static final CVField RECEIPT_ID 			= intern("receiptId");
+	public static final CVField DEST_HOST 			= intern("destHost");
+	public static final CVField DEST_PORT 			= intern("destPort");
+	public static final CVField FROM_FORWARDER 		= intern("fromForwarder");
+	public static final CVField CERTIFICATE 		= intern("certificate");
+	public static final CVField ENCODED_MSG 		= intern("encodedMsg");
+
+	// service region
+	public static final CVField NW_LAT 				= intern("nwLat");
+	public static final CVField NW_LON 				= intern("nwLon");
+	public static final CVField SE_LAT 				= intern("seLat");
+	public static final CVField SE_LON 				= intern("seLon");
+
+	// vehicle situation data
+	public static final CVField VSM_TYPE 			= intern("vsmType");
+	public static final CVField D_YEAR 				= intern("DYear");
+	public static final CVField D_MONTH 			= intern("DMonth");
+	public static final CVField D_DAY 				= intern("DDay");
+	public static final CVField D_HOUR 				= intern("DHour");
+	public static final CVField D_MINUTE 			= intern("DMinute");
+	public static final CVField D_SECOND 			= intern("DSecond");
+	public static final CVField D_OFFSET 			= intern("DOffset");
+	public static final CVField LONG 				= intern("Long");
+	public static final CVField LAT 				= intern("Lat");
+	public static final CVField ELEVATION 			= intern("Elevation");
+	public static final CVField COUNT 				= intern("Count");
+
+	// data subscription
+	public static final CVField SUBSCRIBER_ID 		= intern("subscriberId");
+	public static final CVField END_TIME 			= intern("endTime");
+	public static final CVField TYPE 				= intern("type");
+	public static final CVField TYPE_VALUE 			= intern("typeValue");
+
+	// advisory situation data
+	public static final CVField RECORD_ID 			= intern("recordId");
+	public static final CVField TIME_TO_LIVE 		= intern("timeToLive");
+	public static final CVField ASDM_ID 			= intern("asdmId");
+	public static final CVField ASDM_TYPE 			= intern("asdmType");
+	public static final CVField DIST_TYPE 			= intern("distType");
+	public static final CVField START_TIME 			= intern("startTime");
+	public static final CVField STOP_TIME 			= intern("stopTime");
+	public static final CVField ADVISORY_MESSAGE 	= intern("advisoryMessage");
+
+	// intersection situation data
+	public static final CVField BUNDLE_NUMBER 		= intern("bundleNumber");
+	public static final CVField TIMESTAMP 			= intern("timestamp");
+
+	// object registration, discovery and data requests
+	public static final CVField SERVICE_ID 			= intern("serviceId");
+	public static final CVField SERVICE_PROVIDER_ID = intern("serviceProviderId");
+	public static final CVField TIME_BOUND 			= intern("timeBound");
+
+	private final int id;
+	private final String name;
+
+	private CVField(int id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	/**
+	 * @return the one field with this name, created on first use
+	 */
+	public static synchronized CVField intern(String name) {
+		CVField field = fieldsByName.get(name);
+		if (field == null) {
+			field = new CVField(fieldsById.size(), name);
+			fieldsByName.put(name, field);
+			fieldsById.add(field);
+		}
+		return field;
+	}
+
+	/**
+	 * @return the field with this id
+	 */
+	public static synchronized CVField forId(int id) {
+		return fieldsById.get(id);
+	}
+
+	/**
+	 * @return the number of fields interned so far, i.e. one more than the highest id
+	 */
+	public static synchronized int count() {
+		return fieldsById.size();
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -1,5 +1,6 @@
 package gov.usdot.cv.parser;
 
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
 import gov.usdot.cv.common.dialog.DataBundle;
 
 import java.util.Map;
@@ -7,8 +8,25 @@ import java.util.Map;
 import com.oss.asn1.AbstractData;
 import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
 
+/**
+ * Converts one decoded SEMI message to the field map handed to the translator.
+ * Implementations are registered with {@link CVMessageParserCache} through
+ * META-INF/services/gov.usdot.cv.parser.CVMessageParser and must have a public
+ * no-argument constructor. A single instance serves every record of its dialogs,
+ * possibly from several threads at once.
+ */
 public interface CVMessageParser {
 	public Map<String, String> parse(
 			AbstractData message, 
 			DataBundle bundle) throws ParsePipelineException;
+	
+	/**
+	 * @return the dialogs whose messages this parser handles
+	 */
+	public SemiDialogID[] getDialogIds();
+	
+	/**
+	 * @return the decoded message classes this parser accepts
+	 */
+	public Class<?>[] getMessageClasses();
 }
@@ -1,26 +1,272 @@
 package gov.usdot.cv.parser;
 
+import gov.usdot.asn1.generated.j2735.semi.AdvisorySituationData;
+import gov.usdot.asn1.generated.j2735.semi.DataRequest;
+import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionCancel;
+import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionRequest;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.asn1.generated.j2735.semi.ObjectDiscoveryDataRequest;
+import gov.usdot.asn1.generated.j2735.semi.ObjectRegistrationData;
 import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
 
-import java.util.HashMap;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.apache.log4j.Logger;
+
+import com.oss.asn1.AbstractData;
+import com.oss.asn1.Enumerated;
+
+/**
+ * Dispatch table from decoded messages to their {@link CVMessageParser}. The dialog id
+ * reader is resolved once per concrete message class and parsers are kept in a dense
+ * array indexed by the SemiDialogID value, so a lookup never boxes the dialog id.
+ *
+ * Parsers are loaded with {@link ServiceLoader} from
+ * META-INF/services/gov.usdot.cv.parser.CVMessageParser and can be replaced at runtime
+ * with {@link #register(CVMessageParser)}. The table is copy-on-write: lookups read an
+ * immutable snapshot without locking and registrations publish a new snapshot.
+ */
 public class CVMessageParserCache {
 
-	private static Map<Long, CVMessageParser> parserCache = new HashMap<Long, CVMessageParser>();
+	private static final Logger logger = Logger.getLogger(CVMessageParserCache.class);
+
+	/** Returned by {@link #getDialogId(AbstractData)} for messages that carry no known dialog id. */
+	public static final long NO_DIALOG_ID = -1;
+
+	/** SemiDialogID values are single octets, so this covers every dialog. */
+	private static final int DIALOG_TABLE_SIZE = 256;
+
+	/**
+	 * Reads the dialog id of one SEMI message type.
+	 */
+	interface DialogIdReader {
+		long getDialogId(AbstractData message);
+	}
+
+	private static final DialogIdReader NO_READER = new DialogIdReader() {
+		public long getDialogId(AbstractData message) {
+			return NO_DIALOG_ID;
+		}
+	};
+
+	/** Compiled readers for the generated message types this plugin ships parsers for. */
+	private static final Map<Class<?>, DialogIdReader> builtInReaders = new LinkedHashMap<Class<?>, DialogIdReader>();
+
+	private static final AtomicReference<Table> table = new AtomicReference<Table>(
+			new Table(new CVMessageParser[DIALOG_TABLE_SIZE], Collections.<Class<?>, DialogIdReader>emptyMap()));
 
 	static {
-		parserCache.put(SemiDialogID.vehSitData.longValue(), 				new VehSitDataMessageParser());
-		parserCache.put(SemiDialogID.dataSubscription.longValue(), 			new DataSubscriptionMessageParser());
-		parserCache.put(SemiDialogID.advSitDataDep.longValue(), 			new TravelerInformationParser());
-		parserCache.put(SemiDialogID.advSitDatDist.longValue(), 			new TravelerInformationQueryParser());
-		parserCache.put(SemiDialogID.intersectionSitDataQuery.longValue(), 	new TravelerInformationQueryParser());
-		parserCache.put(SemiDialogID.intersectionSitDataDep.longValue(), 	new IntersectionSitDataParser());
-		parserCache.put(SemiDialogID.objReg.longValue(), 					new ObjectRegistrationDataParser());
-		parserCache.put(SemiDialogID.objDisc.longValue(), 					new ObjectDiscoveryDataRequestParser());
+		builtInReaders.put(VehSitDataMessage.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((VehSitDataMessage) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(DataSubscriptionRequest.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((DataSubscriptionRequest) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(DataSubscriptionCancel.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((DataSubscriptionCancel) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(AdvisorySituationData.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((AdvisorySituationData) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(DataRequest.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((DataRequest) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(IntersectionSituationData.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((IntersectionSituationData) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(ObjectRegistrationData.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((ObjectRegistrationData) message).getDialogID().longValue();
+			}
+		});
+		builtInReaders.put(ObjectDiscoveryDataRequest.class, new DialogIdReader() {
+			public long getDialogId(AbstractData message) {
+				return ((ObjectDiscoveryDataRequest) message).getDialogID().longValue();
+			}
+		});
+
+		loadServices();
+	}
+
+	/**
+	 * Register every CVMessageParser found on the class path. Later entries replace
+	 * earlier ones for the same dialog.
+	 */
+	private static void loadServices() {
+		Iterator<CVMessageParser> parsers = ServiceLoader.load(
+				CVMessageParser.class, CVMessageParserCache.class.getClassLoader()).iterator();
+		while (true) {
+			try {
+				if (!parsers.hasNext()) break;
+				register(parsers.next());
+			} catch (ServiceConfigurationError e) {
+				logger.error("Failed to load CVMessageParser service", e);
+			}
+		}
+	}
+
+	/**
+	 * Register a parser for every dialog and message class it declares, replacing the
+	 * parsers currently registered for those dialogs. Records already being parsed finish
+	 * with the parser they looked up.
+	 */
+	public static void register(CVMessageParser parser) {
+		SemiDialogID[] dialogIds = parser.getDialogIds();
+		Class<?>[] messageClasses = parser.getMessageClasses();
+		for (SemiDialogID dialogId : dialogIds) {
+			checkDialogId(dialogId.longValue());
+		}
+		Map<Class<?>, DialogIdReader> readers = new LinkedHashMap<Class<?>, DialogIdReader>();
+		for (Class<?> messageClass : messageClasses) {
+			readers.put(messageClass, createReader(messageClass));
+		}
+
+		while (true) {
+			Table current = table.get();
+			CVMessageParser[] parsers = current.parsers.clone();
+			for (SemiDialogID dialogId : dialogIds) {
+				parsers[(int) dialogId.longValue()] = parser;
+			}
+			Map<Class<?>, DialogIdReader> classReaders = new LinkedHashMap<Class<?>, DialogIdReader>(current.readers);
+			classReaders.putAll(readers);
+			if (table.compareAndSet(current, new Table(parsers, classReaders))) {
+				break;
+			}
+		}
+		logger.info(String.format("Registered %s for %d dialog(s)", parser.getClass().getName(), dialogIds.length));
+	}
+
+	/**
+	 * Remove the parser registered for a dialog.
+	 *
+	 * @return the parser that was registered, or null
+	 */
+	public static CVMessageParser unregister(SemiDialogID dialogId) {
+		int index = checkDialogId(dialogId.longValue());
+		while (true) {
+			Table current = table.get();
+			CVMessageParser previous = current.parsers[index];
+			if (previous == null) {
+				return null;
+			}
+			CVMessageParser[] parsers = current.parsers.clone();
+			parsers[index] = null;
+			if (table.compareAndSet(current, new Table(parsers, current.readers))) {
+				return previous;
+			}
+		}
 	}
 
 	public static CVMessageParser lookupParser(long dialogId) {
-		return parserCache.get(dialogId);
+		if (dialogId < 0 || dialogId >= DIALOG_TABLE_SIZE) {
+			return null;
+		}
+		return table.get().parsers[(int) dialogId];
+	}
+
+	/**
+	 * @return the dialog id of a decoded SEMI message, or {@link #NO_DIALOG_ID}
+	 */
+	public static long getDialogId(AbstractData message) {
+		return table.get().readerFor(message.getClass()).getDialogId(message);
+	}
+
+	private static int checkDialogId(long dialogId) {
+		if (dialogId < 0 || dialogId >= DIALOG_TABLE_SIZE) {
+			throw new IllegalArgumentException("Dialog id out of range: " + dialogId);
+		}
+		return (int) dialogId;
+	}
+
+	/**
+	 * Use the compiled reader for a built-in message type, otherwise call the message's
+	 * getDialogID() accessor, which every SEMI message type has.
+	 */
+	private static DialogIdReader createReader(Class<?> messageClass) {
+		if (!AbstractData.class.isAssignableFrom(messageClass)) {
+			throw new IllegalArgumentException(messageClass.getName() + " is not an ASN.1 message type");
+		}
+		DialogIdReader reader = builtInReaders.get(messageClass);
+		if (reader != null) {
+			return reader;
+		}
+		try {
+			final Method accessor = messageClass.getMethod("getDialogID");
+			if (!Enumerated.class.isAssignableFrom(accessor.getReturnType())) {
+				throw new IllegalArgumentException(messageClass.getName() + ".getDialogID() does not return a dialog id");
+			}
+			return new DialogIdReader() {
+				public long getDialogId(AbstractData message) {
+					try {
+						Enumerated dialogId = (Enumerated) accessor.invoke(message);
+						return (dialogId == null) ? NO_DIALOG_ID : dialogId.longValue();
+					} catch (Exception e) {
+						return NO_DIALOG_ID;
+					}
+				}
+			};
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(messageClass.getName() + " has no getDialogID() accessor", e);
+		}
+	}
+
+	/**
+	 * Immutable snapshot of the registry. Only the per-class reader cache is filled in
+	 * lazily, which is safe because every entry is derived from the immutable parts.
+	 */
+	private static final class Table {
+		final CVMessageParser[] parsers;
+		final Map<Class<?>, DialogIdReader> readers;
+		final ConcurrentMap<Class<?>, DialogIdReader> readersByClass;
+
+		Table(CVMessageParser[] parsers, Map<Class<?>, DialogIdReader> readers) {
+			this.parsers = parsers;
+			this.readers = readers;
+			this.readersByClass = new ConcurrentHashMap<Class<?>, DialogIdReader>(readers);
+		}
+
+		DialogIdReader readerFor(Class<?> clazz) {
+			DialogIdReader reader = readersByClass.get(clazz);
+			if (reader == null) {
+				reader = resolveReader(clazz);
+				readersByClass.putIfAbsent(clazz, reader);
+			}
+			return reader;
+		}
+
+		/**
+		 * Find the reader for a class that is not registered directly, e.g. a subclass of
+		 * one of the registered message types.
+		 */
+		private DialogIdReader resolveReader(Class<?> clazz) {
+			for (Map.Entry<Class<?>, DialogIdReader> entry : readers.entrySet()) {
+				if (entry.getKey().isAssignableFrom(clazz)) {
+					return entry.getValue();
+				}
+			}
+			return NO_READER;
+		}
 	}
 }
@@ -0,0 +1,258 @@
+package gov.usdot.cv.parser;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+
+/**
+ * Reusable sink for the typed fields of one parsed message. Values are stored in
+ * primitive arrays indexed by {@link CVField} id, so filling a record allocates nothing
+ * but the String and byte[] values themselves. Call {@link #clear()} before reusing a
+ * record for the next message; a record is not thread safe.
+ *
+ * {@link #toMap()} renders the record as the string map the translator expects, using
+ * the same formatting the parsers used before the typed contract existed. Geo coordinates
+ * set with {@link #setCoordinate(CVField, int)} are DOUBLE fields that keep their 1e-7
+ * degree units as well, so they are formatted without going through a double.
+ */
+public class CVRecord {
+
+	public enum Kind { LONG, DOUBLE, BOOLEAN, STRING, BYTES }
+
+	private static final Kind[] KINDS = Kind.values();
+	private static final byte UNSET = -1;
+
+	private byte[] kinds;
+	private long[] longs;
+	private double[] doubles;
+	private Object[] objects;
+	/** True where a DOUBLE field holds a geo coordinate whose units are in longs. */
+	private boolean[] coordinates;
+
+	/** Fields set since the last clear, in the order they were first set. */
+	private CVField[] fields;
+	private int size;
+
+	/** Base64 form of the payload taken from the input line; not a field of the map. */
+	private String encodedPayload;
+
+	public CVRecord() {
+		this(CVField.count());
+	}
+
+	public CVRecord(int capacity) {
+		capacity = Math.max(capacity, 1);
+		kinds = new byte[capacity];
+		Arrays.fill(kinds, UNSET);
+		longs = new long[capacity];
+		doubles = new double[capacity];
+		objects = new Object[capacity];
+		coordinates = new boolean[capacity];
+		fields = new CVField[capacity];
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			int id = fields[i].getId();
+			kinds[id] = UNSET;
+			objects[id] = null;
+			coordinates[id] = false;
+			fields[i] = null;
+		}
+		size = 0;
+		encodedPayload = null;
+	}
+
+	/**
+	 * Hand parsers the base64 payload as it appeared in the input, so they can use it
+	 * instead of encoding the decoded payload again. Reset by {@link #clear()}.
+	 */
+	public void setEncodedPayload(String encodedPayload) {
+		this.encodedPayload = encodedPayload;
+	}
+
+	/**
+	 * @return the base64 payload set by the caller, or null
+	 */
+	public String getEncodedPayload() {
+		return encodedPayload;
+	}
+
+	public void setLong(CVField field, long value) {
+		longs[mark(field, Kind.LONG)] = value;
+	}
+
+	public void setDouble(CVField field, double value) {
+		int id = mark(field, Kind.DOUBLE);
+		doubles[id] = value;
+		coordinates[id] = false;
+	}
+
+	/**
+	 * Store a J2735 geo coordinate as a DOUBLE field of its value in degrees, formatted by
+	 * {@link GeoCoordinates#format(int)}.
+	 */
+	public void setCoordinate(CVField field, int units) {
+		int id = mark(field, Kind.DOUBLE);
+		doubles[id] = GeoCoordinates.toDegrees(units);
+		longs[id] = units;
+		coordinates[id] = true;
+	}
+
+	public void setBoolean(CVField field, boolean value) {
+		longs[mark(field, Kind.BOOLEAN)] = value ? 1 : 0;
+	}
+
+	public void setString(CVField field, String value) {
+		objects[mark(field, Kind.STRING)] = value;
+	}
+
+	/**
+	 * Store a byte array without copying it; the caller must not modify it afterwards.
+	 */
+	public void setBytes(CVField field, byte[] value) {
+		objects[mark(field, Kind.BYTES)] = value;
+	}
+
+	public boolean has(CVField field) {
+		int id = field.getId();
+		return id < kinds.length && kinds[id] != UNSET;
+	}
+
+	/**
+	 * @return the kind of value stored for the field, or null if it is not set
+	 */
+	public Kind getKind(CVField field) {
+		return has(field) ? KINDS[kinds[field.getId()]] : null;
+	}
+
+	public long getLong(CVField field) {
+		return longs[field.getId()];
+	}
+
+	public double getDouble(CVField field) {
+		return doubles[field.getId()];
+	}
+
+	/**
+	 * @return true if the field was set with {@link #setCoordinate(CVField, int)} and not set since
+	 */
+	public boolean isCoordinate(CVField field) {
+		return has(field) && kinds[field.getId()] == Kind.DOUBLE.ordinal() && coordinates[field.getId()];
+	}
+
+	/**
+	 * @return the units of a field set with {@link #setCoordinate(CVField, int)}
+	 */
+	public int getCoordinate(CVField field) {
+		return (int) longs[field.getId()];
+	}
+
+	public boolean getBoolean(CVField field) {
+		return longs[field.getId()] != 0;
+	}
+
+	public String getString(CVField field) {
+		return (String) objects[field.getId()];
+	}
+
+	public byte[] getBytes(CVField field) {
+		return (byte[]) objects[field.getId()];
+	}
+
+	/**
+	 * @return the number of fields set
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the index'th field set, in the order the fields were first set
+	 */
+	public CVField fieldAt(int index) {
+		return fields[index];
+	}
+
+	/**
+	 * @return the field value as it appears in the translator map, or null if not set
+	 */
+	public String format(CVField field) {
+		if (!has(field)) {
+			return null;
+		}
+		int id = field.getId();
+		switch (KINDS[kinds[id]]) {
+		case LONG:
+			return String.valueOf(longs[id]);
+		case DOUBLE:
+			return coordinates[id] ? GeoCoordinates.format((int) longs[id]) : String.valueOf(doubles[id]);
+		case BOOLEAN:
+			return Boolean.toString(longs[id] != 0);
+		case BYTES:
+			return (objects[id] == null) ? null : Base64.encodeBase64String((byte[]) objects[id]);
+		default:
+			return (String) objects[id];
+		}
+	}
+
+	/**
+	 * @return a new string map of every field set, as handed to the translator
+	 */
+	public Map<String, String> toMap() {
+		Map<String, String> map = new HashMap<String, String>((int) (size / 0.75f) + 1);
+		copyTo(map);
+		return map;
+	}
+
+	public void copyTo(Map<String, String> map) {
+		for (int i = 0; i < size; i++) {
+			map.put(fields[i].getName(), format(fields[i]));
+		}
+	}
+
+	/**
+	 * Replace the fields of this record with copies of the fields of another, in the same
+	 * order. Byte array values are shared, not copied. The encoded payload is not copied.
+	 */
+	public void copyFrom(CVRecord source) {
+		clear();
+		for (int i = 0; i < source.size; i++) {
+			CVField field = source.fields[i];
+			int from = field.getId();
+			int to = mark(field, KINDS[source.kinds[from]]);
+			longs[to] = source.longs[from];
+			doubles[to] = source.doubles[from];
+			objects[to] = source.objects[from];
+			coordinates[to] = source.coordinates[from];
+		}
+	}
+
+	private int mark(CVField field, Kind kind) {
+		int id = field.getId();
+		if (id >= kinds.length) {
+			grow(id + 1);
+		}
+		if (kinds[id] == UNSET) {
+			fields[size++] = field;
+		} else if (kinds[id] != kind.ordinal()) {
+			objects[id] = null;
+		}
+		kinds[id] = (byte) kind.ordinal();
+		return id;
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(minCapacity, kinds.length * 2);
+		int oldCapacity = kinds.length;
+		kinds = Arrays.copyOf(kinds, capacity);
+		Arrays.fill(kinds, oldCapacity, capacity, UNSET);
+		longs = Arrays.copyOf(longs, capacity);
+		doubles = Arrays.copyOf(doubles, capacity);
+		objects = Arrays.copyOf(objects, capacity);
+		coordinates = Arrays.copyOf(coordinates, capacity);
+		fields = Arrays.copyOf(fields, capacity);
+	}
+}
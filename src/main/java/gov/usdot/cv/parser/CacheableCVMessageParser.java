@@ -0,0 +1,21 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * A {@link TypedCVMessageParser} whose fields, other than those it takes from the data
+ * bundle, depend on nothing but the payload. {@link J2735Parser} can then keep the fields
+ * parsed from a payload in its {@link ParsedOutputCache} and, when the same payload is
+ * received again, reuse them without decoding it, filling in only the bundle fields of
+ * the new delivery with {@link #parseBundle(DataBundle, CVRecord)}.
+ */
+public interface CacheableCVMessageParser extends TypedCVMessageParser {
+
+	/**
+	 * Set the fields taken from the data bundle rather than the payload, over a record
+	 * holding the cached fields of a payload parsed before.
+	 */
+	public void parseBundle(DataBundle bundle, CVRecord record) throws ParsePipelineException;
+}
@@ -0,0 +1,472 @@
+package gov.usdot.cv.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.apache.log4j.Logger;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * Replays an archived capture file through {@link J2735Parser} on a fork/join pool. The
+ * file is memory-mapped and split on record boundaries into chunks, each parsed by one
+ * worker with a parser of its own, so workers share no decoder, message parser or
+ * translator state. Captures are base64 data bundle lines or, with inputFormat frame,
+ * length prefixed {@link BundleFrames}.
+ *
+ * In order mode the records of each chunk are handed to the sink on the calling thread in
+ * file order. Otherwise workers hand records to the sink as they are parsed, from several
+ * threads at once. Either way only a few chunks per worker are in flight, so memory use
+ * does not grow with the file.
+ *
+ * A replay that fails reports, through its exception message and
+ * {@link #getCommittedOffset()}, the offset up to which every record was delivered, which a
+ * new replay can resume from.
+ */
+public class CaptureReplay {
+
+	private static final Logger logger = Logger.getLogger(CaptureReplay.class);
+
+	public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/** Chunks in flight per worker. */
+	private static final int CHUNKS_PER_WORKER = 2;
+
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * Creates the configured but not yet initialized parsers of the workers, one per worker
+	 * thread. Called from the worker threads.
+	 */
+	public interface ParserFactory {
+		J2735Parser createParser();
+	}
+
+	/**
+	 * Receives the replayed records.
+	 */
+	public interface RecordSink {
+		void record(JSONObject record) throws ParsePipelineException;
+	}
+
+	private final ParserFactory parserFactory;
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private boolean ordered = true;
+
+	private String inputFormat = J2735Parser.LINE_FORMAT;
+
+	private long progressIntervalMillis = 10000;
+
+	private volatile long committedOffset;
+
+	public CaptureReplay(ParserFactory parserFactory) {
+		this.parserFactory = parserFactory;
+	}
+
+	/**
+	 * Replay a capture from the start offset to the end of the file. The start offset of a
+	 * line capture that falls inside a line is moved to the start of the next line; the
+	 * start offset of a frame capture must be the start of a frame.
+	 *
+	 * @throws ParsePipelineException if a record could not be translated or the sink failed,
+	 * after the records of every earlier chunk were delivered
+	 */
+	public Result replay(File capture, long startOffset, final RecordSink sink) throws IOException, ParsePipelineException {
+		final boolean frames = J2735Parser.FRAME_FORMAT.equals(inputFormat);
+		RandomAccessFile file = new RandomAccessFile(capture, "r");
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		final Workers workers = new Workers();
+		try {
+			final FileChannel channel = file.getChannel();
+			long size = channel.size();
+			long start = frames ? startOffset : lineStart(channel, startOffset, size);
+			committedOffset = start;
+
+			long begin = System.nanoTime();
+			long lastProgress = begin;
+			long records = 0;
+			long next = start;
+			Deque<Chunk> inFlight = new ArrayDeque<Chunk>();
+			while (next < size || !inFlight.isEmpty()) {
+				while (next < size && inFlight.size() < parallelism * CHUNKS_PER_WORKER) {
+					long end = frames ? frameBoundary(channel, next, size) : lineBoundary(channel, next, size);
+					final long chunkStart = next;
+					final long chunkEnd = end;
+					Future<Chunk> future = pool.submit(new Callable<Chunk>() {
+						public Chunk call() throws Exception {
+							return workers.parse(channel, chunkStart, chunkEnd, frames, ordered ? null : sink);
+						}
+					});
+					inFlight.add(new Chunk(chunkStart, chunkEnd, future));
+					next = end;
+				}
+
+				Chunk chunk = inFlight.poll();
+				Chunk done = await(chunk);
+				if (ordered) {
+					for (JSONObject record : done.records) {
+						sink.record(record);
+					}
+				}
+				records += done.count;
+				committedOffset = chunk.end;
+
+				long now = System.nanoTime();
+				if (now - lastProgress >= TimeUnit.MILLISECONDS.toNanos(progressIntervalMillis)) {
+					logger.info(String.format("Replayed %d records of %s up to offset %d of %d, %.0f records/s",
+							records, capture, chunk.end, size, records * 1e9 / (now - begin)));
+					lastProgress = now;
+				}
+			}
+			return new Result(records, workers.failureCount(), committedOffset - start, committedOffset, System.nanoTime() - begin);
+		} finally {
+			shutdown(pool);
+			workers.dispose();
+			file.close();
+		}
+	}
+
+	/**
+	 * Stop the pool and wait for chunks still being parsed, so their parsers can be disposed.
+	 */
+	private static void shutdown(ForkJoinPool pool) {
+		pool.shutdownNow();
+		try {
+			if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.warn("Replay workers still running after being stopped");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private Chunk await(Chunk chunk) throws ParsePipelineException {
+		try {
+			return chunk.future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParsePipelineException("Interrupted replaying the chunk at offset " + chunk.start
+					+ ", resume from offset " + committedOffset, e);
+		} catch (ExecutionException e) {
+			throw new ParsePipelineException("Failed to replay the chunk at offset " + chunk.start
+					+ ", resume from offset " + committedOffset, e.getCause());
+		}
+	}
+
+	/**
+	 * @return the offset, the start offset itself if it begins a line, of the first line
+	 * starting at or after the start offset
+	 */
+	static long lineStart(FileChannel channel, long offset, long size) throws IOException {
+		if (offset <= 0) return 0;
+		return nextLine(channel, offset - 1, size);
+	}
+
+	/**
+	 * @return the end of the first line ending at least chunkSize bytes after start
+	 */
+	long lineBoundary(FileChannel channel, long start, long size) throws IOException {
+		long target = start + chunkSize - 1;
+		return (target >= size) ? size : nextLine(channel, target, size);
+	}
+
+	/**
+	 * @return the offset just past the first newline at or after the given offset, or size
+	 */
+	private static long nextLine(FileChannel channel, long offset, long size) throws IOException {
+		ByteBuffer scan = ByteBuffer.allocate(4096);
+		long position = offset;
+		while (position < size) {
+			scan.clear();
+			int read = channel.read(scan, position);
+			if (read <= 0) break;
+			for (int i = 0; i < read; i++) {
+				if (scan.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * @return the end of the first frame ending at least chunkSize bytes after start, or
+	 * size if the frames run past the end of the file
+	 */
+	long frameBoundary(FileChannel channel, long start, long size) throws IOException {
+		long limit = Math.min(size, start + chunkSize);
+		long position = start;
+		MappedByteBuffer lengths = null;
+		long base = 0;
+		while (position < limit) {
+			if (position + BundleFrames.PREFIX_LENGTH > size) return size;
+			if (lengths == null || position + BundleFrames.PREFIX_LENGTH > base + lengths.capacity()) {
+				base = position;
+				lengths = channel.map(FileChannel.MapMode.READ_ONLY, base,
+						Math.min(size - base, Math.max(chunkSize, BundleFrames.PREFIX_LENGTH)));
+			}
+			int length = lengths.getInt((int) (position - base));
+			if (length < 0) {
+				throw FrameSource.badLength(length, position);
+			}
+			position += BundleFrames.PREFIX_LENGTH + (long) length;
+		}
+		return Math.min(position, size);
+	}
+
+	/**
+	 * @return the offset up to which every record of the current or last replay was delivered
+	 */
+	public long getCommittedOffset() {
+		return committedOffset;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Set the size chunks are cut to. A chunk ends at the first record boundary after this
+	 * many bytes, so it is only ever larger by part of one record.
+	 */
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/**
+	 * Set whether records reach the sink in file order on the calling thread, or as they
+	 * are parsed on the worker threads.
+	 */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+
+	public String getInputFormat() {
+		return inputFormat;
+	}
+
+	/**
+	 * @param inputFormat {@link J2735Parser#LINE_FORMAT} or {@link J2735Parser#FRAME_FORMAT}
+	 */
+	public void setInputFormat(String inputFormat) {
+		this.inputFormat = inputFormat;
+	}
+
+	public long getProgressIntervalMillis() {
+		return progressIntervalMillis;
+	}
+
+	/**
+	 * Set how often the progress and records/s of a replay are logged.
+	 */
+	public void setProgressIntervalMillis(long progressIntervalMillis) {
+		this.progressIntervalMillis = progressIntervalMillis;
+	}
+
+	/**
+	 * A range of the file being parsed, then the records parsed from it.
+	 */
+	private static final class Chunk {
+		final long start;
+		final long end;
+		final Future<Chunk> future;
+		final List<JSONObject> records;
+		final int count;
+
+		Chunk(long start, long end, Future<Chunk> future) {
+			this.start = start;
+			this.end = end;
+			this.future = future;
+			this.records = null;
+			this.count = 0;
+		}
+
+		Chunk(long start, long end, List<JSONObject> records, int count) {
+			this.start = start;
+			this.end = end;
+			this.future = null;
+			this.records = records;
+			this.count = count;
+		}
+	}
+
+	/**
+	 * The parsers of the worker threads, created on first use by each thread.
+	 */
+	private final class Workers {
+		private final List<J2735Parser> parsers = Collections.synchronizedList(new ArrayList<J2735Parser>());
+
+		private final ThreadLocal<J2735Parser> parser = new ThreadLocal<J2735Parser>() {
+			@Override
+			protected J2735Parser initialValue() {
+				J2735Parser created = parserFactory.createParser();
+				created.setInputFormat(J2735Parser.LINE_FORMAT);
+				created.initialize();
+				parsers.add(created);
+				return created;
+			}
+		};
+
+		/**
+		 * Parse a chunk, collecting its records or, given a sink, handing them to it.
+		 */
+		Chunk parse(FileChannel channel, long start, long end, boolean frames, RecordSink sink) throws IOException, ParsePipelineException {
+			J2735Parser worker = parser.get();
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+			if (frames) {
+				worker.setInputBuffer(data);
+			} else {
+				worker.setInputStream(new ByteBufferInputStream(data));
+			}
+			List<JSONObject> records = (sink == null) ? new ArrayList<JSONObject>() : null;
+			int count = 0;
+			List<JSONObject> batch;
+			while ((batch = worker.parseBatch(BATCH_SIZE)) != null) {
+				count += batch.size();
+				if (sink == null) {
+					records.addAll(batch);
+				} else {
+					for (JSONObject record : batch) {
+						sink.record(record);
+					}
+				}
+			}
+			return new Chunk(start, end, records, count);
+		}
+
+		long failureCount() {
+			long total = 0;
+			synchronized (parsers) {
+				for (J2735Parser each : parsers) {
+					total += each.getFailureRecorder().getTotalCount();
+				}
+			}
+			return total;
+		}
+
+		void dispose() {
+			synchronized (parsers) {
+				for (J2735Parser each : parsers) {
+					each.dispose();
+				}
+				parsers.clear();
+			}
+		}
+	}
+
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? (buffer.get() & 0xff) : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) return 0;
+			if (!buffer.hasRemaining()) return -1;
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * Counts and rate of a finished replay.
+	 */
+	public static final class Result {
+		private final long recordCount;
+		private final long failureCount;
+		private final long byteCount;
+		private final long endOffset;
+		private final long elapsedNanos;
+
+		Result(long recordCount, long failureCount, long byteCount, long endOffset, long elapsedNanos) {
+			this.recordCount = recordCount;
+			this.failureCount = failureCount;
+			this.byteCount = byteCount;
+			this.endOffset = endOffset;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public long getRecordCount() {
+			return recordCount;
+		}
+
+		/**
+		 * @return the number of records that failed to parse and were skipped
+		 */
+		public long getFailureCount() {
+			return failureCount;
+		}
+
+		public long getByteCount() {
+			return byteCount;
+		}
+
+		/**
+		 * @return the offset the replay ended at, the size of the file
+		 */
+		public long getEndOffset() {
+			return endOffset;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		public double getRecordsPerSecond() {
+			return (elapsedNanos == 0) ? 0 : recordCount * 1e9 / elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d records, %d failures, %d bytes in %.3f s, %.0f records/s",
+					recordCount, failureCount, byteCount, elapsedNanos / 1e9, getRecordsPerSecond());
+		}
+	}
+}
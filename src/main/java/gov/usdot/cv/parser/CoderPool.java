@@ -0,0 +1,128 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.J2735;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oss.asn1.Coder;
+
+/**
+ * Bounded borrow/return pool of PER unaligned coders. An OSS {@link Coder} keeps decode
+ * state and may not be shared between threads, so every decode borrows a coder for its
+ * own use and returns it when done. Callers block when all coders are in use; those
+ * waits are counted so the pool can be sized from production numbers. Once the pool is
+ * disposed, borrowing fails, including for callers already waiting.
+ *
+ * The J2735 control table must be initialized before the pool is created.
+ */
+public class CoderPool {
+
+	/** How often a waiting borrow checks whether the pool was disposed. */
+	private static final long DISPOSE_CHECK_MILLIS = 100;
+
+	private final BlockingQueue<Coder> idle;
+	private final int size;
+	private volatile boolean disposed = false;
+
+	private final AtomicLong borrowCount = new AtomicLong();
+	private final AtomicLong waitCount = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+
+	public CoderPool(int size, boolean enableDebugging) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Coder pool size must be positive: " + size);
+		}
+		this.size = size;
+		this.idle = new ArrayBlockingQueue<Coder>(size);
+		for (int i = 0; i < size; i++) {
+			Coder coder = J2735.getPERUnalignedCoder();
+			if (enableDebugging) {
+				coder.enableEncoderDebugging();
+				coder.enableDecoderDebugging();
+			}
+			idle.add(coder);
+		}
+	}
+
+	/**
+	 * Take a coder out of the pool, waiting for one to be returned if all are in use.
+	 * Every borrowed coder must be handed back with {@link #release(Coder)}.
+	 *
+	 * @throws IllegalStateException if the pool is disposed before or while waiting
+	 */
+	public Coder borrow() throws InterruptedException {
+		checkNotDisposed();
+		borrowCount.incrementAndGet();
+		Coder coder = idle.poll();
+		if (coder == null) {
+			long start = System.nanoTime();
+			while ((coder = idle.poll(DISPOSE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+				checkNotDisposed();
+			}
+			waitCount.incrementAndGet();
+			waitNanos.addAndGet(System.nanoTime() - start);
+		}
+		// a coder released while the pool was being disposed
+		checkNotDisposed();
+		return coder;
+	}
+
+	private void checkNotDisposed() {
+		if (disposed) {
+			throw new IllegalStateException("Coder pool has been disposed");
+		}
+	}
+
+	public void release(Coder coder) {
+		if (coder != null && !disposed) {
+			idle.offer(coder);
+		}
+	}
+
+	/**
+	 * Drop the pooled coders and fail any borrow from now on. Coders still on loan are
+	 * discarded when they are released.
+	 */
+	public void dispose() {
+		disposed = true;
+		idle.clear();
+	}
+
+	/**
+	 * @return the number of coders created for the pool
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of coders currently available without waiting
+	 */
+	public int getAvailable() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the total number of borrow calls
+	 */
+	public long getBorrowCount() {
+		return borrowCount.get();
+	}
+
+	/**
+	 * @return the number of borrow calls that found the pool empty and had to wait
+	 */
+	public long getWaitCount() {
+		return waitCount.get();
+	}
+
+	/**
+	 * @return the total time, in nanoseconds, borrow calls spent waiting for a coder
+	 */
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+}
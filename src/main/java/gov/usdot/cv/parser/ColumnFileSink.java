@@ -0,0 +1,135 @@
+package gov.usdot.cv.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Writes the row groups of one schema to a local column file. All numbers are big
+ * endian. The file starts with a header:
+ * <pre>
+ *   magic        "CVCOL" and the format version byte 1
+ *   schema name  as written by DataOutput.writeUTF
+ *   columns      int count, then per column its field name, likewise, and the
+ *                {@link CVRecord.Kind} ordinal as a byte
+ * </pre>
+ * followed by the row groups, each an int row count and then, column after column, a
+ * presence bitmap of (rows + 7) / 8 bytes, row 0 in the low bit of the first byte, and
+ * the values of the present rows only: 8 byte longs, 8 byte doubles, 1 byte booleans,
+ * and strings, UTF-8, and byte arrays as an int length and the bytes.
+ */
+public class ColumnFileSink implements RowGroupSink {
+
+	static final byte[] MAGIC = { 'C', 'V', 'C', 'O', 'L', 1 };
+
+	/** Extension of the files written by the {@link #factory(File)} sinks. */
+	public static final String EXTENSION = ".cvc";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final File file;
+	private final DataOutputStream out;
+	private long rowCount;
+
+	public ColumnFileSink(File file, RecordSchema schema) throws IOException {
+		this.file = file;
+		this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.write(MAGIC);
+			out.writeUTF(schema.getName());
+			out.writeInt(schema.getColumnCount());
+			for (int column = 0; column < schema.getColumnCount(); column++) {
+				out.writeUTF(schema.getField(column).getName());
+				out.writeByte(schema.getKind(column).ordinal());
+			}
+		} catch (IOException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return a factory of sinks writing each schema to a file in the directory named
+	 * after the schema and the time the factory was created
+	 */
+	public static RowGroupSink.Factory factory(final File directory) {
+		final long created = System.currentTimeMillis();
+		return new RowGroupSink.Factory() {
+			public RowGroupSink create(RecordSchema schema) throws IOException {
+				return new ColumnFileSink(new File(directory, schema.getName() + "-" + created + EXTENSION), schema);
+			}
+		};
+	}
+
+	public void write(RowGroup group) throws IOException {
+		RecordSchema schema = group.getSchema();
+		int rows = group.size();
+		out.writeInt(rows);
+		byte[] bitmap = new byte[(rows + 7) >>> 3];
+		for (int column = 0; column < schema.getColumnCount(); column++) {
+			Arrays.fill(bitmap, (byte) 0);
+			for (int row = 0; row < rows; row++) {
+				if (group.isPresent(column, row)) {
+					bitmap[row >>> 3] |= 1 << (row & 7);
+				}
+			}
+			out.write(bitmap);
+			writeValues(group, column, rows);
+		}
+		rowCount += rows;
+	}
+
+	private void writeValues(RowGroup group, int column, int rows) throws IOException {
+		switch (group.getSchema().getKind(column)) {
+		case LONG: {
+			long[] values = group.getLongs(column);
+			for (int row = 0; row < rows; row++) {
+				if (group.isPresent(column, row)) out.writeLong(values[row]);
+			}
+			break;
+		}
+		case BOOLEAN: {
+			long[] values = group.getLongs(column);
+			for (int row = 0; row < rows; row++) {
+				if (group.isPresent(column, row)) out.writeByte((int) values[row]);
+			}
+			break;
+		}
+		case DOUBLE: {
+			double[] values = group.getDoubles(column);
+			for (int row = 0; row < rows; row++) {
+				if (group.isPresent(column, row)) out.writeDouble(values[row]);
+			}
+			break;
+		}
+		default: {
+			Object[] values = group.getObjects(column);
+			for (int row = 0; row < rows; row++) {
+				if (!group.isPresent(column, row)) continue;
+				byte[] bytes = (values[row] instanceof String) ? ((String) values[row]).getBytes(UTF_8) : (byte[]) values[row];
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+		}
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the number of rows written
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+}
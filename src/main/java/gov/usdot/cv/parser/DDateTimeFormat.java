@@ -0,0 +1,110 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.dsrc.DDateTime;
+import gov.usdot.asn1.j2735.J2735Util;
+
+import java.util.TimeZone;
+
+import com.oss.asn1.INTEGER;
+
+/**
+ * Formats a {@link DDateTime} as {@code yyyy-MM-dd'T'HH:mm:ss}, the parsers' date pattern,
+ * by writing its fields straight into a char buffer instead of going through a calendar
+ * and a SimpleDateFormat.
+ *
+ * The text is the text {@link J2735Util#toFormattedDateString(DDateTime, String)} gives.
+ * Only plain dates are assembled directly: every field present and in range, a Gregorian
+ * year, no leap second and no offset from UTC, while the JVM's default time zone is UTC
+ * at the time of the call. Whether J2735Util formats the fields as a local time or
+ * shifts them from UTC into the default zone, the text is then the same. Anything else,
+ * where a lenient calendar may roll fields over or shift a time, is handed to J2735Util.
+ */
+public final class DDateTimeFormat {
+
+	/** Length of the formatted text. */
+	static final int LENGTH = 19;
+
+	/** First whole year after the calendar's switch from Julian to Gregorian dates. */
+	private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+	private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+	private DDateTimeFormat() {
+	}
+
+	/**
+	 * @return the date time as {@link AbstractCVMessageParser#DATE_PATTERN} formats it
+	 */
+	public static String format(DDateTime dateTime) {
+		if (isUtc(TimeZone.getDefault())) {
+			char[] text = new char[LENGTH];
+			if (format(dateTime, text)) {
+				return new String(text);
+			}
+		}
+		return J2735Util.toFormattedDateString(dateTime, AbstractCVMessageParser.DATE_PATTERN);
+	}
+
+	/**
+	 * Write the date time to the start of a buffer of at least {@link #LENGTH} characters,
+	 * if it is a plain date, whatever the default time zone.
+	 *
+	 * @return false, leaving the buffer in an unspecified state, if the date has a field
+	 * missing or out of range, a year before 1583, a leap second or an offset
+	 */
+	static boolean format(DDateTime dateTime, char[] text) {
+		int year = value(dateTime.getYear());
+		int month = value(dateTime.getMonth());
+		int day = value(dateTime.getDay());
+		int hour = value(dateTime.getHour());
+		int minute = value(dateTime.getMinute());
+		int millis = value(dateTime.getSecond());
+		if (year < FIRST_GREGORIAN_YEAR || year > 9999 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+				|| hour < 0 || hour > 23 || minute < 0 || minute > 59 || millis < 0 || millis > 59999) {
+			return false;
+		}
+		if (dateTime.hasOffset() && value(dateTime.getOffset()) != 0) {
+			return false;
+		}
+		write(text, 0, year, 4);
+		text[4] = '-';
+		write(text, 5, month, 2);
+		text[7] = '-';
+		write(text, 8, day, 2);
+		text[10] = 'T';
+		write(text, 11, hour, 2);
+		text[13] = ':';
+		write(text, 14, minute, 2);
+		text[16] = ':';
+		write(text, 17, millis / 1000, 2);
+		return true;
+	}
+
+	private static int value(INTEGER field) {
+		return (field != null) ? field.intValue() : -1;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+			return 29;
+		}
+		return DAYS_IN_MONTH[month - 1];
+	}
+
+	private static void write(char[] text, int offset, int value, int digits) {
+		for (int i = offset + digits - 1; i >= offset; i--) {
+			text[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	/**
+	 * @return true if the zone is UTC under one of its names, keeping a zero offset for
+	 * all time
+	 */
+	static boolean isUtc(TimeZone zone) {
+		String id = zone.getID();
+		boolean fixed = "UTC".equals(id) || "GMT".equals(id) || "UCT".equals(id) || "Zulu".equals(id) || id.startsWith("Etc/");
+		return fixed && zone.getRawOffset() == 0;
+	}
+}
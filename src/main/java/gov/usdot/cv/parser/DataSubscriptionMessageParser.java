@@ -1,20 +1,12 @@
 package gov.usdot.cv.parser;
 
-import static gov.usdot.asn1.j2735.J2735Util.convertGeoCoordinateToDouble;
-import static gov.usdot.asn1.j2735.J2735Util.toFormattedDateString;
 import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionCancel;
 import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionRequest;
-import gov.usdot.asn1.generated.j2735.semi.GeoRegion;
 import gov.usdot.asn1.generated.j2735.semi.IsdType;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
 import gov.usdot.asn1.generated.j2735.semi.VsmType;
-import gov.usdot.cv.common.asn1.GroupIDHelper;
 import gov.usdot.cv.common.dialog.DataBundle;
 
-import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
 
 import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
@@ -41,9 +33,18 @@ public class DataSubscriptionMessageParser extends AbstractCVMessageParser {
 	public static final String SE_LAT 			= "seLat";
 	public static final String SE_LON 			= "seLon";
 
-	public Map<String, String> parse(
+	public SemiDialogID[] getDialogIds() {
+		return new SemiDialogID[] { SemiDialogID.dataSubscription };
+	}
+	
+	public Class<?>[] getMessageClasses() {
+		return new Class<?>[] { DataSubscriptionRequest.class, DataSubscriptionCancel.class };
+	}
+	
+	public void parse(
 			AbstractData message, 
-			DataBundle bundle) throws ParsePipelineException {
+			DataBundle bundle, 
+			CVRecord record) throws ParsePipelineException {
 
 		if (! (message instanceof DataSubscriptionRequest) && ! (message instanceof DataSubscriptionCancel)) {
 			String errorMsg = String.format(
@@ -54,32 +55,28 @@ public class DataSubscriptionMessageParser extends AbstractCVMessageParser {
 			throw new ParsePipelineException(errorMsg);
 		}
 		
-		Map<String, String> result = null;
 		if (message instanceof DataSubscriptionRequest) {
-			logger.debug("Parsing subscription add request: " + message.toString());
-			result = parseRequest(message);
+			if (logger.isDebugEnabled())
+				logger.debug("Parsing subscription add request: " + message.toString());
+			parseRequest(message, record);
 		} else if (message instanceof DataSubscriptionCancel) {
-			logger.debug("Parsing subscription cancel request: " + message.toString());
-			result = parseCancel(message);
+			if (logger.isDebugEnabled())
+				logger.debug("Parsing subscription cancel request: " + message.toString());
+			parseCancel(message, record);
 		}
 		
-		result.put(DEST_HOST, bundle.getDestHost());
-		result.put(DEST_PORT, Integer.toString(bundle.getDestPort()));
-		result.put(FROM_FORWARDER, Boolean.toString(bundle.fromForwarder()));
-		result.put(CERTIFICATE, Base64.encodeBase64String(bundle.getCertificate()));
-		
-		return result;
+		record.setString(CVField.DEST_HOST, bundle.getDestHost());
+		record.setLong(CVField.DEST_PORT, bundle.getDestPort());
+		record.setBoolean(CVField.FROM_FORWARDER, bundle.fromForwarder());
+		record.setBytes(CVField.CERTIFICATE, bundle.getCertificate());
 	}
 	
-	private Map<String, String> parseRequest(AbstractData message) throws ParsePipelineException {
-		HashMap<String, String> map = new HashMap<String, String>();
+	private void parseRequest(AbstractData message, CVRecord record) throws ParsePipelineException {
 		DataSubscriptionRequest msg = (DataSubscriptionRequest) message;
 
-		map.put(DIALOG_ID, String.valueOf(msg.getDialogID().longValue()));
-		map.put(SEQUENCE_ID, String.valueOf(msg.getSeqID().longValue()));
-		map.put(GROUP_ID, String.valueOf(GroupIDHelper.fromGroupID(msg.getGroupID())));
-		map.put(REQUEST_ID, Integer.toString(ByteBuffer.wrap(msg.getRequestID().byteArrayValue()).getInt()));
-		map.put(END_TIME, toFormattedDateString(msg.getEndTime(), DATE_PATTERN));
+		SemiFields fields = semiFields().readHeader(msg.getDialogID(), msg.getSeqID(), msg.getGroupID(), msg.getRequestID());
+		fields.copyHeaderTo(record);
+		record.setString(CVField.END_TIME, DDateTimeFormat.format(msg.getEndTime()));
 		
 		String type = null;
 		int val = -1;
@@ -92,35 +89,18 @@ public class DataSubscriptionMessageParser extends AbstractCVMessageParser {
 			type = isdType.getClass().getSimpleName();
 			val = Byte.valueOf(isdType.byteArrayValue()[0]).intValue();
 		}
-		map.put(TYPE, type);
-		map.put(TYPE_VALUE, String.valueOf(val));
+		record.setString(CVField.TYPE, type);
+		record.setLong(CVField.TYPE_VALUE, val);
 		
-		GeoRegion region = msg.getServiceRegion();
-		if (region != null) {
-			if (region.getNwCorner() != null) {
-				map.put(NW_LAT, String.valueOf(convertGeoCoordinateToDouble(region.getNwCorner().getLat().intValue())));
-				map.put(NW_LON, String.valueOf(convertGeoCoordinateToDouble(region.getNwCorner().get_long().intValue())));
-			}
-			if (region.getSeCorner() != null) {
-				map.put(SE_LAT, String.valueOf(convertGeoCoordinateToDouble(region.getSeCorner().getLat().intValue())));
-				map.put(SE_LON, String.valueOf(convertGeoCoordinateToDouble(region.getSeCorner().get_long().intValue())));
-			}
-		}
-
-		return map;
+		fields.readRegion(msg.getServiceRegion()).copyRegionTo(record);
 	}
 	
-	private Map<String, String> parseCancel(AbstractData message) throws ParsePipelineException {
-		HashMap<String, String> map = new HashMap<String, String>();
+	private void parseCancel(AbstractData message, CVRecord record) throws ParsePipelineException {
 		DataSubscriptionCancel msg = (DataSubscriptionCancel) message;
 
-		map.put(SUBSCRIBER_ID, String.valueOf(ByteBuffer.wrap(msg.getSubID().byteArrayValue()).getInt()));
-		map.put(DIALOG_ID, String.valueOf(msg.getDialogID().longValue()));
-		map.put(SEQUENCE_ID, String.valueOf(msg.getSeqID().longValue()));
-		map.put(GROUP_ID, String.valueOf(GroupIDHelper.fromGroupID(msg.getGroupID())));
-		map.put(REQUEST_ID, String.valueOf(ByteBuffer.wrap(msg.getRequestID().byteArrayValue()).getInt()));
-		
-		return map;
+		record.setLong(CVField.SUBSCRIBER_ID, SemiFields.toInt(msg.getSubID()));
+		SemiFields fields = semiFields().readHeader(msg.getDialogID(), msg.getSeqID(), msg.getGroupID(), msg.getRequestID());
+		fields.copyHeaderTo(record);
 	}
 
 }
@@ -0,0 +1,10 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Receives the raw input lines that failed to parse, e.g. to keep them for replay.
+ * Called on the parsing thread, possibly from several threads at once, so an
+ * implementation should be thread safe and hand the line off quickly.
+ */
+public interface DeadLetterSink {
+	public void deadLetter(ParseFailure failure, String input);
+}
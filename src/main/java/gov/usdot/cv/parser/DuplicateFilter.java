@@ -0,0 +1,166 @@
+package gov.usdot.cv.parser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recognizes payloads seen before within a time window, so messages resent by forwarders
+ * can be dropped before they are decoded. A payload is remembered by a 64 bit hash of its
+ * bytes and its length; the SEMI header, with the group, request and sequence ids, is
+ * part of those bytes. Entries live in a fixed number of stripes, each an insertion
+ * ordered map behind its own lock, and leave their stripe when the window passes or, if
+ * the stripe is full, when they are the oldest.
+ *
+ * A hit only ever means the same bytes within the window, save for a hash collision,
+ * which at 64 bits is not expected in the lifetime of a deployment.
+ */
+public class DuplicateFilter {
+
+	private static final int STRIPES = 16;
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+	private final long windowNanos;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong expiredCount = new AtomicLong();
+
+	/**
+	 * @param capacity the most payloads remembered at once
+	 * @param window how long a payload is remembered after it was first seen
+	 */
+	public DuplicateFilter(int capacity, long window, TimeUnit unit) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Duplicate filter capacity must be positive: " + capacity);
+		}
+		this.windowNanos = unit.toNanos(window);
+		int stripeCapacity = (capacity + STRIPES - 1) / STRIPES;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(stripeCapacity);
+		}
+	}
+
+	/**
+	 * Check a payload against the payloads seen within the window and remember it.
+	 *
+	 * @return true if the same payload was seen within the window
+	 */
+	public boolean isDuplicate(byte[] payload) {
+		return isDuplicate(hash(payload), System.nanoTime());
+	}
+
+	/**
+	 * @param hash the payload's {@link #hash(byte[])}, for callers that hash it anyway
+	 */
+	public boolean isDuplicate(long hash) {
+		return isDuplicate(hash, System.nanoTime());
+	}
+
+	boolean isDuplicate(byte[] payload, long now) {
+		return isDuplicate(hash(payload), now);
+	}
+
+	private boolean isDuplicate(long hash, long now) {
+		Stripe stripe = stripes[(int) (hash >>> 60)];
+		Long key = Long.valueOf(hash);
+		synchronized (stripe) {
+			stripe.expire(now);
+			Long seen = stripe.get(key);
+			if (seen != null) {
+				hitCount.incrementAndGet();
+				return true;
+			}
+			stripe.put(key, now);
+		}
+		missCount.incrementAndGet();
+		return false;
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of payloads forgotten within their window to make room
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return the number of payloads forgotten because their window passed
+	 */
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	/**
+	 * @return the number of payloads remembered
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 64 bit FNV-1a of the bytes and their length, finished with the MurmurHash3 mix so
+	 * every bit of the result, the top bits picking the stripe included, depends on every byte.
+	 */
+	public static long hash(byte[] bytes) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : bytes) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		hash ^= bytes.length;
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Payload keys and the time they were first seen, oldest first.
+	 */
+	@SuppressWarnings("serial")
+	private final class Stripe extends LinkedHashMap<Long, Long> {
+		private final int capacity;
+
+		Stripe(int capacity) {
+			super(16, 0.75f, false);
+			this.capacity = capacity;
+		}
+
+		void expire(long now) {
+			Iterator<Long> seen = values().iterator();
+			while (seen.hasNext() && now - seen.next() > windowNanos) {
+				seen.remove();
+				expiredCount.incrementAndGet();
+			}
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+			if (size() > capacity) {
+				evictionCount.incrementAndGet();
+				return true;
+			}
+			return false;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Finds the base64 payload inside a base64 data bundle line so it can be passed through
+ * as the encodedMsg field instead of being encoded again.
+ *
+ * DataBundleUtil writes the payload as the last field of the bundle, so whenever the
+ * payload starts on a 3 byte boundary of the decoded bundle its base64 form is exactly
+ * the tail of the line. That layout is not part of the DataBundleUtil contract, so it is
+ * verified once against {@link DataBundle#encodePayload()} before it is relied on, and
+ * every slice is spot checked against the first bytes of the payload.
+ */
+final class EncodedPayloadSlicer {
+
+	private static final Logger logger = Logger.getLogger(EncodedPayloadSlicer.class);
+
+	/** Large enough that a line breaking base64 encoder would be caught by the probe. */
+	private static final int PROBE_PAYLOAD_LENGTH = 300;
+
+	private static volatile Boolean supported;
+
+	private EncodedPayloadSlicer() {
+	}
+
+	/**
+	 * @return true if the data bundle layout allows slicing, checked on first call
+	 */
+	static boolean isSupported() {
+		Boolean result = supported;
+		if (result == null) {
+			result = probe();
+			supported = result;
+		}
+		return result;
+	}
+
+	/**
+	 * @param input the base64 data bundle line the payload was decoded from
+	 * @param payload the decoded payload
+	 * @return the base64 payload as it appears in the input, or null if it is not aligned
+	 * on a base64 group or the input does not end with it
+	 */
+	static String slice(String input, byte[] payload) {
+		int length = input.length();
+		if (payload == null || payload.length == 0 || length == 0 || length % 4 != 0) {
+			return null;
+		}
+		int padding = 0;
+		while (padding < 2 && input.charAt(length - 1 - padding) == '=') {
+			padding++;
+		}
+		int offset = length / 4 * 3 - padding - payload.length;
+		if (offset < 0 || offset % 3 != 0) {
+			return null;
+		}
+		int start = offset / 3 * 4;
+		int checked = Math.min(3, payload.length);
+		int group = decodeGroup(input, start);
+		if (group < 0) {
+			return null;
+		}
+		for (int i = 0; i < checked; i++) {
+			if ((byte) (group >>> (16 - 8 * i)) != payload[i]) {
+				return null;
+			}
+		}
+		return input.substring(start);
+	}
+
+	/**
+	 * Encode a sample bundle for each payload alignment and check every slice against the
+	 * bundle's own encoding of the payload.
+	 */
+	private static boolean probe() {
+		byte[] payload = new byte[PROBE_PAYLOAD_LENGTH];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) (i * 31 + 7);
+		}
+		int sliced = 0;
+		try {
+			for (int certificateLength = 1; certificateLength <= 3; certificateLength++) {
+				String line = DataBundleUtil.encode("probe".getBytes(), "localhost".getBytes(), 1, false,
+						new byte[certificateLength], payload);
+				DataBundle bundle = DataBundleUtil.decode(line);
+				String slice = slice(line, bundle.getPayload());
+				if (slice == null) {
+					continue;
+				}
+				if (!slice.equals(bundle.encodePayload())) {
+					logger.info("Data bundle payload does not match its input slice, encodedMsg will be re-encoded");
+					return false;
+				}
+				sliced++;
+			}
+		} catch (Exception e) {
+			logger.info("Failed to probe the data bundle layout, encodedMsg will be re-encoded", e);
+			return false;
+		}
+		if (sliced == 0) {
+			logger.info("Data bundle payload is not the tail of the input line, encodedMsg will be re-encoded");
+		}
+		return sliced > 0;
+	}
+
+	/**
+	 * @return the 24 bits encoded by the 4 characters at offset, or -1 if they are not
+	 * base64 characters; padding decodes as zero bits
+	 */
+	private static int decodeGroup(String input, int offset) {
+		int group = 0;
+		for (int i = 0; i < 4; i++) {
+			int value = decodeChar(input.charAt(offset + i));
+			if (value < 0) {
+				return -1;
+			}
+			group = (group << 6) | value;
+		}
+		return group;
+	}
+
+	private static int decodeChar(char c) {
+		if (c >= 'A' && c <= 'Z') return c - 'A';
+		if (c >= 'a' && c <= 'z') return c - 'a' + 26;
+		if (c >= '0' && c <= '9') return c - '0' + 52;
+		if (c == '+') return 62;
+		if (c == '/') return 63;
+		if (c == '=') return 0;
+		return -1;
+	}
+}
@@ -0,0 +1,184 @@
+package gov.usdot.cv.parser;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads the bodies of length prefixed {@link BundleFrames} one at a time from a buffer, a
+ * memory-mapped file or a stream. Bodies of buffers and mapped files are views of the
+ * input, so nothing is copied until the bundle is decoded. A body stays valid after the
+ * next call, which lets a batch of them be decoded together. Closing a stream source
+ * leaves the stream open for its owner to close.
+ */
+abstract class FrameSource implements Closeable {
+
+	/** Bytes of a file mapped at a time; a frame larger than this gets a window of its own. */
+	static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+	/**
+	 * @return the next frame body, or null at the end of the input
+	 * @throws IOException if the input ends inside a frame or a length prefix is negative
+	 */
+	abstract ByteBuffer next() throws IOException;
+
+	/**
+	 * @return the offset of the next frame from the start of the input
+	 */
+	abstract long position();
+
+	public void close() throws IOException {
+	}
+
+	/**
+	 * @return the frames between the buffer's position and limit, leaving the buffer untouched
+	 */
+	static FrameSource of(ByteBuffer buffer) {
+		return new BufferFrameSource(buffer.slice());
+	}
+
+	static FrameSource of(InputStream in) {
+		return new StreamFrameSource(in);
+	}
+
+	/**
+	 * @return the frames of a file, mapped in windows so files larger than 2 GB can be read
+	 */
+	static FrameSource map(File file, int window) throws IOException {
+		return new MappedFrameSource(new RandomAccessFile(file, "r"), window);
+	}
+
+	static IOException badLength(int length, long position) {
+		return new IOException("Negative frame length " + length + " at offset " + position);
+	}
+
+	private static final class BufferFrameSource extends FrameSource {
+		private final ByteBuffer buffer;
+
+		BufferFrameSource(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		ByteBuffer next() throws IOException {
+			int start = buffer.position();
+			if (!buffer.hasRemaining()) return null;
+			if (buffer.remaining() < BundleFrames.PREFIX_LENGTH) {
+				throw new EOFException("Truncated frame length at offset " + start);
+			}
+			int length = buffer.getInt();
+			if (length < 0) {
+				throw badLength(length, start);
+			}
+			if (length > buffer.remaining()) {
+				throw new EOFException("Truncated frame of " + length + " bytes at offset " + start);
+			}
+			ByteBuffer body = buffer.slice();
+			body.limit(length);
+			buffer.position(buffer.position() + length);
+			return body;
+		}
+
+		long position() {
+			return buffer.position();
+		}
+	}
+
+	private static final class MappedFrameSource extends FrameSource {
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private final long size;
+		private final int window;
+		private MappedByteBuffer mapped;
+		/** File offset of the start of the mapped window. */
+		private long base;
+
+		MappedFrameSource(RandomAccessFile file, int window) throws IOException {
+			this.file = file;
+			this.channel = file.getChannel();
+			this.size = channel.size();
+			this.window = window;
+			map(0, BundleFrames.PREFIX_LENGTH);
+		}
+
+		ByteBuffer next() throws IOException {
+			long start = position();
+			if (start >= size) return null;
+			if (size - start < BundleFrames.PREFIX_LENGTH) {
+				throw new EOFException("Truncated frame length at offset " + start);
+			}
+			if (mapped.remaining() < BundleFrames.PREFIX_LENGTH) {
+				map(start, BundleFrames.PREFIX_LENGTH);
+			}
+			int length = mapped.getInt(mapped.position());
+			if (length < 0) {
+				throw badLength(length, start);
+			}
+			if (size - start - BundleFrames.PREFIX_LENGTH < length) {
+				throw new EOFException("Truncated frame of " + length + " bytes at offset " + start);
+			}
+			if (mapped.remaining() - BundleFrames.PREFIX_LENGTH < length) {
+				map(start, (long) BundleFrames.PREFIX_LENGTH + length);
+			}
+			mapped.position(mapped.position() + BundleFrames.PREFIX_LENGTH);
+			ByteBuffer body = mapped.slice();
+			body.limit(length);
+			mapped.position(mapped.position() + length);
+			return body;
+		}
+
+		long position() {
+			return base + mapped.position();
+		}
+
+		/**
+		 * Map a window starting at offset that holds at least the given number of bytes,
+		 * or whatever is left of the file.
+		 */
+		private void map(long offset, long atLeast) throws IOException {
+			long length = Math.min(Math.max(window, atLeast), size - offset);
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Frame at offset " + offset + " is too large to map");
+			}
+			mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+			base = offset;
+		}
+
+		@Override
+		public void close() throws IOException {
+			file.close();
+		}
+	}
+
+	private static final class StreamFrameSource extends FrameSource {
+		private final DataInputStream in;
+		private long position;
+
+		StreamFrameSource(InputStream in) {
+			this.in = new DataInputStream(in);
+		}
+
+		ByteBuffer next() throws IOException {
+			int first = in.read();
+			if (first < 0) return null;
+			int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+			if (length < 0) {
+				throw badLength(length, position);
+			}
+			byte[] body = new byte[length];
+			in.readFully(body);
+			position += BundleFrames.PREFIX_LENGTH + length;
+			return ByteBuffer.wrap(body);
+		}
+
+		long position() {
+			return position;
+		}
+	}
+}
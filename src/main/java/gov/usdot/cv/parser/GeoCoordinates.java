@@ -0,0 +1,121 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Formats J2735 geo coordinates, in units of 1e-7 degrees, as decimal degrees without
+ * going through a double. The text is the text {@link String#valueOf(double)} gives for
+ * the nearest double to the coordinate, which is what the parsers have always put in the
+ * translator map: the fixed-point value with trailing zeros dropped but at least one
+ * fractional digit, and scientific notation below a thousandth of a degree.
+ */
+public final class GeoCoordinates {
+
+	/** Longest text of an int coordinate, as in -214.7483648. */
+	static final int MAX_LENGTH = 12;
+
+	private static final int SCALE = 10000000;
+
+	private static final int FRACTION_DIGITS = 7;
+
+	private GeoCoordinates() {
+	}
+
+	/**
+	 * @return the coordinate in decimal degrees, as {@link String#valueOf(double)} prints
+	 * {@code units / 1e7}
+	 */
+	public static String format(int units) {
+		char[] text = new char[MAX_LENGTH];
+		return new String(text, 0, format(units, text));
+	}
+
+	/**
+	 * Write the coordinate's text to the start of a buffer of at least {@link #MAX_LENGTH}
+	 * characters.
+	 *
+	 * @return the number of characters written
+	 */
+	static int format(int units, char[] text) {
+		if (units == 0) {
+			text[0] = '0';
+			text[1] = '.';
+			text[2] = '0';
+			return 3;
+		}
+		int length = 0;
+		long value = units;
+		if (value < 0) {
+			text[length++] = '-';
+			value = -value;
+		}
+		if (value >= SCALE / 1000) {
+			length = appendDigits(text, length, value / SCALE);
+			text[length++] = '.';
+			long fraction = value % SCALE;
+			int digits = FRACTION_DIGITS;
+			while (digits > 1 && fraction % 10 == 0) {
+				fraction /= 10;
+				digits--;
+			}
+			for (int i = length + digits - 1; i >= length; i--) {
+				text[i] = (char) ('0' + fraction % 10);
+				fraction /= 10;
+			}
+			return length + digits;
+		}
+		// below 1e-3 degrees: one digit before the point and a negative exponent
+		int digits = 1;
+		long leading = value;
+		while (leading >= 10) {
+			leading /= 10;
+			digits++;
+		}
+		long rest = value - leading * pow10(digits - 1);
+		int restDigits = digits - 1;
+		while (restDigits > 0 && rest % 10 == 0) {
+			rest /= 10;
+			restDigits--;
+		}
+		text[length++] = (char) ('0' + leading);
+		text[length++] = '.';
+		if (restDigits == 0) {
+			text[length++] = '0';
+		} else {
+			for (int i = length + restDigits - 1; i >= length; i--) {
+				text[i] = (char) ('0' + rest % 10);
+				rest /= 10;
+			}
+			length += restDigits;
+		}
+		text[length++] = 'E';
+		text[length++] = '-';
+		text[length++] = (char) ('0' + (FRACTION_DIGITS - digits + 1));
+		return length;
+	}
+
+	private static int appendDigits(char[] text, int length, long value) {
+		int digits = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			digits++;
+		}
+		for (int i = length + digits - 1; i >= length; i--) {
+			text[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+		return length + digits;
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		while (exponent-- > 0) {
+			value *= 10;
+		}
+		return value;
+	}
+
+	/**
+	 * @return the coordinate in degrees, the nearest double to {@code units / 1e7}
+	 */
+	public static double toDegrees(int units) {
+		return units / 1e7;
+	}
+}
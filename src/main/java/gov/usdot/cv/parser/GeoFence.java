@@ -0,0 +1,190 @@
+package gov.usdot.cv.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A named area records are kept in: a box, which may cross the antimeridian, or a simple
+ * polygon. Coordinates are J2735 geo coordinates, in units of 1e-7 degrees. A fence counts
+ * the records it held and the records tested against it that fell outside it.
+ */
+public class GeoFence {
+
+	private final String name;
+	/** North, west, south and east edges of the box, or of the polygon's bounds. */
+	private final int north;
+	private final int west;
+	private final int south;
+	private final int east;
+	/** Vertices of the polygon, null for a box. */
+	private final int[] lats;
+	private final int[] lons;
+
+	private final AtomicLong acceptedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	/**
+	 * @return a box; west greater than east crosses the antimeridian
+	 */
+	public static GeoFence box(String name, int north, int west, int south, int east) {
+		if (south > north) {
+			throw new IllegalArgumentException("Geo-fence " + name + " has its south edge above its north edge");
+		}
+		return new GeoFence(name, north, west, south, east, null, null);
+	}
+
+	/**
+	 * @return a polygon through the vertices in order, closed back to the first; it must
+	 * not cross the antimeridian
+	 */
+	public static GeoFence polygon(String name, int[] lats, int[] lons) {
+		if (lats.length != lons.length || lats.length < 3) {
+			throw new IllegalArgumentException("Geo-fence " + name + " needs at least three vertices");
+		}
+		int north = Integer.MIN_VALUE, west = Integer.MAX_VALUE, south = Integer.MAX_VALUE, east = Integer.MIN_VALUE;
+		for (int i = 0; i < lats.length; i++) {
+			north = Math.max(north, lats[i]);
+			south = Math.min(south, lats[i]);
+			west = Math.min(west, lons[i]);
+			east = Math.max(east, lons[i]);
+		}
+		return new GeoFence(name, north, west, south, east, lats.clone(), lons.clone());
+	}
+
+	/**
+	 * Parse fences separated by semicolons, each a name, an equals sign and either the
+	 * north, west, south and east edges of a box or the vertices of a polygon, latitude
+	 * and longitude separated by a space, all in degrees:
+	 * <pre>metro=42.5,-83.9,42.1,-82.9;campus=42.30 -83.72,42.30 -83.70,42.28 -83.71</pre>
+	 */
+	public static List<GeoFence> parse(String fences) {
+		List<GeoFence> result = new ArrayList<GeoFence>();
+		if (fences == null) return result;
+		for (String fence : fences.split(";")) {
+			fence = fence.trim();
+			if (fence.length() == 0) continue;
+			int equals = fence.indexOf('=');
+			if (equals <= 0) {
+				throw new IllegalArgumentException("Geo-fence without a name: " + fence);
+			}
+			String name = fence.substring(0, equals).trim();
+			String[] points = fence.substring(equals + 1).trim().split("\\s*,\\s*");
+			try {
+				if (points.length == 4 && points[0].indexOf(' ') < 0) {
+					result.add(box(name, toUnits(points[0]), toUnits(points[1]), toUnits(points[2]), toUnits(points[3])));
+					continue;
+				}
+				int[] lats = new int[points.length];
+				int[] lons = new int[points.length];
+				for (int i = 0; i < points.length; i++) {
+					String[] point = points[i].split("\\s+");
+					if (point.length != 2) {
+						throw new IllegalArgumentException("Geo-fence " + name + " has a vertex without a latitude and longitude: " + points[i]);
+					}
+					lats[i] = toUnits(point[0]);
+					lons[i] = toUnits(point[1]);
+				}
+				result.add(polygon(name, lats, lons));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Geo-fence " + name + " has a coordinate that is not a number", e);
+			}
+		}
+		return result;
+	}
+
+	private static int toUnits(String degrees) {
+		return (int) Math.round(Double.parseDouble(degrees) * 1e7);
+	}
+
+	private GeoFence(String name, int north, int west, int south, int east, int[] lats, int[] lons) {
+		this.name = name;
+		this.north = north;
+		this.west = west;
+		this.south = south;
+		this.east = east;
+		this.lats = lats;
+		this.lons = lons;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return true if the position is inside the fence or on its edge
+	 */
+	public boolean contains(int lat, int lon) {
+		if (lat > north || lat < south || !overlaps(west, east, lon, lon)) return false;
+		if (lats == null) return true;
+		boolean inside = false;
+		for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+			if ((lats[i] > lat) != (lats[j] > lat)) {
+				double crossing = lons[i] + (double) (lat - lats[i]) * (lons[j] - lons[i]) / (lats[j] - lats[i]);
+				if (lon < crossing) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside || onBoundary(lat, lon);
+	}
+
+	/**
+	 * @return true if the region overlaps the fence; a polygon is taken as its bounds, so a
+	 * region near a concave edge may be kept without reaching inside
+	 */
+	public boolean intersects(int regionNorth, int regionWest, int regionSouth, int regionEast) {
+		return regionSouth <= north && regionNorth >= south && overlaps(west, east, regionWest, regionEast);
+	}
+
+	private boolean onBoundary(int lat, int lon) {
+		for (int i = 0, j = lats.length - 1; i < lats.length; j = i++) {
+			double cross = (double) (lons[i] - lons[j]) * (lat - lats[j]) - (double) (lats[i] - lats[j]) * (lon - lons[j]);
+			if (cross == 0 && lat >= Math.min(lats[i], lats[j]) && lat <= Math.max(lats[i], lats[j])
+					&& lon >= Math.min(lons[i], lons[j]) && lon <= Math.max(lons[i], lons[j])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if two longitude ranges overlap, either of which crosses the antimeridian
+	 * when its west end is greater than its east end
+	 */
+	private static boolean overlaps(int westA, int eastA, int westB, int eastB) {
+		boolean wrapsA = westA > eastA;
+		boolean wrapsB = westB > eastB;
+		if (wrapsA && wrapsB) return true;
+		if (wrapsA) return eastB >= westA || westB <= eastA;
+		if (wrapsB) return eastA >= westB || westA <= eastB;
+		return westB <= eastA && eastB >= westA;
+	}
+
+	void countAccepted() {
+		acceptedCount.incrementAndGet();
+	}
+
+	void countRejected() {
+		rejectedCount.incrementAndGet();
+	}
+
+	void countRejected(long count) {
+		rejectedCount.addAndGet(count);
+	}
+
+	/**
+	 * @return the number of records kept because they were inside this fence and no fence
+	 * before it
+	 */
+	public long getAcceptedCount() {
+		return acceptedCount.get();
+	}
+
+	/**
+	 * @return the number of records tested against this fence that were outside it
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+}
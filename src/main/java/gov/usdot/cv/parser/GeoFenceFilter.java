@@ -0,0 +1,161 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.dsrc.Position3D;
+import gov.usdot.asn1.generated.j2735.semi.AdvisorySituationData;
+import gov.usdot.asn1.generated.j2735.semi.GeoRegion;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.generated.j2735.semi.VehSitRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.oss.asn1.AbstractData;
+
+/**
+ * Keeps the records located inside any of a set of {@link GeoFence}s. Each record of a
+ * vehicle situation bundle is inside when its position is; intersection and advisory
+ * situation data are inside when their service region overlaps a fence. Other messages,
+ * and messages without a service region, carry no location of their own and are always
+ * kept.
+ *
+ * Messages are tested once decoded, or on the fields of a cached record, before any map
+ * is built or translated. A vehicle situation message is only dropped there when none of
+ * its bundle records is inside; the records of the messages kept are then tested one by
+ * one, with {@link #accepts(VehSitRecord)}, as they are parsed. Counts are per record.
+ */
+public class GeoFenceFilter {
+
+	private final List<GeoFence> fences;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	public GeoFenceFilter(List<GeoFence> fences) {
+		if (fences.isEmpty()) {
+			throw new IllegalArgumentException("A geo-fence filter needs at least one fence");
+		}
+		this.fences = Collections.unmodifiableList(new ArrayList<GeoFence>(fences));
+	}
+
+	/**
+	 * @return true if the decoded message is inside a fence or has no location; for a
+	 * vehicle situation message, if any record of its bundle is inside a fence, in which
+	 * case nothing is counted until its records are tested one by one
+	 */
+	public boolean accepts(AbstractData message) {
+		if (message instanceof VehSitDataMessage) {
+			VehSitDataMessage.Bundle bundle = ((VehSitDataMessage) message).getBundle();
+			if (bundle == null || bundle.getSize() == 0) return true;
+			int count = bundle.getSize();
+			for (int i = 0; i < count; i++) {
+				Position3D pos = bundle.get(i).getPos();
+				if (inside(pos.getLat().intValue(), pos.get_long().intValue())) {
+					return true;
+				}
+			}
+			for (GeoFence fence : fences) {
+				fence.countRejected(count);
+			}
+			rejectedCount.addAndGet(count);
+			return false;
+		}
+		if (message instanceof IntersectionSituationData) {
+			return acceptsRegion(((IntersectionSituationData) message).getServiceRegion());
+		}
+		if (message instanceof AdvisorySituationData) {
+			return acceptsRegion(((AdvisorySituationData) message).getServiceRegion());
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if the position of a vehicle situation bundle record is inside a fence
+	 */
+	public boolean accepts(VehSitRecord record) {
+		Position3D pos = record.getPos();
+		return acceptsPosition(pos.getLat().intValue(), pos.get_long().intValue());
+	}
+
+	/**
+	 * @return true if the fields of a parsed record are inside a fence or hold no location
+	 */
+	public boolean accepts(CVRecord record) {
+		if (record.has(CVField.LAT) && record.has(CVField.LONG)) {
+			return acceptsPosition(toUnits(record.getDouble(CVField.LAT)), toUnits(record.getDouble(CVField.LONG)));
+		}
+		if (record.has(CVField.NW_LAT) && record.has(CVField.NW_LON) && record.has(CVField.SE_LAT) && record.has(CVField.SE_LON)) {
+			return acceptsRegion(toUnits(record.getDouble(CVField.NW_LAT)), toUnits(record.getDouble(CVField.NW_LON)),
+					toUnits(record.getDouble(CVField.SE_LAT)), toUnits(record.getDouble(CVField.SE_LON)));
+		}
+		return true;
+	}
+
+	private boolean acceptsRegion(GeoRegion region) {
+		if (region == null || region.getNwCorner() == null || region.getSeCorner() == null) return true;
+		return acceptsRegion(region.getNwCorner().getLat().intValue(), region.getNwCorner().get_long().intValue(),
+				region.getSeCorner().getLat().intValue(), region.getSeCorner().get_long().intValue());
+	}
+
+	private boolean acceptsRegion(int nwLat, int nwLon, int seLat, int seLon) {
+		for (GeoFence fence : fences) {
+			if (fence.intersects(Math.max(nwLat, seLat), nwLon, Math.min(nwLat, seLat), seLon)) {
+				fence.countAccepted();
+				return true;
+			}
+			fence.countRejected();
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	private boolean acceptsPosition(int lat, int lon) {
+		for (GeoFence fence : fences) {
+			if (fence.contains(lat, lon)) {
+				fence.countAccepted();
+				return true;
+			}
+			fence.countRejected();
+		}
+		rejectedCount.incrementAndGet();
+		return false;
+	}
+
+	private boolean inside(int lat, int lon) {
+		for (GeoFence fence : fences) {
+			if (fence.contains(lat, lon)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int toUnits(double degrees) {
+		return (int) Math.round(degrees * 1e7);
+	}
+
+	public List<GeoFence> getFences() {
+		return fences;
+	}
+
+	/**
+	 * @return the number of records dropped for being outside every fence
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return the number of records tested against each fence that were outside it, by fence name
+	 */
+	public Map<String, Long> getRejectedCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (GeoFence fence : fences) {
+			counts.put(fence.getName(), fence.getRejectedCount());
+		}
+		return counts;
+	}
+}
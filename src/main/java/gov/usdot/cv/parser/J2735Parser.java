@@ -1,21 +1,39 @@
 package gov.usdot.cv.parser;
 
 import gov.usdot.asn1.generated.j2735.J2735;
-import gov.usdot.asn1.generated.j2735.semi.AdvisorySituationData;
-import gov.usdot.asn1.generated.j2735.semi.DataRequest;
-import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionCancel;
-import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionRequest;
-import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
-import gov.usdot.asn1.generated.j2735.semi.ObjectDiscoveryDataRequest;
-import gov.usdot.asn1.generated.j2735.semi.ObjectRegistrationData;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
 import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
 import gov.usdot.asn1.j2735.J2735Util;
 import gov.usdot.cv.common.dialog.DataBundle;
 import gov.usdot.cv.common.dialog.DataBundleUtil;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
 import javax.validation.constraints.NotNull;
 
 import net.sf.json.JSONObject;
@@ -41,6 +59,27 @@ public class J2735Parser extends AbstractLineParser implements Initializable {
 
 	private static final Logger logger = Logger.getLogger(J2735Parser.class);
 	
+	/** inputFormat of base64 data bundle lines. */
+	public static final String LINE_FORMAT = "line";
+	
+	/** inputFormat of length prefixed binary {@link BundleFrames}. */
+	public static final String FRAME_FORMAT = "frame";
+	
+	/** outputEncoding of {@link BinaryRecordEncoder}. */
+	public static final String BINARY_ENCODING = "binary";
+	
+	/** outputEncoding of {@link JsonRecordEncoder}. */
+	public static final String JSON_ENCODING = "json";
+	
+	/** recordThreadMode parsing the records of a batch on the calling thread. */
+	public static final String NO_RECORD_THREADS = "none";
+	
+	/** recordThreadMode parsing each record of a batch on a fixed pool of platform threads. */
+	public static final String PLATFORM_RECORD_THREADS = "platform";
+	
+	/** recordThreadMode parsing each record of a batch on its own virtual thread. */
+	public static final String VIRTUAL_RECORD_THREADS = "virtual";
+	
 	protected AbstractConfigurableTranslator translator;
 	
 	protected String defaultSource;
@@ -51,7 +90,96 @@ public class J2735Parser extends AbstractLineParser implements Initializable {
 	
 	protected boolean decodeBundle = false;
 	
-	private Coder coder;
+	protected int coderPoolSize = 0;
+	
+	protected int batchDecodeThreads = 0;
+	
+	protected boolean passThroughEncodedPayload = true;
+	
+	protected String inputFormat = LINE_FORMAT;
+	
+	/** Source of binary frames, null when reading lines. */
+	private FrameSource frames;
+	
+	private boolean sliceEncodedPayload;
+	
+	protected String acceptedDialogs = "";
+	
+	protected int headerVerifyCount = 16;
+	
+	private SemiHeaderDecoder headerDecoder;
+	
+	/** Indexed by dialog id; null when every dialog is accepted. */
+	private boolean[] acceptedDialogTable;
+	
+	/** Message types whose header layout must be known before headers are read without a full decode. */
+	private Class<?>[] headerMessageClasses;
+	
+	/** Indexed by dialog id, true for the dialogs whose parsed fields the output cache keeps. */
+	private boolean[] cacheableDialogTable;
+	
+	/** Message types of the cacheable dialogs, whose header layout tells which payloads to look up. */
+	private Class<?>[] cacheableMessageClasses;
+	
+	private final AtomicLong filteredCount = new AtomicLong();
+	
+	protected String geoFences = "";
+	
+	/** Drops records outside every geo-fence; null when geoFences is empty. */
+	private GeoFenceFilter geoFenceFilter;
+	
+	protected int duplicateWindowSeconds = 0;
+	
+	protected int duplicateCapacity = 100000;
+	
+	private DuplicateFilter duplicates;
+	
+	protected int outputCacheMegabytes = 0;
+	
+	protected String outputEncoding = BINARY_ENCODING;
+	
+	/** Encoder of {@link #parseEncoded(int, RecordBuffer)}, resolved from outputEncoding unless set. */
+	private volatile RecordEncoder outputEncoder;
+	
+	private ParsedOutputCache outputCache;
+	
+	protected int failureLogsPerMinute = 10;
+	
+	private DeadLetterSink deadLetterSink;
+	
+	private ParseFailureRecorder failures;
+	
+	protected boolean metricsEnabled = false;
+	
+	private ParserMetrics metrics;
+	
+	private ObjectName metricsName;
+	
+	private static final AtomicInteger instanceCount = new AtomicInteger();
+	
+	private volatile CoderPool coderPool;
+	
+	private ExecutorService batchExecutor;
+	
+	protected String recordThreadMode = NO_RECORD_THREADS;
+	
+	protected int recordConcurrency = 64;
+	
+	/** Runs whole records, from decode to translation, when recordThreadMode is set. */
+	private ExecutorService recordExecutor;
+	
+	/** Bounds the records submitted to the record executor and not yet done. */
+	private Semaphore recordPermits;
+	
+	/** Bundle records of the last decoded message not yet returned by parse(). */
+	private BundleCursor pendingRecords;
+	
+	private final ThreadLocal<CVRecord> records = new ThreadLocal<CVRecord>() {
+		@Override
+		protected CVRecord initialValue() {
+			return new CVRecord();
+		}
+	};
 	
 	public J2735Parser() {
 		super("UTF-8");
@@ -59,17 +187,52 @@ public class J2735Parser extends AbstractLineParser implements Initializable {
 	
 	public void initialize() throws InitializationException {
 		translator.initialize();
+		failures = new ParseFailureRecorder(failureLogsPerMinute, 1, TimeUnit.MINUTES);
+		failures.setDeadLetterSink(deadLetterSink);
 		initializeCoder();
+		sliceEncodedPayload = passThroughEncodedPayload && EncodedPayloadSlicer.isSupported();
+		initializeHeaderDecoder();
+		initializeGeoFences();
+		duplicates = (duplicateWindowSeconds > 0)
+				? new DuplicateFilter(duplicateCapacity, duplicateWindowSeconds, TimeUnit.SECONDS) : null;
+		outputCache = (outputCacheMegabytes > 0) ? new ParsedOutputCache(outputCacheMegabytes * 1024L * 1024L) : null;
+		if (metricsEnabled) {
+			initializeMetrics();
+		}
+		if (batchDecodeThreads > 1) {
+			batchExecutor = Executors.newFixedThreadPool(batchDecodeThreads, new DaemonThreadFactory("J2735Parser-batch"));
+		}
+		initializeRecordExecutor();
+	}
+	
+	/**
+	 * Create the executor parsing whole records for recordThreadMode. Virtual threads fall
+	 * back to the platform pool on a JVM without them.
+	 */
+	void initializeRecordExecutor() throws InitializationException {
+		if (recordThreadMode == null || NO_RECORD_THREADS.equals(recordThreadMode)) return;
+		if (recordConcurrency < 1) {
+			throw new InitializationException("recordConcurrency must be positive: " + recordConcurrency);
+		}
+		if (VIRTUAL_RECORD_THREADS.equals(recordThreadMode)) {
+			recordExecutor = VirtualThreads.newThreadPerTaskExecutor("J2735Parser-record");
+			if (recordExecutor == null) {
+				logger.warn("Virtual threads are not available in this JVM, parsing records on " + recordConcurrency + " platform threads");
+			}
+		} else if (!PLATFORM_RECORD_THREADS.equals(recordThreadMode)) {
+			throw new InitializationException("Unknown recordThreadMode: " + recordThreadMode);
+		}
+		if (recordExecutor == null) {
+			recordExecutor = Executors.newFixedThreadPool(recordConcurrency, new DaemonThreadFactory("J2735Parser-record"));
+		}
+		recordPermits = new Semaphore(recordConcurrency);
 	}
 	
 	void initializeCoder() throws InitializationException {
 		try {
 			J2735.initialize();
-			coder = J2735.getPERUnalignedCoder();
-			if (enableBERDebugging) {
-				coder.enableEncoderDebugging();
-				coder.enableDecoderDebugging();
-			}
+			int poolSize = (coderPoolSize > 0) ? coderPoolSize : Runtime.getRuntime().availableProcessors();
+			coderPool = new CoderPool(poolSize, enableBERDebugging);
 		} catch (ControlTableNotFoundException e) {
 			logger.error(e);
 			throw new InitializationException("J2735Parser initialization failure", e);
@@ -79,93 +242,949 @@ public class J2735Parser extends AbstractLineParser implements Initializable {
 		}
 	}
 
+	/**
+	 * Create the metrics and register them with the platform MBean server. Failing to
+	 * register only costs the JMX view; {@link #getMetrics()} works regardless.
+	 */
+	void initializeMetrics() {
+		metrics = new ParserMetrics(failures, duplicates, outputCache);
+		try {
+			metricsName = new ObjectName("gov.usdot.cv.parser:type=J2735Parser,name=parser-" + instanceCount.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metricsName);
+		} catch (JMException e) {
+			logger.warn("Failed to register J2735Parser metrics with JMX", e);
+			metricsName = null;
+		}
+	}
+	
+	/**
+	 * Resolve the accepted dialogs and the message types whose header layout has to be
+	 * learned before records can be filtered on their header alone.
+	 */
+	void initializeHeaderDecoder() throws InitializationException {
+		headerDecoder = new SemiHeaderDecoder(headerVerifyCount);
+		acceptedDialogTable = null;
+		Set<Class<?>> messageClasses = new LinkedHashSet<Class<?>>();
+		if (acceptedDialogs != null && acceptedDialogs.trim().length() > 0) {
+			acceptedDialogTable = new boolean[256];
+			for (String name : acceptedDialogs.split(",")) {
+				int dialogId = parseDialogId(name.trim());
+				acceptedDialogTable[dialogId] = true;
+				CVMessageParser parser = CVMessageParserCache.lookupParser(dialogId);
+				if (parser != null) {
+					messageClasses.addAll(Arrays.asList(parser.getMessageClasses()));
+				}
+			}
+		} else {
+			for (int dialogId = 0; dialogId < 256; dialogId++) {
+				CVMessageParser parser = CVMessageParserCache.lookupParser(dialogId);
+				if (parser != null) {
+					messageClasses.addAll(Arrays.asList(parser.getMessageClasses()));
+				}
+			}
+		}
+		headerMessageClasses = messageClasses.toArray(new Class<?>[messageClasses.size()]);
+		
+		cacheableDialogTable = new boolean[256];
+		Set<Class<?>> cacheableClasses = new LinkedHashSet<Class<?>>();
+		for (int dialogId = 0; dialogId < 256; dialogId++) {
+			CVMessageParser parser = CVMessageParserCache.lookupParser(dialogId);
+			if (parser instanceof CacheableCVMessageParser) {
+				cacheableDialogTable[dialogId] = true;
+				cacheableClasses.addAll(Arrays.asList(parser.getMessageClasses()));
+			}
+		}
+		cacheableMessageClasses = cacheableClasses.toArray(new Class<?>[cacheableClasses.size()]);
+	}
+	
+	/**
+	 * Parse the geo-fences records are kept in, if any.
+	 */
+	void initializeGeoFences() throws InitializationException {
+		geoFenceFilter = null;
+		try {
+			List<GeoFence> fences = GeoFence.parse(geoFences);
+			if (!fences.isEmpty()) {
+				geoFenceFilter = new GeoFenceFilter(fences);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new InitializationException("Invalid geoFences: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * @return the id of a dialog given by SemiDialogID name or by number
+	 */
+	private static int parseDialogId(String name) throws InitializationException {
+		long dialogId;
+		try {
+			if (name.matches("[0-9]+")) {
+				dialogId = Long.parseLong(name);
+			} else {
+				dialogId = ((SemiDialogID) SemiDialogID.class.getField(name).get(null)).longValue();
+			}
+		} catch (Exception e) {
+			throw new InitializationException("Unknown dialog in acceptedDialogs: " + name, e);
+		}
+		if (dialogId < 0 || dialogId >= 256) {
+			throw new InitializationException("Dialog id out of range in acceptedDialogs: " + name);
+		}
+		return (int) dialogId;
+	}
+	
 	public void dispose() {
 		translator.dispose();
+		pendingRecords = null;
+		closeFrames();
+		if (metricsName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+			} catch (JMException e) {
+				logger.warn("Failed to unregister J2735Parser metrics from JMX", e);
+			}
+			metricsName = null;
+		}
+		if (batchExecutor != null) {
+			batchExecutor.shutdownNow();
+			batchExecutor = null;
+		}
+		if (recordExecutor != null) {
+			recordExecutor.shutdownNow();
+			recordExecutor = null;
+			recordPermits = null;
+		}
+		if (coderPool != null) {
+			coderPool.dispose();
+			coderPool = null;
+		}
 		J2735.deinitialize();
 	}
 	
 	public void parseHeaders() {
 		// no Headers
 	}
+	
+	/**
+	 * Set the input. With inputFormat frame the stream is read as length prefixed
+	 * {@link BundleFrames} instead of lines.
+	 */
+	@Override
+	public void setInputStream(InputStream in) {
+		super.setInputStream(in);
+		closeFrames();
+		if (FRAME_FORMAT.equals(inputFormat)) {
+			frames = FrameSource.of(in);
+		}
+	}
+	
+	/**
+	 * Read length prefixed {@link BundleFrames} from the remaining bytes of a buffer, in
+	 * place of the input stream. Payloads are decoded straight from the buffer.
+	 */
+	public void setInputBuffer(ByteBuffer buffer) {
+		closeFrames();
+		frames = FrameSource.of(buffer);
+	}
+	
+	/**
+	 * Read length prefixed {@link BundleFrames} from a memory-mapped file, in place of the
+	 * input stream. The file is mapped a window at a time, so it may be larger than 2 GB.
+	 */
+	public void setInputFile(File file) throws IOException {
+		closeFrames();
+		frames = FrameSource.map(file, FrameSource.DEFAULT_WINDOW);
+	}
+	
+	private void closeFrames() {
+		if (frames != null) {
+			try {
+				frames.close();
+			} catch (IOException e) {
+				logger.warn("Failed to close the frame input", e);
+			}
+			frames = null;
+		}
+	}
 
+	/**
+	 * Parse the next record. With decodeBundle set, a message carrying a bundle of
+	 * records yields one result per bundle record over successive calls.
+	 */
 	public JSONObject parse() throws ParsePipelineException {
-		String input = nextRecord();
-		if (input == null) return null;
+		while (true) {
+			if (pendingRecords != null) {
+				if (pendingRecords.hasNext()) {
+					return pendingRecords.next();
+				}
+				pendingRecords = null;
+			}
+			
+			DecodedRecord record;
+			do {
+				Object input = nextInput();
+				if (input == null) return null;
+				
+				record = decodeInput(input);
+				if (record == null) return null;
+			} while (record == DecodedRecord.FILTERED);
+			
+			CVMessageParser parser = lookupParser(record);
+			if (parser == null) return null;
+			
+			String source = resolveSource();
+			String accessLabel = resolveAccessLabel();
+			BundleCursor cursor = expandRecord(parser, record, source, accessLabel);
+			if (cursor != null) {
+				// the bundle records may all be outside the geo-fences
+				pendingRecords = cursor;
+				continue;
+			}
+			if (!insideGeoFences(record, 0)) continue;
+			return translateRecord(parser, record, source, accessLabel);
+		}
+	}
+	
+	/**
+	 * Parse up to max records in one call. The stream source and access label are resolved
+	 * once for the whole batch and, when batchDecodeThreads is set, the payloads are decoded
+	 * in parallel before being dispatched and translated in input order. When
+	 * recordThreadMode is set instead, each record is decoded, parsed and translated on a
+	 * thread of its own and the results are put back in input order. Records that fail
+	 * to decode or have no parser are left out of the result. With decodeBundle set, a
+	 * message carrying a bundle of records contributes one result per bundle record, so
+	 * the result may hold more than max entries.
+	 * 
+	 * @return the translated records, or null when the input is exhausted
+	 * @throws IllegalArgumentException if max is not positive
+	 */
+	public List<JSONObject> parseBatch(int max) throws ParsePipelineException {
+		List<Object> inputs = readInputs(max);
+		if (inputs.isEmpty()) return null;
 		
-		String streamAccessLabel = info.getProperty(StandardHeader.ACCESS_LABEL_KEY);
-		String accessLabel = (streamAccessLabel == null) ? defaultAccessLabel : streamAccessLabel;
+		String accessLabel = resolveAccessLabel();
+		String source = resolveSource();
+		if (recordExecutor != null) {
+			return parseRecords(inputs, source, accessLabel);
+		}
 		
-		String streamSource = info.getProperty(StandardHeader.SOURCE_KEY);
-		String source = (streamSource == null) ? defaultSource : streamSource;
+		List<DecodedRecord> records = decodeBatch(inputs);
+		List<JSONObject> results = new ArrayList<JSONObject>(records.size());
+		for (DecodedRecord record : records) {
+			if (record == null || record == DecodedRecord.FILTERED) continue;
+			CVMessageParser parser = lookupParser(record);
+			if (parser == null) continue;
+			BundleCursor cursor = expandRecord(parser, record, source, accessLabel);
+			if (cursor != null) {
+				while (cursor.hasNext()) {
+					results.add(cursor.next());
+				}
+				continue;
+			}
+			if (!insideGeoFences(record, 0)) continue;
+			JSONObject result = translateRecord(parser, record, source, accessLabel);
+			if (result != null) {
+				results.add(result);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Read up to max records and add the vehicle situation records among them to the
+	 * writer's columns instead of translating them. The writer hands its block to its sink
+	 * each time the block fills; call {@link VehSitColumnWriter#flush()} once the input is
+	 * exhausted for the rows of the last partial block. Records of other dialogs are
+	 * skipped, and with batchDecodeThreads set the payloads are decoded in parallel.
+	 * 
+	 * @return the number of rows added, or -1 when the input is exhausted
+	 * @throws IllegalArgumentException if max is not positive
+	 */
+	public int parseColumns(int max, VehSitColumnWriter writer) throws ParsePipelineException {
+		List<Object> inputs = readInputs(max);
+		if (inputs.isEmpty()) return -1;
 		
-		DataBundle bundle = null;
-		AbstractData message = null;
-		Map<String, String> map = null;
+		long rows = writer.getRowCount();
+		for (DecodedRecord record : decodeBatch(inputs)) {
+			if (record == null || record == DecodedRecord.FILTERED || record.message == null) continue;
+			CVMessageParser parser = lookupParser(record);
+			if (parser instanceof VehSitDataMessageParser) {
+				((VehSitDataMessageParser) parser).parseColumns(record.message, writer, geoFenceFilter);
+			}
+		}
+		return (int) (writer.getRowCount() - rows);
+	}
+	
+	/**
+	 * Read up to max records and hand the typed fields of each to the exporter instead of
+	 * translating them. Records whose parser does not build typed records are skipped, and
+	 * with decodeBundle set every bundle record is exported.
+	 * 
+	 * @return the number of records exported, or -1 when the input is exhausted
+	 * @throws IllegalArgumentException if max is not positive
+	 */
+	public int parseExport(int max, final RecordExporter exporter) throws ParsePipelineException {
+		try {
+			return parseTyped(max, new TypedRecordHandler() {
+				public boolean handle(long dialogId, CVRecord fields) throws IOException {
+					return exporter.add(dialogId, fields);
+				}
+			});
+		} catch (IOException e) {
+			throw new ParsePipelineException("Failed to export parsed records", e);
+		}
+	}
+	
+	/**
+	 * Read up to max records and append each to the buffer with the output encoder
+	 * instead of translating it: the compact binary encoding of
+	 * {@link BinaryRecordEncoder} or the JSON of {@link JsonRecordEncoder}, as set by
+	 * outputEncoding, or the encoder set with {@link #setOutputEncoder(RecordEncoder)}.
+	 * Records the encoder has no encoding for and records whose parser does not build
+	 * typed records are skipped, and with decodeBundle set every bundle record is encoded.
+	 * 
+	 * @return the number of records encoded, or -1 when the input is exhausted
+	 * @throws IllegalArgumentException if max is not positive
+	 */
+	public int parseEncoded(int max, final RecordBuffer out) throws ParsePipelineException {
+		final RecordEncoder encoder = resolveOutputEncoder();
+		final String source = resolveSource();
+		final String accessLabel = resolveAccessLabel();
+		try {
+			return parseTyped(max, new TypedRecordHandler() {
+				public boolean handle(long dialogId, CVRecord fields) {
+					return encoder.encode(dialogId, fields, source, accessLabel, out);
+				}
+			});
+		} catch (IOException e) {
+			throw new ParsePipelineException("Failed to encode parsed records", e);
+		}
+	}
+	
+	private RecordEncoder resolveOutputEncoder() throws ParsePipelineException {
+		if (outputEncoder != null) return outputEncoder;
+		if (JSON_ENCODING.equals(outputEncoding)) {
+			outputEncoder = new JsonRecordEncoder();
+		} else if (BINARY_ENCODING.equals(outputEncoding)) {
+			outputEncoder = new BinaryRecordEncoder();
+		} else {
+			throw new ParsePipelineException("Unknown outputEncoding: " + outputEncoding);
+		}
+		return outputEncoder;
+	}
+	
+	/**
+	 * Receives the typed fields of each record read by {@link #parseTyped(int, TypedRecordHandler)}.
+	 */
+	private interface TypedRecordHandler {
+		/**
+		 * @param fields the per-thread record, valid during the call only
+		 * @return true if the record was taken, false if it was skipped
+		 */
+		boolean handle(long dialogId, CVRecord fields) throws IOException;
+	}
+	
+	/**
+	 * @return up to max inputs, empty when the input is exhausted
+	 * @throws IllegalArgumentException if max is not positive, since an empty result
+	 * means the end of the input
+	 */
+	private List<Object> readInputs(int max) throws ParsePipelineException {
+		if (max < 1) {
+			throw new IllegalArgumentException("max must be positive: " + max);
+		}
+		List<Object> inputs = new ArrayList<Object>(max);
+		Object input;
+		while (inputs.size() < max && (input = nextInput()) != null) {
+			inputs.add(input);
+		}
+		return inputs;
+	}
+	
+	/**
+	 * Read up to max records, decode them and hand the typed fields of each, or of each
+	 * bundle record with decodeBundle set, to the handler. Records whose parser does not
+	 * build typed records are skipped.
+	 * 
+	 * @return the number of records the handler took, or -1 when the input is exhausted
+	 */
+	private int parseTyped(int max, TypedRecordHandler handler) throws ParsePipelineException, IOException {
+		List<Object> inputs = readInputs(max);
+		if (inputs.isEmpty()) return -1;
 		
+		int taken = 0;
+		for (DecodedRecord record : decodeBatch(inputs)) {
+			if (record == null || record == DecodedRecord.FILTERED) continue;
+			CVMessageParser parser = lookupParser(record);
+			if (parser == null || (record.cached == null && !(parser instanceof TypedCVMessageParser))) continue;
+			int count = bundleRecordCount(parser, record);
+			if (count <= 0) {
+				if (insideGeoFences(record, 0)) {
+					taken += handler.handle(record.dialogId, parseFields(parser, record)) ? 1 : 0;
+				}
+				continue;
+			}
+			for (int index = 0; index < count; index++) {
+				if (!insideGeoFences(record, index)) continue;
+				taken += handler.handle(record.dialogId, parseBundleFields((BundleCVMessageParser) parser, record, index)) ? 1 : 0;
+			}
+		}
+		return taken;
+	}
+	
+	String resolveAccessLabel() {
+		String streamAccessLabel = (info == null) ? null : info.getProperty(StandardHeader.ACCESS_LABEL_KEY);
+		return (streamAccessLabel == null) ? defaultAccessLabel : streamAccessLabel;
+	}
+	
+	String resolveSource() {
+		String streamSource = (info == null) ? null : info.getProperty(StandardHeader.SOURCE_KEY);
+		return (streamSource == null) ? defaultSource : streamSource;
+	}
+	
+	/**
+	 * @return the next input line, or the body of the next frame when reading frames, or
+	 * null at the end of the input
+	 */
+	private Object nextInput() throws ParsePipelineException {
+		if (frames == null) {
+			return nextRecord();
+		}
+		try {
+			return frames.next();
+		} catch (IOException e) {
+			throw new ParsePipelineException("Failed to read a frame at offset " + frames.position(), e);
+		}
+	}
+	
+	/**
+	 * Decode an input line or frame body returned by {@link #nextInput()}.
+	 */
+	DecodedRecord decodeInput(Object input) {
+		return (input instanceof ByteBuffer) ? decodeFrame((ByteBuffer) input) : decodeRecord((String) input);
+	}
+	
+	/**
+	 * Unwrap the data bundle of a base64 line and decode its payload.
+	 * 
+	 * When acceptedDialogs is set, records of other dialogs are dropped, without decoding
+	 * more than their header once the header layouts are learned. When duplicateWindowSeconds
+	 * is set, payloads already seen within the window are dropped without being decoded.
+	 * With the output cache on, payloads whose parsed fields are cached are not decoded either;
+	 * once the header layouts of the cacheable message types are learned, only payloads that
+	 * may be of a cacheable dialog are looked up.
+	 * When geoFences is set, records located outside every fence are dropped once decoded,
+	 * or found in the cache, before any map is built or translated.
+	 * 
+	 * @return the decoded record, {@link DecodedRecord#FILTERED} if its dialog is not
+	 * accepted, it is a duplicate or it is outside the geo-fences, or null if the input
+	 * could not be decoded
+	 */
+	DecodedRecord decodeRecord(String input) {
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		DataBundle bundle;
 		try {
 			bundle = DataBundleUtil.decode(input);
-			message = decodeBER(bundle.getPayload());
+		} catch (Exception ex) {
+			failures.record(ParseFailure.BUNDLE_DECODE, ex, input);
+			return null;
+		}
+		return decodePayload(input, bundle, start);
+	}
+	
+	/**
+	 * Unwrap the data bundle of a binary frame body and decode its payload, as
+	 * {@link #decodeRecord(String)} does for lines. Frames that fail are counted but,
+	 * having no line, not passed to the dead letter sink.
+	 */
+	DecodedRecord decodeFrame(ByteBuffer body) {
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		DataBundle bundle;
+		try {
+			bundle = BundleFrames.decode(body);
+		} catch (Exception ex) {
+			failures.record(ParseFailure.BUNDLE_DECODE, ex, null);
+			return null;
+		}
+		return decodePayload(null, bundle, start);
+	}
+	
+	/**
+	 * @param input the line the bundle was read from, null for a frame
+	 * @param start when unwrapping started, if metrics are enabled
+	 */
+	private DecodedRecord decodePayload(String input, DataBundle bundle, long start) {
+		byte[] payload = bundle.getPayload();
+		try {
+			// read as each accepted message type, the payload is none of the accepted dialogs
+			if (acceptedDialogTable != null && headerDecoder.isLearned(headerMessageClasses)
+					&& !headerDecoder.mayBeDialog(payload, headerMessageClasses, acceptedDialogTable)) {
+				filteredCount.incrementAndGet();
+				return DecodedRecord.FILTERED;
+			}
+			long digest = (duplicates != null || outputCache != null) ? DuplicateFilter.hash(payload) : 0;
+			if (duplicates != null && duplicates.isDuplicate(digest)) {
+				return DecodedRecord.FILTERED;
+			}
+			long unwrapped = (metrics != null) ? System.nanoTime() : 0;
+			// payloads no cacheable message type reads a cacheable dialog from are not looked up
+			boolean cacheable = outputCache != null
+					&& headerDecoder.mayBeDialog(payload, cacheableMessageClasses, cacheableDialogTable);
+			if (cacheable) {
+				ParsedOutputCache.Entry cached = outputCache.get(digest, payload, System.currentTimeMillis());
+				if (cached != null) {
+					if (acceptedDialogTable != null && !isAccepted(cached.getDialogId())) {
+						filteredCount.incrementAndGet();
+						return DecodedRecord.FILTERED;
+					}
+					if (geoFenceFilter != null && !geoFenceFilter.accepts(cached.getRecord())) {
+						return DecodedRecord.FILTERED;
+					}
+					long found = (metrics != null) ? System.nanoTime() : 0;
+					return new DecodedRecord(input, bundle, null, cached, digest, null, unwrapped - start, found - unwrapped);
+				}
+			}
+			AbstractData message = decodeBER(payload);
+			long decoded = (metrics != null) ? System.nanoTime() : 0;
+			if (acceptedDialogTable != null || outputCache != null) {
+				headerDecoder.learn(payload, message);
+			}
+			if (cacheable || acceptedDialogTable != null) {
+				long dialogId = CVMessageParserCache.getDialogId(message);
+				if (cacheable && isCacheable(dialogId)) {
+					outputCache.countMiss();
+				}
+				if (acceptedDialogTable != null && !isAccepted(dialogId)) {
+					filteredCount.incrementAndGet();
+					return DecodedRecord.FILTERED;
+				}
+			}
+			if (geoFenceFilter != null && !geoFenceFilter.accepts(message)) {
+				return DecodedRecord.FILTERED;
+			}
+			String encodedPayload = (sliceEncodedPayload && input != null) ? EncodedPayloadSlicer.slice(input, payload) : null;
+			return new DecodedRecord(input, bundle, message, null, digest, encodedPayload, unwrapped - start, decoded - unwrapped);
+		} catch (ParseFailureException ex) {
+			failures.record(ex.getFailure(), ex.getCause(), input);
+			return null;
 		} catch (Exception ex) {
 			logger.error("Failed to decode and unwrap payload.", ex);
 			return null;
 		}
+	}
+	
+	private boolean isAccepted(long dialogId) {
+		return dialogId >= 0 && dialogId < acceptedDialogTable.length && acceptedDialogTable[(int) dialogId];
+	}
+	
+	private boolean isCacheable(long dialogId) {
+		return dialogId >= 0 && dialogId < cacheableDialogTable.length && cacheableDialogTable[(int) dialogId];
+	}
+	
+	/**
+	 * Read the SEMI header of a PER encoded message. Once the header layouts of the
+	 * message types in use are learned, only the leading bits of the payload are read;
+	 * until then, or when the layouts disagree, the message is decoded in full.
+	 * 
+	 * @return the header, or null if the payload is not a SEMI message
+	 */
+	public SemiHeader decodeHeader(byte[] payload) throws ParsePipelineException {
+		if (headerDecoder.isLearned(headerMessageClasses)) {
+			SemiHeader header = headerDecoder.decode(payload);
+			if (header != null) {
+				return header;
+			}
+		}
+		AbstractData message = decodeBER(payload);
+		headerDecoder.learn(payload, message);
+		return SemiHeader.fromMessage(message);
+	}
+	
+	/**
+	 * @return the number of records dropped because their dialog is not accepted
+	 */
+	public long getFilteredCount() {
+		return filteredCount.get();
+	}
+	
+	/**
+	 * @return the filter dropping records outside the geo-fences, or null unless geoFences is set
+	 */
+	public GeoFenceFilter getGeoFenceFilter() {
+		return geoFenceFilter;
+	}
+	
+	/**
+	 * Decode the input lines or frame bodies, in parallel when a batch executor is
+	 * configured. The result has one entry per input in the same order, null where decoding
+	 * failed and {@link DecodedRecord#FILTERED} where the dialog is not accepted.
+	 */
+	List<DecodedRecord> decodeBatch(List<?> inputs) throws ParsePipelineException {
+		int chunks = (batchExecutor == null) ? 1 : Math.min(batchDecodeThreads, inputs.size());
+		if (chunks <= 1) {
+			List<DecodedRecord> records = new ArrayList<DecodedRecord>(inputs.size());
+			for (Object input : inputs) {
+				records.add(decodeInput(input));
+			}
+			return records;
+		}
+		
+		int chunkSize = (inputs.size() + chunks - 1) / chunks;
+		List<Future<List<DecodedRecord>>> futures = new ArrayList<Future<List<DecodedRecord>>>(chunks);
+		for (int start = 0; start < inputs.size(); start += chunkSize) {
+			final List<?> chunk = inputs.subList(start, Math.min(start + chunkSize, inputs.size()));
+			futures.add(batchExecutor.submit(new Callable<List<DecodedRecord>>() {
+				public List<DecodedRecord> call() {
+					List<DecodedRecord> records = new ArrayList<DecodedRecord>(chunk.size());
+					for (Object input : chunk) {
+						records.add(decodeInput(input));
+					}
+					return records;
+				}
+			}));
+		}
+		
+		List<DecodedRecord> records = new ArrayList<DecodedRecord>(inputs.size());
+		try {
+			for (Future<List<DecodedRecord>> future : futures) {
+				records.addAll(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParsePipelineException("Interrupted while decoding a batch of records", e);
+		} catch (ExecutionException e) {
+			throw new ParsePipelineException("Failed to decode a batch of records", e.getCause());
+		}
+		return records;
+	}
+	
+	/**
+	 * Decode, parse and translate each input as its own task on the record executor, with
+	 * at most recordConcurrency tasks outstanding, and gather the results in input order.
+	 * Translators that block, on a lookup for example, then overlap instead of holding up
+	 * the batch; coders are borrowed from the shared pool for the decode only.
+	 */
+	private List<JSONObject> parseRecords(List<?> inputs, final String source, final String accessLabel) throws ParsePipelineException {
+		final Semaphore permits = recordPermits;
+		List<Future<List<JSONObject>>> futures = new ArrayList<Future<List<JSONObject>>>(inputs.size());
+		try {
+			for (final Object input : inputs) {
+				permits.acquire();
+				try {
+					futures.add(recordExecutor.submit(new Callable<List<JSONObject>>() {
+						public List<JSONObject> call() throws ParsePipelineException {
+							try {
+								return parseInput(input, source, accessLabel);
+							} finally {
+								permits.release();
+							}
+						}
+					}));
+				} catch (RejectedExecutionException e) {
+					permits.release();
+					throw new ParsePipelineException("The record executor refused a record", e);
+				}
+			}
+			
+			List<JSONObject> results = new ArrayList<JSONObject>(inputs.size());
+			for (Future<List<JSONObject>> future : futures) {
+				results.addAll(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			cancel(futures);
+			throw new ParsePipelineException("Interrupted while parsing a batch of records", e);
+		} catch (ExecutionException e) {
+			cancel(futures);
+			if (e.getCause() instanceof ParsePipelineException) {
+				throw (ParsePipelineException) e.getCause();
+			}
+			throw new ParsePipelineException("Failed to parse a batch of records", e.getCause());
+		} catch (ParsePipelineException e) {
+			cancel(futures);
+			throw e;
+		}
+	}
+	
+	/**
+	 * @return the translated records of one input, empty if it was dropped or failed to decode
+	 */
+	private List<JSONObject> parseInput(Object input, String source, String accessLabel) throws ParsePipelineException {
+		DecodedRecord record = decodeInput(input);
+		if (record == null || record == DecodedRecord.FILTERED) return Collections.emptyList();
+		CVMessageParser parser = lookupParser(record);
+		if (parser == null) return Collections.emptyList();
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		List<Map<String, String>> maps = parseMaps(parser, record);
+		long parsed = (metrics != null) ? System.nanoTime() : 0;
+		List<JSONObject> results = new ArrayList<JSONObject>(maps.size());
+		for (Map<String, String> map : maps) {
+			JSONObject result = translate(map, source, accessLabel);
+			if (result != null) {
+				results.add(result);
+			}
+		}
+		if (metrics != null) {
+			recordParseLatency(record.dialogId, start, parsed);
+		}
+		return results;
+	}
+	
+	private static void cancel(List<? extends Future<?>> futures) {
+		for (Future<?> future : futures) {
+			future.cancel(true);
+		}
+	}
+	
+	/**
+	 * Parse a decoded record with its CVMessageParser and translate the resulting map.
+	 */
+	JSONObject translateRecord(CVMessageParser parser, DecodedRecord record, String source, String accessLabel) throws ParsePipelineException {
+		if (metrics == null) {
+			return translate(parseMessage(parser, record), source, accessLabel);
+		}
+		long start = System.nanoTime();
+		Map<String, String> map = parseMessage(parser, record);
+		long parsed = System.nanoTime();
+		JSONObject result = translate(map, source, accessLabel);
+		recordParseLatency(record.dialogId, start, parsed);
+		return result;
+	}
+	
+	private void recordParseLatency(long dialogId, long start, long parsed) {
+		metrics.recordLatency(dialogId, ParserMetrics.Stage.PARSE, parsed - start);
+		metrics.recordLatency(dialogId, ParserMetrics.Stage.TRANSLATE, System.nanoTime() - parsed);
+	}
+	
+	/**
+	 * Start iterating over the bundle records of a decoded message that are inside the
+	 * geo-fences, if any are set.
+	 * 
+	 * @return the cursor, or null if decodeBundle is off, the message's parser does not
+	 * expand bundles or the bundle is empty, in which case the record is translated as a whole
+	 */
+	BundleCursor expandRecord(CVMessageParser parser, DecodedRecord record, String source, String accessLabel) throws ParsePipelineException {
+		int count = bundleRecordCount(parser, record);
+		if (count <= 0) return null;
 		
-		Long dialogId = getDialogId(message);
-		if (dialogId == null) {
-			logger.error("No dialog id found for message: " + message);
+		return new BundleCursor((BundleCVMessageParser) parser, record, count, source, accessLabel);
+	}
+	
+	/**
+	 * @return the number of bundle records the record expands to, or 0 if it is parsed as a whole
+	 */
+	private int bundleRecordCount(CVMessageParser parser, DecodedRecord record) throws ParsePipelineException {
+		if (!decodeBundle || record.cached != null || !(parser instanceof BundleCVMessageParser)) return 0;
+		return ((BundleCVMessageParser) parser).getRecordCount(record.message);
+	}
+	
+	/**
+	 * Test one record of a vehicle situation bundle against the geo-fences, counting it.
+	 * A message parsed as a whole stands for its first bundle record. Other messages were
+	 * tested as a whole once decoded.
+	 * 
+	 * @return false if geo-fences are set and the bundle record is outside all of them
+	 */
+	private boolean insideGeoFences(DecodedRecord record, int index) {
+		if (geoFenceFilter == null || !(record.message instanceof VehSitDataMessage)) return true;
+		VehSitDataMessage.Bundle bundle = ((VehSitDataMessage) record.message).getBundle();
+		if (bundle == null || index >= bundle.getSize()) return true;
+		return geoFenceFilter.accepts(bundle.get(index));
+	}
+	
+	/**
+	 * Build the translator maps of a decoded record all at once: one per bundle record when
+	 * the record expands, otherwise one for the whole record. Bundle records outside the
+	 * geo-fences are left out.
+	 */
+	List<Map<String, String>> parseMaps(CVMessageParser parser, DecodedRecord record) throws ParsePipelineException {
+		int count = bundleRecordCount(parser, record);
+		if (count <= 0) {
+			if (!insideGeoFences(record, 0)) {
+				return Collections.emptyList();
+			}
+			return Collections.singletonList(parseMessage(parser, record));
+		}
+		List<Map<String, String>> maps = new ArrayList<Map<String, String>>(count);
+		for (int index = 0; index < count; index++) {
+			if (!insideGeoFences(record, index)) continue;
+			maps.add(parseBundleRecord((BundleCVMessageParser) parser, record, index));
+		}
+		return maps;
+	}
+	
+	/**
+	 * @return the parser registered for the record's dialog, or null
+	 */
+	CVMessageParser lookupParser(DecodedRecord record) {
+		long start = (metrics != null) ? System.nanoTime() : 0;
+		long dialogId = (record.cached != null) ? record.cached.getDialogId() : CVMessageParserCache.getDialogId(record.message);
+		if (dialogId == CVMessageParserCache.NO_DIALOG_ID) {
+			failures.record(ParseFailure.NO_DIALOG_ID, record.message.getClass().getName(), record.input);
 			return null;
 		}
+		record.dialogId = dialogId;
 		
 		CVMessageParser parser = CVMessageParserCache.lookupParser(dialogId);
 		if (parser == null) {
-			logger.error("No CVMessageParser found for dialog id: " + dialogId);
-			return null;
+			failures.record(ParseFailure.NO_PARSER, dialogId, record.input);
 		}
-		
+		if (metrics != null) {
+			metrics.recordLatency(dialogId, ParserMetrics.Stage.UNWRAP, record.unwrapNanos);
+			metrics.recordLatency(dialogId, ParserMetrics.Stage.DECODE, record.decodeNanos);
+			metrics.recordLatency(dialogId, ParserMetrics.Stage.DISPATCH, System.nanoTime() - start);
+			metrics.countBytes(dialogId, record.bundle.getPayload().length);
+		}
+		return parser;
+	}
+	
+	JSONObject translate(Map<String, String> map, String source, String accessLabel) throws ParsePipelineException {
 		try {
-			map = parser.parse(message, bundle);
 			return translator.recordTranslation(map, source, accessLabel);
 		} catch (ParseException pe) {
 			throw new ParsePipelineException("Failed to translate the message map to input data model.", pe);
 		}
 	}
 	
-	private Long getDialogId(AbstractData message) {
-		if (message instanceof VehSitDataMessage) {
-			return ((VehSitDataMessage) message).getDialogID().longValue();
-		} else if (message instanceof DataSubscriptionRequest) {
-			return ((DataSubscriptionRequest) message).getDialogID().longValue();
-		} else if (message instanceof DataSubscriptionCancel) {
-			return ((DataSubscriptionCancel) message).getDialogID().longValue();
-		} else if (message instanceof AdvisorySituationData) {
-			return ((AdvisorySituationData) message).getDialogID().longValue();
-		} else if (message instanceof DataRequest) {
-			return ((DataRequest) message).getDialogID().longValue();
-		} else if (message instanceof IntersectionSituationData) {
-			return ((IntersectionSituationData) message).getDialogID().longValue();  
-		} else if (message instanceof ObjectRegistrationData) {
-			return ((ObjectRegistrationData) message).getDialogID().longValue();  
-		} else if (message instanceof ObjectDiscoveryDataRequest) {
-			return ((ObjectDiscoveryDataRequest) message).getDialogID().longValue();  
-		} else {
-			return null;
+	/**
+	 * Build the translator map for a decoded record, going through a reusable per-thread
+	 * typed record when the parser supports it. The fields of cacheable parsers are taken
+	 * from, or on a miss added to, the output cache.
+	 */
+	Map<String, String> parseMessage(CVMessageParser parser, DecodedRecord record) throws ParsePipelineException {
+		if (record.cached != null || parser instanceof TypedCVMessageParser) {
+			return parseFields(parser, record).toMap();
 		}
+		return parser.parse(record.message, record.bundle);
 	}
 	
-	private AbstractData decodeBER(byte [] message) throws ParsePipelineException {
+	/**
+	 * Parse a decoded record into the per-thread typed record, taking the fields of
+	 * cacheable parsers from, or on a miss adding them to, the output cache.
+	 * 
+	 * @return the per-thread record, valid until the thread parses another
+	 */
+	CVRecord parseFields(CVMessageParser parser, DecodedRecord record) throws ParsePipelineException {
+		if (record.cached != null) {
+			if (!(parser instanceof CacheableCVMessageParser)) {
+				throw new ParsePipelineException("Parser " + parser.getClass().getName() + " cannot use cached fields");
+			}
+			CVRecord fields = records.get();
+			fields.copyFrom(record.cached.getRecord());
+			((CacheableCVMessageParser) parser).parseBundle(record.bundle, fields);
+			return fields;
+		}
+		if (parser instanceof TypedCVMessageParser) {
+			CVRecord fields = records.get();
+			fields.clear();
+			fields.setEncodedPayload(record.encodedPayload);
+			((TypedCVMessageParser) parser).parse(record.message, record.bundle, fields);
+			if (outputCache != null && parser instanceof CacheableCVMessageParser) {
+				CVRecord snapshot = new CVRecord(fields.size());
+				snapshot.copyFrom(fields);
+				outputCache.put(record.digest, record.bundle.getPayload(), record.dialogId, snapshot, System.currentTimeMillis());
+			}
+			return fields;
+		}
+		throw new ParsePipelineException("Parser " + parser.getClass().getName() + " does not build typed records");
+	}
+	
+	/**
+	 * Build the translator map for one bundle record of a decoded record.
+	 */
+	Map<String, String> parseBundleRecord(BundleCVMessageParser parser, DecodedRecord record, int index) throws ParsePipelineException {
+		return parseBundleFields(parser, record, index).toMap();
+	}
+	
+	/**
+	 * @return the per-thread record holding the fields of one bundle record
+	 */
+	private CVRecord parseBundleFields(BundleCVMessageParser parser, DecodedRecord record, int index) throws ParsePipelineException {
+		CVRecord fields = records.get();
+		fields.clear();
+		fields.setEncodedPayload(record.encodedPayload);
+		parser.parseRecord(record.message, record.bundle, index, fields);
+		return fields;
+	}
+	
+	/**
+	 * Decode a PER encoded message with a coder borrowed from the pool. Safe to call from
+	 * any number of threads at once. A payload that does not decode is reported with a
+	 * {@link ParseFailureException}, which carries no stack trace. Decoding fails once the
+	 * parser is disposed, also for a thread still waiting for a coder.
+	 */
+	AbstractData decodeBER(byte [] message) throws ParsePipelineException {
+		CoderPool pool = coderPool;
+		if (pool == null) {
+			throw new ParsePipelineException("J2735Parser is not initialized or has been disposed");
+		}
+		Coder coder = null;
 		try {
+			coder = pool.borrow();
 			return J2735Util.decode(coder, message);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ParsePipelineException("Interrupted while waiting for a BER decoder", e);
 		} catch (DecodeFailedException e) {
-			String errorMessage = String.format("BER decode failed with Exception: %s", e.toString());
-			logger.error(errorMessage);
-			throw new ParsePipelineException(errorMessage, e);
+			throw new ParseFailureException(ParseFailure.PAYLOAD_DECODE, e, e);
 		} catch (DecodeNotSupportedException e) {
-			String errorMessage = String.format("BER decode failed with Exception: %s", e.toString());
-			logger.error(errorMessage);
-			throw new ParsePipelineException(errorMessage, e);
+			throw new ParseFailureException(ParseFailure.DECODE_NOT_SUPPORTED, e, e);
+		} finally {
+			pool.release(coder);
 		}
 	}
 	
+	/**
+	 * @return the parse metrics, or null unless metricsEnabled was set before {@link #initialize()}
+	 */
+	public ParserMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * @return the filter dropping duplicate payloads, or null unless duplicateWindowSeconds
+	 * was set before {@link #initialize()}
+	 */
+	public DuplicateFilter getDuplicateFilter() {
+		return duplicates;
+	}
+	
+	/**
+	 * @return the cache of parsed fields, or null unless outputCacheMegabytes was set before
+	 * {@link #initialize()}
+	 */
+	public ParsedOutputCache getOutputCache() {
+		return outputCache;
+	}
+	
+	/**
+	 * @return the counts of records that failed, or null before {@link #initialize()}
+	 */
+	public ParseFailureRecorder getFailureRecorder() {
+		return failures;
+	}
+	
+	/**
+	 * Set where the raw lines of records that fail to parse are sent, null for nowhere.
+	 */
+	public void setDeadLetterSink(DeadLetterSink deadLetterSink) {
+		this.deadLetterSink = deadLetterSink;
+		if (failures != null) {
+			failures.setDeadLetterSink(deadLetterSink);
+		}
+	}
+	
+	public DeadLetterSink getDeadLetterSink() {
+		return deadLetterSink;
+	}
+	
+	/**
+	 * @return the pool of BER decoders, or null before {@link #initialize()}
+	 */
+	public CoderPool getCoderPool() {
+		return coderPool;
+	}
+	
 	/**
 	 * Set the translator that will convert the parsed fields to a data model.
 	 */
@@ -231,9 +1250,270 @@ public class J2735Parser extends AbstractLineParser implements Initializable {
 
 	@UserConfigured(value="false",
 			flexValidator = { "RegExpValidator expression=true|false" },
-			description="Decode the VehSitRcdBundle portion of the VehSitDataMessage")
+			description="Output one record per VehSitRecord in the bundle of a VehSitDataMessage instead of the first record only")
 	public void setDecodeBundle(boolean decodeBundle) {
 		this.decodeBundle = decodeBundle;
 	}
+
+	public int getCoderPoolSize() {
+		return coderPoolSize;
+	}
+
+	@UserConfigured(value="0",
+			flexValidator = { "RegExpValidator expression=[0-9]+" },
+			description="Number of BER decoders shared by the threads calling the parser, 0 for one per available processor")
+	public void setCoderPoolSize(int coderPoolSize) {
+		this.coderPoolSize = coderPoolSize;
+	}
+
+	public int getBatchDecodeThreads() {
+		return batchDecodeThreads;
+	}
+
+	@UserConfigured(value="0",
+			flexValidator = { "RegExpValidator expression=[0-9]+" },
+			description="Number of threads decoding the records of a parseBatch call in parallel, 0 or 1 to decode serially")
+	public void setBatchDecodeThreads(int batchDecodeThreads) {
+		this.batchDecodeThreads = batchDecodeThreads;
+	}
+	
+	public String getRecordThreadMode() {
+		return recordThreadMode;
+	}
+
+	@UserConfigured(value="none",
+			flexValidator = { "RegExpValidator expression=none|platform|virtual" },
+			description="Threads parsing each record of a parseBatch call from decode to translation: none for the calling thread, "
+					+ "platform for a fixed pool of recordConcurrency threads, virtual for a virtual thread per record. "
+					+ "The translator must be thread safe unless this is none.")
+	public void setRecordThreadMode(String recordThreadMode) {
+		this.recordThreadMode = recordThreadMode;
+	}
+
+	public int getRecordConcurrency() {
+		return recordConcurrency;
+	}
+
+	@UserConfigured(value="64",
+			flexValidator = { "RegExpValidator expression=[1-9][0-9]*" },
+			description="Most records of a parseBatch call parsed at once when recordThreadMode is platform or virtual")
+	public void setRecordConcurrency(int recordConcurrency) {
+		this.recordConcurrency = recordConcurrency;
+	}
+	
+	public boolean isPassThroughEncodedPayload() {
+		return passThroughEncodedPayload;
+	}
+
+	@UserConfigured(value="true",
+			flexValidator = { "RegExpValidator expression=true|false" },
+			description="Fill encodedMsg with the payload as it appears in the input instead of encoding the decoded payload again")
+	public void setPassThroughEncodedPayload(boolean passThroughEncodedPayload) {
+		this.passThroughEncodedPayload = passThroughEncodedPayload;
+	}
+	
+	public String getInputFormat() {
+		return inputFormat;
+	}
+
+	@UserConfigured(value="line",
+			flexValidator = { "RegExpValidator expression=line|frame" },
+			description="Format of the input stream: line for base64 data bundles one per line, "
+					+ "frame for length prefixed binary data bundle frames")
+	public void setInputFormat(String inputFormat) {
+		this.inputFormat = inputFormat;
+	}
+	
+	public boolean isMetricsEnabled() {
+		return metricsEnabled;
+	}
+
+	@UserConfigured(value="false",
+			flexValidator = { "RegExpValidator expression=true|false" },
+			description="Record per dialog latency histograms of every parse stage and publish them through JMX")
+	public void setMetricsEnabled(boolean metricsEnabled) {
+		this.metricsEnabled = metricsEnabled;
+	}
+
+	public int getDuplicateWindowSeconds() {
+		return duplicateWindowSeconds;
+	}
+
+	@UserConfigured(value="0",
+			flexValidator = { "RegExpValidator expression=[0-9]+" },
+			description="Seconds a payload is remembered to drop resent copies of it without decoding them, 0 to keep duplicates")
+	public void setDuplicateWindowSeconds(int duplicateWindowSeconds) {
+		this.duplicateWindowSeconds = duplicateWindowSeconds;
+	}
+
+	public int getDuplicateCapacity() {
+		return duplicateCapacity;
+	}
+
+	@UserConfigured(value="100000",
+			flexValidator = { "RegExpValidator expression=[1-9][0-9]*" },
+			description="Most payloads remembered at once for dropping duplicates; the oldest are forgotten first")
+	public void setDuplicateCapacity(int duplicateCapacity) {
+		this.duplicateCapacity = duplicateCapacity;
+	}
+
+	public int getOutputCacheMegabytes() {
+		return outputCacheMegabytes;
+	}
+
+	@UserConfigured(value="0",
+			flexValidator = { "RegExpValidator expression=[0-9]+" },
+			description="Megabytes of parsed advisory and intersection situation data fields kept to skip decoding "
+					+ "rebroadcasts of the same payload within its timeToLive, 0 to parse every payload")
+	public void setOutputCacheMegabytes(int outputCacheMegabytes) {
+		this.outputCacheMegabytes = outputCacheMegabytes;
+	}
+
+	public String getOutputEncoding() {
+		return outputEncoding;
+	}
+
+	@UserConfigured(value="binary",
+			flexValidator = { "RegExpValidator expression=binary|json" },
+			description="Encoding of the records returned by parseEncoded: binary for the compact per dialog schema "
+					+ "encoding, json for one JSON object per line")
+	public void setOutputEncoding(String outputEncoding) {
+		this.outputEncoding = outputEncoding;
+		this.outputEncoder = null;
+	}
+	
+	/**
+	 * Encode the records returned by {@link #parseEncoded(int, RecordBuffer)} with a custom
+	 * encoder instead of the one named by outputEncoding.
+	 */
+	public void setOutputEncoder(RecordEncoder outputEncoder) {
+		this.outputEncoder = outputEncoder;
+	}
+
+	public int getFailureLogsPerMinute() {
+		return failureLogsPerMinute;
+	}
+
+	@UserConfigured(value="10",
+			flexValidator = { "RegExpValidator expression=[0-9]+" },
+			description="Number of failed records of each kind logged per minute, the rest are only counted")
+	public void setFailureLogsPerMinute(int failureLogsPerMinute) {
+		this.failureLogsPerMinute = failureLogsPerMinute;
+	}
+
+	public String getAcceptedDialogs() {
+		return acceptedDialogs;
+	}
+
+	@UserConfigured(value="",
+			description="Comma separated SemiDialogID names or numbers of the dialogs to parse, empty to parse every dialog. "
+					+ "Records of other dialogs are dropped after reading only their header.")
+	public void setAcceptedDialogs(String acceptedDialogs) {
+		this.acceptedDialogs = acceptedDialogs;
+	}
+
+	public String getGeoFences() {
+		return geoFences;
+	}
+
+	@UserConfigured(value="",
+			description="Semicolon separated geo-fences, each a name, '=' and either the north, west, south and east edges "
+					+ "of a box or comma separated 'lat lon' polygon vertices, in degrees. Vehicle situation, intersection "
+					+ "and advisory records outside every fence are dropped before they are translated; empty keeps every record.")
+	public void setGeoFences(String geoFences) {
+		this.geoFences = geoFences;
+	}
+
+	public int getHeaderVerifyCount() {
+		return headerVerifyCount;
+	}
+
+	@UserConfigured(value="16",
+			flexValidator = { "RegExpValidator expression=[0-9]+" },
+			description="Number of fully decoded messages of each type the header-only decode is verified against before it is used")
+	public void setHeaderVerifyCount(int headerVerifyCount) {
+		this.headerVerifyCount = headerVerifyCount;
+	}
+	
+	/**
+	 * Translates the bundle records of one decoded record lazily, one per call to
+	 * {@link #next()}, so only the record being returned is ever built.
+	 */
+	final class BundleCursor {
+		private final BundleCVMessageParser parser;
+		private final DecodedRecord record;
+		private final int count;
+		private final String source;
+		private final String accessLabel;
+		private int index;
+		
+		BundleCursor(BundleCVMessageParser parser, DecodedRecord record, int count, String source, String accessLabel) {
+			this.parser = parser;
+			this.record = record;
+			this.count = count;
+			this.source = source;
+			this.accessLabel = accessLabel;
+		}
+		
+		/**
+		 * Skip, once each, the bundle records outside the geo-fences.
+		 */
+		boolean hasNext() {
+			while (index < count && !insideGeoFences(record, index)) {
+				index++;
+			}
+			return index < count;
+		}
+		
+		JSONObject next() throws ParsePipelineException {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			if (metrics == null) {
+				return translate(parseBundleRecord(parser, record, index++), source, accessLabel);
+			}
+			long start = System.nanoTime();
+			Map<String, String> map = parseBundleRecord(parser, record, index++);
+			long parsed = System.nanoTime();
+			JSONObject result = translate(map, source, accessLabel);
+			recordParseLatency(record.dialogId, start, parsed);
+			return result;
+		}
+	}
+	
+	/**
+	 * An input line, null for a binary frame, its data bundle, the decoded payload or its cached fields and,
+	 * when it could be taken from the input line, the base64 payload.
+	 */
+	static final class DecodedRecord {
+		/** Stands for a record dropped because its dialog is not accepted. */
+		static final DecodedRecord FILTERED = new DecodedRecord(null, null, null, null, 0, null, 0, 0);
+		
+		final String input;
+		final DataBundle bundle;
+		/** Null when the fields are cached. */
+		final AbstractData message;
+		final ParsedOutputCache.Entry cached;
+		/** Digest of the payload, if it was needed. */
+		final long digest;
+		final String encodedPayload;
+		final long unwrapNanos;
+		final long decodeNanos;
+		
+		/** Set once the record is dispatched. */
+		long dialogId = CVMessageParserCache.NO_DIALOG_ID;
+		
+		DecodedRecord(String input, DataBundle bundle, AbstractData message, ParsedOutputCache.Entry cached, long digest,
+				String encodedPayload, long unwrapNanos, long decodeNanos) {
+			this.input = input;
+			this.bundle = bundle;
+			this.message = message;
+			this.cached = cached;
+			this.digest = digest;
+			this.encodedPayload = encodedPayload;
+			this.unwrapNanos = unwrapNanos;
+			this.decodeNanos = decodeNanos;
+		}
+	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,313 @@
+package gov.usdot.cv.parser;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.json.JSONObject;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * Streams raw records through an initialized {@link J2735Parser} without the ingest
+ * pipeline's pull loop. Records from the upstream publisher are decoded, dispatched and
+ * parsed on an executor, then translated one at a time and published downstream in
+ * arrival order or, unordered, as they are ready. Records that fail to decode are counted
+ * by the parser and skipped, as parseBatch does.
+ *
+ * At most maxInFlight upstream records are requested and not yet fully delivered, so a
+ * slow subscriber stops the processor requesting more and the backpressure reaches the
+ * source. Translation stays on one thread at a time, so the parser's translator need not
+ * be thread safe; decoding and parsing share the parser's coder pool and per-thread
+ * records, which are.
+ *
+ * A processor serves one subscriber.
+ */
+public class J2735Processor<T> implements ParserFlow.Processor<T, JSONObject> {
+
+	private static final List<Map<String, String>> NO_MAPS = Collections.emptyList();
+
+	private final J2735Parser parser;
+	private final Executor executor;
+	private final int maxInFlight;
+	private final boolean ordered;
+
+	private volatile ParserFlow.Subscription upstream;
+	private volatile ParserFlow.Subscriber<? super JSONObject> downstream;
+	private final AtomicBoolean subscribed = new AtomicBoolean();
+
+	/** Records in arrival order when ordered, otherwise records ready to be delivered. */
+	private final Queue<Slot> slots = new ConcurrentLinkedQueue<Slot>();
+
+	/** Records received and not yet fully delivered. */
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	/** Records requested from upstream and not yet received. */
+	private final AtomicInteger awaiting = new AtomicInteger();
+
+	private final AtomicLong demand = new AtomicLong();
+	private final AtomicInteger drains = new AtomicInteger();
+
+	private volatile boolean upstreamDone;
+	private volatile Throwable upstreamError;
+	private volatile boolean cancelled;
+
+	/** Error to report ahead of anything still to deliver. */
+	private volatile Throwable failure;
+
+	/** Record being delivered, owned by the draining thread. */
+	private Slot current;
+	private int currentIndex;
+	private String source;
+	private String accessLabel;
+
+	/**
+	 * @return a processor of base64 data bundle lines
+	 */
+	public static J2735Processor<String> forLines(J2735Parser parser, Executor executor, int maxInFlight, boolean ordered) {
+		return new J2735Processor<String>(parser, executor, maxInFlight, ordered);
+	}
+
+	/**
+	 * @return a processor of {@link BundleFrames} bodies, without their length prefix
+	 */
+	public static J2735Processor<ByteBuffer> forFrames(J2735Parser parser, Executor executor, int maxInFlight, boolean ordered) {
+		return new J2735Processor<ByteBuffer>(parser, executor, maxInFlight, ordered);
+	}
+
+	private J2735Processor(J2735Parser parser, Executor executor, int maxInFlight, boolean ordered) {
+		if (maxInFlight < 1) {
+			throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+		}
+		this.parser = parser;
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.ordered = ordered;
+	}
+
+	public void subscribe(ParserFlow.Subscriber<? super JSONObject> subscriber) {
+		if (!subscribed.compareAndSet(false, true)) {
+			subscriber.onSubscribe(new ParserFlow.Subscription() {
+				public void request(long n) {
+				}
+
+				public void cancel() {
+				}
+			});
+			subscriber.onError(new IllegalStateException("J2735Processor serves one subscriber"));
+			return;
+		}
+		source = parser.resolveSource();
+		accessLabel = parser.resolveAccessLabel();
+		downstream = subscriber;
+		subscriber.onSubscribe(new ParserFlow.Subscription() {
+			public void request(long n) {
+				if (n <= 0) {
+					fail(new IllegalArgumentException("Subscribers must request a positive number of records: " + n));
+					return;
+				}
+				long requested;
+				long next;
+				do {
+					requested = demand.get();
+					next = (requested + n < 0) ? Long.MAX_VALUE : requested + n;
+				} while (!demand.compareAndSet(requested, next));
+				drain();
+			}
+
+			public void cancel() {
+				cancelled = true;
+				cancelUpstream();
+			}
+		});
+		drain();
+	}
+
+	public void onSubscribe(ParserFlow.Subscription subscription) {
+		if (upstream != null) {
+			subscription.cancel();
+			return;
+		}
+		upstream = subscription;
+		drain();
+	}
+
+	public void onNext(final T item) {
+		awaiting.decrementAndGet();
+		inFlight.incrementAndGet();
+		final Slot slot = new Slot();
+		if (ordered) {
+			slots.add(slot);
+		}
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					try {
+						slot.maps = parse(item);
+					} catch (Throwable t) {
+						slot.error = t;
+					}
+					slot.done = true;
+					if (!ordered) {
+						slots.add(slot);
+					}
+					drain();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			slot.error = e;
+			slot.done = true;
+			if (!ordered) {
+				slots.add(slot);
+			}
+			drain();
+		}
+	}
+
+	public void onError(Throwable throwable) {
+		upstreamError = throwable;
+		upstreamDone = true;
+		drain();
+	}
+
+	public void onComplete() {
+		upstreamDone = true;
+		drain();
+	}
+
+	/**
+	 * Decode, dispatch and parse one record on the executor.
+	 */
+	private List<Map<String, String>> parse(T item) throws ParsePipelineException {
+		J2735Parser.DecodedRecord record = parser.decodeInput(item);
+		if (record == null || record == J2735Parser.DecodedRecord.FILTERED) return NO_MAPS;
+		CVMessageParser messageParser = parser.lookupParser(record);
+		if (messageParser == null) return NO_MAPS;
+		return parser.parseMaps(messageParser, record);
+	}
+
+	/**
+	 * Deliver what the subscriber asked for and is ready, request more from upstream while
+	 * under the in-flight bound, and finish once upstream is done and everything is
+	 * delivered. Runs on one thread at a time; a call made while another thread drains
+	 * makes that thread go round again.
+	 */
+	private void drain() {
+		if (drains.getAndIncrement() != 0) return;
+		int missed = 1;
+		do {
+			ParserFlow.Subscriber<? super JSONObject> subscriber = downstream;
+			Throwable error = failure;
+			if (subscriber != null && !cancelled && error != null) {
+				failDuringDrain(subscriber, error);
+			}
+			if (subscriber != null && !cancelled) {
+				deliver(subscriber);
+				if (!cancelled) {
+					requestUpstream();
+					if (upstreamDone && inFlight.get() == 0 && current == null) {
+						cancelled = true;
+						if (upstreamError != null) {
+							subscriber.onError(upstreamError);
+						} else {
+							subscriber.onComplete();
+						}
+					}
+				}
+			}
+			if (cancelled) {
+				slots.clear();
+				current = null;
+			}
+			missed = drains.addAndGet(-missed);
+		} while (missed != 0);
+	}
+
+	private void deliver(ParserFlow.Subscriber<? super JSONObject> subscriber) {
+		while (!cancelled) {
+			if (current == null) {
+				Slot next = slots.peek();
+				if (next == null || !next.done) return;
+				slots.poll();
+				if (next.error != null) {
+					failDuringDrain(subscriber, next.error);
+					return;
+				}
+				current = next;
+				currentIndex = 0;
+			}
+			if (currentIndex >= current.maps.size()) {
+				current = null;
+				inFlight.decrementAndGet();
+				continue;
+			}
+			if (demand.get() == 0) return;
+			JSONObject record;
+			try {
+				record = parser.translate(current.maps.get(currentIndex++), source, accessLabel);
+			} catch (Throwable t) {
+				failDuringDrain(subscriber, t);
+				return;
+			}
+			if (record == null) continue;
+			demand.decrementAndGet();
+			subscriber.onNext(record);
+		}
+	}
+
+	private void requestUpstream() {
+		ParserFlow.Subscription subscription = upstream;
+		if (subscription == null || upstreamDone) return;
+		int capacity = maxInFlight - inFlight.get() - awaiting.get();
+		if (capacity > 0) {
+			awaiting.addAndGet(capacity);
+			subscription.request(capacity);
+		}
+	}
+
+	private void failDuringDrain(ParserFlow.Subscriber<? super JSONObject> subscriber, Throwable error) {
+		cancelled = true;
+		cancelUpstream();
+		subscriber.onError(error);
+	}
+
+	/**
+	 * Report an error from outside the drain loop, through it.
+	 */
+	private void fail(Throwable error) {
+		failure = error;
+		cancelUpstream();
+		drain();
+	}
+
+	private void cancelUpstream() {
+		ParserFlow.Subscription subscription = upstream;
+		if (subscription != null) {
+			subscription.cancel();
+		}
+	}
+
+	/**
+	 * @return the number of records received and not yet fully delivered
+	 */
+	public int getInFlightCount() {
+		return inFlight.get();
+	}
+
+	/**
+	 * One upstream record and, once parsed, its translator maps or the error parsing it.
+	 */
+	private static final class Slot {
+		volatile List<Map<String, String>> maps;
+		volatile Throwable error;
+		volatile boolean done;
+	}
+}
@@ -0,0 +1,120 @@
+package gov.usdot.cv.parser;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.deleidos.rtws.core.util.StandardHeader;
+
+/**
+ * Writes parsed records as JSON, one object per line, without building a
+ * {@code JSONObject}. The object holds a standardHeader object with the source and
+ * access label, then every field of the record in the order it was set, named as in the
+ * translator map. Longs and doubles are JSON numbers, doubles written as
+ * {@code String.valueOf} writes them and non-finite doubles as null, booleans are JSON
+ * booleans and byte arrays are base64 strings. Unlike the translator output the fields
+ * keep their parser names rather than the names of a data model.
+ */
+public class JsonRecordEncoder implements RecordEncoder {
+
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+	public boolean encode(long dialogId, CVRecord record, String source, String accessLabel, RecordBuffer out) {
+		out.writeAscii("{\"standardHeader\":{\"");
+		out.writeAscii(StandardHeader.SOURCE_KEY);
+		out.writeAscii("\":");
+		writeString(out, source);
+		out.writeAscii(",\"");
+		out.writeAscii(StandardHeader.ACCESS_LABEL_KEY);
+		out.writeAscii("\":");
+		writeString(out, accessLabel);
+		out.write('}');
+		for (int i = 0; i < record.size(); i++) {
+			CVField field = record.fieldAt(i);
+			out.write(',');
+			writeString(out, field.getName());
+			out.write(':');
+			switch (record.getKind(field)) {
+			case LONG:
+				out.writeDecimal(record.getLong(field));
+				break;
+			case DOUBLE: {
+				double value = record.getDouble(field);
+				if (record.isCoordinate(field)) {
+					out.writeCoordinate(record.getCoordinate(field));
+				} else if (Double.isNaN(value) || Double.isInfinite(value)) {
+					out.writeAscii("null");
+				} else {
+					out.writeAscii(Double.toString(value));
+				}
+				break;
+			}
+			case BOOLEAN:
+				out.writeAscii(record.getBoolean(field) ? "true" : "false");
+				break;
+			case BYTES: {
+				byte[] bytes = record.getBytes(field);
+				if (bytes == null) {
+					out.writeAscii("null");
+				} else {
+					out.write('"');
+					out.write(Base64.encodeBase64(bytes));
+					out.write('"');
+				}
+				break;
+			}
+			default:
+				writeString(out, record.getString(field));
+			}
+		}
+		out.writeAscii("}\n");
+		return true;
+	}
+
+	/**
+	 * Write a JSON string literal, or null.
+	 */
+	static void writeString(RecordBuffer out, String s) {
+		if (s == null) {
+			out.writeAscii("null");
+			return;
+		}
+		out.write('"');
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x20 && c < 0x80) {
+				if (c == '"' || c == '\\') {
+					out.write('\\');
+				}
+				out.write(c);
+			} else if (c < 0x20) {
+				switch (c) {
+				case '\n':
+					out.writeAscii("\\n");
+					break;
+				case '\r':
+					out.writeAscii("\\r");
+					break;
+				case '\t':
+					out.writeAscii("\\t");
+					break;
+				case '\b':
+					out.writeAscii("\\b");
+					break;
+				case '\f':
+					out.writeAscii("\\f");
+					break;
+				default:
+					out.writeAscii("\\u00");
+					out.write(HEX[c >> 4]);
+					out.write(HEX[c & 0xF]);
+				}
+			} else {
+				out.writeUtf8(s, i, c);
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					i++;
+				}
+			}
+		}
+		out.write('"');
+	}
+}
@@ -0,0 +1,138 @@
+package gov.usdot.cv.parser;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in the style of HdrHistogram. Values are counted in
+ * log-linear buckets, eight per power of two, so any recorded value is reported within
+ * 12.5% of its true value. Recording is a couple of atomic increments on one of several
+ * stripes picked by thread, which keeps threads recording at the same time from
+ * contending on the same cache lines. Reads merge the stripes into a {@link Snapshot}.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** Largest value with a bucket of its own, about 36 minutes in nanoseconds. */
+	static final long MAX_VALUE = (1L << 41) - 1;
+
+	static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+	private static final int SUM = BUCKETS;
+	private static final int MAX = BUCKETS + 1;
+
+	private final AtomicLongArray[] stripes;
+	private final int stripeMask;
+
+	public LatencyHistogram() {
+		int stripeCount = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+		stripes = new AtomicLongArray[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new AtomicLongArray(BUCKETS + 2);
+		}
+		stripeMask = stripeCount - 1;
+	}
+
+	/**
+	 * Record one latency. Negative values count as zero and values above
+	 * {@link #MAX_VALUE} as MAX_VALUE.
+	 */
+	public void record(long nanos) {
+		long value = (nanos < 0) ? 0 : Math.min(nanos, MAX_VALUE);
+		AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+		stripe.incrementAndGet(bucketIndex(value));
+		stripe.addAndGet(SUM, value);
+		long max;
+		while (value > (max = stripe.get(MAX)) && !stripe.compareAndSet(MAX, max, value)) {
+			// retry
+		}
+	}
+
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		long sum = 0;
+		long max = 0;
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; i++) {
+				long bucket = stripe.get(i);
+				counts[i] += bucket;
+				count += bucket;
+			}
+			sum += stripe.get(SUM);
+			max = Math.max(max, stripe.get(MAX));
+		}
+		return new Snapshot(counts, count, sum, max);
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the smallest value counted in the bucket
+	 */
+	static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		return (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Immutable copy of a histogram's counts.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long sum;
+		private final long max;
+
+		Snapshot(long[] counts, long count, long sum, long max) {
+			this.counts = counts;
+			this.count = count;
+			this.sum = sum;
+			this.max = max;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getMax() {
+			return max;
+		}
+
+		public double getMean() {
+			return (count == 0) ? 0 : (double) sum / count;
+		}
+
+		/**
+		 * @param percentile between 0 and 100
+		 * @return the largest value of the bucket holding the percentile, never above the
+		 * recorded maximum; 0 if nothing was recorded
+		 */
+		public long getValueAtPercentile(double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(max, bucketLowerBound(i + 1) - 1);
+				}
+			}
+			return max;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package gov.usdot.cv.parser;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latency of one parse stage for one dialog, in nanoseconds.
+ */
+public class LatencySummary {
+
+	private final String dialog;
+	private final String stage;
+	private final long count;
+	private final double mean;
+	private final long p50;
+	private final long p99;
+	private final long p999;
+	private final long max;
+
+	@ConstructorProperties({ "dialog", "stage", "count", "mean", "p50", "p99", "p999", "max" })
+	public LatencySummary(String dialog, String stage, long count, double mean, long p50, long p99, long p999, long max) {
+		this.dialog = dialog;
+		this.stage = stage;
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+
+	public String getDialog() {
+		return dialog;
+	}
+
+	public String getStage() {
+		return stage;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMean() {
+		return mean;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s/%s count=%d mean=%.0f p50=%d p99=%d p99.9=%d max=%d",
+				dialog, stage, count, mean, p50, p99, p999, max);
+	}
+}
@@ -0,0 +1,405 @@
+package gov.usdot.cv.parser;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.json.JSONObject;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * Parses many input streams at once with one initialized {@link J2735Parser}, so the
+ * streams share its coder pool, OSS control tables and caches instead of each running
+ * its own parser. Every stream has its own source and access label for the standard
+ * header. Records of all streams are decoded, parsed and translated on one work-stealing
+ * pool and handed to the stream's listener in submission order, either across the whole
+ * stream or only among records with the same group id or group and request id. There is
+ * no order between streams. Records that fail to decode are counted by the parser and
+ * skipped, as parseBatch does.
+ *
+ * Records of one stream, as well as of different streams, are translated at the same
+ * time, so the parser's translator must be thread safe, as with recordThreadMode.
+ */
+public class MultiStreamEngine {
+
+	/**
+	 * Which records of a stream keep their submission order.
+	 */
+	public enum Ordering {
+		/** All records of the stream. */
+		STREAM,
+		/** Records with the same SEMI group id. */
+		GROUP,
+		/** Records with the same SEMI group and request ids. */
+		REQUEST
+	}
+
+	/**
+	 * Receives the records of one stream. Calls for a stream are made one at a time, on
+	 * pool threads, and must not block for long.
+	 */
+	public interface Listener {
+		void onRecord(JSONObject record);
+
+		/**
+		 * The stream failed and will deliver nothing more.
+		 */
+		void onError(Throwable error);
+
+		/**
+		 * The stream was closed and everything submitted to it has been delivered.
+		 */
+		void onComplete();
+	}
+
+	private static final List<JSONObject> NO_RECORDS = Collections.emptyList();
+
+	/** Key of records without a SEMI header, which keep their order among themselves. */
+	private static final long NO_HEADER = Long.MIN_VALUE;
+
+	private final J2735Parser parser;
+	private final ForkJoinPool pool;
+	private final boolean ownsPool;
+	private final Ordering ordering;
+
+	/**
+	 * Run the streams on a pool of its own with the given number of threads.
+	 */
+	public MultiStreamEngine(J2735Parser parser, int parallelism, Ordering ordering) {
+		this(parser, new ForkJoinPool(parallelism), true, ordering);
+	}
+
+	/**
+	 * Run the streams on a shared pool, which {@link #close()} leaves running.
+	 */
+	public MultiStreamEngine(J2735Parser parser, ForkJoinPool pool, Ordering ordering) {
+		this(parser, pool, false, ordering);
+	}
+
+	private MultiStreamEngine(J2735Parser parser, ForkJoinPool pool, boolean ownsPool, Ordering ordering) {
+		if (ordering == null) {
+			throw new IllegalArgumentException("ordering must not be null");
+		}
+		this.parser = parser;
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		this.ordering = ordering;
+	}
+
+	/**
+	 * Open a stream. At most maxPending of its records are submitted and not yet
+	 * delivered; {@link Stream#submit(String)} blocks beyond that.
+	 *
+	 * @param source standard header source, or null for the parser's
+	 * @param accessLabel standard header access label, or null for the parser's
+	 */
+	public Stream openStream(String source, String accessLabel, int maxPending, Listener listener) {
+		if (maxPending < 1) {
+			throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+		}
+		return new Stream((source != null) ? source : parser.resolveSource(),
+				(accessLabel != null) ? accessLabel : parser.resolveAccessLabel(), maxPending, listener);
+	}
+
+	public Ordering getOrdering() {
+		return ordering;
+	}
+
+	/**
+	 * Stop the engine's own pool, letting records already submitted finish. The parser is
+	 * left to its owner.
+	 */
+	public void close() {
+		if (ownsPool) {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * @return the ordering key of a decoded record: its group id, or its group and request
+	 * ids, or {@link #NO_HEADER}
+	 */
+	private long orderingKey(J2735Parser.DecodedRecord record) {
+		long groupId;
+		long requestId;
+		if (record.cached != null) {
+			CVRecord fields = record.cached.getRecord();
+			if (!fields.has(CVField.GROUP_ID) || !fields.has(CVField.REQUEST_ID)) return NO_HEADER;
+			groupId = fields.getLong(CVField.GROUP_ID);
+			requestId = fields.getLong(CVField.REQUEST_ID);
+		} else {
+			SemiHeader header = (record.message != null) ? SemiHeader.fromMessage(record.message) : null;
+			if (header == null) return NO_HEADER;
+			groupId = header.getGroupId();
+			requestId = header.getRequestId();
+		}
+		if (ordering == Ordering.GROUP) {
+			return (int) groupId;
+		}
+		return ((long) (int) groupId << 32) | (requestId & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * One input stream: base64 data bundle lines or {@link BundleFrames} bodies submitted
+	 * from one thread, and their records delivered to its listener.
+	 */
+	public final class Stream {
+
+		private final String source;
+		private final String accessLabel;
+		private final int maxPending;
+		private final Listener listener;
+		private final Semaphore permits;
+
+		/** Records submitted and not yet seen by the draining thread. */
+		private final Queue<Slot> submitted = new ConcurrentLinkedQueue<Slot>();
+
+		/** Records in submission order not yet delivered, owned by the draining thread. */
+		private final LinkedList<Slot> pending = new LinkedList<Slot>();
+
+		private final AtomicInteger drains = new AtomicInteger();
+
+		private volatile boolean closed;
+
+		/** Set once the listener has been told the stream completed or failed. */
+		private volatile boolean finished;
+		private volatile Throwable failure;
+
+		private Stream(String source, String accessLabel, int maxPending, Listener listener) {
+			this.source = source;
+			this.accessLabel = accessLabel;
+			this.maxPending = maxPending;
+			this.listener = listener;
+			this.permits = new Semaphore(maxPending);
+		}
+
+		/**
+		 * Submit a base64 data bundle line.
+		 *
+		 * @throws IllegalStateException if the stream is closed or has failed
+		 */
+		public void submit(String line) throws InterruptedException {
+			submitInput(line);
+		}
+
+		/**
+		 * Submit a {@link BundleFrames} body, without its length prefix.
+		 *
+		 * @throws IllegalStateException if the stream is closed or has failed
+		 */
+		public void submit(ByteBuffer frameBody) throws InterruptedException {
+			submitInput(frameBody);
+		}
+
+		private void submitInput(final Object input) throws InterruptedException {
+			if (closed) {
+				throw new IllegalStateException("Stream " + source + " is closed");
+			}
+			permits.acquire();
+			if (finished) {
+				permits.release();
+				throw new IllegalStateException("Stream " + source + " has failed", failure);
+			}
+			final Slot slot = new Slot();
+			submitted.add(slot);
+			try {
+				pool.execute(new Runnable() {
+					public void run() {
+						process(input, slot);
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				slot.error = e;
+				slot.done = true;
+				drain();
+			}
+		}
+
+		/**
+		 * No more records will be submitted; the listener completes once the ones already
+		 * submitted are delivered. Call it from the submitting thread, after the last submit.
+		 */
+		public void close() {
+			closed = true;
+			drain();
+		}
+
+		/**
+		 * @return the number of records submitted and not yet delivered
+		 */
+		public int getPendingCount() {
+			return maxPending - permits.availablePermits();
+		}
+
+		public String getSource() {
+			return source;
+		}
+
+		public String getAccessLabel() {
+			return accessLabel;
+		}
+
+		/**
+		 * Decode, dispatch, parse and translate one record on the pool. When ordering by
+		 * key, the key is published as soon as the record is decoded so later records with
+		 * other keys need not wait for this one to be translated.
+		 */
+		private void process(Object input, Slot slot) {
+			try {
+				J2735Parser.DecodedRecord record = parser.decodeInput(input);
+				if (record == null || record == J2735Parser.DecodedRecord.FILTERED) {
+					slot.records = NO_RECORDS;
+				} else {
+					if (ordering != Ordering.STREAM) {
+						slot.key = orderingKey(record);
+						slot.keyed = true;
+						drain();
+					}
+					CVMessageParser messageParser = parser.lookupParser(record);
+					slot.records = (messageParser == null) ? NO_RECORDS : translate(messageParser, record);
+				}
+			} catch (Throwable t) {
+				slot.error = t;
+			}
+			slot.done = true;
+			drain();
+		}
+
+		private List<JSONObject> translate(CVMessageParser messageParser, J2735Parser.DecodedRecord record) throws ParsePipelineException {
+			List<Map<String, String>> maps = parser.parseMaps(messageParser, record);
+			List<JSONObject> records = new ArrayList<JSONObject>(maps.size());
+			for (Map<String, String> map : maps) {
+				JSONObject result = parser.translate(map, source, accessLabel);
+				if (result != null) {
+					records.add(result);
+				}
+			}
+			return records;
+		}
+
+		/**
+		 * Deliver the records that are ready and whose turn it is, and complete the stream
+		 * once it is closed and everything is delivered. Runs on one thread at a time; a
+		 * call made while another thread drains makes that thread go round again.
+		 */
+		private void drain() {
+			if (drains.getAndIncrement() != 0) return;
+			int missed = 1;
+			do {
+				Slot slot;
+				while ((slot = submitted.poll()) != null) {
+					pending.add(slot);
+				}
+				if (!finished) {
+					if (ordering == Ordering.STREAM) {
+						deliverInOrder();
+					} else {
+						deliverByKey();
+					}
+				}
+				if (finished) {
+					permits.release(pending.size());
+					pending.clear();
+				} else if (closed && pending.isEmpty() && submitted.isEmpty()) {
+					finished = true;
+					listener.onComplete();
+				}
+				missed = drains.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void deliverInOrder() {
+			Slot slot;
+			while ((slot = pending.peek()) != null && slot.done) {
+				if (slot.error != null) {
+					fail(slot.error);
+					return;
+				}
+				pending.poll();
+				deliver(slot);
+				if (finished) return;
+			}
+		}
+
+		/**
+		 * Deliver each ready record that no earlier pending record could share a key with.
+		 * A record still being decoded could have any key, so nothing after it is delivered;
+		 * an error is reported once every record before it is delivered.
+		 */
+		private void deliverByKey() {
+			Set<Long> blocked = null;
+			boolean first = true;
+			Iterator<Slot> it = pending.iterator();
+			while (it.hasNext()) {
+				Slot slot = it.next();
+				if (slot.done && slot.error != null) {
+					if (first) {
+						fail(slot.error);
+					}
+					return;
+				}
+				if (slot.done && slot.records.isEmpty()) {
+					it.remove();
+					permits.release();
+					continue;
+				}
+				if (!slot.keyed) return;
+				if (slot.done && (blocked == null || !blocked.contains(slot.key))) {
+					it.remove();
+					deliver(slot);
+					if (finished) return;
+					continue;
+				}
+				if (blocked == null) {
+					blocked = new HashSet<Long>();
+				}
+				blocked.add(slot.key);
+				first = false;
+			}
+		}
+
+		private void deliver(Slot slot) {
+			permits.release();
+			for (JSONObject record : slot.records) {
+				try {
+					listener.onRecord(record);
+				} catch (Throwable t) {
+					fail(t);
+					return;
+				}
+			}
+		}
+
+		private void fail(Throwable error) {
+			failure = error;
+			finished = true;
+			listener.onError(error);
+		}
+	}
+
+	/**
+	 * One submitted record and, once processed, its translated records or the error
+	 * processing it.
+	 */
+	private static final class Slot {
+		/** Written before keyed is set. */
+		long key;
+		volatile boolean keyed;
+		volatile List<JSONObject> records;
+		volatile Throwable error;
+		volatile boolean done;
+	}
+}
@@ -0,0 +1,27 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Reasons an input record produced no output, counted by {@link ParseFailureRecorder}.
+ */
+public enum ParseFailure {
+	/** The line is not a base64 data bundle. */
+	BUNDLE_DECODE("Failed to unwrap the data bundle"),
+	/** The payload is not a valid PER encoding of a J2735 message. */
+	PAYLOAD_DECODE("PER decode failed"),
+	/** The coder cannot decode the payload's message type. */
+	DECODE_NOT_SUPPORTED("PER decode not supported"),
+	/** The decoded message carries no known dialog id. */
+	NO_DIALOG_ID("No dialog id found for message"),
+	/** No CVMessageParser is registered for the message's dialog. */
+	NO_PARSER("No CVMessageParser found for dialog id");
+
+	private final String description;
+
+	private ParseFailure(String description) {
+		this.description = description;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+}
@@ -0,0 +1,39 @@
+package gov.usdot.cv.parser;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * A ParsePipelineException for expected, categorized failures such as a payload that
+ * does not decode. It carries no stack trace and formats its message only when asked,
+ * so throwing one costs little more than the allocation.
+ */
+public class ParseFailureException extends ParsePipelineException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final ParseFailure failure;
+	private final Object detail;
+
+	/**
+	 * @param detail appended to the failure description in the message, formatted lazily
+	 */
+	public ParseFailureException(ParseFailure failure, Object detail, Throwable cause) {
+		super(null, cause);
+		this.failure = failure;
+		this.detail = detail;
+	}
+
+	public ParseFailure getFailure() {
+		return failure;
+	}
+
+	@Override
+	public String getMessage() {
+		return (detail == null) ? failure.getDescription() : failure.getDescription() + ": " + detail;
+	}
+
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		return this;
+	}
+}
@@ -0,0 +1,121 @@
+package gov.usdot.cv.parser;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Counts failed records by {@link ParseFailure} and logs a bounded sample of them. At
+ * most logsPerInterval failures of each kind are logged per interval; the rest are only
+ * counted and reported as a single summary line when the next interval starts, so a
+ * flood of bad input costs a counter increment per record. Stack traces are only
+ * logged at debug level. Failed lines are handed to the {@link DeadLetterSink}, if any.
+ */
+public class ParseFailureRecorder {
+
+	private static final Logger logger = Logger.getLogger(ParseFailureRecorder.class);
+
+	private static final ParseFailure[] FAILURES = ParseFailure.values();
+
+	private final AtomicLongArray counts = new AtomicLongArray(FAILURES.length);
+	private final LogWindow[] windows = new LogWindow[FAILURES.length];
+	private final int logsPerInterval;
+	private final long intervalNanos;
+
+	private volatile DeadLetterSink deadLetterSink;
+
+	public ParseFailureRecorder(int logsPerInterval, long interval, TimeUnit unit) {
+		this.logsPerInterval = logsPerInterval;
+		this.intervalNanos = unit.toNanos(interval);
+		long now = System.nanoTime();
+		for (int i = 0; i < windows.length; i++) {
+			windows[i] = new LogWindow(now);
+		}
+	}
+
+	/**
+	 * Count a failed record.
+	 *
+	 * @param detail what failed, e.g. the exception; only formatted if the failure is logged
+	 * @param input the raw input line for the dead letter sink, or null if not available
+	 */
+	public void record(ParseFailure failure, Object detail, String input) {
+		counts.incrementAndGet(failure.ordinal());
+		if (windows[failure.ordinal()].tryLog(failure)) {
+			String message = (detail == null) ? failure.getDescription() : failure.getDescription() + ": " + detail;
+			if (detail instanceof Throwable && logger.isDebugEnabled()) {
+				logger.debug(message, (Throwable) detail);
+			} else {
+				logger.error(message);
+			}
+		}
+		DeadLetterSink sink = deadLetterSink;
+		if (sink != null && input != null) {
+			try {
+				sink.deadLetter(failure, input);
+			} catch (RuntimeException e) {
+				logger.error("Dead letter sink failed", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of failures of one kind
+	 */
+	public long getCount(ParseFailure failure) {
+		return counts.get(failure.ordinal());
+	}
+
+	/**
+	 * @return the number of failures of every kind
+	 */
+	public long getTotalCount() {
+		long total = 0;
+		for (int i = 0; i < FAILURES.length; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	public DeadLetterSink getDeadLetterSink() {
+		return deadLetterSink;
+	}
+
+	public void setDeadLetterSink(DeadLetterSink deadLetterSink) {
+		this.deadLetterSink = deadLetterSink;
+	}
+
+	/**
+	 * Log budget of one kind of failure for the current interval.
+	 */
+	private final class LogWindow {
+		private final AtomicLong start;
+		private final AtomicInteger logged = new AtomicInteger();
+		private final AtomicLong suppressed = new AtomicLong();
+
+		LogWindow(long now) {
+			start = new AtomicLong(now);
+		}
+
+		boolean tryLog(ParseFailure failure) {
+			long now = System.nanoTime();
+			long windowStart = start.get();
+			if (now - windowStart >= intervalNanos && start.compareAndSet(windowStart, now)) {
+				logged.set(0);
+				long dropped = suppressed.getAndSet(0);
+				if (dropped > 0) {
+					logger.error(String.format("%s: %d more failures in the last %d s were not logged",
+							failure.getDescription(), dropped, TimeUnit.NANOSECONDS.toSeconds(now - windowStart)));
+				}
+			}
+			if (logged.incrementAndGet() <= logsPerInterval) {
+				return true;
+			}
+			suppressed.incrementAndGet();
+			return false;
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package gov.usdot.cv.parser;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content addressed cache of the fields parsed from a payload, for messages that are
+ * rebroadcast unchanged while they live, such as advisories and intersection situation
+ * data. Entries are found by a 64 bit digest of the payload and confirmed by comparing
+ * the payload bytes, so a hit always means the same payload.
+ *
+ * An entry lives as long as the timeToLive of its message says, 30 minutes when the
+ * message has none. Memory is bounded by an estimate of the bytes held by the entries;
+ * the cache is split into stripes, each an access ordered map behind its own lock with
+ * an equal share of the bound, that drop their least recently used entries to stay
+ * within it.
+ */
+public class ParsedOutputCache {
+
+	private static final int STRIPES = 16;
+
+	/** Estimated bytes of an entry besides its payload and field values. */
+	private static final int ENTRY_OVERHEAD = 160;
+
+	/** Estimated bytes of each field of an entry besides its value. */
+	private static final int FIELD_OVERHEAD = 32;
+
+	/** Lifetimes of the SEMI TimeToLive values minute, halfHour, day, week, month and year. */
+	private static final long[] TIME_TO_LIVE_MILLIS = {
+		TimeUnit.MINUTES.toMillis(1),
+		TimeUnit.MINUTES.toMillis(30),
+		TimeUnit.DAYS.toMillis(1),
+		TimeUnit.DAYS.toMillis(7),
+		TimeUnit.DAYS.toMillis(30),
+		TimeUnit.DAYS.toMillis(365)
+	};
+
+	static final long DEFAULT_TIME_TO_LIVE_MILLIS = TIME_TO_LIVE_MILLIS[1];
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong expiredCount = new AtomicLong();
+
+	/**
+	 * @param maxBytes estimated bytes the entries may hold at once
+	 */
+	public ParsedOutputCache(long maxBytes) {
+		if (maxBytes < STRIPES) {
+			throw new IllegalArgumentException("Parsed output cache size too small: " + maxBytes);
+		}
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe(maxBytes / STRIPES);
+		}
+	}
+
+	/**
+	 * Look a payload up. Only hits are counted; the caller counts a miss with
+	 * {@link #countMiss()} once it knows the payload is of a cacheable dialog, so payloads
+	 * that could never be cached do not weigh on the hit ratio.
+	 *
+	 * @param digest the payload's {@link #digest(byte[])}
+	 * @return the entry of the payload, or null if it is not cached or has expired
+	 */
+	public Entry get(long digest, byte[] payload, long nowMillis) {
+		Stripe stripe = stripeOf(digest);
+		synchronized (stripe) {
+			Entry entry = stripe.get(digest);
+			if (entry != null && Arrays.equals(entry.payload, payload)) {
+				if (entry.expires - nowMillis > 0) {
+					hitCount.incrementAndGet();
+					return entry;
+				}
+				stripe.remove(digest);
+				stripe.bytes -= entry.weight;
+				expiredCount.incrementAndGet();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Count a lookup of a cacheable payload that found no entry.
+	 */
+	public void countMiss() {
+		missCount.incrementAndGet();
+	}
+
+	/**
+	 * Cache the fields parsed from a payload. The record and the payload are kept as they
+	 * are, so neither may be modified afterwards.
+	 */
+	public void put(long digest, byte[] payload, long dialogId, CVRecord record, long nowMillis) {
+		Entry entry = new Entry(payload, dialogId, record, nowMillis + timeToLiveMillis(record));
+		Stripe stripe = stripeOf(digest);
+		synchronized (stripe) {
+			if (entry.weight > stripe.maxBytes) return;
+			Entry replaced = stripe.put(digest, entry);
+			if (replaced != null) {
+				stripe.bytes -= replaced.weight;
+			}
+			stripe.bytes += entry.weight;
+			Iterator<Entry> eldest = stripe.values().iterator();
+			while (stripe.bytes > stripe.maxBytes && eldest.hasNext()) {
+				Entry evicted = eldest.next();
+				eldest.remove();
+				stripe.bytes -= evicted.weight;
+				if (evicted.expires - nowMillis > 0) {
+					evictionCount.incrementAndGet();
+				} else {
+					expiredCount.incrementAndGet();
+				}
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups of cacheable payloads that found no entry
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of live entries dropped to stay within the memory bound
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	/**
+	 * @return the number of entries dropped because their timeToLive passed
+	 */
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+
+	/**
+	 * @return the estimated bytes held by the entries
+	 */
+	public long getByteCount() {
+		long bytes = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				bytes += stripe.bytes;
+			}
+		}
+		return bytes;
+	}
+
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	public static long digest(byte[] payload) {
+		return DuplicateFilter.hash(payload);
+	}
+
+	/**
+	 * @return how long the fields of a message may be reused, from its timeToLive field
+	 */
+	static long timeToLiveMillis(CVRecord record) {
+		if (record.getKind(CVField.TIME_TO_LIVE) != CVRecord.Kind.LONG) {
+			return DEFAULT_TIME_TO_LIVE_MILLIS;
+		}
+		long timeToLive = record.getLong(CVField.TIME_TO_LIVE);
+		return (timeToLive >= 0 && timeToLive < TIME_TO_LIVE_MILLIS.length)
+				? TIME_TO_LIVE_MILLIS[(int) timeToLive] : DEFAULT_TIME_TO_LIVE_MILLIS;
+	}
+
+	private Stripe stripeOf(long digest) {
+		return stripes[(int) (digest >>> 60)];
+	}
+
+	/**
+	 * The fields parsed from one payload.
+	 */
+	public static final class Entry {
+		final byte[] payload;
+		final long dialogId;
+		final CVRecord record;
+		final long expires;
+		final long weight;
+
+		Entry(byte[] payload, long dialogId, CVRecord record, long expires) {
+			this.payload = payload;
+			this.dialogId = dialogId;
+			this.record = record;
+			this.expires = expires;
+			this.weight = weigh(payload, record);
+		}
+
+		public long getDialogId() {
+			return dialogId;
+		}
+
+		/**
+		 * @return the cached fields, not to be modified
+		 */
+		public CVRecord getRecord() {
+			return record;
+		}
+
+		private static long weigh(byte[] payload, CVRecord record) {
+			long weight = ENTRY_OVERHEAD + payload.length;
+			for (int i = 0; i < record.size(); i++) {
+				CVField field = record.fieldAt(i);
+				weight += FIELD_OVERHEAD;
+				CVRecord.Kind kind = record.getKind(field);
+				if (kind == CVRecord.Kind.STRING && record.getString(field) != null) {
+					weight += 40 + 2L * record.getString(field).length();
+				} else if (kind == CVRecord.Kind.BYTES && record.getBytes(field) != null) {
+					weight += 16 + record.getBytes(field).length;
+				}
+			}
+			return weight;
+		}
+	}
+
+	@SuppressWarnings("serial")
+	private static final class Stripe extends LinkedHashMap<Long, Entry> {
+		final long maxBytes;
+		long bytes;
+
+		Stripe(long maxBytes) {
+			super(16, 0.75f, true);
+			this.maxBytes = maxBytes;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package gov.usdot.cv.parser;
+
+/**
+ * The publisher, subscriber and subscription contracts of {@code java.util.concurrent.Flow}
+ * and Reactive Streams, method for method, for builds that predate Java 9. Bridging to the
+ * JDK types is one delegating method per interface method.
+ */
+public final class ParserFlow {
+
+	private ParserFlow() {
+	}
+
+	public interface Publisher<T> {
+		public void subscribe(Subscriber<? super T> subscriber);
+	}
+
+	public interface Subscriber<T> {
+		public void onSubscribe(Subscription subscription);
+
+		public void onNext(T item);
+
+		public void onError(Throwable throwable);
+
+		public void onComplete();
+	}
+
+	public interface Subscription {
+		/**
+		 * Ask for up to n more items; n must be positive.
+		 */
+		public void request(long n);
+
+		public void cancel();
+	}
+
+	public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+	}
+}
@@ -0,0 +1,203 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency of every stage of {@link J2735Parser#parse()} by dialog, plus message, record,
+ * byte, failure, duplicate and output cache counts. Histograms are created on first use per dialog and record
+ * without locking; the message and record counts are the counts of the dispatch and
+ * translate histograms, so counting costs nothing extra.
+ */
+public class ParserMetrics implements ParserMetricsMXBean {
+
+	/**
+	 * Timed stages of the parse path, in order.
+	 */
+	public enum Stage {
+		/** Base64 data bundle to DataBundle. */
+		UNWRAP,
+		/** PER decode of the payload. */
+		DECODE,
+		/** Dialog id lookup and parser selection. */
+		DISPATCH,
+		/** CVMessageParser building the field map. */
+		PARSE,
+		/** Translator building the output record. */
+		TRANSLATE
+	}
+
+	private static final Stage[] STAGES = Stage.values();
+
+	/** SemiDialogID values are single octets. */
+	private static final int DIALOGS = 256;
+
+	/** Longs between two byte counters, so counters of different dialogs do not share a cache line. */
+	private static final int COUNTER_STRIDE = 8;
+
+	private static final String[] dialogNames = loadDialogNames();
+
+	private final AtomicReferenceArray<LatencyHistogram[]> histograms = new AtomicReferenceArray<LatencyHistogram[]>(DIALOGS);
+	private final AtomicLongArray bytes = new AtomicLongArray(DIALOGS * COUNTER_STRIDE);
+	private final ParseFailureRecorder failures;
+	private final DuplicateFilter duplicates;
+	private final ParsedOutputCache outputCache;
+
+	/**
+	 * @param failures source of the failure counts, or null if failures are not counted
+	 * @param duplicates source of the duplicate counts, or null if duplicates are not dropped
+	 * @param outputCache source of the parsed output cache counts, or null if there is no cache
+	 */
+	public ParserMetrics(ParseFailureRecorder failures, DuplicateFilter duplicates, ParsedOutputCache outputCache) {
+		this.failures = failures;
+		this.duplicates = duplicates;
+		this.outputCache = outputCache;
+	}
+
+	public void recordLatency(long dialogId, Stage stage, long nanos) {
+		if (dialogId < 0 || dialogId >= DIALOGS) return;
+		histogramsFor((int) dialogId)[stage.ordinal()].record(nanos);
+	}
+
+	public void countBytes(long dialogId, long count) {
+		if (dialogId < 0 || dialogId >= DIALOGS) return;
+		bytes.addAndGet((int) dialogId * COUNTER_STRIDE, count);
+	}
+
+	/**
+	 * @return the latencies recorded for a stage of a dialog, or null if none were
+	 */
+	public LatencyHistogram.Snapshot getLatency(long dialogId, Stage stage) {
+		if (dialogId < 0 || dialogId >= DIALOGS) return null;
+		LatencyHistogram[] stages = histograms.get((int) dialogId);
+		return (stages == null) ? null : stages[stage.ordinal()].snapshot();
+	}
+
+	public long getMessageCount() {
+		return countAll(Stage.DISPATCH);
+	}
+
+	public long getRecordCount() {
+		return countAll(Stage.TRANSLATE);
+	}
+
+	public long getByteCount() {
+		long total = 0;
+		for (int i = 0; i < DIALOGS; i++) {
+			total += bytes.get(i * COUNTER_STRIDE);
+		}
+		return total;
+	}
+
+	public long getFailureCount() {
+		return (failures == null) ? 0 : failures.getTotalCount();
+	}
+
+	public Map<String, Long> getFailureCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (ParseFailure failure : ParseFailure.values()) {
+			counts.put(failure.name(), (failures == null) ? 0 : failures.getCount(failure));
+		}
+		return counts;
+	}
+
+	public Map<String, Long> getDuplicateCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		counts.put("hits", (duplicates == null) ? 0 : duplicates.getHitCount());
+		counts.put("misses", (duplicates == null) ? 0 : duplicates.getMissCount());
+		counts.put("evictions", (duplicates == null) ? 0 : duplicates.getEvictionCount());
+		counts.put("expirations", (duplicates == null) ? 0 : duplicates.getExpiredCount());
+		return counts;
+	}
+
+	public Map<String, Long> getOutputCacheCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		counts.put("hits", (outputCache == null) ? 0 : outputCache.getHitCount());
+		counts.put("misses", (outputCache == null) ? 0 : outputCache.getMissCount());
+		counts.put("evictions", (outputCache == null) ? 0 : outputCache.getEvictionCount());
+		counts.put("expirations", (outputCache == null) ? 0 : outputCache.getExpiredCount());
+		counts.put("bytes", (outputCache == null) ? 0 : outputCache.getByteCount());
+		return counts;
+	}
+
+	public Map<String, Long> getRecordCounts() {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (int i = 0; i < DIALOGS; i++) {
+			LatencyHistogram[] stages = histograms.get(i);
+			if (stages != null) {
+				counts.put(dialogName(i), stages[Stage.TRANSLATE.ordinal()].snapshot().getCount());
+			}
+		}
+		return counts;
+	}
+
+	public List<LatencySummary> getLatencies() {
+		List<LatencySummary> summaries = new ArrayList<LatencySummary>();
+		for (int i = 0; i < DIALOGS; i++) {
+			LatencyHistogram[] stages = histograms.get(i);
+			if (stages == null) continue;
+			for (Stage stage : STAGES) {
+				LatencyHistogram.Snapshot snapshot = stages[stage.ordinal()].snapshot();
+				if (snapshot.getCount() == 0) continue;
+				summaries.add(new LatencySummary(dialogName(i), stage.name(), snapshot.getCount(), snapshot.getMean(),
+						snapshot.getValueAtPercentile(50), snapshot.getValueAtPercentile(99),
+						snapshot.getValueAtPercentile(99.9), snapshot.getMax()));
+			}
+		}
+		return summaries;
+	}
+
+	private long countAll(Stage stage) {
+		long total = 0;
+		for (int i = 0; i < DIALOGS; i++) {
+			LatencyHistogram[] stages = histograms.get(i);
+			if (stages != null) {
+				total += stages[stage.ordinal()].snapshot().getCount();
+			}
+		}
+		return total;
+	}
+
+	private LatencyHistogram[] histogramsFor(int dialogId) {
+		LatencyHistogram[] stages = histograms.get(dialogId);
+		if (stages == null) {
+			stages = new LatencyHistogram[STAGES.length];
+			for (int i = 0; i < stages.length; i++) {
+				stages[i] = new LatencyHistogram();
+			}
+			if (!histograms.compareAndSet(dialogId, null, stages)) {
+				stages = histograms.get(dialogId);
+			}
+		}
+		return stages;
+	}
+
+	static String dialogName(int dialogId) {
+		String name = dialogNames[dialogId];
+		return (name == null) ? String.valueOf(dialogId) : name;
+	}
+
+	private static String[] loadDialogNames() {
+		String[] names = new String[DIALOGS];
+		for (Field field : SemiDialogID.class.getFields()) {
+			if (!Modifier.isStatic(field.getModifiers()) || field.getType() != SemiDialogID.class) continue;
+			try {
+				long dialogId = ((SemiDialogID) field.get(null)).longValue();
+				if (dialogId >= 0 && dialogId < DIALOGS) {
+					names[(int) dialogId] = field.getName();
+				}
+			} catch (Exception e) {
+				// keep the number as the name
+			}
+		}
+		return names;
+	}
+}
@@ -0,0 +1,55 @@
+package gov.usdot.cv.parser;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX view of {@link ParserMetrics}. Latencies are in nanoseconds.
+ */
+public interface ParserMetricsMXBean {
+
+	/**
+	 * @return the number of messages decoded and dispatched to a parser
+	 */
+	public long getMessageCount();
+
+	/**
+	 * @return the number of records translated; more than the messages when bundles are expanded
+	 */
+	public long getRecordCount();
+
+	/**
+	 * @return the number of PER encoded payload bytes decoded
+	 */
+	public long getByteCount();
+
+	/**
+	 * @return the number of records that failed, of any kind
+	 */
+	public long getFailureCount();
+
+	/**
+	 * @return the number of failed records by {@link ParseFailure} name
+	 */
+	public Map<String, Long> getFailureCounts();
+
+	/**
+	 * @return the hits, misses, evictions and expirations of the duplicate filter
+	 */
+	public Map<String, Long> getDuplicateCounts();
+
+	/**
+	 * @return the hits, misses, evictions, expirations and estimated bytes of the parsed output cache
+	 */
+	public Map<String, Long> getOutputCacheCounts();
+
+	/**
+	 * @return the number of records translated by dialog name
+	 */
+	public Map<String, Long> getRecordCounts();
+
+	/**
+	 * @return the latency of every stage of every dialog that recorded any
+	 */
+	public List<LatencySummary> getLatencies();
+}
@@ -0,0 +1,226 @@
+package gov.usdot.cv.parser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that {@link RecordEncoder}s append encoded records to. The backing
+ * array is kept across {@link #reset()} calls, so a buffer reused for every batch stops
+ * allocating once it has grown to the largest batch.
+ */
+public final class RecordBuffer {
+
+	private byte[] bytes;
+	private int size;
+
+	/** Scratch space for {@link #writeCoordinate(int)}. */
+	private final char[] coordinate = new char[GeoCoordinates.MAX_LENGTH];
+
+	public RecordBuffer() {
+		this(4096);
+	}
+
+	public RecordBuffer(int capacity) {
+		bytes = new byte[Math.max(capacity, 16)];
+	}
+
+	/**
+	 * Drop the contents, keeping the backing array.
+	 */
+	public void reset() {
+		size = 0;
+	}
+
+	/**
+	 * @return the number of bytes written since the last reset
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the backing array, holding the contents in its first {@link #size()} bytes
+	 */
+	public byte[] array() {
+		return bytes;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(bytes, size);
+	}
+
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(bytes, 0, size);
+	}
+
+	public void write(int b) {
+		ensure(1);
+		bytes[size++] = (byte) b;
+	}
+
+	public void write(byte[] b) {
+		write(b, 0, b.length);
+	}
+
+	public void write(byte[] b, int offset, int length) {
+		ensure(length);
+		System.arraycopy(b, offset, bytes, size, length);
+		size += length;
+	}
+
+	/**
+	 * Write an unsigned LEB128 varint: 7 bits per byte, low bits first, the high bit set on
+	 * every byte but the last.
+	 */
+	public void writeVarint(long value) {
+		ensure(10);
+		while ((value & ~0x7FL) != 0) {
+			bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[size++] = (byte) value;
+	}
+
+	/**
+	 * Write a signed value as a zigzag varint, so small negative values stay short.
+	 */
+	public void writeSignedVarint(long value) {
+		writeVarint((value << 1) ^ (value >> 63));
+	}
+
+	/**
+	 * Write 8 bytes, big endian.
+	 */
+	public void writeFixed64(long value) {
+		ensure(8);
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			bytes[size++] = (byte) (value >>> shift);
+		}
+	}
+
+	/**
+	 * Write the decimal digits of a value, with a leading minus sign if it is negative.
+	 */
+	public void writeDecimal(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii("-9223372036854775808");
+			return;
+		}
+		ensure(20);
+		if (value < 0) {
+			bytes[size++] = '-';
+			value = -value;
+		}
+		int end = size + digits(value);
+		int position = end;
+		do {
+			bytes[--position] = (byte) ('0' + (value % 10));
+			value /= 10;
+		} while (value != 0);
+		size = end;
+	}
+
+	/**
+	 * Write a J2735 geo coordinate in decimal degrees as {@link GeoCoordinates#format(int)}
+	 * prints it.
+	 */
+	public void writeCoordinate(int units) {
+		int length = GeoCoordinates.format(units, coordinate);
+		ensure(length);
+		for (int i = 0; i < length; i++) {
+			bytes[size++] = (byte) coordinate[i];
+		}
+	}
+
+	private static int digits(long value) {
+		int digits = 1;
+		while (value >= 10) {
+			value /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	/**
+	 * Write a string known to be ASCII, one byte per char.
+	 */
+	public void writeAscii(String s) {
+		int length = s.length();
+		ensure(length);
+		for (int i = 0; i < length; i++) {
+			bytes[size++] = (byte) s.charAt(i);
+		}
+	}
+
+	/**
+	 * Write the UTF-8 encoding of a string.
+	 */
+	public void writeUtf8(String s) {
+		int length = s.length();
+		ensure(length);
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				bytes[size++] = (byte) c;
+			} else {
+				writeUtf8(s, i, c);
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					i++;
+				}
+				ensure(length - i);
+			}
+		}
+	}
+
+	/**
+	 * Write one non-ASCII char, or the surrogate pair it starts, as UTF-8.
+	 */
+	void writeUtf8(String s, int index, char c) {
+		ensure(4);
+		if (c < 0x800) {
+			bytes[size++] = (byte) (0xC0 | (c >> 6));
+			bytes[size++] = (byte) (0x80 | (c & 0x3F));
+		} else if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+			int codePoint = Character.toCodePoint(c, s.charAt(index + 1));
+			bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+			bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+			bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+			bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+		} else if (Character.isSurrogate(c)) {
+			bytes[size++] = '?';
+		} else {
+			bytes[size++] = (byte) (0xE0 | (c >> 12));
+			bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+			bytes[size++] = (byte) (0x80 | (c & 0x3F));
+		}
+	}
+
+	/**
+	 * @return the number of bytes the UTF-8 encoding of a string takes
+	 */
+	static int utf8Length(String s) {
+		int length = s.length();
+		int bytes = length;
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c >= 0x80) {
+				if (c < 0x800) {
+					bytes += 1;
+				} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					bytes += 2;
+					i++;
+				} else if (!Character.isSurrogate(c)) {
+					bytes += 2;
+				}
+			}
+		}
+		return bytes;
+	}
+
+	private void ensure(int extra) {
+		if (size + extra > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Encodes the typed fields of a parsed record straight into a reusable
+ * {@link RecordBuffer}, in place of translating them into a {@code JSONObject}.
+ * Implementations must be thread safe when the parser is called from several threads.
+ *
+ * @see J2735Parser#parseEncoded(int, RecordBuffer)
+ */
+public interface RecordEncoder {
+
+	/**
+	 * Append the encoding of one record to the buffer.
+	 *
+	 * @return false if the encoder cannot encode records of this dialog, in which case
+	 * nothing was written
+	 */
+	public boolean encode(long dialogId, CVRecord record, String source, String accessLabel, RecordBuffer out);
+}
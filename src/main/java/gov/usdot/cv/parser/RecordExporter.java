@@ -0,0 +1,201 @@
+package gov.usdot.cv.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Collects typed parsed records into a {@link RowGroup} per {@link RecordSchema} and hands
+ * every full group to the schema's {@link RowGroupSink}, so bulk loads of parsed records
+ * never go through the translator or JSON. Groups are written on a background thread;
+ * at most a few full groups wait to be written at a time, after which adding records
+ * blocks until the writer catches up. A write error is reported by the next call.
+ *
+ * Not thread safe. Records of dialogs without a schema are ignored.
+ */
+public class RecordExporter implements Closeable {
+
+	private static final Logger logger = Logger.getLogger(RecordExporter.class);
+
+	public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+
+	/** Full row groups that may wait to be written before adding records blocks. */
+	private static final int MAX_PENDING_GROUPS = 4;
+
+	private final RowGroupSink.Factory factory;
+	private final int rowGroupSize;
+	private final Map<RecordSchema, RowGroup> groups = new HashMap<RecordSchema, RowGroup>();
+	/** Touched by the writer thread only. */
+	private final Map<RecordSchema, RowGroupSink> sinks = new HashMap<RecordSchema, RowGroupSink>();
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("RecordExporter"));
+	private final Semaphore pending = new Semaphore(MAX_PENDING_GROUPS);
+	private volatile IOException failure;
+	private long recordCount;
+	private boolean closed;
+
+	public RecordExporter(RowGroupSink.Factory factory) {
+		this(factory, DEFAULT_ROW_GROUP_SIZE);
+	}
+
+	public RecordExporter(RowGroupSink.Factory factory, int rowGroupSize) {
+		if (rowGroupSize < 1) {
+			throw new IllegalArgumentException("Row group size must be positive: " + rowGroupSize);
+		}
+		this.factory = factory;
+		this.rowGroupSize = rowGroupSize;
+	}
+
+	/**
+	 * Add a parsed record to its dialog's row group, handing the group to the writer if
+	 * that fills it.
+	 *
+	 * @return false if the dialog has no schema and the record was ignored
+	 */
+	public boolean add(long dialogId, CVRecord record) throws IOException {
+		checkOpen();
+		RecordSchema schema = RecordSchema.forDialog(dialogId);
+		if (schema == null) return false;
+		RowGroup group = groups.get(schema);
+		if (group == null) {
+			group = new RowGroup(schema, rowGroupSize);
+			groups.put(schema, group);
+		}
+		group.add(record);
+		recordCount++;
+		if (group.isFull()) {
+			groups.remove(schema);
+			submit(group);
+		}
+		return true;
+	}
+
+	/**
+	 * Write every partly filled row group and wait until everything added so far is
+	 * written.
+	 */
+	public void flush() throws IOException {
+		checkOpen();
+		for (RowGroup group : groups.values()) {
+			submit(group);
+		}
+		groups.clear();
+		Future<?> done = writer.submit(new Runnable() {
+			public void run() {
+			}
+		});
+		try {
+			done.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing exported records", e);
+		} catch (ExecutionException e) {
+			throw new IOException("Failed to flush exported records", e.getCause());
+		}
+		checkFailure();
+	}
+
+	/**
+	 * Flush and close every sink.
+	 */
+	public void close() throws IOException {
+		if (closed) return;
+		try {
+			flush();
+		} finally {
+			closed = true;
+			Future<?> done = writer.submit(new Runnable() {
+				public void run() {
+					for (RowGroupSink sink : sinks.values()) {
+						try {
+							sink.close();
+						} catch (IOException e) {
+							fail(e);
+						}
+					}
+					sinks.clear();
+				}
+			});
+			writer.shutdown();
+			try {
+				done.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				logger.warn("Failed to close the export sinks", e.getCause());
+			}
+		}
+		checkFailure();
+	}
+
+	private void submit(final RowGroup group) throws IOException {
+		try {
+			pending.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting to export a row group", e);
+		}
+		writer.execute(new Runnable() {
+			public void run() {
+				try {
+					if (failure == null) {
+						write(group);
+					}
+				} catch (IOException e) {
+					fail(e);
+				} catch (RuntimeException e) {
+					fail(new IOException("Failed to write a " + group.getSchema() + " row group", e));
+				} finally {
+					pending.release();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs on the writer thread.
+	 */
+	private void write(RowGroup group) throws IOException {
+		RowGroupSink sink = sinks.get(group.getSchema());
+		if (sink == null) {
+			sink = factory.create(group.getSchema());
+			sinks.put(group.getSchema(), sink);
+		}
+		sink.write(group);
+	}
+
+	private void fail(IOException e) {
+		if (failure == null) {
+			logger.error("Failed to export parsed records", e);
+			failure = e;
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Record exporter is closed");
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException e = failure;
+		if (e != null) {
+			throw new IOException("Exporting parsed records failed", e);
+		}
+	}
+
+	/**
+	 * @return the number of records added
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+}
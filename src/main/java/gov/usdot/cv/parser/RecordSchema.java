@@ -0,0 +1,236 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed column layout of the parsed records of one kind of dialog, for exporting them
+ * column by column. Every field the dialog's parser can set has a column of the kind the
+ * parser sets it with; a field a record leaves unset is null in that row.
+ */
+public final class RecordSchema {
+
+	private static final Column[] HEADER = {
+		column(CVField.DIALOG_ID, CVRecord.Kind.LONG),
+		column(CVField.SEQUENCE_ID, CVRecord.Kind.LONG),
+		column(CVField.GROUP_ID, CVRecord.Kind.LONG),
+		column(CVField.REQUEST_ID, CVRecord.Kind.LONG),
+	};
+
+	private static final Column[] REGION = {
+		column(CVField.NW_LAT, CVRecord.Kind.DOUBLE),
+		column(CVField.NW_LON, CVRecord.Kind.DOUBLE),
+		column(CVField.SE_LAT, CVRecord.Kind.DOUBLE),
+		column(CVField.SE_LON, CVRecord.Kind.DOUBLE),
+	};
+
+	private static final Column[] DELIVERY = {
+		column(CVField.RECEIPT_ID, CVRecord.Kind.STRING),
+		column(CVField.DEST_HOST, CVRecord.Kind.STRING),
+		column(CVField.DEST_PORT, CVRecord.Kind.LONG),
+		column(CVField.FROM_FORWARDER, CVRecord.Kind.BOOLEAN),
+		column(CVField.CERTIFICATE, CVRecord.Kind.BYTES),
+	};
+
+	public static final RecordSchema VEH_SIT_DATA = new RecordSchema("vehSitData",
+			new SemiDialogID[] { SemiDialogID.vehSitData },
+			HEADER,
+			new Column[] {
+				column(CVField.VSM_TYPE, CVRecord.Kind.LONG),
+				column(CVField.D_YEAR, CVRecord.Kind.LONG),
+				column(CVField.D_MONTH, CVRecord.Kind.LONG),
+				column(CVField.D_DAY, CVRecord.Kind.LONG),
+				column(CVField.D_HOUR, CVRecord.Kind.LONG),
+				column(CVField.D_MINUTE, CVRecord.Kind.LONG),
+				column(CVField.D_SECOND, CVRecord.Kind.LONG),
+				column(CVField.D_OFFSET, CVRecord.Kind.LONG),
+				column(CVField.LAT, CVRecord.Kind.DOUBLE),
+				column(CVField.LONG, CVRecord.Kind.DOUBLE),
+				column(CVField.ELEVATION, CVRecord.Kind.LONG),
+				column(CVField.COUNT, CVRecord.Kind.LONG),
+				column(CVField.ENCODED_MSG, CVRecord.Kind.STRING),
+			});
+
+	public static final RecordSchema ADV_SIT_DATA = new RecordSchema("advSitData",
+			new SemiDialogID[] { SemiDialogID.advSitDataDep },
+			HEADER,
+			new Column[] {
+				column(CVField.RECEIPT_ID, CVRecord.Kind.STRING),
+				column(CVField.RECORD_ID, CVRecord.Kind.LONG),
+				column(CVField.TIME_TO_LIVE, CVRecord.Kind.LONG),
+			},
+			REGION,
+			new Column[] {
+				column(CVField.ASDM_ID, CVRecord.Kind.LONG),
+				column(CVField.ASDM_TYPE, CVRecord.Kind.LONG),
+				column(CVField.DIST_TYPE, CVRecord.Kind.LONG),
+				column(CVField.START_TIME, CVRecord.Kind.STRING),
+				column(CVField.STOP_TIME, CVRecord.Kind.STRING),
+				column(CVField.ADVISORY_MESSAGE, CVRecord.Kind.STRING),
+				column(CVField.ENCODED_MSG, CVRecord.Kind.STRING),
+			});
+
+	public static final RecordSchema INTERSECTION_SIT_DATA = new RecordSchema("intersectionSitData",
+			new SemiDialogID[] { SemiDialogID.intersectionSitDataDep },
+			HEADER,
+			new Column[] {
+				column(CVField.BUNDLE_NUMBER, CVRecord.Kind.STRING),
+				column(CVField.TIME_TO_LIVE, CVRecord.Kind.LONG),
+				column(CVField.TIMESTAMP, CVRecord.Kind.STRING),
+			},
+			REGION,
+			new Column[] {
+				column(CVField.ENCODED_MSG, CVRecord.Kind.STRING),
+			});
+
+	public static final RecordSchema DATA_REQUEST = new RecordSchema("dataRequest",
+			new SemiDialogID[] { SemiDialogID.advSitDatDist, SemiDialogID.intersectionSitDataQuery },
+			HEADER,
+			new Column[] {
+				column(CVField.TIME_BOUND, CVRecord.Kind.STRING),
+			},
+			REGION,
+			DELIVERY);
+
+	public static final RecordSchema DATA_SUBSCRIPTION = new RecordSchema("dataSubscription",
+			new SemiDialogID[] { SemiDialogID.dataSubscription },
+			HEADER,
+			new Column[] {
+				column(CVField.SUBSCRIBER_ID, CVRecord.Kind.LONG),
+				column(CVField.END_TIME, CVRecord.Kind.STRING),
+				column(CVField.TYPE, CVRecord.Kind.STRING),
+				column(CVField.TYPE_VALUE, CVRecord.Kind.LONG),
+			},
+			REGION,
+			new Column[] {
+				column(CVField.DEST_HOST, CVRecord.Kind.STRING),
+				column(CVField.DEST_PORT, CVRecord.Kind.LONG),
+				column(CVField.FROM_FORWARDER, CVRecord.Kind.BOOLEAN),
+				column(CVField.CERTIFICATE, CVRecord.Kind.BYTES),
+			});
+
+	public static final RecordSchema OBJECT_REGISTRATION = new RecordSchema("objectRegistration",
+			new SemiDialogID[] { SemiDialogID.objReg },
+			HEADER,
+			new Column[] {
+				column(CVField.SERVICE_ID, CVRecord.Kind.LONG),
+				column(CVField.SERVICE_PROVIDER_ID, CVRecord.Kind.LONG),
+			},
+			REGION,
+			DELIVERY,
+			new Column[] {
+				column(CVField.ENCODED_MSG, CVRecord.Kind.STRING),
+			});
+
+	public static final RecordSchema OBJECT_DISCOVERY = new RecordSchema("objectDiscovery",
+			new SemiDialogID[] { SemiDialogID.objDisc },
+			HEADER,
+			new Column[] {
+				column(CVField.SERVICE_ID, CVRecord.Kind.LONG),
+			},
+			REGION,
+			DELIVERY);
+
+	private static final RecordSchema[] schemasByDialog = new RecordSchema[256];
+
+	static {
+		for (RecordSchema schema : Arrays.asList(VEH_SIT_DATA, ADV_SIT_DATA, INTERSECTION_SIT_DATA, DATA_REQUEST,
+				DATA_SUBSCRIPTION, OBJECT_REGISTRATION, OBJECT_DISCOVERY)) {
+			for (SemiDialogID dialogId : schema.dialogIds) {
+				schemasByDialog[(int) dialogId.longValue()] = schema;
+			}
+		}
+	}
+
+	private final String name;
+	private final SemiDialogID[] dialogIds;
+	private final CVField[] fields;
+	private final CVRecord.Kind[] kinds;
+	/** Column index by field id, -1 for fields not in the schema. */
+	private final int[] columnsByField;
+
+	private RecordSchema(String name, SemiDialogID[] dialogIds, Column[]... groups) {
+		List<Column> columns = new ArrayList<Column>();
+		for (Column[] group : groups) {
+			Collections.addAll(columns, group);
+		}
+		this.name = name;
+		this.dialogIds = dialogIds;
+		this.fields = new CVField[columns.size()];
+		this.kinds = new CVRecord.Kind[columns.size()];
+		Map<CVField, Integer> indexes = new HashMap<CVField, Integer>();
+		int maxId = 0;
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = columns.get(i).field;
+			kinds[i] = columns.get(i).kind;
+			if (indexes.put(fields[i], i) != null) {
+				throw new IllegalArgumentException("Field " + fields[i] + " appears twice in schema " + name);
+			}
+			maxId = Math.max(maxId, fields[i].getId());
+		}
+		columnsByField = new int[maxId + 1];
+		Arrays.fill(columnsByField, -1);
+		for (Map.Entry<CVField, Integer> entry : indexes.entrySet()) {
+			columnsByField[entry.getKey().getId()] = entry.getValue();
+		}
+	}
+
+	/**
+	 * @return the schema of the records of a dialog, or null if the dialog has none
+	 */
+	public static RecordSchema forDialog(long dialogId) {
+		return (dialogId >= 0 && dialogId < schemasByDialog.length) ? schemasByDialog[(int) dialogId] : null;
+	}
+
+	/**
+	 * @return the schema name, used to name its export files
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public int getColumnCount() {
+		return fields.length;
+	}
+
+	public CVField getField(int column) {
+		return fields[column];
+	}
+
+	public CVRecord.Kind getKind(int column) {
+		return kinds[column];
+	}
+
+	/**
+	 * @return the column of a field, or -1 if the field is not in the schema
+	 */
+	public int indexOf(CVField field) {
+		int id = field.getId();
+		return (id < columnsByField.length) ? columnsByField[id] : -1;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	private static Column column(CVField field, CVRecord.Kind kind) {
+		return new Column(field, kind);
+	}
+
+	private static final class Column {
+		final CVField field;
+		final CVRecord.Kind kind;
+
+		Column(CVField field, CVRecord.Kind kind) {
+			this.field = field;
+			this.kind = kind;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Up to a fixed number of parsed records of one {@link RecordSchema}, held column by
+ * column: longs, and booleans as 0 or 1, in a long array, doubles in a double array and
+ * strings and byte arrays in an object array, each with a bit per row marking the rows
+ * that have a value.
+ */
+public final class RowGroup {
+
+	private final RecordSchema schema;
+	private final int capacity;
+	private final long[][] longs;
+	private final double[][] doubles;
+	private final Object[][] objects;
+	private final long[][] present;
+	private int size;
+
+	public RowGroup(RecordSchema schema, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Row group capacity must be positive: " + capacity);
+		}
+		this.schema = schema;
+		this.capacity = capacity;
+		int columns = schema.getColumnCount();
+		longs = new long[columns][];
+		doubles = new double[columns][];
+		objects = new Object[columns][];
+		present = new long[columns][(capacity + 63) >>> 6];
+		for (int column = 0; column < columns; column++) {
+			switch (schema.getKind(column)) {
+			case LONG:
+			case BOOLEAN:
+				longs[column] = new long[capacity];
+				break;
+			case DOUBLE:
+				doubles[column] = new double[capacity];
+				break;
+			default:
+				objects[column] = new Object[capacity];
+			}
+		}
+	}
+
+	/**
+	 * Append the schema's fields of a record as a row. Byte array values are shared, not
+	 * copied.
+	 *
+	 * @throws IllegalStateException if the group is full
+	 * @throws IllegalArgumentException if a field is set with a different kind than its column
+	 */
+	void add(CVRecord record) {
+		if (size == capacity) {
+			throw new IllegalStateException("Row group is full");
+		}
+		int row = size;
+		for (int column = 0; column < longs.length; column++) {
+			present[column][row >>> 6] &= ~(1L << row);
+		}
+		for (int i = 0; i < record.size(); i++) {
+			CVField field = record.fieldAt(i);
+			int column = schema.indexOf(field);
+			if (column < 0) continue;
+			CVRecord.Kind kind = record.getKind(field);
+			if (kind != schema.getKind(column)) {
+				throw new IllegalArgumentException("Field " + field + " is a " + kind + ", column of "
+						+ schema + " is a " + schema.getKind(column));
+			}
+			switch (kind) {
+			case LONG:
+				longs[column][row] = record.getLong(field);
+				break;
+			case BOOLEAN:
+				longs[column][row] = record.getBoolean(field) ? 1 : 0;
+				break;
+			case DOUBLE:
+				doubles[column][row] = record.getDouble(field);
+				break;
+			case BYTES:
+				objects[column][row] = record.getBytes(field);
+				break;
+			default:
+				objects[column][row] = record.getString(field);
+			}
+			if (kind == CVRecord.Kind.STRING || kind == CVRecord.Kind.BYTES) {
+				if (objects[column][row] == null) continue;
+			}
+			present[column][row >>> 6] |= 1L << row;
+		}
+		size++;
+	}
+
+	public RecordSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	public boolean isPresent(int column, int row) {
+		return (present[column][row >>> 6] & (1L << row)) != 0;
+	}
+
+	/**
+	 * @return the values of a LONG or BOOLEAN column, the latter as 0 or 1
+	 */
+	public long[] getLongs(int column) {
+		return longs[column];
+	}
+
+	/**
+	 * @return the values of a DOUBLE column
+	 */
+	public double[] getDoubles(int column) {
+		return doubles[column];
+	}
+
+	/**
+	 * @return the values of a STRING or BYTES column
+	 */
+	public Object[] getObjects(int column) {
+		return objects[column];
+	}
+}
@@ -0,0 +1,23 @@
+package gov.usdot.cv.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the row groups of one {@link RecordSchema} to a store, such as a
+ * {@link ColumnFileSink} file. A sink is only ever used by one thread at a time.
+ */
+public interface RowGroupSink extends Closeable {
+
+	/**
+	 * Write a row group. The group is not reused, so the sink may keep it.
+	 */
+	public void write(RowGroup group) throws IOException;
+
+	/**
+	 * Creates the sink of each schema when its first row group is written.
+	 */
+	public interface Factory {
+		public RowGroupSink create(RecordSchema schema) throws IOException;
+	}
+}
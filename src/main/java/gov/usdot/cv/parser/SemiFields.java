@@ -0,0 +1,138 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.dsrc.Position3D;
+import gov.usdot.asn1.generated.j2735.semi.GeoRegion;
+import gov.usdot.asn1.generated.j2735.semi.GroupID;
+import gov.usdot.cv.common.asn1.GroupIDHelper;
+
+import com.oss.asn1.Enumerated;
+import com.oss.asn1.OctetString;
+
+/**
+ * Reusable holder of the SEMI header and service region of one decoded message, in
+ * primitives: the dialog and sequence ids, the group and request ids, and the corners of
+ * the region in 1e-7 degree units. Parsers read a message's fields into it once and copy
+ * them to the record; it is not thread safe, see {@link AbstractCVMessageParser#semiFields()}.
+ */
+public final class SemiFields {
+
+	private long dialogId;
+	private long seqId;
+	private int groupId;
+	private int requestId;
+
+	private boolean hasNwCorner;
+	private int nwLat;
+	private int nwLon;
+	private boolean hasSeCorner;
+	private int seLat;
+	private int seLon;
+
+	/**
+	 * Read the header fields and forget any region read before.
+	 */
+	public SemiFields readHeader(Enumerated dialogID, Enumerated seqID, GroupID groupID, OctetString requestID) {
+		dialogId = dialogID.longValue();
+		seqId = seqID.longValue();
+		groupId = GroupIDHelper.fromGroupID(groupID);
+		requestId = toInt(requestID);
+		hasNwCorner = false;
+		hasSeCorner = false;
+		return this;
+	}
+
+	/**
+	 * Read the corners of a service region; a null region or corner is left unset.
+	 */
+	public SemiFields readRegion(GeoRegion region) {
+		Position3D nwCorner = (region != null) ? region.getNwCorner() : null;
+		Position3D seCorner = (region != null) ? region.getSeCorner() : null;
+		hasNwCorner = nwCorner != null;
+		if (hasNwCorner) {
+			nwLat = nwCorner.getLat().intValue();
+			nwLon = nwCorner.get_long().intValue();
+		}
+		hasSeCorner = seCorner != null;
+		if (hasSeCorner) {
+			seLat = seCorner.getLat().intValue();
+			seLon = seCorner.get_long().intValue();
+		}
+		return this;
+	}
+
+	/**
+	 * @return the big-endian value of the first four octets, as
+	 * {@code ByteBuffer.wrap(octets.byteArrayValue()).getInt()} reads them
+	 */
+	public static int toInt(OctetString octets) {
+		byte[] bytes = octets.byteArrayValue();
+		if (bytes.length < 4) {
+			throw new IllegalArgumentException("Expected at least four octets but found " + bytes.length);
+		}
+		return (bytes[0] << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+	}
+
+	/**
+	 * Set the dialog, sequence, group and request ids of the record.
+	 */
+	public void copyHeaderTo(CVRecord record) {
+		record.setLong(CVField.DIALOG_ID, dialogId);
+		record.setLong(CVField.SEQUENCE_ID, seqId);
+		record.setLong(CVField.GROUP_ID, groupId);
+		record.setLong(CVField.REQUEST_ID, requestId);
+	}
+
+	/**
+	 * Set the region corners of the record that were present in the message.
+	 */
+	public void copyRegionTo(CVRecord record) {
+		if (hasNwCorner) {
+			record.setCoordinate(CVField.NW_LAT, nwLat);
+			record.setCoordinate(CVField.NW_LON, nwLon);
+		}
+		if (hasSeCorner) {
+			record.setCoordinate(CVField.SE_LAT, seLat);
+			record.setCoordinate(CVField.SE_LON, seLon);
+		}
+	}
+
+	public long getDialogId() {
+		return dialogId;
+	}
+
+	public long getSeqId() {
+		return seqId;
+	}
+
+	public int getGroupId() {
+		return groupId;
+	}
+
+	public int getRequestId() {
+		return requestId;
+	}
+
+	public boolean hasNwCorner() {
+		return hasNwCorner;
+	}
+
+	public int getNwLat() {
+		return nwLat;
+	}
+
+	public int getNwLon() {
+		return nwLon;
+	}
+
+	public boolean hasSeCorner() {
+		return hasSeCorner;
+	}
+
+	public int getSeLat() {
+		return seLat;
+	}
+
+	public int getSeLon() {
+		return seLon;
+	}
+}
@@ -0,0 +1,127 @@
+package gov.usdot.cv.parser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.oss.asn1.AbstractData;
+import com.oss.asn1.Enumerated;
+import com.oss.asn1.OctetString;
+
+/**
+ * The leading fields every SEMI message starts with: dialogID, seqID, groupID and
+ * requestID. Enough to route or filter a message without decoding its body. The group
+ * and request ids are the big-endian value of their four octets.
+ */
+public final class SemiHeader {
+
+	private static final ConcurrentMap<Class<?>, Method[]> accessorsByClass = new ConcurrentHashMap<Class<?>, Method[]>();
+
+	private final long dialogId;
+	private final long seqId;
+	private final int groupId;
+	private final int requestId;
+
+	public SemiHeader(long dialogId, long seqId, int groupId, int requestId) {
+		this.dialogId = dialogId;
+		this.seqId = seqId;
+		this.groupId = groupId;
+		this.requestId = requestId;
+	}
+
+	/**
+	 * Read the header of a fully decoded SEMI message.
+	 *
+	 * @return the header, or null if the message type does not have the SEMI header fields
+	 */
+	public static SemiHeader fromMessage(AbstractData message) {
+		Method[] accessors = accessorsFor(message.getClass());
+		if (accessors == null) {
+			return null;
+		}
+		try {
+			Enumerated dialogId = (Enumerated) accessors[0].invoke(message);
+			Enumerated seqId = (Enumerated) accessors[1].invoke(message);
+			OctetString groupId = (OctetString) accessors[2].invoke(message);
+			OctetString requestId = (OctetString) accessors[3].invoke(message);
+			if (dialogId == null || seqId == null || groupId == null || requestId == null) {
+				return null;
+			}
+			return new SemiHeader(dialogId.longValue(), seqId.longValue(),
+					toInt(groupId.byteArrayValue()), toInt(requestId.byteArrayValue()));
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	private static Method[] accessorsFor(Class<?> clazz) {
+		Method[] accessors = accessorsByClass.get(clazz);
+		if (accessors == null) {
+			try {
+				accessors = new Method[] {
+						clazz.getMethod("getDialogID"),
+						clazz.getMethod("getSeqID"),
+						clazz.getMethod("getGroupID"),
+						clazz.getMethod("getRequestID") };
+				if (!Enumerated.class.isAssignableFrom(accessors[0].getReturnType())
+						|| !Enumerated.class.isAssignableFrom(accessors[1].getReturnType())
+						|| !OctetString.class.isAssignableFrom(accessors[2].getReturnType())
+						|| !OctetString.class.isAssignableFrom(accessors[3].getReturnType())) {
+					accessors = new Method[0];
+				}
+			} catch (NoSuchMethodException e) {
+				accessors = new Method[0];
+			}
+			accessorsByClass.putIfAbsent(clazz, accessors);
+		}
+		return (accessors.length == 0) ? null : accessors;
+	}
+
+	private static int toInt(byte[] octets) {
+		int value = 0;
+		for (byte octet : octets) {
+			value = (value << 8) | (octet & 0xFF);
+		}
+		return value;
+	}
+
+	public long getDialogId() {
+		return dialogId;
+	}
+
+	public long getSeqId() {
+		return seqId;
+	}
+
+	public int getGroupId() {
+		return groupId;
+	}
+
+	public int getRequestId() {
+		return requestId;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof SemiHeader)) return false;
+		SemiHeader other = (SemiHeader) obj;
+		return dialogId == other.dialogId && seqId == other.seqId
+				&& groupId == other.groupId && requestId == other.requestId;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = (int) (dialogId ^ (dialogId >>> 32));
+		result = 31 * result + (int) (seqId ^ (seqId >>> 32));
+		result = 31 * result + groupId;
+		result = 31 * result + requestId;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SemiHeader[dialogId=%d, seqId=%d, groupId=%d, requestId=%d]",
+				dialogId, seqId, groupId, requestId);
+	}
+}
@@ -0,0 +1,370 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.SemiSequenceID;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Logger;
+
+import com.oss.asn1.AbstractData;
+import com.oss.asn1.Enumerated;
+
+/**
+ * Reads the {@link SemiHeader} straight from the PER unaligned encoding of a SEMI
+ * message without decoding the rest of it.
+ *
+ * Every SEMI message starts with dialogID and seqID, two enumerations, followed by the
+ * four octet groupID and requestID. The enumerations are encoded as the index of their
+ * value among the values of the generated SemiDialogID and SemiSequenceID, which fix their
+ * width. What precedes them, the sequence extension bit, the bitmap of optional fields and
+ * the dialogID extension bit, and whether seqID has an extension bit depend on the message
+ * type, so they are learned from its first fully decoded messages: every candidate layout is
+ * checked against the decoded header, and a layout is only used once it reproduced the
+ * header of verifyCount messages and no other candidate did. Messages that all carry the
+ * same ids may fit more than one layout; learning then goes on until the ids vary enough to
+ * leave one, and a message type still in doubt after MAX_TRAINING_SAMPLES messages gets no
+ * layout, so its header always needs a full decode. Dialog and sequence ids a layout has
+ * not seen during learning are rejected, and a payload that two layouts read differently
+ * is not decoded at all, so the caller falls back to a full decode whenever the header is in
+ * doubt.
+ *
+ * PER carries no type tag, so a header read with one message type's layout may be the
+ * misread header of another type. Before dropping a payload on its header, callers check
+ * with {@link #mayBeDialog(byte[], Class[], boolean[])} that the payload is not one of the
+ * dialogs they keep read through its own type's layout.
+ */
+final class SemiHeaderDecoder {
+
+	private static final Logger logger = Logger.getLogger(SemiHeaderDecoder.class);
+
+	/** Sequence extension bit, optional field bitmap and dialogID extension bit. */
+	private static final int MAX_PREAMBLE_BITS = 10;
+
+	/** Messages of one type learned from before giving up on a layout that stays in doubt. */
+	static final int MAX_TRAINING_SAMPLES = 1024;
+
+	private final int verifyCount;
+
+	/** Values of the two enumerations in ascending order, i.e. by PER index. */
+	private final long[] dialogValues;
+	private final long[] seqValues;
+
+	/** Layouts of the message types learned so far, replaced as a whole when one is added. */
+	private volatile Map<Class<?>, Layout> layouts = Collections.emptyMap();
+	private volatile Layout[] layoutArray = new Layout[0];
+
+	/** Message types whose learning is over, whether or not a layout was found. */
+	private final ConcurrentMap<Class<?>, Boolean> finished = new ConcurrentHashMap<Class<?>, Boolean>();
+
+	private final Map<Class<?>, Training> training = new HashMap<Class<?>, Training>();
+
+	SemiHeaderDecoder(int verifyCount) {
+		this(verifyCount, enumerationValues(SemiDialogID.class), enumerationValues(SemiSequenceID.class));
+	}
+
+	SemiHeaderDecoder(int verifyCount, long[] dialogValues, long[] seqValues) {
+		this.verifyCount = Math.max(verifyCount, 1);
+		this.dialogValues = dialogValues;
+		this.seqValues = seqValues;
+	}
+
+	/**
+	 * @return the header read with the learned layouts, or null if no layout or more than
+	 * one conflicting layout matches the payload
+	 */
+	SemiHeader decode(byte[] payload) {
+		SemiHeader found = null;
+		for (Layout layout : layoutArray) {
+			SemiHeader header = layout.read(payload, true);
+			if (header == null) continue;
+			if (found == null) {
+				found = header;
+			} else if (!found.equals(header)) {
+				return null;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * @return true unless the learned layout of every one of the message types reads a
+	 * dialog id outside the table from the payload. Only the dialog id is read, whatever
+	 * the ids seen while learning, and a message type without a layout could carry any
+	 * dialog.
+	 */
+	boolean mayBeDialog(byte[] payload, Class<?>[] messageClasses, boolean[] dialogTable) {
+		Map<Class<?>, Layout> current = layouts;
+		for (Class<?> messageClass : messageClasses) {
+			Layout layout = current.get(messageClass);
+			if (layout == null) {
+				return true;
+			}
+			long dialogId = layout.readDialogId(payload);
+			if (dialogId < 0 || (dialogId < dialogTable.length && dialogTable[(int) dialogId])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return true if a layout was learned for every one of the message types
+	 */
+	boolean isLearned(Class<?>[] messageClasses) {
+		Map<Class<?>, Layout> current = layouts;
+		for (Class<?> messageClass : messageClasses) {
+			if (!current.containsKey(messageClass)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Learn from a payload and the message fully decoded from it. Cheap once the message
+	 * type is finished learning.
+	 */
+	void learn(byte[] payload, AbstractData message) {
+		Class<?> messageClass = message.getClass();
+		if (finished.containsKey(messageClass)) {
+			return;
+		}
+		learn(payload, messageClass, SemiHeader.fromMessage(message));
+	}
+
+	/**
+	 * Learn from a payload and the header fully decoded from it, null if the message type
+	 * has no SEMI header.
+	 */
+	void learn(byte[] payload, Class<?> messageClass, SemiHeader header) {
+		synchronized (training) {
+			if (finished.containsKey(messageClass)) {
+				return;
+			}
+			if (header == null) {
+				finish(messageClass, null);
+				return;
+			}
+			Training current = training.get(messageClass);
+			if (current == null) {
+				current = new Training(payload, header, dialogValues, seqValues);
+				training.put(messageClass, current);
+			} else {
+				current.verify(payload, header);
+			}
+			if (current.candidates.isEmpty()) {
+				finish(messageClass, null);
+			} else if (current.samples >= verifyCount && current.candidates.size() == 1) {
+				finish(messageClass, current.candidates.get(0));
+			} else if (current.samples >= Math.max(verifyCount, MAX_TRAINING_SAMPLES)) {
+				logger.info(current.candidates.size() + " PER header layouts fit every message of " + messageClass.getName()
+						+ ": " + current.candidates);
+				finish(messageClass, null);
+			}
+		}
+	}
+
+	private void finish(Class<?> messageClass, Layout layout) {
+		training.remove(messageClass);
+		if (layout == null) {
+			logger.info("No PER header layout found for " + messageClass.getName() + ", its header needs a full decode");
+		} else {
+			Map<Class<?>, Layout> updated = new HashMap<Class<?>, Layout>(layouts);
+			updated.put(messageClass, layout);
+			layoutArray = updated.values().toArray(new Layout[updated.size()]);
+			layouts = updated;
+			if (logger.isDebugEnabled()) {
+				logger.debug("Learned PER header layout for " + messageClass.getName() + ": " + layout);
+			}
+		}
+		finished.put(messageClass, Boolean.TRUE);
+	}
+
+	/**
+	 * @return the values of the constants of a generated enumeration in ascending order, or
+	 * none if they cannot be read
+	 */
+	static long[] enumerationValues(Class<? extends Enumerated> type) {
+		TreeSet<Long> values = new TreeSet<Long>();
+		try {
+			for (Field field : type.getFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) || field.getType() != type) continue;
+				values.add(((Enumerated) field.get(null)).longValue());
+			}
+		} catch (Exception e) {
+			logger.warn("Cannot read the values of " + type.getName() + ", headers need a full decode", e);
+			return new long[0];
+		}
+		long[] result = new long[values.size()];
+		int i = 0;
+		for (Long value : values) {
+			result[i++] = value;
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of bits PER unaligned encodes the index of one of count root
+	 * enumeration values in
+	 */
+	static int indexBits(int count) {
+		int bits = 0;
+		while ((1L << bits) < count) {
+			bits++;
+		}
+		return bits;
+	}
+
+	/**
+	 * @return the width bits starting at bitOffset of a PER unaligned encoding, most
+	 * significant bit first, or -1 if the payload is too short
+	 */
+	static long readBits(byte[] payload, int bitOffset, int width) {
+		if (bitOffset + width > payload.length * 8) {
+			return -1;
+		}
+		long value = 0;
+		for (int bit = bitOffset, end = bitOffset + width; bit < end; bit++) {
+			value = (value << 1) | ((payload[bit >>> 3] >>> (7 - (bit & 7))) & 1);
+		}
+		return value;
+	}
+
+	/**
+	 * Candidate layouts of one message type still consistent with every message seen.
+	 */
+	private static final class Training {
+		final List<Layout> candidates = new ArrayList<Layout>();
+		int samples = 1;
+
+		Training(byte[] payload, SemiHeader header, long[] dialogValues, long[] seqValues) {
+			for (int preambleBits = 0; preambleBits <= MAX_PREAMBLE_BITS; preambleBits++) {
+				for (int seqExtensionBits = 0; seqExtensionBits <= 1; seqExtensionBits++) {
+					Layout layout = Layout.fit(payload, header, preambleBits, dialogValues, seqExtensionBits, seqValues);
+					if (layout != null) {
+						candidates.add(layout);
+					}
+				}
+			}
+		}
+
+		void verify(byte[] payload, SemiHeader header) {
+			samples++;
+			for (Iterator<Layout> i = candidates.iterator(); i.hasNext(); ) {
+				Layout layout = i.next();
+				if (header.equals(layout.read(payload, false))) {
+					layout.accept(header);
+				} else {
+					i.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Bit layout of the header of one message type. Enumerations are encoded as the index
+	 * of their value among the enumeration's values.
+	 */
+	private static final class Layout {
+		final int preambleBits;
+		final long[] dialogValues;
+		final int dialogBits;
+		final int seqExtensionBits;
+		final long[] seqValues;
+		final int seqBits;
+		long[] dialogIds;
+		long[] seqIds;
+
+		private Layout(int preambleBits, long[] dialogValues, int seqExtensionBits, long[] seqValues, SemiHeader header) {
+			this.preambleBits = preambleBits;
+			this.dialogValues = dialogValues;
+			this.dialogBits = indexBits(dialogValues.length);
+			this.seqExtensionBits = seqExtensionBits;
+			this.seqValues = seqValues;
+			this.seqBits = indexBits(seqValues.length);
+			this.dialogIds = new long[] { header.getDialogId() };
+			this.seqIds = new long[] { header.getSeqId() };
+		}
+
+		/**
+		 * @return the layout with these widths that reads the header from the payload, or
+		 * null if there is none
+		 */
+		static Layout fit(byte[] payload, SemiHeader header, int preambleBits, long[] dialogValues, int seqExtensionBits,
+				long[] seqValues) {
+			Layout layout = new Layout(preambleBits, dialogValues, seqExtensionBits, seqValues, header);
+			return header.equals(layout.read(payload, false)) ? layout : null;
+		}
+
+		/**
+		 * @param known only accept dialog and sequence ids seen while learning
+		 */
+		SemiHeader read(byte[] payload, boolean known) {
+			long dialogId = readDialogId(payload);
+			if (dialogId < 0) return null;
+			if (known && !contains(dialogIds, dialogId)) return null;
+			int bit = preambleBits + dialogBits;
+			if (seqExtensionBits > 0 && readBits(payload, bit, seqExtensionBits) != 0) return null;
+			bit += seqExtensionBits;
+			long seqId = valueAt(seqValues, readBits(payload, bit, seqBits));
+			if (seqId < 0) return null;
+			if (known && !contains(seqIds, seqId)) return null;
+			bit += seqBits;
+			long groupId = readBits(payload, bit, 32);
+			long requestId = readBits(payload, bit + 32, 32);
+			if (requestId < 0) return null;
+			return new SemiHeader(dialogId, seqId, (int) groupId, (int) requestId);
+		}
+
+		/**
+		 * @return the dialog id, or -1 if the payload is too short or the index is not one
+		 * of a root value
+		 */
+		long readDialogId(byte[] payload) {
+			return valueAt(dialogValues, readBits(payload, preambleBits, dialogBits));
+		}
+
+		private static long valueAt(long[] values, long index) {
+			return (index < 0 || index >= values.length) ? -1 : values[(int) index];
+		}
+
+		void accept(SemiHeader header) {
+			if (!contains(dialogIds, header.getDialogId())) {
+				dialogIds = append(dialogIds, header.getDialogId());
+			}
+			if (!contains(seqIds, header.getSeqId())) {
+				seqIds = append(seqIds, header.getSeqId());
+			}
+		}
+
+		private static boolean contains(long[] values, long value) {
+			for (long v : values) {
+				if (v == value) return true;
+			}
+			return false;
+		}
+
+		private static long[] append(long[] values, long value) {
+			long[] result = new long[values.length + 1];
+			System.arraycopy(values, 0, result, 0, values.length);
+			result[values.length] = value;
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("preamble=%d dialog=%d seq=%d/%d", preambleBits, dialogBits, seqExtensionBits, seqBits);
+		}
+	}
+}
@@ -0,0 +1,353 @@
+package gov.usdot.cv.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process index of live data subscriptions for matching parsed vehicle situation
+ * records to the subscribers that asked for them, in place of a scan over every
+ * subscription. It is fed the maps {@link DataSubscriptionMessageParser} produces, or
+ * the same fields directly.
+ *
+ * Subscriptions are kept per type, VsmType or IsdType, on a grid of fixed size cells
+ * over the service regions: a subscription is listed in every cell its region overlaps,
+ * or, when its region has no corners or covers more than a set number of cells, in a
+ * short list checked on every match. A match looks up one cell.
+ *
+ * Matching takes no locks. Each type's cells are split over a fixed number of segments
+ * holding immutable maps, and an update copies only the segments and cell lists it
+ * touches and publishes them, so readers always see a consistent segment. Updates are
+ * serialized.
+ */
+public class SubscriptionIndex {
+
+	/** Type of subscriptions to vehicle situation data. */
+	public static final String VSM_TYPE = "VsmType";
+
+	/** Type of subscriptions to intersection situation data. */
+	public static final String ISD_TYPE = "IsdType";
+
+	public static final double DEFAULT_CELL_DEGREES = 0.1;
+
+	public static final int DEFAULT_MAX_CELLS_PER_SUBSCRIPTION = 4096;
+
+	private static final int SEGMENTS = 64;
+
+	private static final long[] NO_MATCHES = new long[0];
+
+	private static final int MAX_LAT = 900000000;
+	private static final int MAX_LON = 1800000000;
+
+	private final int cellUnits;
+	private final int maxCellsPerSubscription;
+	private final ConcurrentHashMap<String, Grid> grids = new ConcurrentHashMap<String, Grid>();
+
+	/** Guarded by this. */
+	private final Map<Long, Subscription> subscriptions = new HashMap<Long, Subscription>();
+	private volatile int size;
+
+	public SubscriptionIndex() {
+		this(DEFAULT_CELL_DEGREES, DEFAULT_MAX_CELLS_PER_SUBSCRIPTION);
+	}
+
+	/**
+	 * @param cellDegrees the height and width of a grid cell; about the size of a typical
+	 * service region works best
+	 * @param maxCellsPerSubscription regions covering more cells are checked on every match
+	 */
+	public SubscriptionIndex(double cellDegrees, int maxCellsPerSubscription) {
+		if (!(cellDegrees > 0 && cellDegrees <= 180)) {
+			throw new IllegalArgumentException("Cell size must be within (0, 180] degrees: " + cellDegrees);
+		}
+		if (maxCellsPerSubscription < 1) {
+			throw new IllegalArgumentException("Max cells per subscription must be positive: " + maxCellsPerSubscription);
+		}
+		this.cellUnits = (int) Math.max(1, Math.round(cellDegrees * 1e7));
+		this.maxCellsPerSubscription = maxCellsPerSubscription;
+	}
+
+	/**
+	 * Add or replace a subscriber's subscription from a parsed subscription request.
+	 *
+	 * @param subscriberId the id the subscription was assigned when it was accepted
+	 * @return false if the map is not a subscription request and nothing changed
+	 */
+	public boolean subscribe(long subscriberId, Map<String, String> request) {
+		String type = request.get(DataSubscriptionMessageParser.TYPE);
+		String typeValue = request.get(DataSubscriptionMessageParser.TYPE_VALUE);
+		if (type == null || typeValue == null) return false;
+		String nwLat = request.get(DataSubscriptionMessageParser.NW_LAT);
+		String nwLon = request.get(DataSubscriptionMessageParser.NW_LON);
+		String seLat = request.get(DataSubscriptionMessageParser.SE_LAT);
+		String seLon = request.get(DataSubscriptionMessageParser.SE_LON);
+		if (nwLat == null || nwLon == null || seLat == null || seLon == null) {
+			subscribeEverywhere(subscriberId, type, Integer.parseInt(typeValue));
+		} else {
+			subscribe(subscriberId, type, Integer.parseInt(typeValue), toUnits(nwLat), toUnits(nwLon), toUnits(seLat), toUnits(seLon));
+		}
+		return true;
+	}
+
+	/**
+	 * Remove the subscription a parsed subscription cancel names.
+	 *
+	 * @return false if the map is not a cancel or names no live subscription
+	 */
+	public boolean cancel(Map<String, String> cancel) {
+		String subscriberId = cancel.get(DataSubscriptionMessageParser.SUBSCRIBER_ID);
+		return subscriberId != null && remove(Long.parseLong(subscriberId));
+	}
+
+	/**
+	 * Add or replace a subscription to records of a type within a region, given by its
+	 * corners in 1/10th microdegrees. A region whose west edge is east of its east edge
+	 * crosses the antimeridian.
+	 *
+	 * @param typeValue the subscribed type flags; a record matches if it has any of them
+	 */
+	public synchronized void subscribe(long subscriberId, String type, int typeValue, int nwLat, int nwLon, int seLat, int seLon) {
+		int south = Math.min(nwLat, seLat);
+		int north = Math.max(nwLat, seLat);
+		int[][] boxes = (nwLon <= seLon)
+				? new int[][] { { south, nwLon, north, seLon } }
+				: new int[][] { { south, nwLon, north, MAX_LON }, { south, -MAX_LON, north, seLon } };
+		put(new Subscription(subscriberId, type, typeValue, boxes));
+	}
+
+	/**
+	 * Add or replace a subscription to records of a type wherever they are.
+	 */
+	public synchronized void subscribeEverywhere(long subscriberId, String type, int typeValue) {
+		put(new Subscription(subscriberId, type, typeValue, null));
+	}
+
+	/**
+	 * @return true if the subscriber had a subscription
+	 */
+	public synchronized boolean remove(long subscriberId) {
+		Subscription subscription = subscriptions.remove(subscriberId);
+		if (subscription == null) return false;
+		grid(subscription.type).remove(subscription);
+		size = subscriptions.size();
+		return true;
+	}
+
+	private void put(Subscription subscription) {
+		Subscription replaced = subscriptions.put(subscription.id, subscription);
+		if (replaced != null) {
+			grid(replaced.type).remove(replaced);
+		}
+		grid(subscription.type).add(subscription);
+		size = subscriptions.size();
+	}
+
+	private Grid grid(String type) {
+		Grid grid = grids.get(type);
+		if (grid == null) {
+			grid = new Grid();
+			grids.put(type, grid);
+		}
+		return grid;
+	}
+
+	/**
+	 * @return the ids of the subscribers to records of the type and any of the type flags
+	 * at a position in 1/10th microdegrees, in no particular order
+	 */
+	public long[] match(String type, int typeValue, int lat, int lon) {
+		Grid grid = grids.get(type);
+		if (grid == null) return NO_MATCHES;
+		Subscription[] cell = grid.cell(cellKey(lat, lon));
+		Subscription[] wide = grid.wide;
+		long[] matches = null;
+		int count = 0;
+		for (int pass = 0; pass < 2; pass++) {
+			Subscription[] candidates = (pass == 0) ? cell : wide;
+			if (candidates == null) continue;
+			for (Subscription subscription : candidates) {
+				if ((subscription.typeValue & typeValue) == 0 || !subscription.contains(lat, lon)) continue;
+				if (matches == null) {
+					matches = new long[4];
+				} else if (count == matches.length) {
+					matches = Arrays.copyOf(matches, count * 2);
+				}
+				matches[count++] = subscription.id;
+			}
+		}
+		if (matches == null) return NO_MATCHES;
+		return (count == matches.length) ? matches : Arrays.copyOf(matches, count);
+	}
+
+	/**
+	 * @return the ids of the subscribers to a parsed vehicle situation record, by its
+	 * vsmType, Lat and Long
+	 */
+	public long[] matchVehSitData(Map<String, String> record) {
+		String vsmType = record.get(CVField.VSM_TYPE.getName());
+		String lat = record.get(CVField.LAT.getName());
+		String lon = record.get(CVField.LONG.getName());
+		if (vsmType == null || lat == null || lon == null) return NO_MATCHES;
+		return match(VSM_TYPE, Integer.parseInt(vsmType), toUnits(lat), toUnits(lon));
+	}
+
+	/**
+	 * @return the number of live subscriptions
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static int toUnits(String degrees) {
+		return (int) Math.round(Double.parseDouble(degrees) * 1e7);
+	}
+
+	private long cellKey(int lat, int lon) {
+		long row = ((long) clamp(lat, MAX_LAT) + MAX_LAT) / cellUnits;
+		long column = ((long) clamp(lon, MAX_LON) + MAX_LON) / cellUnits;
+		return (row << 32) | column;
+	}
+
+	private static int clamp(int value, int max) {
+		return Math.max(-max, Math.min(max, value));
+	}
+
+	private static int segment(long key) {
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key >>> 58) & (SEGMENTS - 1);
+	}
+
+	/**
+	 * The cells of one type. Written under the index lock, read without one.
+	 */
+	private final class Grid {
+		private final AtomicReferenceArray<Map<Long, Subscription[]>> segments = new AtomicReferenceArray<Map<Long, Subscription[]>>(SEGMENTS);
+		/** Subscriptions checked on every match. */
+		volatile Subscription[] wide;
+
+		Subscription[] cell(long key) {
+			Map<Long, Subscription[]> segment = segments.get(segment(key));
+			return (segment == null) ? null : segment.get(key);
+		}
+
+		void add(Subscription subscription) {
+			Collection<Long> keys = subscription.cellKeys();
+			if (keys == null) {
+				wide = append(wide, subscription);
+				return;
+			}
+			update(keys, subscription, true);
+		}
+
+		void remove(Subscription subscription) {
+			Collection<Long> keys = subscription.cellKeys();
+			if (keys == null) {
+				wide = without(wide, subscription);
+				return;
+			}
+			update(keys, subscription, false);
+		}
+
+		/**
+		 * Copy each segment the keys fall in once, change its cells and publish it.
+		 */
+		private void update(Collection<Long> keys, Subscription subscription, boolean add) {
+			Map<Integer, Map<Long, Subscription[]>> copies = new HashMap<Integer, Map<Long, Subscription[]>>();
+			for (Long key : keys) {
+				int index = segment(key);
+				Map<Long, Subscription[]> copy = copies.get(index);
+				if (copy == null) {
+					Map<Long, Subscription[]> current = segments.get(index);
+					copy = (current == null) ? new HashMap<Long, Subscription[]>() : new HashMap<Long, Subscription[]>(current);
+					copies.put(index, copy);
+				}
+				Subscription[] cell = add ? append(copy.get(key), subscription) : without(copy.get(key), subscription);
+				if (cell == null) {
+					copy.remove(key);
+				} else {
+					copy.put(key, cell);
+				}
+			}
+			for (Map.Entry<Integer, Map<Long, Subscription[]>> entry : copies.entrySet()) {
+				segments.set(entry.getKey(), entry.getValue().isEmpty() ? null : entry.getValue());
+			}
+		}
+	}
+
+	private static Subscription[] append(Subscription[] subscriptions, Subscription subscription) {
+		if (subscriptions == null) return new Subscription[] { subscription };
+		Subscription[] copy = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+		copy[subscriptions.length] = subscription;
+		return copy;
+	}
+
+	/**
+	 * @return a copy without the subscription, or null if none would be left
+	 */
+	private static Subscription[] without(Subscription[] subscriptions, Subscription subscription) {
+		if (subscriptions == null) return null;
+		List<Subscription> kept = new ArrayList<Subscription>(subscriptions.length);
+		for (Subscription s : subscriptions) {
+			if (s != subscription) {
+				kept.add(s);
+			}
+		}
+		return kept.isEmpty() ? null : kept.toArray(new Subscription[kept.size()]);
+	}
+
+	private final class Subscription {
+		final long id;
+		final String type;
+		final int typeValue;
+		/** South, west, north and east edges of each box; null for everywhere. */
+		final int[][] boxes;
+
+		Subscription(long id, String type, int typeValue, int[][] boxes) {
+			this.id = id;
+			this.type = type;
+			this.typeValue = typeValue;
+			this.boxes = boxes;
+		}
+
+		boolean contains(int lat, int lon) {
+			if (boxes == null) return true;
+			for (int[] box : boxes) {
+				if (lat >= box[0] && lon >= box[1] && lat <= box[2] && lon <= box[3]) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * @return the keys of the cells the region overlaps, or null if it is checked on
+		 * every match instead
+		 */
+		Collection<Long> cellKeys() {
+			if (boxes == null) return null;
+			long cells = 0;
+			for (int[] box : boxes) {
+				long rows = (cellKey(box[2], 0) >>> 32) - (cellKey(box[0], 0) >>> 32) + 1;
+				long columns = (cellKey(0, box[3]) & 0xFFFFFFFFL) - (cellKey(0, box[1]) & 0xFFFFFFFFL) + 1;
+				cells += rows * columns;
+			}
+			if (cells > maxCellsPerSubscription) return null;
+			Set<Long> keys = new LinkedHashSet<Long>();
+			for (int[] box : boxes) {
+				long first = cellKey(box[0], box[1]);
+				long last = cellKey(box[2], box[3]);
+				for (long row = first >>> 32; row <= last >>> 32; row++) {
+					for (long column = first & 0xFFFFFFFFL; column <= (last & 0xFFFFFFFFL); column++) {
+						keys.add((row << 32) | column);
+					}
+				}
+			}
+			return keys;
+		}
+	}
+}
@@ -1,23 +1,16 @@
 package gov.usdot.cv.parser;
 
-import static gov.usdot.asn1.j2735.J2735Util.convertGeoCoordinateToDouble;
-import static gov.usdot.asn1.j2735.J2735Util.toFormattedDateString;
 import gov.usdot.asn1.generated.j2735.semi.AdvisorySituationData;
 import gov.usdot.asn1.generated.j2735.semi.DistributionType;
-import gov.usdot.asn1.generated.j2735.semi.GeoRegion;
-import gov.usdot.cv.common.asn1.GroupIDHelper;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
 import gov.usdot.cv.common.dialog.DataBundle;
 
-import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
-
 import org.apache.commons.codec.binary.Hex;
 
 import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
 import com.oss.asn1.AbstractData;
 
-public class TravelerInformationParser extends AbstractCVMessageParser {
+public class TravelerInformationParser extends AbstractCVMessageParser implements CacheableCVMessageParser {
 
 	public static final String RECEIPT_ID 			= "receiptId";
 	public static final String DIALOG_ID 			= "dialogId";
@@ -38,51 +31,48 @@ public class TravelerInformationParser extends AbstractCVMessageParser {
 	public static final String ADVISORY_MESSAGE 	= "advisoryMessage";
 	public static final String ENCODED_MSG 			= "encodedMsg";
 
-	public Map<String, String> parse(
+	public SemiDialogID[] getDialogIds() {
+		return new SemiDialogID[] { SemiDialogID.advSitDataDep };
+	}
+	
+	public Class<?>[] getMessageClasses() {
+		return new Class<?>[] { AdvisorySituationData.class };
+	}
+	
+	public void parse(
 			AbstractData message, 
-			DataBundle bundle) throws ParsePipelineException {
-		HashMap<String, String> map = new HashMap<String, String>();
-		
+			DataBundle bundle, 
+			CVRecord record) throws ParsePipelineException {
 		validateMessageType(message, AdvisorySituationData.class);
 		
 		AdvisorySituationData msg = (AdvisorySituationData) message;
 
-		map.put(RECEIPT_ID, bundle.getReceiptId());
-		map.put(ENCODED_MSG, bundle.encodePayload());
-		map.put(DIALOG_ID, String.valueOf(msg.getDialogID().longValue()));
-		map.put(SEQUENCE_ID, String.valueOf(msg.getSeqID().longValue()));
-		map.put(GROUP_ID, String.valueOf(GroupIDHelper.fromGroupID(msg.getGroupID())));
-		map.put(REQUEST_ID, Integer.toString(ByteBuffer.wrap(msg.getRequestID().byteArrayValue()).getInt()));
+		record.setString(CVField.RECEIPT_ID, bundle.getReceiptId());
+		record.setString(CVField.ENCODED_MSG, encodePayload(bundle, record));
+		SemiFields fields = semiFields().readHeader(msg.getDialogID(), msg.getSeqID(), msg.getGroupID(), msg.getRequestID());
+		fields.copyHeaderTo(record);
 		
-		if (msg.hasRecordID()) map.put(RECORD_ID, Integer.toString(ByteBuffer.wrap(msg.getRecordID().byteArrayValue()).getInt()));
-		if (msg.hasTimeToLive()) map.put(TIME_TO_LIVE, String.valueOf(msg.getTimeToLive().longValue()));
+		if (msg.hasRecordID()) record.setLong(CVField.RECORD_ID, SemiFields.toInt(msg.getRecordID()));
+		if (msg.hasTimeToLive()) record.setLong(CVField.TIME_TO_LIVE, msg.getTimeToLive().longValue());
 
-		GeoRegion region = msg.getServiceRegion();
-		if (region != null) {
-			if (region.getNwCorner() != null) {
-				map.put(NW_LAT, String.valueOf(convertGeoCoordinateToDouble(region.getNwCorner().getLat().intValue())));
-				map.put(NW_LON, String.valueOf(convertGeoCoordinateToDouble(region.getNwCorner().get_long().intValue())));
-			}
-			if (region.getSeCorner() != null) {
-				map.put(SE_LAT, String.valueOf(convertGeoCoordinateToDouble(region.getSeCorner().getLat().intValue())));
-				map.put(SE_LON, String.valueOf(convertGeoCoordinateToDouble(region.getSeCorner().get_long().intValue())));
-			}
-		}
-		map.put(ASDM_ID, Integer.toString(ByteBuffer.wrap(msg.getAsdmDetails().getAsdmID().byteArrayValue()).getInt()));
-		map.put(ASDM_TYPE, String.valueOf(msg.getAsdmDetails().getAsdmType().longValue()));
+		fields.readRegion(msg.getServiceRegion()).copyRegionTo(record);
+		record.setLong(CVField.ASDM_ID, SemiFields.toInt(msg.getAsdmDetails().getAsdmID()));
+		record.setLong(CVField.ASDM_TYPE, msg.getAsdmDetails().getAsdmType().longValue());
 		
 		DistributionType dt = msg.getAsdmDetails().getDistType();
-		map.put(DIST_TYPE, String.valueOf(Byte.valueOf(dt.byteArrayValue()[0]).intValue()));
+		record.setLong(CVField.DIST_TYPE, dt.byteArrayValue()[0]);
 		
 		if (msg.getAsdmDetails().getStartTime() != null) {
-			map.put(START_TIME, toFormattedDateString(msg.getAsdmDetails().getStartTime(), DATE_PATTERN));
+			record.setString(CVField.START_TIME, DDateTimeFormat.format(msg.getAsdmDetails().getStartTime()));
 		}
 		if (msg.getAsdmDetails().getStopTime() != null) {
-			map.put(STOP_TIME, toFormattedDateString(msg.getAsdmDetails().getStopTime(), DATE_PATTERN));
+			record.setString(CVField.STOP_TIME, DDateTimeFormat.format(msg.getAsdmDetails().getStopTime()));
 		}
-		map.put(ADVISORY_MESSAGE, Hex.encodeHexString(msg.getAsdmDetails().getAdvisoryMessage().byteArrayValue()));
-		
-		return map;
+		record.setString(CVField.ADVISORY_MESSAGE, Hex.encodeHexString(msg.getAsdmDetails().getAdvisoryMessage().byteArrayValue()));
+	}
+	
+	public void parseBundle(DataBundle bundle, CVRecord record) {
+		record.setString(CVField.RECEIPT_ID, bundle.getReceiptId());
 	}
 
 }
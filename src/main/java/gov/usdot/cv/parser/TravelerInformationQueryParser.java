@@ -1,17 +1,9 @@
 package gov.usdot.cv.parser;
 
-import static gov.usdot.asn1.j2735.J2735Util.convertGeoCoordinateToDouble;
-import gov.usdot.asn1.generated.j2735.semi.GeoRegion;
 import gov.usdot.asn1.generated.j2735.semi.DataRequest;
 import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
-import gov.usdot.cv.common.asn1.GroupIDHelper;
 import gov.usdot.cv.common.dialog.DataBundle;
 
-import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.apache.commons.codec.binary.Base64;
 import org.apache.log4j.Logger;
 
 import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
@@ -36,9 +28,18 @@ public class TravelerInformationQueryParser extends AbstractCVMessageParser {
 	public static final String SE_LON 				= "seLon";
 	public static final String TIME_BOUND			= "timeBound";
 	
-	public Map<String, String> parse(
+	public SemiDialogID[] getDialogIds() {
+		return new SemiDialogID[] { SemiDialogID.advSitDatDist, SemiDialogID.intersectionSitDataQuery };
+	}
+	
+	public Class<?>[] getMessageClasses() {
+		return new Class<?>[] { DataRequest.class };
+	}
+	
+	public void parse(
 			AbstractData message, 
-			DataBundle bundle) throws ParsePipelineException {
+			DataBundle bundle, 
+			CVRecord record) throws ParsePipelineException {
 		
 		if (! (message instanceof DataRequest) ) {
 			String errorMsg = String.format(
@@ -51,9 +52,11 @@ public class TravelerInformationQueryParser extends AbstractCVMessageParser {
 		
 		SemiDialogID dialogID = ((DataRequest)message).getDialogID();
 		if ( dialogID == SemiDialogID.advSitDatDist ) {
-			logger.debug("Parsing advisory situation data request: " + message.toString());
+			if (logger.isDebugEnabled())
+				logger.debug("Parsing advisory situation data request: " + message.toString());
 		} else if ( dialogID == SemiDialogID.intersectionSitDataQuery ) {
-			logger.debug("Parsing intersection situation data request: " + message.toString());
+			if (logger.isDebugEnabled())
+				logger.debug("Parsing intersection situation data request: " + message.toString());
 		} else {
 			String errorMsg = String.format(
 					"Parser recieved DataRequest message with unexpected dialogID value %s (%d,0x%x)",
@@ -62,42 +65,24 @@ public class TravelerInformationQueryParser extends AbstractCVMessageParser {
 			throw new ParsePipelineException(errorMsg);
 		}
 		
-		Map<String, String> result = parseDataRequest(message);
+		parseDataRequest(message, record);
 		
-		result.put(RECEIPT_ID, bundle.getReceiptId());
-		result.put(DEST_HOST, bundle.getDestHost());
-		result.put(DEST_PORT, Integer.toString(bundle.getDestPort()));
-		result.put(FROM_FORWARDER, Boolean.toString(bundle.fromForwarder()));
-		result.put(CERTIFICATE, Base64.encodeBase64String(bundle.getCertificate()));
-		
-		return result;
+		record.setString(CVField.RECEIPT_ID, bundle.getReceiptId());
+		record.setString(CVField.DEST_HOST, bundle.getDestHost());
+		record.setLong(CVField.DEST_PORT, bundle.getDestPort());
+		record.setBoolean(CVField.FROM_FORWARDER, bundle.fromForwarder());
+		record.setBytes(CVField.CERTIFICATE, bundle.getCertificate());
 	}
 	
-	private Map<String, String> parseDataRequest(AbstractData message) {
-		HashMap<String, String> map = new HashMap<String, String>();
-		
+	private void parseDataRequest(AbstractData message, CVRecord record) {
 		DataRequest msg = (DataRequest) message;
 		
-		map.put(DIALOG_ID, String.valueOf(msg.getDialogID().longValue()));
-		map.put(SEQUENCE_ID, String.valueOf(msg.getSeqID().longValue()));
-		map.put(GROUP_ID, String.valueOf(GroupIDHelper.fromGroupID(msg.getGroupID())));
-		map.put(REQUEST_ID, Integer.toString(ByteBuffer.wrap(msg.getRequestID().byteArrayValue()).getInt()));
+		SemiFields fields = semiFields().readHeader(msg.getDialogID(), msg.getSeqID(), msg.getGroupID(), msg.getRequestID());
+		fields.copyHeaderTo(record);
 		if (msg.hasTimeBound()) 
-			map.put(TIME_BOUND, String.valueOf(msg.getTimeBound()));
-		
-		GeoRegion region = msg.getServiceRegion();
-		if (region != null) {
-			if (region.getNwCorner() != null) {
-				map.put(NW_LAT, String.valueOf(convertGeoCoordinateToDouble(region.getNwCorner().getLat().intValue())));
-				map.put(NW_LON, String.valueOf(convertGeoCoordinateToDouble(region.getNwCorner().get_long().intValue())));
-			}
-			if (region.getSeCorner() != null) {
-				map.put(SE_LAT, String.valueOf(convertGeoCoordinateToDouble(region.getSeCorner().getLat().intValue())));
-				map.put(SE_LON, String.valueOf(convertGeoCoordinateToDouble(region.getSeCorner().get_long().intValue())));
-			}
-		}
+			record.setString(CVField.TIME_BOUND, String.valueOf(msg.getTimeBound()));
 		
-		return map;
+		fields.readRegion(msg.getServiceRegion()).copyRegionTo(record);
 	}
 	
 }
\ No newline at end of file
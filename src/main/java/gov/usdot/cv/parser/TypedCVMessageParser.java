@@ -0,0 +1,19 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import com.oss.asn1.AbstractData;
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+/**
+ * A {@link CVMessageParser} that writes typed fields into a caller supplied, reusable
+ * {@link CVRecord} instead of allocating a string map per message. The map returned by
+ * {@link CVMessageParser#parse(AbstractData, DataBundle)} holds the same fields rendered
+ * with {@link CVRecord#toMap()}.
+ */
+public interface TypedCVMessageParser extends CVMessageParser {
+	public void parse(
+			AbstractData message, 
+			DataBundle bundle, 
+			CVRecord record) throws ParsePipelineException;
+}
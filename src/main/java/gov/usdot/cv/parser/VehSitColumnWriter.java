@@ -0,0 +1,70 @@
+package gov.usdot.cv.parser;
+
+/**
+ * Fills a reusable {@link VehSitColumns} block and hands it to a sink each time it is
+ * full, so every block but the last of a stream holds exactly the block size in rows.
+ * {@link #flush()} hands over a partly filled block at the end of a stream.
+ *
+ * Not thread safe.
+ */
+public class VehSitColumnWriter {
+
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private final VehSitColumns block;
+	private final VehSitColumns.Sink sink;
+	private long rowCount;
+	private long blockCount;
+
+	public VehSitColumnWriter(VehSitColumns.Sink sink) {
+		this(DEFAULT_BLOCK_SIZE, sink);
+	}
+
+	public VehSitColumnWriter(int blockSize, VehSitColumns.Sink sink) {
+		this.block = new VehSitColumns(blockSize);
+		this.sink = sink;
+	}
+
+	/**
+	 * Append one record, handing the block to the sink if that fills it.
+	 */
+	public void add(int latitude, int longitude, int elevation, long time, int groupId, int requestId) {
+		block.add(latitude, longitude, elevation, time, groupId, requestId);
+		rowCount++;
+		if (block.isFull()) {
+			handOff();
+		}
+	}
+
+	/**
+	 * Hand the rows added since the last full block to the sink, if there are any.
+	 */
+	public void flush() {
+		if (block.size() > 0) {
+			handOff();
+		}
+	}
+
+	private void handOff() {
+		try {
+			sink.accept(block);
+			blockCount++;
+		} finally {
+			block.clear();
+		}
+	}
+
+	/**
+	 * @return the number of rows added
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return the number of blocks handed to the sink
+	 */
+	public long getBlockCount() {
+		return blockCount;
+	}
+}
@@ -0,0 +1,133 @@
+package gov.usdot.cv.parser;
+
+/**
+ * One block of vehicle situation records held column by column in primitive arrays, for
+ * consumers that work on columns rather than on one translated record at a time. Row i
+ * of every column belongs to the same {@code VehSitRecord}. Positions stay in the raw
+ * J2735 units, tenths of a microdegree for latitude and longitude and decimeters for
+ * elevation, and the time is packed into UTC epoch milliseconds.
+ *
+ * The arrays are allocated once at the block size and reused; only the first
+ * {@link #size()} entries of each belong to the block.
+ */
+public final class VehSitColumns {
+
+	/** Elevation of a record whose position has none. */
+	public static final int NO_ELEVATION = Integer.MIN_VALUE;
+
+	/** Time of a record whose date is incomplete or unavailable. */
+	public static final long NO_TIME = Long.MIN_VALUE;
+
+	private final int[] latitudes;
+	private final int[] longitudes;
+	private final int[] elevations;
+	private final long[] times;
+	private final int[] groupIds;
+	private final int[] requestIds;
+	private int size;
+
+	public VehSitColumns(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Column block capacity must be positive: " + capacity);
+		}
+		latitudes = new int[capacity];
+		longitudes = new int[capacity];
+		elevations = new int[capacity];
+		times = new long[capacity];
+		groupIds = new int[capacity];
+		requestIds = new int[capacity];
+	}
+
+	/**
+	 * Append a row.
+	 *
+	 * @throws IllegalStateException if the block is full
+	 */
+	void add(int latitude, int longitude, int elevation, long time, int groupId, int requestId) {
+		if (size == latitudes.length) {
+			throw new IllegalStateException("Column block is full");
+		}
+		latitudes[size] = latitude;
+		longitudes[size] = longitude;
+		elevations[size] = elevation;
+		times[size] = time;
+		groupIds[size] = groupId;
+		requestIds[size] = requestId;
+		size++;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the number of rows in the block
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of rows the block holds when full
+	 */
+	public int capacity() {
+		return latitudes.length;
+	}
+
+	public boolean isFull() {
+		return size == latitudes.length;
+	}
+
+	/**
+	 * @return latitudes in 1/10th microdegrees
+	 */
+	public int[] getLatitudes() {
+		return latitudes;
+	}
+
+	/**
+	 * @return longitudes in 1/10th microdegrees
+	 */
+	public int[] getLongitudes() {
+		return longitudes;
+	}
+
+	/**
+	 * @return elevations in decimeters, or {@link #NO_ELEVATION}
+	 */
+	public int[] getElevations() {
+		return elevations;
+	}
+
+	/**
+	 * @return record times in UTC epoch milliseconds, or {@link #NO_TIME}
+	 */
+	public long[] getTimes() {
+		return times;
+	}
+
+	/**
+	 * @return group ids of the messages the records came in
+	 */
+	public int[] getGroupIds() {
+		return groupIds;
+	}
+
+	/**
+	 * @return request ids of the messages the records came in
+	 */
+	public int[] getRequestIds() {
+		return requestIds;
+	}
+
+	/**
+	 * Receives column blocks from a {@link VehSitColumnWriter}.
+	 */
+	public interface Sink {
+		/**
+		 * Take a block of records. The block is cleared and refilled once this returns, so
+		 * anything kept must be copied out first.
+		 */
+		public void accept(VehSitColumns block);
+	}
+}
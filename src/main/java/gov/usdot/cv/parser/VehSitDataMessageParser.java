@@ -2,84 +2,133 @@ package gov.usdot.cv.parser;
 
 import gov.usdot.asn1.generated.j2735.dsrc.DDateTime;
 import gov.usdot.asn1.generated.j2735.dsrc.Position3D;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
 import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
 import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage.Bundle;
 import gov.usdot.asn1.generated.j2735.semi.VehSitRecord;
-import gov.usdot.asn1.j2735.J2735Util;
-import gov.usdot.cv.common.asn1.GroupIDHelper;
 import gov.usdot.cv.common.dialog.DataBundle;
 
-import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
-
 import com.oss.asn1.AbstractData;
 import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
 
-public class VehSitDataMessageParser extends AbstractCVMessageParser {
+public class VehSitDataMessageParser extends AbstractCVMessageParser implements BundleCVMessageParser {
+	
+	public SemiDialogID[] getDialogIds() {
+		return new SemiDialogID[] { SemiDialogID.vehSitData };
+	}
+	
+	public Class<?>[] getMessageClasses() {
+		return new Class<?>[] { VehSitDataMessage.class };
+	}
+	
+	public void parse(AbstractData message, DataBundle dataBundle, CVRecord record) throws ParsePipelineException {
+		parseRecord(message, dataBundle, 0, record);
+	}
 	
-	private static final String DIALOG_ID 		= "dialogId";
-	private static final String SEQUENCE_ID 	= "sequenceId";
-	private static final String GROUP_ID		= "groupId";	
-	private static final String REQUEST_ID		= "requestId";
-	private static final String VSM_TYPE 		= "vsmType";
-	private static final String D_YEAR 			= "DYear";
-	private static final String D_MONTH 		= "DMonth";
-	private static final String D_DAY 			= "DDay";
-	private static final String D_HOUR 			= "DHour";
-	private static final String D_MINUTE 		= "DMinute";
-	private static final String D_SECOND 		= "DSecond";
-	private static final String D_OFFSET 		= "DOffset";	
-	private static final String LONG 			= "Long";
-	private static final String LAT 			= "Lat";
-	private static final String ELEVATION 		= "Elevation";
-	private static final String COUNT 			= "Count";
-	private static final String ENCODED_MSG 	= "encodedMsg";
+	public int getRecordCount(AbstractData message) throws ParsePipelineException {
+		validateMessageType(message, VehSitDataMessage.class);
+		return ((VehSitDataMessage)message).getBundle().getSize();
+	}
 	
-	public Map<String, String> parse(AbstractData message, DataBundle dataBundle) throws ParsePipelineException {
-		String encodedMsg = dataBundle.encodePayload();
+	public void parseRecord(AbstractData message, DataBundle dataBundle, int index, CVRecord record) throws ParsePipelineException {
+		String encodedMsg = encodePayload(dataBundle, record);
 		
 		validateMessageType(message, VehSitDataMessage.class);
 		VehSitDataMessage msg = (VehSitDataMessage)message;
 		
-		HashMap<String, String> map = new HashMap<String, String>();
-		map.put(ENCODED_MSG, encodedMsg);
-		map.put(DIALOG_ID, String.valueOf(msg.getDialogID().longValue()));
-		map.put(SEQUENCE_ID, String.valueOf(msg.getSeqID().longValue()));
-		map.put(GROUP_ID, String.valueOf(GroupIDHelper.fromGroupID(msg.getGroupID())));
-		map.put(REQUEST_ID, String.valueOf(ByteBuffer.wrap(msg.getRequestID().byteArrayValue()).getInt()));
-		Byte type_b = ByteBuffer.wrap(msg.getType().byteArrayValue()).get();
-		map.put(VSM_TYPE, String.valueOf(type_b.intValue()));
+		record.setString(CVField.ENCODED_MSG, encodedMsg);
+		SemiFields fields = semiFields().readHeader(msg.getDialogID(), msg.getSeqID(), msg.getGroupID(), msg.getRequestID());
+		fields.copyHeaderTo(record);
+		record.setLong(CVField.VSM_TYPE, msg.getType().byteArrayValue()[0]);
 		
 		Bundle bundle = msg.getBundle();
 		assert(bundle != null);
 		int count = bundle.getSize();
 		assert(count >  0);
-		VehSitRecord vsr = bundle.get(0);
-		parseVehSitRecord(map, vsr);
+		VehSitRecord vsr = bundle.get(index);
+		parseVehSitRecord(record, vsr);
 
-		map.put(COUNT, String.valueOf(count));
-		return map;
+		record.setLong(CVField.COUNT, count);
+	}
+	
+	/**
+	 * Add every record of the message's bundle to the writer's columns, without building a
+	 * map or string per field.
+	 */
+	public void parseColumns(AbstractData message, VehSitColumnWriter writer) throws ParsePipelineException {
+		parseColumns(message, writer, null);
+	}
+	
+	/**
+	 * Add the records of the message's bundle that the geo-fence filter accepts, or every
+	 * record if the filter is null, to the writer's columns.
+	 */
+	public void parseColumns(AbstractData message, VehSitColumnWriter writer, GeoFenceFilter geoFenceFilter) throws ParsePipelineException {
+		validateMessageType(message, VehSitDataMessage.class);
+		VehSitDataMessage msg = (VehSitDataMessage)message;
+		
+		SemiFields fields = semiFields().readHeader(msg.getDialogID(), msg.getSeqID(), msg.getGroupID(), msg.getRequestID());
+		int groupId = fields.getGroupId();
+		int requestId = fields.getRequestId();
+		Bundle bundle = msg.getBundle();
+		int count = bundle.getSize();
+		for (int index = 0; index < count; index++) {
+			VehSitRecord vsr = bundle.get(index);
+			if (geoFenceFilter != null && !geoFenceFilter.accepts(vsr)) continue;
+			Position3D pos = vsr.getPos();
+			int elevation = pos.hasElevation() ? pos.getElevation().intValue() : VehSitColumns.NO_ELEVATION;
+			writer.add(pos.getLat().intValue(), pos.get_long().intValue(), elevation, toEpochMillis(vsr.getTime()), groupId, requestId);
+		}
+	}
+	
+	/**
+	 * @return the date time in UTC epoch milliseconds, with DSecond in milliseconds and the
+	 * offset in minutes east of UTC, or {@link VehSitColumns#NO_TIME} if the year, month or
+	 * day is missing or a field holds its unavailable value
+	 */
+	static long toEpochMillis(DDateTime dateTime) {
+		long year = (dateTime.getYear() != null) ? dateTime.getYear().longValue() : 0;
+		long month = (dateTime.getMonth() != null) ? dateTime.getMonth().longValue() : 0;
+		long day = (dateTime.getDay() != null) ? dateTime.getDay().longValue() : 0;
+		long hour = (dateTime.getHour() != null) ? dateTime.getHour().longValue() : 0;
+		long minute = (dateTime.getMinute() != null) ? dateTime.getMinute().longValue() : 0;
+		long millis = (dateTime.getSecond() != null) ? dateTime.getSecond().longValue() : 0;
+		if (year == 0 || month == 0 || month > 12 || day == 0 || day > 31 || hour > 23 || minute > 59 || millis > 60999) {
+			return VehSitColumns.NO_TIME;
+		}
+		long offset = dateTime.hasOffset() ? dateTime.getOffset().longValue() : 0;
+		long minutes = (daysFromCivil(year, month, day) * 24 + hour) * 60 + minute - offset;
+		return minutes * 60000 + millis;
+	}
+	
+	/**
+	 * @return the days from 1970-01-01 to a proleptic Gregorian date
+	 */
+	private static long daysFromCivil(long year, long month, long day) {
+		long y = (month <= 2) ? year - 1 : year;
+		long era = ((y >= 0) ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
 	}
 	
-	private static void parseVehSitRecord(HashMap<String, String> map, VehSitRecord vsr){
+	private static void parseVehSitRecord(CVRecord record, VehSitRecord vsr){
 		DDateTime dateTime = vsr.getTime();
-		map.put(D_YEAR, String.valueOf(dateTime.getYear().longValue()));
-		map.put(D_MONTH, String.valueOf(dateTime.getMonth().longValue()));
-		map.put(D_DAY, String.valueOf(dateTime.getDay().longValue()));
-		map.put(D_HOUR, String.valueOf(dateTime.getHour().longValue()));
-		map.put(D_MINUTE, String.valueOf(dateTime.getMinute().longValue()));
-		map.put(D_SECOND, String.valueOf(dateTime.getSecond().longValue()));
+		record.setLong(CVField.D_YEAR, dateTime.getYear().longValue());
+		record.setLong(CVField.D_MONTH, dateTime.getMonth().longValue());
+		record.setLong(CVField.D_DAY, dateTime.getDay().longValue());
+		record.setLong(CVField.D_HOUR, dateTime.getHour().longValue());
+		record.setLong(CVField.D_MINUTE, dateTime.getMinute().longValue());
+		record.setLong(CVField.D_SECOND, dateTime.getSecond().longValue());
 		if ( dateTime.hasOffset() )
-			map.put(D_OFFSET,  String.valueOf(dateTime.getOffset().longValue()));
+			record.setLong(CVField.D_OFFSET, dateTime.getOffset().longValue());
 		
 		Position3D pos = vsr.getPos();
-		Double lat = J2735Util.convertGeoCoordinateToDouble(pos.getLat().intValue());
-		map.put(LAT, String.valueOf(lat));
-		Double lon = J2735Util.convertGeoCoordinateToDouble(pos.get_long().intValue());
-		map.put(LONG, String.valueOf(lon));
+		record.setCoordinate(CVField.LAT, pos.getLat().intValue());
+		record.setCoordinate(CVField.LONG, pos.get_long().intValue());
 		if ( pos.hasElevation() ) {
-			map.put(ELEVATION, String.valueOf(pos.getElevation().longValue()));
+			record.setLong(CVField.ELEVATION, pos.getElevation().longValue());
 		}
 	}
 }
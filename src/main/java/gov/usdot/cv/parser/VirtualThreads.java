@@ -0,0 +1,43 @@
+package gov.usdot.cv.parser;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Creates executors that run each task on a new virtual thread, when the JVM has them.
+ * The project builds for Java versions without virtual threads, so the Java 21 API is
+ * reached through reflection.
+ */
+final class VirtualThreads {
+
+	private static final Logger logger = Logger.getLogger(VirtualThreads.class);
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return an executor starting a named virtual thread per task, or null if the JVM has
+	 * no virtual threads
+	 */
+	static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 1L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newExecutor.invoke(null, factory);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (Exception e) {
+			logger.warn("Failed to create a virtual thread executor", e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+import gov.usdot.asn1.j2735.IntersectionSitDataBuilder;
+import gov.usdot.asn1.j2735.TravelerSampleMessageBuilder;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+import gov.usdot.cv.resources.PrivateTestResourceLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.UUID;
+
+import com.deleidos.rtws.ext.parser.SimpleConfigurableTranslator;
+
+/**
+ * Sample input lines and parser wiring shared by the JMH benchmarks. One entry per
+ * dialog registered in {@link CVMessageParserCache} that has a sample message builder
+ * in the test dependencies; object registration and discovery have none and are not covered.
+ */
+public enum BenchmarkSamples {
+
+	vehSitData(VehSitDataMessageParserTest.MODEL_NAME,
+			VehSitDataMessageParserTest.MODEL_VERSION,
+			VehSitDataMessageParserTest.INPUT_FORMAT_NAME) {
+		byte[] buildPayload() throws Exception {
+			return CVSampleMessageBuilder.messageToEncodedBytes(CVSampleMessageBuilder.buildVehSitDataMessage());
+		}
+	},
+	dataSubscription(DataSubscriptionRequestMessageParserTest.MODEL_NAME,
+			DataSubscriptionRequestMessageParserTest.MODEL_VERSION,
+			DataSubscriptionRequestMessageParserTest.INPUT_FORMAT_NAME) {
+		byte[] buildPayload() throws Exception {
+			return CVSampleMessageBuilder.messageToEncodedBytes(CVSampleMessageBuilder.buildDataSubscriptionRequest());
+		}
+	},
+	advSitDataDep(TravelerInformationParserTest.MODEL_NAME,
+			TravelerInformationParserTest.MODEL_VERSION,
+			TravelerInformationParserTest.INPUT_FORMAT_NAME) {
+		byte[] buildPayload() throws Exception {
+			return TravelerSampleMessageBuilder.messageToEncodedBytes(TravelerSampleMessageBuilder.buildAdvisorySituationData());
+		}
+	},
+	advSitDatDist(TravelerInformationQueryParserTest.MODEL_NAME,
+			TravelerInformationQueryParserTest.MODEL_VERSION,
+			TravelerInformationQueryParserTest.INPUT_FORMAT_NAME) {
+		byte[] buildPayload() throws Exception {
+			return TravelerSampleMessageBuilder.messageToEncodedBytes(TravelerSampleMessageBuilder.buildRsuAdvisorySituationDataRequest());
+		}
+	},
+	intersectionSitDataDep(IntersectionSitDataParserTest.MODEL_NAME,
+			IntersectionSitDataParserTest.MODEL_VERSION,
+			IntersectionSitDataParserTest.INPUT_FORMAT_NAME) {
+		byte[] buildPayload() throws Exception {
+			return IntersectionSitDataBuilder.messageToEncodedBytes(IntersectionSitDataBuilder.buildIntersectionSituationData());
+		}
+	},
+	intersectionSitDataQuery(TravelerInformationQueryParserTest.MODEL_NAME,
+			TravelerInformationQueryParserTest.MODEL_VERSION,
+			TravelerInformationQueryParserTest.INPUT_FORMAT_NAME) {
+		byte[] buildPayload() throws Exception {
+			return IntersectionSitDataBuilder.messageToEncodedBytes(IntersectionSitDataBuilder.buildIntersectionSituationDataRequest());
+		}
+	};
+
+	private static final String TEST_UUID = UUID.randomUUID().toString();
+	private static final String DEST_HOST = "2607:f0d0:1002:0051:0000:0000:0000:0004";
+	private static final int DEST_PORT = 47651;
+	private static final boolean FROM_FORWARDER = true;
+	private static final String CERTIFICATE = "Some Certificate Text";
+
+	private final String modelName;
+	private final String modelVersion;
+	private final String inputFormatName;
+
+	private BenchmarkSamples(String modelName, String modelVersion, String inputFormatName) {
+		this.modelName = modelName;
+		this.modelVersion = modelVersion;
+		this.inputFormatName = inputFormatName;
+	}
+
+	/**
+	 * @return the PER encoded sample message for this dialog
+	 */
+	abstract byte[] buildPayload() throws Exception;
+
+	/**
+	 * @return one input line, i.e. the sample message wrapped in a base64 data bundle
+	 */
+	public String buildLine() throws Exception {
+		return buildLine(buildPayload(), CERTIFICATE.getBytes());
+	}
+
+	/**
+	 * @return one input line wrapping the given payload and certificate
+	 */
+	public static String buildLine(byte[] payload, byte[] certificate) {
+		return DataBundleUtil.encode(
+				TEST_UUID.getBytes(),
+				DEST_HOST.getBytes(),
+				DEST_PORT,
+				FROM_FORWARDER,
+				certificate,
+				payload);
+	}
+
+	/**
+	 * @return count copies of the input line, newline separated
+	 */
+	public byte[] buildLines(int count) throws Exception {
+		String line = buildLine();
+		StringBuilder sb = new StringBuilder((line.length() + 1) * count);
+		for (int i = 0; i < count; i++) {
+			sb.append(line).append('\n');
+		}
+		return sb.toString().getBytes("UTF-8");
+	}
+
+	/**
+	 * @return count copies of the sample message as length prefixed binary frames
+	 */
+	public byte[] buildFrames(int count) throws Exception {
+		byte[] frame = BundleFrames.encode(
+				TEST_UUID.getBytes(),
+				DEST_HOST.getBytes(),
+				DEST_PORT,
+				FROM_FORWARDER,
+				CERTIFICATE.getBytes(),
+				buildPayload());
+		ByteBuffer frames = ByteBuffer.allocate(frame.length * count);
+		for (int i = 0; i < count; i++) {
+			frames.put(frame);
+		}
+		return frames.array();
+	}
+
+	/**
+	 * @return an initialized parser with a translator for this dialog's data model
+	 */
+	public J2735Parser buildParser() {
+		J2735Parser parser = createParser();
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream(new byte[0]));
+		return parser;
+	}
+
+	/**
+	 * @return a parser with a translator for this dialog's data model, configured but not
+	 * yet initialized
+	 */
+	public J2735Parser createParser() {
+		return createParser(new SimpleConfigurableTranslator());
+	}
+
+	/**
+	 * @return a parser using the given translator, set up for this dialog's data model,
+	 * configured but not yet initialized
+	 */
+	public J2735Parser createParser(SimpleConfigurableTranslator translator) {
+		configureEnvironment();
+		J2735Parser parser = new J2735Parser();
+		parser.setEnableBERDebugging(false);
+		parser.setDefaultSource("JMH");
+		parser.setDefaultAccessLabel("UNCLASSIFIED");
+		parser.setStreamProperties(new Properties());
+		translator.setModelName(modelName);
+		translator.setModelVersion(modelVersion);
+		translator.setInputFormatName(inputFormatName);
+		parser.setTranslator(translator);
+		return parser;
+	}
+
+	/**
+	 * Same system properties the unit tests set before building a translator.
+	 */
+	static void configureEnvironment() {
+		Properties testProperties = System.getProperties();
+		if (testProperties.getProperty("RTWS_CONFIG_DIR") == null) {
+			testProperties.setProperty("RTWS_CONFIG_DIR", testProperties.getProperty("basedir", "."));
+			try {
+				testProperties.load(
+						PrivateTestResourceLoader.getFileAsStream(
+								"@properties/parser-j2735-filtering.properties@"));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		testProperties.setProperty("RTWS_TEST_MODE", "true");
+		testProperties.setProperty("RTWS_TENANT_ID", "aws-dev");
+		testProperties.setProperty("RTWS_BUCKET_NAME", "test-bucket");
+		testProperties.setProperty("RTWS_DOMAIN", "nothing.rtsaic.com");
+		testProperties.setProperty("RTWS_MOUNT_MODE", "s3cmd");
+		testProperties.setProperty("RTWS_MAX_ALLOCATION_REQUEST", "");
+		System.setProperties(testProperties);
+	}
+}
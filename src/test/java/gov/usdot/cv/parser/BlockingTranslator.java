@@ -0,0 +1,53 @@
+package gov.usdot.cv.parser;
+
+import java.text.ParseException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import net.sf.json.JSONObject;
+
+import com.deleidos.rtws.ext.parser.SimpleConfigurableTranslator;
+
+/**
+ * Translator standing in for one that does a blocking lookup per record: it waits a fixed
+ * time before translating, and tracks how many translations run at once.
+ */
+public class BlockingTranslator extends SimpleConfigurableTranslator {
+
+	private final long latencyNanos;
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	public BlockingTranslator(long latency, TimeUnit unit) {
+		this.latencyNanos = unit.toNanos(latency);
+	}
+
+	@Override
+	public JSONObject recordTranslation(Map<String, String> map, String source, String accessLabel) throws ParseException {
+		int now = running.incrementAndGet();
+		int max;
+		while (now > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, now)) {
+			// retry
+		}
+		try {
+			long deadline = System.nanoTime() + latencyNanos;
+			long remaining = latencyNanos;
+			while (remaining > 0) {
+				LockSupport.parkNanos(remaining);
+				remaining = deadline - System.nanoTime();
+			}
+			return super.recordTranslation(map, source, accessLabel);
+		} finally {
+			running.decrementAndGet();
+		}
+	}
+
+	/**
+	 * @return the most translations seen running at the same time
+	 */
+	public int getMaxRunning() {
+		return maxRunning.get();
+	}
+}
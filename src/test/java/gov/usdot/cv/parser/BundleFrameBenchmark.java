@@ -0,0 +1,100 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Base64 lines against binary frames: unwrapping one data bundle and the whole
+ * {@link J2735Parser#parse()} path over a stream of each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleFrameBenchmark {
+
+	private static final int RECORDS_PER_STREAM = 1024;
+
+	@Param({ "vehSitData", "intersectionSitDataDep" })
+	public String dialog;
+
+	private J2735Parser lineParser;
+	private J2735Parser frameParser;
+	private byte[] lines;
+	private ByteBuffer frames;
+
+	private String line;
+	private ByteBuffer frameBody;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSamples sample = BenchmarkSamples.valueOf(dialog);
+		lines = sample.buildLines(RECORDS_PER_STREAM);
+		frames = ByteBuffer.wrap(sample.buildFrames(RECORDS_PER_STREAM));
+		lineParser = sample.buildParser();
+		lineParser.setInputStream(new ByteArrayInputStream(lines));
+		frameParser = sample.buildParser();
+		frameParser.setInputBuffer(frames);
+
+		line = sample.buildLine();
+		byte[] frame = sample.buildFrames(1);
+		frameBody = ByteBuffer.wrap(frame, BundleFrames.PREFIX_LENGTH, frame.length - BundleFrames.PREFIX_LENGTH).slice();
+	}
+
+	@TearDown
+	public void tearDown() {
+		lineParser.dispose();
+		frameParser.dispose();
+	}
+
+	@Benchmark
+	public DataBundle unwrapLine() {
+		return DataBundleUtil.decode(line);
+	}
+
+	@Benchmark
+	public DataBundle unwrapFrame() {
+		return BundleFrames.decode(frameBody);
+	}
+
+	@Benchmark
+	public JSONObject parseLines() throws Exception {
+		JSONObject result = lineParser.parse();
+		if (result == null) {
+			lineParser.setInputStream(new ByteArrayInputStream(lines));
+			result = lineParser.parse();
+		}
+		return result;
+	}
+
+	@Benchmark
+	public JSONObject parseFrames() throws Exception {
+		JSONObject result = frameParser.parse();
+		if (result == null) {
+			frameParser.setInputBuffer(frames);
+			result = frameParser.parse();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,167 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+
+public class BundleFramesTest {
+
+	private static final int RECORDS = 5;
+
+	@Test
+	public void testRoundTrip() {
+		byte[] payload = { 1, 2, 3, 4, 5 };
+		byte[] frame = BundleFrames.encode("receipt".getBytes(), "host".getBytes(), 47651, true, "cert".getBytes(), payload);
+		assertEquals(frame.length - BundleFrames.PREFIX_LENGTH, ByteBuffer.wrap(frame).getInt());
+
+		ByteBuffer body = ByteBuffer.wrap(frame, BundleFrames.PREFIX_LENGTH, frame.length - BundleFrames.PREFIX_LENGTH).slice();
+		DataBundle bundle = BundleFrames.decode(body);
+		assertEquals("receipt", bundle.getReceiptId());
+		assertEquals("host", bundle.getDestHost());
+		assertEquals(47651, bundle.getDestPort());
+		assertTrue(bundle.fromForwarder());
+		assertArrayEquals("cert".getBytes(), bundle.getCertificate());
+		assertArrayEquals(payload, bundle.getPayload());
+		assertEquals(0, body.position());
+	}
+
+	@Test
+	public void testMalformedFrame() {
+		byte[] frame = BundleFrames.encode(null, null, 0, false, null, new byte[] { 1, 2, 3 });
+		for (int length : new int[] { 0, 5, frame.length - BundleFrames.PREFIX_LENGTH - 1 }) {
+			try {
+				BundleFrames.decode(ByteBuffer.wrap(frame, BundleFrames.PREFIX_LENGTH, length).slice());
+				fail("decoded a frame body cut to " + length + " bytes");
+			} catch (IllegalArgumentException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void testParseFramesMatchesLines() throws Exception {
+		List<JSONObject> expected = parseAll(parser(J2735Parser.LINE_FORMAT),
+				new ByteArrayInputStream(BenchmarkSamples.vehSitData.buildLines(RECORDS)));
+		assertEquals(RECORDS, expected.size());
+
+		byte[] frames = BenchmarkSamples.vehSitData.buildFrames(RECORDS);
+		assertEquals(expected, parseAll(parser(J2735Parser.FRAME_FORMAT), new ByteArrayInputStream(frames)));
+
+		J2735Parser parser = parser(J2735Parser.LINE_FORMAT);
+		try {
+			parser.setInputBuffer(ByteBuffer.wrap(frames));
+			assertEquals(expected, drain(parser));
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testMappedFileWindows() throws Exception {
+		byte[] frames = BenchmarkSamples.vehSitData.buildFrames(RECORDS);
+		File file = File.createTempFile("frames", ".bin");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(frames);
+		} finally {
+			out.close();
+		}
+
+		int frameLength = frames.length / RECORDS;
+		for (int window : new int[] { 3, frameLength - 1, frameLength + 7, FrameSource.DEFAULT_WINDOW }) {
+			FrameSource source = FrameSource.map(file, window);
+			try {
+				List<ByteBuffer> bodies = new ArrayList<ByteBuffer>();
+				ByteBuffer body;
+				while ((body = source.next()) != null) {
+					bodies.add(body);
+				}
+				assertEquals(RECORDS, bodies.size());
+				for (ByteBuffer each : bodies) {
+					byte[] bytes = new byte[each.remaining()];
+					each.get(bytes);
+					assertArrayEquals(Arrays.copyOfRange(frames, BundleFrames.PREFIX_LENGTH, frameLength), bytes);
+				}
+				assertEquals(frames.length, source.position());
+			} finally {
+				source.close();
+			}
+		}
+	}
+
+	@Test
+	public void testTruncatedInput() throws Exception {
+		byte[] frames = BenchmarkSamples.vehSitData.buildFrames(2);
+		J2735Parser parser = parser(J2735Parser.LINE_FORMAT);
+		try {
+			parser.setInputBuffer(ByteBuffer.wrap(frames, 0, frames.length - 1));
+			assertTrue(parser.parse() != null);
+			try {
+				parser.parse();
+				fail("parsed a truncated frame");
+			} catch (ParsePipelineException expected) {
+				assertTrue(expected.getCause() instanceof IOException);
+			}
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testBadFrameIsCounted() throws Exception {
+		ByteBuffer frames = ByteBuffer.allocate(8);
+		frames.putInt(4).putInt(-1).flip();
+		J2735Parser parser = parser(J2735Parser.LINE_FORMAT);
+		try {
+			parser.setInputBuffer(frames);
+			assertNull(parser.parse());
+			assertEquals(1, parser.getFailureRecorder().getCount(ParseFailure.BUNDLE_DECODE));
+			assertNull(parser.parse());
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	private static J2735Parser parser(String inputFormat) {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setInputFormat(inputFormat);
+		parser.initialize();
+		return parser;
+	}
+
+	private static List<JSONObject> parseAll(J2735Parser parser, ByteArrayInputStream in) throws Exception {
+		try {
+			parser.setInputStream(in);
+			return drain(parser);
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	private static List<JSONObject> drain(J2735Parser parser) throws Exception {
+		List<JSONObject> results = new ArrayList<JSONObject>();
+		JSONObject result;
+		while ((result = parser.parse()) != null) {
+			results.add(result);
+		}
+		return results;
+	}
+}
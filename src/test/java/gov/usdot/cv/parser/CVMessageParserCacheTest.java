@@ -0,0 +1,72 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+import gov.usdot.cv.common.dialog.DataBundle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.deleidos.rtws.core.framework.parser.ParsePipelineException;
+import com.oss.asn1.AbstractData;
+
+public class CVMessageParserCacheTest {
+
+	@Test
+	public void testServiceLoadedParsers() {
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.vehSitData.longValue()) instanceof VehSitDataMessageParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.dataSubscription.longValue()) instanceof DataSubscriptionMessageParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.advSitDataDep.longValue()) instanceof TravelerInformationParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.advSitDatDist.longValue()) instanceof TravelerInformationQueryParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.intersectionSitDataQuery.longValue()) instanceof TravelerInformationQueryParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.intersectionSitDataDep.longValue()) instanceof IntersectionSitDataParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.objReg.longValue()) instanceof ObjectRegistrationDataParser);
+		assertTrue(CVMessageParserCache.lookupParser(SemiDialogID.objDisc.longValue()) instanceof ObjectDiscoveryDataRequestParser);
+		assertNull(CVMessageParserCache.lookupParser(SemiDialogID.reserved1.longValue()));
+		assertNull(CVMessageParserCache.lookupParser(-1));
+		assertNull(CVMessageParserCache.lookupParser(Long.MAX_VALUE));
+	}
+
+	@Test
+	public void testGetDialogId() {
+		VehSitDataMessage msg = CVSampleMessageBuilder.buildVehSitDataMessage();
+		assertEquals(SemiDialogID.vehSitData.longValue(), CVMessageParserCache.getDialogId(msg));
+		assertEquals(CVMessageParserCache.NO_DIALOG_ID, CVMessageParserCache.getDialogId(SemiDialogID.vehSitData));
+	}
+
+	@Test
+	public void testHotRegistration() {
+		CVMessageParser original = CVMessageParserCache.lookupParser(SemiDialogID.vehSitData.longValue());
+		CVMessageParser replacement = new FixedMapParser();
+		try {
+			CVMessageParserCache.register(replacement);
+			assertSame(replacement, CVMessageParserCache.lookupParser(SemiDialogID.vehSitData.longValue()));
+			assertSame(replacement, CVMessageParserCache.unregister(SemiDialogID.vehSitData));
+			assertNull(CVMessageParserCache.lookupParser(SemiDialogID.vehSitData.longValue()));
+		} finally {
+			CVMessageParserCache.register(original);
+		}
+		assertSame(original, CVMessageParserCache.lookupParser(SemiDialogID.vehSitData.longValue()));
+	}
+
+	private static class FixedMapParser implements CVMessageParser {
+		public Map<String, String> parse(AbstractData message, DataBundle bundle) throws ParsePipelineException {
+			return new HashMap<String, String>();
+		}
+
+		public SemiDialogID[] getDialogIds() {
+			return new SemiDialogID[] { SemiDialogID.vehSitData };
+		}
+
+		public Class<?>[] getMessageClasses() {
+			return new Class<?>[] { VehSitDataMessage.class };
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+public class CVRecordTest {
+
+	@Test
+	public void testTypedValues() {
+		CVRecord record = new CVRecord();
+		byte[] certificate = "Some Certificate Text".getBytes();
+		record.setLong(CVField.DIALOG_ID, 154);
+		record.setDouble(CVField.LAT, 42.4477005);
+		record.setBoolean(CVField.FROM_FORWARDER, true);
+		record.setString(CVField.DEST_HOST, "::1");
+		record.setBytes(CVField.CERTIFICATE, certificate);
+
+		assertEquals(5, record.size());
+		assertEquals(154, record.getLong(CVField.DIALOG_ID));
+		assertEquals(42.4477005, record.getDouble(CVField.LAT), 0);
+		assertTrue(record.getBoolean(CVField.FROM_FORWARDER));
+		assertEquals("::1", record.getString(CVField.DEST_HOST));
+		assertSame(certificate, record.getBytes(CVField.CERTIFICATE));
+		assertEquals(CVRecord.Kind.DOUBLE, record.getKind(CVField.LAT));
+		assertNull(record.getKind(CVField.LONG));
+		assertSame(CVField.DIALOG_ID, record.fieldAt(0));
+	}
+
+	@Test
+	public void testMapMatchesLegacyFormatting() {
+		CVRecord record = new CVRecord();
+		byte[] certificate = "Some Certificate Text".getBytes();
+		Double lat = -83.0431234;
+		record.setLong(CVField.REQUEST_ID, -1001);
+		record.setDouble(CVField.LAT, lat);
+		record.setLong(CVField.DEST_PORT, 47651);
+		record.setBoolean(CVField.FROM_FORWARDER, false);
+		record.setBytes(CVField.CERTIFICATE, certificate);
+		record.setString(CVField.DEST_HOST, null);
+
+		Map<String, String> map = record.toMap();
+		assertEquals(6, map.size());
+		assertEquals(Integer.toString(-1001), map.get("requestId"));
+		assertEquals(String.valueOf(lat), map.get("Lat"));
+		assertEquals(Integer.toString(47651), map.get("destPort"));
+		assertEquals(Boolean.toString(false), map.get("fromForwarder"));
+		assertEquals(Base64.encodeBase64String(certificate), map.get("certificate"));
+		assertTrue(map.containsKey("destHost"));
+		assertNull(map.get("destHost"));
+	}
+
+	@Test
+	public void testClearAndReuse() {
+		CVRecord record = new CVRecord();
+		record.setString(CVField.ENCODED_MSG, "AAEC");
+		record.setLong(CVField.COUNT, 3);
+		record.setLong(CVField.COUNT, 4);
+		assertEquals(2, record.size());
+		assertEquals("4", record.format(CVField.COUNT));
+
+		record.clear();
+		assertEquals(0, record.size());
+		assertFalse(record.has(CVField.ENCODED_MSG));
+		assertNull(record.format(CVField.COUNT));
+		assertTrue(record.toMap().isEmpty());
+
+		record.setDouble(CVField.COUNT, 1.5);
+		assertEquals(CVRecord.Kind.DOUBLE, record.getKind(CVField.COUNT));
+		assertEquals("1.5", record.format(CVField.COUNT));
+	}
+
+	@Test
+	public void testGrowsForLateFields() {
+		CVRecord record = new CVRecord(1);
+		CVField late = CVField.intern("cvRecordTestField");
+		assertSame(late, CVField.intern("cvRecordTestField"));
+		record.setLong(late, 7);
+		record.setLong(CVField.DIALOG_ID, 154);
+		assertEquals(7, record.getLong(late));
+		assertEquals("7", record.toMap().get("cvRecordTestField"));
+	}
+}
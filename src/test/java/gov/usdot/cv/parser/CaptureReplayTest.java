@@ -0,0 +1,153 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import gov.usdot.asn1.generated.j2735.dsrc.TemporaryID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+public class CaptureReplayTest {
+
+	private static final int RECORDS = 200;
+
+	private static final CaptureReplay.ParserFactory VEH_SIT_DATA = new CaptureReplay.ParserFactory() {
+		public J2735Parser createParser() {
+			return BenchmarkSamples.vehSitData.createParser();
+		}
+	};
+
+	@Test
+	public void testOrderedLineReplay() throws Exception {
+		byte[] lines = distinctLines(RECORDS);
+		File capture = writeCapture(lines);
+		List<JSONObject> expected = parseSerially(lines);
+		assertEquals(RECORDS, new HashSet<JSONObject>(expected).size());
+
+		CaptureReplay replay = replay(J2735Parser.LINE_FORMAT);
+		// about five lines a chunk, so every worker parses several chunks
+		replay.setChunkSize(5 * lines.length / RECORDS);
+		CollectingSink sink = new CollectingSink();
+		CaptureReplay.Result result = replay.replay(capture, 0, sink);
+
+		assertEquals(RECORDS, result.getRecordCount());
+		assertEquals(0, result.getFailureCount());
+		assertEquals(lines.length, result.getEndOffset());
+		assertEquals(lines.length, replay.getCommittedOffset());
+		assertEquals(expected, sink.records);
+	}
+
+	@Test
+	public void testResumeFromOffset() throws Exception {
+		byte[] lines = BenchmarkSamples.vehSitData.buildLines(RECORDS);
+		File capture = writeCapture(lines);
+		int lineLength = lines.length / RECORDS;
+
+		CaptureReplay replay = replay(J2735Parser.LINE_FORMAT);
+		assertEquals(RECORDS - 50, replay.replay(capture, 50 * lineLength, new CollectingSink()).getRecordCount());
+		assertEquals(RECORDS - 51, replay.replay(capture, 50 * lineLength + 1, new CollectingSink()).getRecordCount());
+		assertEquals(0, replay.replay(capture, lines.length, new CollectingSink()).getRecordCount());
+	}
+
+	@Test
+	public void testUnorderedFrameReplay() throws Exception {
+		File capture = writeCapture(BenchmarkSamples.vehSitData.buildFrames(RECORDS));
+
+		CaptureReplay replay = replay(J2735Parser.FRAME_FORMAT);
+		replay.setOrdered(false);
+		final AtomicInteger count = new AtomicInteger();
+		CaptureReplay.Result result = replay.replay(capture, 0, new CaptureReplay.RecordSink() {
+			public void record(JSONObject record) {
+				count.incrementAndGet();
+			}
+		});
+
+		assertEquals(RECORDS, result.getRecordCount());
+		assertEquals(RECORDS, count.get());
+	}
+
+	@Test
+	public void testBadLinesAreSkipped() throws Exception {
+		String line = BenchmarkSamples.vehSitData.buildLine();
+		String bad = "this is not a data bundle";
+		StringBuilder capture = new StringBuilder();
+		for (int i = 0; i < 20; i++) {
+			capture.append((i % 4 == 0) ? bad : line).append('\n');
+		}
+
+		CaptureReplay.Result result = replay(J2735Parser.LINE_FORMAT).replay(
+				writeCapture(capture.toString().getBytes("UTF-8")), 0, new CollectingSink());
+		assertEquals(15, result.getRecordCount());
+		assertEquals(5, result.getFailureCount());
+	}
+
+	private static CaptureReplay replay(String inputFormat) {
+		CaptureReplay replay = new CaptureReplay(VEH_SIT_DATA);
+		replay.setInputFormat(inputFormat);
+		replay.setParallelism(4);
+		replay.setChunkSize(1000);
+		return replay;
+	}
+
+	private static List<JSONObject> parseSerially(byte[] lines) throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.buildParser();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(lines));
+			List<JSONObject> records = new ArrayList<JSONObject>();
+			JSONObject record;
+			while ((record = parser.parse()) != null) {
+				records.add(record);
+			}
+			return records;
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	/**
+	 * @return lines of the sample message with request id index, newline separated
+	 */
+	private static byte[] distinctLines(int count) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			VehSitDataMessage message = CVSampleMessageBuilder.buildVehSitDataMessage();
+			message.setRequestID(new TemporaryID(ByteBuffer.allocate(4).putInt(i).array()));
+			sb.append(BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(message),
+					"Some Certificate Text".getBytes())).append('\n');
+		}
+		return sb.toString().getBytes("UTF-8");
+	}
+
+	private static File writeCapture(byte[] contents) throws IOException {
+		File file = File.createTempFile("capture", ".dat");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(contents);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static class CollectingSink implements CaptureReplay.RecordSink {
+		final List<JSONObject> records = Collections.synchronizedList(new ArrayList<JSONObject>());
+
+		public void record(JSONObject record) {
+			records.add(record);
+		}
+	}
+}
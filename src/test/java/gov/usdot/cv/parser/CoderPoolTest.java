@@ -0,0 +1,124 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.J2735;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oss.asn1.AbstractData;
+import com.oss.asn1.Coder;
+
+public class CoderPoolTest {
+
+	private static final int THREADS = 8;
+	private static final int DECODES_PER_THREAD = 200;
+
+	private J2735Parser parser;
+	private byte[] encodedBytes;
+
+	@Before
+	public void setUp() throws Exception {
+		parser = new J2735Parser();
+		parser.setCoderPoolSize(2);
+		parser.initializeCoder();
+		encodedBytes = CVSampleMessageBuilder.messageToEncodedBytes(CVSampleMessageBuilder.buildVehSitDataMessage());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		parser.getCoderPool().dispose();
+		J2735.deinitialize();
+	}
+
+	@Test
+	public void testBorrowAndRelease() throws Exception {
+		CoderPool pool = parser.getCoderPool();
+		assertEquals(2, pool.getSize());
+		Coder first = pool.borrow();
+		Coder second = pool.borrow();
+		assertNotNull(first);
+		assertNotNull(second);
+		assertTrue(first != second);
+		assertEquals(0, pool.getAvailable());
+		pool.release(first);
+		pool.release(second);
+		assertEquals(2, pool.getAvailable());
+		assertEquals(2, pool.getBorrowCount());
+		assertEquals(0, pool.getWaitCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBorrowAfterDispose() throws Exception {
+		CoderPool pool = parser.getCoderPool();
+		pool.dispose();
+		pool.borrow();
+	}
+
+	@Test
+	public void testDisposeFailsWaitingBorrow() throws Exception {
+		final CoderPool pool = parser.getCoderPool();
+		pool.borrow();
+		pool.borrow();
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread waiter = new Thread(new Runnable() {
+			public void run() {
+				try {
+					pool.borrow();
+				} catch (Throwable t) {
+					failure.set(t);
+				}
+			}
+		});
+		waiter.start();
+		Thread.sleep(200);
+		pool.dispose();
+		waiter.join(TimeUnit.SECONDS.toMillis(5));
+		assertTrue(!waiter.isAlive());
+		assertTrue(failure.get() instanceof IllegalStateException);
+	}
+
+	@Test
+	public void testConcurrentDecode() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(executor.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						int decoded = 0;
+						for (int j = 0; j < DECODES_PER_THREAD; j++) {
+							AbstractData message = parser.decodeBER(encodedBytes);
+							if (message instanceof VehSitDataMessage) {
+								decoded++;
+							}
+						}
+						return decoded;
+					}
+				}));
+			}
+			for (Future<Integer> result : results) {
+				assertEquals(DECODES_PER_THREAD, result.get().intValue());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		CoderPool pool = parser.getCoderPool();
+		assertEquals(THREADS * DECODES_PER_THREAD, pool.getBorrowCount());
+		assertEquals(pool.getSize(), pool.getAvailable());
+	}
+}
@@ -0,0 +1,149 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.dsrc.DDateTime;
+import gov.usdot.asn1.generated.j2735.dsrc.DDay;
+import gov.usdot.asn1.generated.j2735.dsrc.DHour;
+import gov.usdot.asn1.generated.j2735.dsrc.DMinute;
+import gov.usdot.asn1.generated.j2735.dsrc.DMonth;
+import gov.usdot.asn1.generated.j2735.dsrc.DSecond;
+import gov.usdot.asn1.generated.j2735.dsrc.DYear;
+import gov.usdot.asn1.generated.j2735.semi.AdvisorySituationData;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.asn1.j2735.J2735Util;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DDateTimeFormatTest {
+
+	private TimeZone defaultZone;
+
+	@Before
+	public void setUp() {
+		defaultZone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+	}
+
+	@After
+	public void tearDown() {
+		TimeZone.setDefault(defaultZone);
+	}
+
+	@Test
+	public void testPlainDatesMatchDateFormat() {
+		Random random = new Random(2735);
+		char[] text = new char[DDateTimeFormat.LENGTH];
+		for (int i = 0; i < 200000; i++) {
+			DDateTime dateTime = dateTime(1583 + random.nextInt(4095 - 1582), 1 + random.nextInt(12), 1 + random.nextInt(28),
+					random.nextInt(24), random.nextInt(60), random.nextInt(60000));
+			assertTrue(DDateTimeFormat.format(dateTime, text));
+			assertEquals(J2735Util.toFormattedDateString(dateTime, AbstractCVMessageParser.DATE_PATTERN), new String(text));
+			assertEquals(new String(text), DDateTimeFormat.format(dateTime));
+		}
+	}
+
+	@Test
+	public void testEdgeDatesMatchDateFormat() {
+		int[][] dates = {
+				{ 2016, 2, 29, 23, 59, 59999 },
+				{ 2000, 2, 29, 0, 0, 0 },
+				{ 1900, 2, 29, 12, 0, 0 },
+				{ 2015, 2, 29, 12, 0, 0 },
+				{ 2015, 4, 31, 12, 0, 0 },
+				{ 2015, 12, 31, 23, 59, 60000 },
+				{ 2015, 6, 30, 23, 59, 60999 },
+				{ 2015, 13, 1, 0, 0, 0 },
+				{ 2015, 1, 32, 0, 0, 0 },
+				{ 2015, 1, 1, 24, 0, 0 },
+				{ 2015, 1, 1, 23, 60, 0 },
+				{ 1583, 1, 1, 0, 0, 999 },
+				{ 1582, 10, 10, 0, 0, 0 },
+				{ 4095, 12, 31, 23, 59, 59999 },
+		};
+		for (int[] date : dates) {
+			DDateTime dateTime = dateTime(date[0], date[1], date[2], date[3], date[4], date[5]);
+			assertEquals(format(dateTime, true), format(dateTime, false));
+		}
+		assertFalse(DDateTimeFormat.format(dateTime(2015, 2, 29, 12, 0, 0), new char[DDateTimeFormat.LENGTH]));
+		assertFalse(DDateTimeFormat.format(dateTime(2015, 6, 30, 23, 59, 60000), new char[DDateTimeFormat.LENGTH]));
+	}
+
+	@Test
+	public void testSampleMessages() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.buildParser();
+		try {
+			IntersectionSituationData isd = (IntersectionSituationData) parser.decodeBER(
+					BenchmarkSamples.intersectionSitDataDep.buildPayload());
+			DDateTime timestamp = isd.getIntersectionRecord().getSpatData().getTimestamp();
+			assertEquals(format(timestamp, false), format(timestamp, true));
+
+			AdvisorySituationData asd = (AdvisorySituationData) parser.decodeBER(
+					BenchmarkSamples.advSitDataDep.buildPayload());
+			if (asd.getAsdmDetails().getStartTime() != null) {
+				assertEquals(format(asd.getAsdmDetails().getStartTime(), false), format(asd.getAsdmDetails().getStartTime(), true));
+			}
+			if (asd.getAsdmDetails().getStopTime() != null) {
+				assertEquals(format(asd.getAsdmDetails().getStopTime(), false), format(asd.getAsdmDetails().getStopTime(), true));
+			}
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testDefaultZoneChangedAfterLoad() {
+		DDateTime dateTime = dateTime(2015, 12, 31, 23, 30, 15000);
+		assertEquals("2015-12-31T23:30:15", DDateTimeFormat.format(dateTime));
+		for (String id : new String[] { "America/New_York", "Asia/Kolkata", "Etc/GMT-14", "UTC" }) {
+			TimeZone.setDefault(TimeZone.getTimeZone(id));
+			assertEquals(id, J2735Util.toFormattedDateString(dateTime, AbstractCVMessageParser.DATE_PATTERN),
+					DDateTimeFormat.format(dateTime));
+		}
+	}
+
+	@Test
+	public void testUtcZones() {
+		assertTrue(DDateTimeFormat.isUtc(TimeZone.getTimeZone("UTC")));
+		assertTrue(DDateTimeFormat.isUtc(TimeZone.getTimeZone("Etc/UTC")));
+		assertTrue(DDateTimeFormat.isUtc(TimeZone.getTimeZone("GMT")));
+		assertFalse(DDateTimeFormat.isUtc(TimeZone.getTimeZone("Etc/GMT+12")));
+		assertFalse(DDateTimeFormat.isUtc(TimeZone.getTimeZone("Etc/GMT-14")));
+		assertFalse(DDateTimeFormat.isUtc(TimeZone.getTimeZone("Europe/London")));
+		assertFalse(DDateTimeFormat.isUtc(TimeZone.getTimeZone("America/New_York")));
+	}
+
+	/**
+	 * @return the text, or the name of the exception thrown, with the fast path or with J2735Util
+	 */
+	private static String format(DDateTime dateTime, boolean fast) {
+		try {
+			if (fast) {
+				char[] text = new char[DDateTimeFormat.LENGTH];
+				if (DDateTimeFormat.format(dateTime, text)) {
+					return new String(text);
+				}
+			}
+			return J2735Util.toFormattedDateString(dateTime, AbstractCVMessageParser.DATE_PATTERN);
+		} catch (RuntimeException e) {
+			return e.getClass().getName();
+		}
+	}
+
+	private static DDateTime dateTime(int year, int month, int day, int hour, int minute, int millis) {
+		DDateTime dateTime = new DDateTime();
+		dateTime.setYear(new DYear(year));
+		dateTime.setMonth(new DMonth(month));
+		dateTime.setDay(new DDay(day));
+		dateTime.setHour(new DHour(hour));
+		dateTime.setMinute(new DMinute(minute));
+		dateTime.setSecond(new DSecond(millis));
+		return dateTime;
+	}
+}
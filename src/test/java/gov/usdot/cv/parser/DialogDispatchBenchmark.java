@@ -0,0 +1,122 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.J2735;
+import gov.usdot.asn1.generated.j2735.semi.AdvisorySituationData;
+import gov.usdot.asn1.generated.j2735.semi.DataRequest;
+import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionCancel;
+import gov.usdot.asn1.generated.j2735.semi.DataSubscriptionRequest;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.asn1.generated.j2735.semi.ObjectDiscoveryDataRequest;
+import gov.usdot.asn1.generated.j2735.semi.ObjectRegistrationData;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.oss.asn1.AbstractData;
+
+/**
+ * Dialog id lookup plus parser lookup over a shuffled stream of every sample dialog,
+ * comparing the instanceof chain and boxed HashMap that J2735Parser used to have with
+ * the {@link CVMessageParserCache} dispatch table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DialogDispatchBenchmark {
+
+	private static final int STREAM_LENGTH = 1024;
+
+	private AbstractData[] stream;
+	private Map<Long, CVMessageParser> legacyCache;
+
+	@Setup
+	public void setUp() throws Exception {
+		J2735Parser parser = new J2735Parser();
+		parser.setCoderPoolSize(1);
+		parser.initializeCoder();
+		List<AbstractData> samples = new ArrayList<AbstractData>();
+		for (BenchmarkSamples sample : BenchmarkSamples.values()) {
+			samples.add(parser.decodeBER(sample.buildPayload()));
+		}
+		Random random = new Random(2735);
+		stream = new AbstractData[STREAM_LENGTH];
+		for (int i = 0; i < STREAM_LENGTH; i++) {
+			stream[i] = samples.get(random.nextInt(samples.size()));
+		}
+
+		legacyCache = new HashMap<Long, CVMessageParser>();
+		for (SemiDialogID dialogId : new SemiDialogID[] { SemiDialogID.vehSitData, SemiDialogID.dataSubscription,
+				SemiDialogID.advSitDataDep, SemiDialogID.advSitDatDist, SemiDialogID.intersectionSitDataQuery,
+				SemiDialogID.intersectionSitDataDep, SemiDialogID.objReg, SemiDialogID.objDisc }) {
+			legacyCache.put(dialogId.longValue(), CVMessageParserCache.lookupParser(dialogId.longValue()));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		J2735.deinitialize();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STREAM_LENGTH)
+	public void legacyDispatch(Blackhole blackhole) {
+		for (AbstractData message : stream) {
+			Long dialogId = legacyDialogId(message);
+			blackhole.consume(legacyCache.get(dialogId));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(STREAM_LENGTH)
+	public void tableDispatch(Blackhole blackhole) {
+		for (AbstractData message : stream) {
+			long dialogId = CVMessageParserCache.getDialogId(message);
+			blackhole.consume(CVMessageParserCache.lookupParser(dialogId));
+		}
+	}
+
+	private static Long legacyDialogId(AbstractData message) {
+		if (message instanceof VehSitDataMessage) {
+			return ((VehSitDataMessage) message).getDialogID().longValue();
+		} else if (message instanceof DataSubscriptionRequest) {
+			return ((DataSubscriptionRequest) message).getDialogID().longValue();
+		} else if (message instanceof DataSubscriptionCancel) {
+			return ((DataSubscriptionCancel) message).getDialogID().longValue();
+		} else if (message instanceof AdvisorySituationData) {
+			return ((AdvisorySituationData) message).getDialogID().longValue();
+		} else if (message instanceof DataRequest) {
+			return ((DataRequest) message).getDialogID().longValue();
+		} else if (message instanceof IntersectionSituationData) {
+			return ((IntersectionSituationData) message).getDialogID().longValue();
+		} else if (message instanceof ObjectRegistrationData) {
+			return ((ObjectRegistrationData) message).getDialogID().longValue();
+		} else if (message instanceof ObjectDiscoveryDataRequest) {
+			return ((ObjectDiscoveryDataRequest) message).getDialogID().longValue();
+		} else {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class DuplicateFilterTest {
+
+	@Test
+	public void testHitsAndMisses() {
+		DuplicateFilter filter = new DuplicateFilter(1000, 1, TimeUnit.MINUTES);
+		byte[] payload = { 1, 2, 3 };
+		assertFalse(filter.isDuplicate(payload, 0));
+		assertTrue(filter.isDuplicate(payload.clone(), 1));
+		assertFalse(filter.isDuplicate(new byte[] { 1, 2, 4 }, 2));
+		assertFalse(filter.isDuplicate(new byte[] { 1, 2, 3, 0 }, 3));
+		assertEquals(1, filter.getHitCount());
+		assertEquals(3, filter.getMissCount());
+		assertEquals(3, filter.size());
+	}
+
+	@Test
+	public void testWindowExpires() {
+		DuplicateFilter filter = new DuplicateFilter(1000, 1, TimeUnit.SECONDS);
+		byte[] payload = { 1, 2, 3 };
+		long second = TimeUnit.SECONDS.toNanos(1);
+		assertFalse(filter.isDuplicate(payload, 0));
+		assertTrue(filter.isDuplicate(payload, second));
+		assertFalse(filter.isDuplicate(payload, second + 1));
+		assertEquals(1, filter.getExpiredCount());
+		assertTrue(filter.isDuplicate(payload, 2 * second));
+	}
+
+	@Test
+	public void testCapacityBound() {
+		DuplicateFilter filter = new DuplicateFilter(64, 1, TimeUnit.HOURS);
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(filter.isDuplicate(ByteBuffer.allocate(4).putInt(i).array(), i));
+		}
+		assertTrue(filter.size() <= 64);
+		assertEquals(10000 - filter.size(), filter.getEvictionCount());
+		assertTrue(filter.isDuplicate(ByteBuffer.allocate(4).putInt(9999).array(), 10000));
+	}
+
+	@Test
+	public void testParserDropsDuplicates() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setDuplicateWindowSeconds(60);
+		parser.setMetricsEnabled(true);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(BenchmarkSamples.vehSitData.buildLines(10)));
+			assertNotNull(parser.parse());
+			assertNull(parser.parse());
+
+			DuplicateFilter filter = parser.getDuplicateFilter();
+			assertEquals(9, filter.getHitCount());
+			assertEquals(1, filter.getMissCount());
+			assertEquals(1, parser.getMetrics().getMessageCount());
+			assertEquals(Long.valueOf(9), parser.getMetrics().getDuplicateCounts().get("hits"));
+		} finally {
+			parser.dispose();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of filling encodedMsg by encoding the decoded payload again versus slicing it out
+ * of the input line, for ASD and ISD payloads. {@code payloadSize} pads the sample payload
+ * with random bytes to the given size for the encoding stage; 0 keeps the sample as built.
+ * The parse benchmarks always use the unpadded sample, since padded payloads do not decode.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodedPayloadBenchmark {
+
+	private static final int LINES_PER_STREAM = 1024;
+
+	@Param({ "advSitDataDep", "intersectionSitDataDep" })
+	public String dialog;
+
+	@Param({ "0", "1024", "4096" })
+	public int payloadSize;
+
+	private String line;
+	private DataBundle bundle;
+	private byte[] payload;
+
+	private J2735Parser reencodingParser;
+	private J2735Parser passThroughParser;
+	private byte[] lines;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSamples sample = BenchmarkSamples.valueOf(dialog);
+		byte[] samplePayload = sample.buildPayload();
+
+		line = alignedLine(padPayload(samplePayload, payloadSize));
+		bundle = DataBundleUtil.decode(line);
+		payload = bundle.getPayload();
+
+		String sampleLine = alignedLine(samplePayload);
+		StringBuilder sb = new StringBuilder((sampleLine.length() + 1) * LINES_PER_STREAM);
+		for (int i = 0; i < LINES_PER_STREAM; i++) {
+			sb.append(sampleLine).append('\n');
+		}
+		lines = sb.toString().getBytes("UTF-8");
+		reencodingParser = buildParser(sample, false);
+		passThroughParser = buildParser(sample, true);
+	}
+
+	@TearDown
+	public void tearDown() {
+		reencodingParser.dispose();
+		passThroughParser.dispose();
+	}
+
+	@Benchmark
+	public String encodePayload() {
+		return bundle.encodePayload();
+	}
+
+	@Benchmark
+	public String slicePayload() {
+		return EncodedPayloadSlicer.slice(line, payload);
+	}
+
+	@Benchmark
+	public JSONObject parseReencoded() throws Exception {
+		return parse(reencodingParser);
+	}
+
+	@Benchmark
+	public JSONObject parsePassThrough() throws Exception {
+		return parse(passThroughParser);
+	}
+
+	private JSONObject parse(J2735Parser parser) throws Exception {
+		JSONObject result = parser.parse();
+		if (result == null) {
+			parser.setInputStream(new ByteArrayInputStream(lines));
+			result = parser.parse();
+		}
+		return result;
+	}
+
+	private J2735Parser buildParser(BenchmarkSamples sample, boolean passThroughEncodedPayload) {
+		J2735Parser parser = sample.createParser();
+		parser.setPassThroughEncodedPayload(passThroughEncodedPayload);
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream(lines));
+		return parser;
+	}
+
+	/**
+	 * Pick the certificate length that puts the payload on a base64 group boundary, so the
+	 * pass-through path is measured rather than its fallback.
+	 */
+	private static String alignedLine(byte[] payload) {
+		for (int certificateLength = 1; certificateLength <= 3; certificateLength++) {
+			String line = BenchmarkSamples.buildLine(payload, new byte[certificateLength]);
+			if (EncodedPayloadSlicer.slice(line, payload) != null) {
+				return line;
+			}
+		}
+		throw new IllegalStateException("The data bundle layout does not support slicing the payload");
+	}
+
+	private static byte[] padPayload(byte[] payload, int size) {
+		if (size <= payload.length) {
+			return payload;
+		}
+		byte[] padded = new byte[size];
+		new Random(size).nextBytes(padded);
+		System.arraycopy(payload, 0, padded, 0, payload.length);
+		return padded;
+	}
+}
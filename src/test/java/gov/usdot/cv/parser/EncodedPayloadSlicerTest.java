@@ -0,0 +1,73 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.ByteArrayInputStream;
+
+import net.sf.json.JSONObject;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+public class EncodedPayloadSlicerTest {
+
+	@Test
+	public void testSliceMatchesEncodedPayload() throws Exception {
+		assertTrue(EncodedPayloadSlicer.isSupported());
+		byte[] payload = BenchmarkSamples.intersectionSitDataDep.buildPayload();
+		int sliced = 0;
+		for (int certificateLength = 1; certificateLength <= 6; certificateLength++) {
+			String line = BenchmarkSamples.buildLine(payload, new byte[certificateLength]);
+			DataBundle bundle = DataBundleUtil.decode(line);
+			String slice = EncodedPayloadSlicer.slice(line, bundle.getPayload());
+			if (slice != null) {
+				assertEquals(bundle.encodePayload(), slice);
+				sliced++;
+			}
+		}
+		assertEquals(2, sliced);
+	}
+
+	@Test
+	public void testSliceRejectsMismatch() {
+		byte[] payload = "payload".getBytes();
+		String encoded = Base64.encodeBase64String("123456789".getBytes());
+		assertNull(EncodedPayloadSlicer.slice(encoded, payload));
+		assertNull(EncodedPayloadSlicer.slice(encoded.substring(1), payload));
+		assertNull(EncodedPayloadSlicer.slice("", payload));
+		assertNull(EncodedPayloadSlicer.slice(encoded, new byte[0]));
+
+		String aligned = Base64.encodeBase64String("123payload".getBytes());
+		assertEquals(Base64.encodeBase64String(payload), EncodedPayloadSlicer.slice(aligned, payload));
+		assertNull(EncodedPayloadSlicer.slice(Base64.encodeBase64String("123PAYLOAD".getBytes()), payload));
+	}
+
+	@Test
+	public void testParsedRecordsMatch() throws Exception {
+		byte[] payload = BenchmarkSamples.advSitDataDep.buildPayload();
+		for (int certificateLength = 1; certificateLength <= 3; certificateLength++) {
+			String line = BenchmarkSamples.buildLine(payload, new byte[certificateLength]);
+			JSONObject reencoded = parseLine(line, false);
+			JSONObject passedThrough = parseLine(line, true);
+			assertNotNull(passedThrough);
+			assertEquals(reencoded, passedThrough);
+		}
+	}
+
+	private static JSONObject parseLine(String line, boolean passThroughEncodedPayload) throws Exception {
+		J2735Parser parser = BenchmarkSamples.advSitDataDep.createParser();
+		try {
+			parser.setPassThroughEncodedPayload(passThroughEncodedPayload);
+			parser.initialize();
+			parser.setInputStream(new ByteArrayInputStream((line + "\n").getBytes("UTF-8")));
+			return parser.parse();
+		} finally {
+			parser.dispose();
+		}
+	}
+}
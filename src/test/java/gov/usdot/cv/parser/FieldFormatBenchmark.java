@@ -0,0 +1,82 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.asn1.generated.j2735.J2735;
+import gov.usdot.asn1.generated.j2735.dsrc.DDateTime;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.asn1.j2735.J2735Util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting one field for the translator map: a SPaT timestamp with J2735Util's date
+ * format and with {@link DDateTimeFormat}, and a geo coordinate with String.valueOf and
+ * with {@link GeoCoordinates}. Run with the JVM in UTC, as servers usually are, for the
+ * direct date path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Duser.timezone=UTC")
+public class FieldFormatBenchmark {
+
+	private static final int COORDINATES = 1024;
+
+	private DDateTime timestamp;
+	private int[] coordinates;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		J2735Parser parser = new J2735Parser();
+		parser.setCoderPoolSize(1);
+		parser.initializeCoder();
+		IntersectionSituationData message = (IntersectionSituationData) parser.decodeBER(
+				BenchmarkSamples.intersectionSitDataDep.buildPayload());
+		timestamp = message.getIntersectionRecord().getSpatData().getTimestamp();
+		Random random = new Random(2735);
+		coordinates = new int[COORDINATES];
+		for (int i = 0; i < COORDINATES; i++) {
+			coordinates[i] = random.nextInt(1800000000) - 900000000;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		J2735.deinitialize();
+	}
+
+	@Benchmark
+	public String legacyDate() {
+		return J2735Util.toFormattedDateString(timestamp, AbstractCVMessageParser.DATE_PATTERN);
+	}
+
+	@Benchmark
+	public String directDate() {
+		return DDateTimeFormat.format(timestamp);
+	}
+
+	@Benchmark
+	public String legacyCoordinate() {
+		return String.valueOf(J2735Util.convertGeoCoordinateToDouble(coordinates[next++ & (COORDINATES - 1)]));
+	}
+
+	@Benchmark
+	public String fixedPointCoordinate() {
+		return GeoCoordinates.format(coordinates[next++ & (COORDINATES - 1)]);
+	}
+}
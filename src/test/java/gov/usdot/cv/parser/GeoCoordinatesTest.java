@@ -0,0 +1,83 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.dsrc.TemporaryID;
+import gov.usdot.asn1.j2735.J2735Util;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GeoCoordinatesTest {
+
+	private static final int[] EDGES = { 0, 1, -1, 9, 10, 999, 1000, 9999, 10000, -10000, 10001, 1234567,
+			10000000, -10000000, 900000000, -900000000, 1800000000, -1800000000, 1800000001,
+			Integer.MAX_VALUE, Integer.MIN_VALUE, 424477005, -830431234 };
+
+	@Test
+	public void testMatchesDoubleFormatting() {
+		for (int units : EDGES) {
+			assertFormatted(units);
+		}
+		for (int units = -200000; units <= 200000; units++) {
+			assertFormatted(units);
+		}
+		Random random = new Random(2735);
+		for (int i = 0; i < 1000000; i++) {
+			assertFormatted(random.nextInt());
+			assertFormatted((int) ((random.nextDouble() * 2 - 1) * 1800000000));
+		}
+	}
+
+	private static void assertFormatted(int units) {
+		double degrees = J2735Util.convertGeoCoordinateToDouble(units);
+		assertEquals(degrees, GeoCoordinates.toDegrees(units), 0);
+		assertEquals(String.valueOf(degrees), GeoCoordinates.format(units));
+	}
+
+	@Test
+	public void testRecordCoordinates() {
+		CVRecord record = new CVRecord();
+		record.setCoordinate(CVField.LAT, 424477005);
+		record.setCoordinate(CVField.LONG, -830431000);
+		assertTrue(record.isCoordinate(CVField.LAT));
+		assertEquals(CVRecord.Kind.DOUBLE, record.getKind(CVField.LAT));
+		assertEquals(42.4477005, record.getDouble(CVField.LAT), 0);
+		assertEquals("42.4477005", record.format(CVField.LAT));
+		assertEquals("-83.0431", record.toMap().get("Long"));
+
+		CVRecord copy = new CVRecord();
+		copy.copyFrom(record);
+		assertTrue(copy.isCoordinate(CVField.LONG));
+		assertEquals(-830431000, copy.getCoordinate(CVField.LONG));
+
+		record.setDouble(CVField.LAT, 1.5);
+		assertFalse(record.isCoordinate(CVField.LAT));
+		assertEquals("1.5", record.format(CVField.LAT));
+		record.clear();
+		record.setLong(CVField.LONG, 7);
+		assertFalse(record.isCoordinate(CVField.LONG));
+	}
+
+	@Test
+	public void testWriteCoordinate() throws Exception {
+		RecordBuffer buffer = new RecordBuffer();
+		buffer.writeCoordinate(-1234);
+		buffer.write(',');
+		buffer.writeCoordinate(Integer.MIN_VALUE);
+		assertEquals("-1.234E-4,-214.7483648", new String(buffer.toByteArray(), "US-ASCII"));
+	}
+
+	@Test
+	public void testToIntMatchesByteBuffer() {
+		Random random = new Random(7);
+		byte[] octets = new byte[4];
+		for (int i = 0; i < 1000; i++) {
+			random.nextBytes(octets);
+			assertEquals(ByteBuffer.wrap(octets).getInt(), SemiFields.toInt(new TemporaryID(octets)));
+		}
+	}
+}
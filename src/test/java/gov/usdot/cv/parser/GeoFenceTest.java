@@ -0,0 +1,190 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.dsrc.Latitude;
+import gov.usdot.asn1.generated.j2735.dsrc.Longitude;
+import gov.usdot.asn1.generated.j2735.dsrc.Position3D;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+import com.deleidos.rtws.commons.exception.InitializationException;
+
+public class GeoFenceTest {
+
+	@Test
+	public void testBox() {
+		GeoFence box = GeoFence.box("metro", 425000000, -839000000, 421000000, -829000000);
+		assertTrue(box.contains(423000000, -834000000));
+		assertTrue(box.contains(425000000, -839000000));
+		assertFalse(box.contains(426000000, -834000000));
+		assertFalse(box.contains(423000000, -828000000));
+		assertTrue(box.intersects(430000000, -850000000, 424000000, -838000000));
+		assertFalse(box.intersects(430000000, -850000000, 426000000, -838000000));
+	}
+
+	@Test
+	public void testBoxAcrossAntimeridian() {
+		GeoFence box = GeoFence.box("pacific", 10000000, 1790000000, -10000000, -1790000000);
+		assertTrue(box.contains(0, 1795000000));
+		assertTrue(box.contains(0, -1795000000));
+		assertFalse(box.contains(0, 0));
+		assertTrue(box.intersects(5000000, -1795000000, -5000000, -1780000000));
+		assertFalse(box.intersects(5000000, 1700000000, -5000000, 1780000000));
+	}
+
+	@Test
+	public void testPolygon() {
+		// an L shape with its north east quarter cut out
+		GeoFence polygon = GeoFence.polygon("campus",
+				new int[] { 0, 20, 20, 10, 10, 0 },
+				new int[] { 0, 0, 10, 10, 20, 20 });
+		assertTrue(polygon.contains(5, 5));
+		assertTrue(polygon.contains(15, 5));
+		assertTrue(polygon.contains(5, 15));
+		assertFalse(polygon.contains(15, 15));
+		assertTrue(polygon.contains(20, 5));
+		assertTrue(polygon.contains(10, 15));
+		assertFalse(polygon.contains(21, 5));
+	}
+
+	@Test
+	public void testParse() {
+		List<GeoFence> fences = GeoFence.parse(" metro = 42.5, -83.9, 42.1, -82.9 ; campus=42.30 -83.72,42.30 -83.70,42.28 -83.71;");
+		assertEquals(2, fences.size());
+		assertEquals("metro", fences.get(0).getName());
+		assertTrue(fences.get(0).contains(423000000, -834000000));
+		assertEquals("campus", fences.get(1).getName());
+		assertTrue(fences.get(1).contains(422950000, -837100000));
+		assertFalse(fences.get(1).contains(422950000, -836900000));
+		assertTrue(GeoFence.parse("").isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseRejectsTwoVertices() {
+		GeoFence.parse("line=42.30 -83.72,42.30 -83.70");
+	}
+
+	@Test
+	public void testFilterCountsPerFence() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.buildParser();
+		try {
+			VehSitDataMessage message = (VehSitDataMessage) parser.decodeBER(BenchmarkSamples.vehSitData.buildPayload());
+			Position3D pos = message.getBundle().get(0).getPos();
+			int lat = pos.getLat().intValue();
+			int lon = pos.get_long().intValue();
+			GeoFence far = GeoFence.box("far", lat - 10000000, lon + 10000000, lat - 20000000, lon + 20000000);
+			GeoFence near = GeoFence.box("near", lat + 1000, lon - 1000, lat - 1000, lon + 1000);
+
+			GeoFenceFilter filter = new GeoFenceFilter(Arrays.asList(far, near));
+			assertTrue(filter.accepts(message));
+			assertEquals(0, far.getRejectedCount());
+			assertTrue(filter.accepts(message.getBundle().get(0)));
+			assertEquals(1, far.getRejectedCount());
+			assertEquals(1, near.getAcceptedCount());
+			assertEquals(0, filter.getRejectedCount());
+			assertEquals(Long.valueOf(1), filter.getRejectedCounts().get("far"));
+
+			int count = message.getBundle().getSize();
+			GeoFenceFilter farOnly = new GeoFenceFilter(Arrays.asList(far));
+			assertFalse(farOnly.accepts(message));
+			assertEquals(count, farOnly.getRejectedCount());
+			assertEquals(1 + count, far.getRejectedCount());
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testParserDropsRecordsOutsideFences() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setGeoFences("nowhere=-89,0,-89.5,1");
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(BenchmarkSamples.vehSitData.buildLines(3)));
+			assertNull(parser.parse());
+			int count = CVSampleMessageBuilder.buildVehSitDataMessage().getBundle().getSize();
+			assertEquals(3 * count, parser.getGeoFenceFilter().getRejectedCount());
+			assertEquals(Long.valueOf(3 * count), parser.getGeoFenceFilter().getRejectedCounts().get("nowhere"));
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testBundlePartlyInside() throws Exception {
+		VehSitDataMessage message = CVSampleMessageBuilder.buildVehSitDataMessage();
+		int count = message.getBundle().getSize();
+		assertTrue(count >= 2);
+		for (int i = 0; i < count; i++) {
+			Position3D pos = message.getBundle().get(i).getPos();
+			pos.setLat(new Latitude(400000000 + i * 1000000));
+			pos.set_long(new Longitude(-830000000));
+		}
+		byte[] line = (BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(message),
+				"Some Certificate Text".getBytes()) + "\n").getBytes("UTF-8");
+		// holds the second record only, at 40.1 degrees north
+		String fence = "second=40.15,-83.05,40.05,-82.95";
+
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setDecodeBundle(true);
+		parser.setGeoFences(fence);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(line));
+			JSONObject record = parser.parse();
+			assertEquals(40.1, record.getDouble("lat"), 1e-9);
+			assertNull(parser.parse());
+			assertEquals(count - 1, parser.getGeoFenceFilter().getRejectedCount());
+
+			parser.setInputStream(new ByteArrayInputStream(line));
+			List<JSONObject> batch = parser.parseBatch(4);
+			assertEquals(1, batch.size());
+			assertEquals(40.1, batch.get(0).getDouble("lat"), 1e-9);
+			assertEquals(2 * (count - 1), parser.getGeoFenceFilter().getRejectedCount());
+
+			parser.setInputStream(new ByteArrayInputStream(line));
+			VehSitColumnWriter writer = new VehSitColumnWriter(count, new VehSitColumns.Sink() {
+				public void accept(VehSitColumns block) {
+				}
+			});
+			assertEquals(1, parser.parseColumns(4, writer));
+			assertEquals(3 * (count - 1), parser.getGeoFenceFilter().getRejectedCount());
+		} finally {
+			parser.dispose();
+		}
+
+		// without decodeBundle the message stands for its first record, which is outside
+		parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setGeoFences(fence);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(line));
+			assertNull(parser.parse());
+			assertEquals(1, parser.getGeoFenceFilter().getRejectedCount());
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test(expected = InitializationException.class)
+	public void testInvalidFence() {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setGeoFences("metro=42.5,-83.9,north,-82.9");
+		try {
+			parser.initialize();
+		} finally {
+			parser.dispose();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package gov.usdot.cv.parser;
+
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.ByteArrayInputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.oss.asn1.AbstractData;
+
+/**
+ * Throughput of each stage of {@link J2735Parser#parse()} per dialog, plus the whole path.
+ * Run with {@code mvn -Pbenchmark test}; the profile adds {@code -prof gc} so every result
+ * also reports the bytes allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class J2735ParserBenchmark {
+
+	private static final int LINES_PER_STREAM = 1024;
+
+	@Param({ "vehSitData", "dataSubscription", "advSitDataDep", "advSitDatDist",
+		"intersectionSitDataDep", "intersectionSitDataQuery" })
+	public String dialog;
+
+	private J2735Parser parser;
+	private CVMessageParser messageParser;
+	private byte[] lines;
+
+	private String line;
+	private DataBundle bundle;
+	private AbstractData message;
+	private Map<String, String> map;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSamples sample = BenchmarkSamples.valueOf(dialog);
+		parser = sample.buildParser();
+		lines = sample.buildLines(LINES_PER_STREAM);
+		parser.setInputStream(new ByteArrayInputStream(lines));
+
+		line = sample.buildLine();
+		bundle = DataBundleUtil.decode(line);
+		message = parser.decodeBER(bundle.getPayload());
+		messageParser = CVMessageParserCache.lookupParser(CVMessageParserCache.getDialogId(message));
+		map = messageParser.parse(message, bundle);
+	}
+
+	@TearDown
+	public void tearDown() {
+		parser.dispose();
+	}
+
+	@Benchmark
+	public DataBundle unwrapBundle() {
+		return DataBundleUtil.decode(line);
+	}
+
+	@Benchmark
+	public AbstractData decodePER() throws Exception {
+		return parser.decodeBER(bundle.getPayload());
+	}
+
+	@Benchmark
+	public Map<String, String> parseMessage() throws Exception {
+		return messageParser.parse(message, bundle);
+	}
+
+	@Benchmark
+	public JSONObject recordTranslation() throws Exception {
+		return parser.getTranslator().recordTranslation(map, "JMH", "UNCLASSIFIED");
+	}
+
+	@Benchmark
+	public JSONObject parse() throws Exception {
+		JSONObject result = parser.parse();
+		if (result == null) {
+			parser.setInputStream(new ByteArrayInputStream(lines));
+			result = parser.parse();
+		}
+		return result;
+	}
+}
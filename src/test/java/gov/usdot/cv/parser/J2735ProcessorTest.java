@@ -0,0 +1,272 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.dsrc.TemporaryID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class J2735ProcessorTest {
+
+	private static final int RECORDS = 50;
+
+	private J2735Parser parser;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() {
+		parser = BenchmarkSamples.vehSitData.buildParser();
+		executor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+		parser.dispose();
+	}
+
+	@Test
+	public void testOrderedMatchesParse() throws Exception {
+		List<String> lines = lines(RECORDS);
+		lines.set(7, "this is not a data bundle");
+		List<JSONObject> expected = parse(lines);
+		assertEquals(RECORDS - 1, new HashSet<JSONObject>(expected).size());
+
+		J2735Processor<String> processor = J2735Processor.forLines(parser, delaying(executor), 8, true);
+		CollectingSubscriber subscriber = new CollectingSubscriber(1);
+		new IterablePublisher<String>(lines).subscribe(processor);
+		processor.subscribe(subscriber);
+
+		assertTrue(subscriber.done.await(30, TimeUnit.SECONDS));
+		assertNull(subscriber.error);
+		assertEquals(RECORDS - 1, subscriber.records.size());
+		assertEquals(expected, subscriber.records);
+	}
+
+	@Test
+	public void testUnorderedMatchesParse() throws Exception {
+		List<String> lines = lines(RECORDS);
+		List<JSONObject> expected = parse(lines);
+
+		J2735Processor<String> processor = J2735Processor.forLines(parser, delaying(executor), 8, false);
+		CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		new IterablePublisher<String>(lines).subscribe(processor);
+		processor.subscribe(subscriber);
+
+		assertTrue(subscriber.done.await(30, TimeUnit.SECONDS));
+		assertNull(subscriber.error);
+		assertEquals(RECORDS, subscriber.records.size());
+		assertEquals(new HashSet<JSONObject>(expected), new HashSet<JSONObject>(subscriber.records));
+	}
+
+	@Test
+	public void testUnorderedFrames() throws Exception {
+		byte[] frames = BenchmarkSamples.vehSitData.buildFrames(RECORDS);
+		int frameLength = frames.length / RECORDS;
+		List<ByteBuffer> bodies = new ArrayList<ByteBuffer>();
+		for (int i = 0; i < RECORDS; i++) {
+			bodies.add(ByteBuffer.wrap(frames, i * frameLength + BundleFrames.PREFIX_LENGTH,
+					frameLength - BundleFrames.PREFIX_LENGTH).slice());
+		}
+
+		J2735Processor<ByteBuffer> processor = J2735Processor.forFrames(parser, executor, 8, false);
+		CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+		new IterablePublisher<ByteBuffer>(bodies).subscribe(processor);
+		processor.subscribe(subscriber);
+
+		assertTrue(subscriber.done.await(30, TimeUnit.SECONDS));
+		assertNull(subscriber.error);
+		assertEquals(RECORDS, subscriber.records.size());
+	}
+
+	@Test
+	public void testBackpressureReachesSource() throws Exception {
+		IterablePublisher<String> publisher = new IterablePublisher<String>(lines(RECORDS));
+		J2735Processor<String> processor = J2735Processor.forLines(parser, executor, 4, true);
+		CollectingSubscriber subscriber = new CollectingSubscriber(0);
+		publisher.subscribe(processor);
+		processor.subscribe(subscriber);
+
+		waitFor(processor, 4);
+		assertEquals(4, publisher.requested.get());
+		assertEquals(0, subscriber.records.size());
+
+		subscriber.subscription.request(3);
+		waitFor(processor, 4);
+		assertEquals(3, subscriber.records.size());
+		assertEquals(7, publisher.requested.get());
+
+		subscriber.subscription.cancel();
+		assertTrue(publisher.cancelled);
+	}
+
+	@Test
+	public void testSecondSubscriberIsRefused() throws Exception {
+		J2735Processor<String> processor = J2735Processor.forLines(parser, executor, 4, true);
+		processor.subscribe(new CollectingSubscriber(0));
+		CollectingSubscriber second = new CollectingSubscriber(0);
+		processor.subscribe(second);
+		assertTrue(second.error instanceof IllegalStateException);
+	}
+
+	private static void waitFor(J2735Processor<?> processor, int inFlight) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 30000;
+		while (processor.getInFlightCount() != inFlight && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(100);
+	}
+
+	private List<JSONObject> parse(List<String> lines) throws Exception {
+		StringBuilder input = new StringBuilder();
+		for (String line : lines) {
+			input.append(line).append('\n');
+		}
+		parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes("UTF-8")));
+		List<JSONObject> records = new ArrayList<JSONObject>();
+		List<JSONObject> batch;
+		while ((batch = parser.parseBatch(16)) != null) {
+			records.addAll(batch);
+		}
+		return records;
+	}
+
+	/**
+	 * @return lines of the sample message with request id index
+	 */
+	private static List<String> lines(int count) throws Exception {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			VehSitDataMessage message = CVSampleMessageBuilder.buildVehSitDataMessage();
+			message.setRequestID(new TemporaryID(ByteBuffer.allocate(4).putInt(i).array()));
+			lines.add(BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(message), "Some Certificate Text".getBytes()));
+		}
+		return lines;
+	}
+
+	/**
+	 * @return an executor running each task on the given one after a random delay of up
+	 * to 5 ms, so tasks finish out of order
+	 */
+	private static Executor delaying(final Executor executor) {
+		final Random random = new Random(2735);
+		return new Executor() {
+			public void execute(final Runnable task) {
+				final int delay;
+				synchronized (random) {
+					delay = random.nextInt(6);
+				}
+				executor.execute(new Runnable() {
+					public void run() {
+						try {
+							Thread.sleep(delay);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							return;
+						}
+						task.run();
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * Publishes the items of a list as they are requested.
+	 */
+	private static class IterablePublisher<T> implements ParserFlow.Publisher<T> {
+		private final List<T> items;
+		final AtomicLong requested = new AtomicLong();
+		volatile boolean cancelled;
+
+		IterablePublisher(List<T> items) {
+			this.items = items;
+		}
+
+		public void subscribe(final ParserFlow.Subscriber<? super T> subscriber) {
+			final AtomicInteger emitting = new AtomicInteger();
+			final AtomicInteger next = new AtomicInteger();
+			subscriber.onSubscribe(new ParserFlow.Subscription() {
+				public void request(long n) {
+					requested.addAndGet(n);
+					if (emitting.getAndIncrement() != 0) return;
+					int missed = 1;
+					do {
+						while (!cancelled && next.get() < Math.min(items.size(), requested.get())) {
+							subscriber.onNext(items.get(next.getAndIncrement()));
+						}
+						if (!cancelled && next.get() == items.size()) {
+							cancelled = true;
+							subscriber.onComplete();
+						}
+						missed = emitting.addAndGet(-missed);
+					} while (missed != 0);
+				}
+
+				public void cancel() {
+					cancelled = true;
+				}
+			});
+		}
+	}
+
+	private static class CollectingSubscriber implements ParserFlow.Subscriber<JSONObject> {
+		private final long batch;
+		final List<JSONObject> records = Collections.synchronizedList(new ArrayList<JSONObject>());
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile ParserFlow.Subscription subscription;
+		volatile Throwable error;
+
+		/**
+		 * @param batch records requested up front and after each record, 0 to request by hand
+		 */
+		CollectingSubscriber(long batch) {
+			this.batch = batch;
+		}
+
+		public void onSubscribe(ParserFlow.Subscription subscription) {
+			this.subscription = subscription;
+			if (batch > 0) {
+				subscription.request(batch);
+			}
+		}
+
+		public void onNext(JSONObject item) {
+			records.add(item);
+			if (batch > 0 && batch < Long.MAX_VALUE) {
+				subscription.request(batch);
+			}
+		}
+
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		public void onComplete() {
+			done.countDown();
+		}
+	}
+}
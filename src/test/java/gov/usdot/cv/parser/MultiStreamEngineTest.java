@@ -0,0 +1,213 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.dsrc.TemporaryID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+import gov.usdot.cv.common.asn1.GroupIDHelper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.deleidos.rtws.core.util.StandardHeader;
+
+public class MultiStreamEngineTest {
+
+	private static final int STREAMS = 4;
+	private static final int RECORDS = 40;
+	private static final int GROUPS = 3;
+
+	private J2735Parser parser;
+
+	@Before
+	public void setUp() {
+		parser = BenchmarkSamples.vehSitData.createParser(new BlockingTranslator(1, TimeUnit.MILLISECONDS));
+		parser.initialize();
+	}
+
+	@After
+	public void tearDown() {
+		parser.dispose();
+	}
+
+	@Test
+	public void testStreamOrder() throws Exception {
+		List<String> lines = lines();
+		MultiStreamEngine engine = new MultiStreamEngine(parser, 8, MultiStreamEngine.Ordering.STREAM);
+		try {
+			List<CollectingListener> listeners = run(engine, lines);
+			for (int i = 0; i < STREAMS; i++) {
+				CollectingListener listener = listeners.get(i);
+				assertNull(listener.error);
+				assertEquals(expected(lines, "stream" + i), listener.records);
+			}
+		} finally {
+			engine.close();
+		}
+	}
+
+	@Test
+	public void testGroupOrder() throws Exception {
+		List<String> lines = lines();
+		MultiStreamEngine engine = new MultiStreamEngine(parser, 8, MultiStreamEngine.Ordering.GROUP);
+		try {
+			List<CollectingListener> listeners = run(engine, lines);
+			for (int i = 0; i < STREAMS; i++) {
+				CollectingListener listener = listeners.get(i);
+				assertNull(listener.error);
+				List<JSONObject> expected = expected(lines, "stream" + i);
+				assertEquals(expected.size(), new HashSet<JSONObject>(expected).size());
+				assertEquals(new HashSet<JSONObject>(expected), new HashSet<JSONObject>(listener.records));
+				assertEquals(expected.size(), listener.records.size());
+				int[] last = new int[GROUPS];
+				Arrays.fill(last, -1);
+				for (JSONObject record : listener.records) {
+					int index = expected.indexOf(record);
+					int group = index % GROUPS;
+					assertTrue(index > last[group]);
+					last[group] = index;
+				}
+			}
+		} finally {
+			engine.close();
+		}
+	}
+
+	@Test
+	public void testFrames() throws Exception {
+		byte[] frames = BenchmarkSamples.vehSitData.buildFrames(RECORDS);
+		int frameLength = frames.length / RECORDS;
+		MultiStreamEngine engine = new MultiStreamEngine(parser, 4, MultiStreamEngine.Ordering.REQUEST);
+		try {
+			CollectingListener listener = new CollectingListener();
+			MultiStreamEngine.Stream stream = engine.openStream(null, null, 8, listener);
+			for (int i = 0; i < RECORDS; i++) {
+				stream.submit(ByteBuffer.wrap(frames, i * frameLength + BundleFrames.PREFIX_LENGTH,
+						frameLength - BundleFrames.PREFIX_LENGTH).slice());
+			}
+			stream.close();
+			assertTrue(listener.done.await(30, TimeUnit.SECONDS));
+			assertNull(listener.error);
+			assertEquals(RECORDS, listener.records.size());
+			assertEquals(0, stream.getPendingCount());
+			assertEquals("JMH", stream.getSource());
+		} finally {
+			engine.close();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSubmitAfterClose() throws Exception {
+		MultiStreamEngine engine = new MultiStreamEngine(parser, 1, MultiStreamEngine.Ordering.STREAM);
+		try {
+			MultiStreamEngine.Stream stream = engine.openStream("closed", null, 1, new CollectingListener());
+			stream.close();
+			stream.submit("this is not a data bundle");
+		} finally {
+			engine.close();
+		}
+	}
+
+	/**
+	 * Submit the lines to every stream at once, one submitting thread per stream.
+	 */
+	private static List<CollectingListener> run(MultiStreamEngine engine, final List<String> lines) throws Exception {
+		List<CollectingListener> listeners = new ArrayList<CollectingListener>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < STREAMS; i++) {
+			CollectingListener listener = new CollectingListener();
+			listeners.add(listener);
+			final MultiStreamEngine.Stream stream = engine.openStream("stream" + i, "UNCLASSIFIED", 8, listener);
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (String line : lines) {
+							stream.submit(line);
+						}
+						stream.close();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (int i = 0; i < STREAMS; i++) {
+			threads.get(i).join();
+			assertTrue(listeners.get(i).done.await(30, TimeUnit.SECONDS));
+		}
+		return listeners;
+	}
+
+	/**
+	 * @return the records of the lines parsed one after another with the given source
+	 */
+	private List<JSONObject> expected(List<String> lines, String source) throws Exception {
+		Properties info = new Properties();
+		info.setProperty(StandardHeader.SOURCE_KEY, source);
+		parser.setStreamProperties(info);
+		StringBuilder input = new StringBuilder();
+		for (String line : lines) {
+			input.append(line).append('\n');
+		}
+		parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes("UTF-8")));
+		List<JSONObject> records = new ArrayList<JSONObject>();
+		List<JSONObject> batch;
+		while ((batch = parser.parseBatch(16)) != null) {
+			records.addAll(batch);
+		}
+		return records;
+	}
+
+	/**
+	 * @return lines whose messages have group id index % GROUPS and request id index, with
+	 * one line that does not decode
+	 */
+	private static List<String> lines() throws Exception {
+		List<String> lines = new ArrayList<String>();
+		for (int i = 0; i < RECORDS; i++) {
+			VehSitDataMessage message = CVSampleMessageBuilder.buildVehSitDataMessage();
+			message.setGroupID(GroupIDHelper.toGroupID(i % GROUPS));
+			message.setRequestID(new TemporaryID(ByteBuffer.allocate(4).putInt(i).array()));
+			lines.add(BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(message), "Some Certificate Text".getBytes()));
+		}
+		lines.add(RECORDS / 2, "this is not a data bundle");
+		return lines;
+	}
+
+	private static class CollectingListener implements MultiStreamEngine.Listener {
+		final List<JSONObject> records = Collections.synchronizedList(new ArrayList<JSONObject>());
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Throwable error;
+
+		public void onRecord(JSONObject record) {
+			records.add(record);
+		}
+
+		public void onError(Throwable error) {
+			this.error = error;
+			done.countDown();
+		}
+
+		public void onComplete() {
+			done.countDown();
+		}
+	}
+}
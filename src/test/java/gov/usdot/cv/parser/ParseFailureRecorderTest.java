@@ -0,0 +1,94 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import gov.usdot.asn1.generated.j2735.J2735;
+import gov.usdot.asn1.generated.j2735.dsrc.TemporaryID;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.SemiSequenceID;
+import gov.usdot.asn1.generated.j2735.semi.ServiceRequest;
+import gov.usdot.cv.common.asn1.GroupIDHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.oss.asn1.Coder;
+
+public class ParseFailureRecorderTest {
+
+	@Test
+	public void testCountsAndDeadLetters() {
+		ParseFailureRecorder recorder = new ParseFailureRecorder(2, 1, TimeUnit.HOURS);
+		CollectingSink sink = new CollectingSink();
+		recorder.setDeadLetterSink(sink);
+		for (int i = 0; i < 5; i++) {
+			recorder.record(ParseFailure.PAYLOAD_DECODE, "detail", "line" + i);
+		}
+		recorder.record(ParseFailure.NO_PARSER, 158L, null);
+
+		assertEquals(5, recorder.getCount(ParseFailure.PAYLOAD_DECODE));
+		assertEquals(1, recorder.getCount(ParseFailure.NO_PARSER));
+		assertEquals(0, recorder.getCount(ParseFailure.BUNDLE_DECODE));
+		assertEquals(6, recorder.getTotalCount());
+		assertEquals(5, sink.lines.size());
+		assertEquals("line4", sink.lines.get(4));
+	}
+
+	@Test
+	public void testStacklessException() {
+		ParseFailureException e = new ParseFailureException(ParseFailure.PAYLOAD_DECODE, "bad bits", null);
+		assertEquals(0, e.getStackTrace().length);
+		assertEquals("PER decode failed: bad bits", e.getMessage());
+		assertEquals(ParseFailure.PAYLOAD_DECODE, e.getFailure());
+	}
+
+	@Test
+	public void testParserFailures() throws Exception {
+		Coder coder = J2735.getPERUnalignedCoder();
+		ServiceRequest request = new ServiceRequest();
+		request.setDialogID(SemiDialogID.vehSitData);
+		request.setSeqID(SemiSequenceID.svcReq);
+		request.setGroupID(GroupIDHelper.toGroupID(0));
+		request.setRequestID(new TemporaryID(ByteBuffer.allocate(4).putInt(1001).array()));
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		coder.encode(request, sink);
+
+		String serviceRequest = BenchmarkSamples.buildLine(sink.toByteArray(), "Some Certificate Text".getBytes());
+		String notABundle = "this is not a data bundle";
+
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		CollectingSink deadLetters = new CollectingSink();
+		parser.setDeadLetterSink(deadLetters);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(notABundle.getBytes("UTF-8")));
+			assertNull(parser.parse());
+			parser.setInputStream(new ByteArrayInputStream(serviceRequest.getBytes("UTF-8")));
+			assertNull(parser.parse());
+
+			ParseFailureRecorder failures = parser.getFailureRecorder();
+			assertEquals(1, failures.getCount(ParseFailure.BUNDLE_DECODE));
+			assertEquals(1, failures.getCount(ParseFailure.NO_DIALOG_ID));
+			assertEquals(2, failures.getTotalCount());
+			assertEquals(2, deadLetters.lines.size());
+			assertEquals(notABundle, deadLetters.lines.get(0));
+			assertEquals(serviceRequest, deadLetters.lines.get(1));
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	private static class CollectingSink implements DeadLetterSink {
+		final List<String> lines = new ArrayList<String>();
+
+		public synchronized void deadLetter(ParseFailure failure, String input) {
+			lines.add(input);
+		}
+	}
+}
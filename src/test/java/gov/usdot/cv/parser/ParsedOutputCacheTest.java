@@ -0,0 +1,139 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+public class ParsedOutputCacheTest {
+
+	@Test
+	public void testHitRequiresSamePayload() {
+		ParsedOutputCache cache = new ParsedOutputCache(1024 * 1024);
+		byte[] payload = { 1, 2, 3 };
+		CVRecord record = record("value");
+		cache.put(42, payload, 162, record, 0);
+
+		ParsedOutputCache.Entry entry = cache.get(42, payload.clone(), 1);
+		assertNotNull(entry);
+		assertSame(record, entry.getRecord());
+		assertEquals(162, entry.getDialogId());
+		assertNull(cache.get(42, new byte[] { 1, 2, 4 }, 1));
+		assertNull(cache.get(43, payload, 1));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(0, cache.getMissCount());
+		cache.countMiss();
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testTimeToLive() {
+		ParsedOutputCache cache = new ParsedOutputCache(1024 * 1024);
+		byte[] minute = { 1 };
+		byte[] unset = { 2 };
+		CVRecord record = record("value");
+		record.setLong(CVField.TIME_TO_LIVE, 0);
+		cache.put(1, minute, 162, record, 0);
+		cache.put(2, unset, 162, record("value"), 0);
+
+		long oneMinute = TimeUnit.MINUTES.toMillis(1);
+		assertNotNull(cache.get(1, minute, oneMinute - 1));
+		assertNull(cache.get(1, minute, oneMinute));
+		assertNotNull(cache.get(2, unset, ParsedOutputCache.DEFAULT_TIME_TO_LIVE_MILLIS - 1));
+		assertNull(cache.get(2, unset, ParsedOutputCache.DEFAULT_TIME_TO_LIVE_MILLIS));
+		assertEquals(2, cache.getExpiredCount());
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getByteCount());
+	}
+
+	@Test
+	public void testMemoryBound() {
+		long maxBytes = 64 * 1024;
+		ParsedOutputCache cache = new ParsedOutputCache(maxBytes);
+		for (int i = 0; i < 10000; i++) {
+			byte[] payload = String.valueOf(i).getBytes();
+			cache.put(ParsedOutputCache.digest(payload), payload, 162, record("value " + i), 0);
+		}
+		assertTrue(cache.getByteCount() <= maxBytes);
+		assertTrue(cache.getEvictionCount() > 0);
+		assertEquals(10000, cache.size() + cache.getEvictionCount());
+	}
+
+	@Test
+	public void testCopyFrom() {
+		CVRecord source = record("value");
+		source.setLong(CVField.TIME_TO_LIVE, 3);
+		source.setBytes(CVField.CERTIFICATE, new byte[] { 7 });
+		CVRecord copy = new CVRecord();
+		copy.setDouble(CVField.NW_LAT, 1.5);
+		copy.copyFrom(source);
+		assertEquals(source.toMap(), copy.toMap());
+		assertEquals(source.fieldAt(0), copy.fieldAt(0));
+		assertEquals(3, copy.size());
+	}
+
+	@Test
+	public void testIntersectionSitDataHits() throws Exception {
+		byte[] lines = BenchmarkSamples.intersectionSitDataDep.buildLines(5);
+		assertEquals(parse(BenchmarkSamples.intersectionSitDataDep, lines, 0, null),
+				parse(BenchmarkSamples.intersectionSitDataDep, lines, 16, new long[] { 4, 1 }));
+	}
+
+	@Test
+	public void testVehSitDataIsNotCountedAsMiss() throws Exception {
+		byte[] lines = BenchmarkSamples.vehSitData.buildLines(5);
+		assertEquals(parse(BenchmarkSamples.vehSitData, lines, 0, null),
+				parse(BenchmarkSamples.vehSitData, lines, 16, new long[] { 0, 0 }));
+	}
+
+	@Test
+	public void testAdvisoryReceiptIdsAreNotCached() throws Exception {
+		byte[] payload = BenchmarkSamples.advSitDataDep.buildPayload();
+		StringBuilder lines = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			lines.append(DataBundleUtil.encode(("receipt-" + i).getBytes(), "host".getBytes(), 47651, false,
+					"Some Certificate Text".getBytes(), payload)).append('\n');
+		}
+		byte[] input = lines.toString().getBytes("UTF-8");
+		assertEquals(parse(BenchmarkSamples.advSitDataDep, input, 0, null),
+				parse(BenchmarkSamples.advSitDataDep, input, 16, new long[] { 4, 1 }));
+	}
+
+	private static List<JSONObject> parse(BenchmarkSamples sample, byte[] lines, int cacheMegabytes, long[] hitsAndMisses) throws Exception {
+		J2735Parser parser = sample.createParser();
+		parser.setOutputCacheMegabytes(cacheMegabytes);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(lines));
+			List<JSONObject> results = new ArrayList<JSONObject>();
+			JSONObject result;
+			while ((result = parser.parse()) != null) {
+				results.add(result);
+			}
+			if (hitsAndMisses != null) {
+				assertEquals(hitsAndMisses[0], parser.getOutputCache().getHitCount());
+				assertEquals(hitsAndMisses[1], parser.getOutputCache().getMissCount());
+			}
+			return results;
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	private static CVRecord record(String value) {
+		CVRecord record = new CVRecord();
+		record.setString(CVField.ADVISORY_MESSAGE, value);
+		return record;
+	}
+}
@@ -0,0 +1,67 @@
+package gov.usdot.cv.parser;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of metricsEnabled on the whole {@link J2735Parser#parse()} path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserMetricsBenchmark {
+
+	private static final int LINES_PER_STREAM = 1024;
+
+	@Param({ "vehSitData", "intersectionSitDataDep" })
+	public String dialog;
+
+	@Param({ "false", "true" })
+	public boolean metricsEnabled;
+
+	private J2735Parser parser;
+	private byte[] lines;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSamples sample = BenchmarkSamples.valueOf(dialog);
+		lines = sample.buildLines(LINES_PER_STREAM);
+		parser = sample.createParser();
+		parser.setMetricsEnabled(metricsEnabled);
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream(lines));
+	}
+
+	@TearDown
+	public void tearDown() {
+		parser.dispose();
+	}
+
+	@Benchmark
+	public JSONObject parse() throws Exception {
+		JSONObject result = parser.parse();
+		if (result == null) {
+			parser.setInputStream(new ByteArrayInputStream(lines));
+			result = parser.parse();
+		}
+		return result;
+	}
+}
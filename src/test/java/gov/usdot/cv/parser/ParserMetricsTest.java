@@ -0,0 +1,80 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class ParserMetricsTest {
+
+	@Test
+	public void testHistogramBuckets() {
+		for (long value : new long[] { 0, 1, 7, 8, 15, 16, 23, 1000, 123456789, LatencyHistogram.MAX_VALUE }) {
+			int index = LatencyHistogram.bucketIndex(value);
+			assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+			assertTrue(value < LatencyHistogram.bucketLowerBound(index + 1));
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE));
+	}
+
+	@Test
+	public void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i * 1000L);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(1000, snapshot.getCount());
+		assertEquals(1000000, snapshot.getMax());
+		assertEquals(500500, snapshot.getMean(), 0.001);
+		assertEquals(500000, snapshot.getValueAtPercentile(50), 500000 * 0.125);
+		assertEquals(990000, snapshot.getValueAtPercentile(99), 990000 * 0.125);
+		assertEquals(1000000, snapshot.getValueAtPercentile(100));
+		assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testParserMetrics() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setMetricsEnabled(true);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(BenchmarkSamples.vehSitData.buildLines(10)));
+			while (parser.parse() != null) {
+			}
+
+			ParserMetrics metrics = parser.getMetrics();
+			assertEquals(10, metrics.getMessageCount());
+			assertEquals(10, metrics.getRecordCount());
+			assertEquals(10 * BenchmarkSamples.vehSitData.buildPayload().length, metrics.getByteCount());
+			assertEquals(0, metrics.getFailureCount());
+			assertEquals(Long.valueOf(10), metrics.getRecordCounts().get("vehSitData"));
+			for (ParserMetrics.Stage stage : ParserMetrics.Stage.values()) {
+				LatencyHistogram.Snapshot latency = metrics.getLatency(SemiDialogID.vehSitData.longValue(), stage);
+				assertNotNull(latency);
+				assertEquals(stage.name(), 10, latency.getCount());
+			}
+			assertNull(metrics.getLatency(SemiDialogID.objReg.longValue(), ParserMetrics.Stage.DECODE));
+			assertEquals(ParserMetrics.Stage.values().length, metrics.getLatencies().size());
+
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			Set<ObjectName> names = server.queryNames(new ObjectName("gov.usdot.cv.parser:type=J2735Parser,*"), null);
+			assertEquals(1, names.size());
+			assertEquals(10L, server.getAttribute(names.iterator().next(), "MessageCount"));
+		} finally {
+			parser.dispose();
+		}
+		assertTrue(ManagementFactory.getPlatformMBeanServer()
+				.queryNames(new ObjectName("gov.usdot.cv.parser:type=J2735Parser,*"), null).isEmpty());
+	}
+}
@@ -0,0 +1,120 @@
+package gov.usdot.cv.parser;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Translating batches of records into JSONObjects and serializing them, against
+ * {@link J2735Parser#parseEncoded(int, RecordBuffer)} with the binary and the streaming
+ * JSON encoder. Scores are records per second; the bytes and records counters give the
+ * output size per record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordEncoderBenchmark {
+
+	private static final int BATCH_SIZE = 256;
+
+	@Param({ "vehSitData", "advSitDataDep", "intersectionSitDataDep" })
+	public String dialog;
+
+	private J2735Parser translatingParser;
+	private J2735Parser binaryParser;
+	private J2735Parser jsonParser;
+	private final RecordBuffer buffer = new RecordBuffer();
+	private byte[] lines;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Output {
+		public long bytes;
+		public long records;
+
+		@Setup(Level.Iteration)
+		public void clear() {
+			bytes = 0;
+			records = 0;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSamples sample = BenchmarkSamples.valueOf(dialog);
+		lines = sample.buildLines(BATCH_SIZE);
+		translatingParser = sample.buildParser();
+		binaryParser = buildParser(sample, J2735Parser.BINARY_ENCODING);
+		jsonParser = buildParser(sample, J2735Parser.JSON_ENCODING);
+	}
+
+	private static J2735Parser buildParser(BenchmarkSamples sample, String encoding) {
+		J2735Parser parser = sample.createParser();
+		parser.setOutputEncoding(encoding);
+		parser.initialize();
+		return parser;
+	}
+
+	@TearDown
+	public void tearDown() {
+		translatingParser.dispose();
+		binaryParser.dispose();
+		jsonParser.dispose();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int translate(Output output) throws Exception {
+		translatingParser.setInputStream(new ByteArrayInputStream(lines));
+		List<JSONObject> records = translatingParser.parseBatch(BATCH_SIZE);
+		int bytes = 0;
+		for (JSONObject record : records) {
+			bytes += record.toString().getBytes("UTF-8").length + 1;
+		}
+		output.bytes += bytes;
+		output.records += records.size();
+		return bytes;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int encodeBinary(Output output) throws Exception {
+		return encode(binaryParser, output);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public int encodeJson(Output output) throws Exception {
+		return encode(jsonParser, output);
+	}
+
+	private int encode(J2735Parser parser, Output output) throws Exception {
+		parser.setInputStream(new ByteArrayInputStream(lines));
+		buffer.reset();
+		int records = parser.parseEncoded(BATCH_SIZE, buffer);
+		output.bytes += buffer.size();
+		output.records += records;
+		return buffer.size();
+	}
+}
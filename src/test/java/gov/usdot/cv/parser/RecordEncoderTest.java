@@ -0,0 +1,181 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
+import net.sf.json.JSONObject;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+public class RecordEncoderTest {
+
+	private static final int LINES = 3;
+
+	@Test
+	public void testVarints() {
+		RecordBuffer out = new RecordBuffer(1);
+		long[] values = { 0, 1, -1, 63, -64, 64, 300, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+		for (long value : values) {
+			out.writeSignedVarint(value);
+			out.writeVarint(value);
+		}
+		ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+		for (long value : values) {
+			assertEquals(value, readSignedVarint(in));
+			assertEquals(value, readVarint(in));
+		}
+		assertFalse(in.hasRemaining());
+
+		out.reset();
+		out.writeVarint(300);
+		assertArrayEquals(new byte[] { (byte) 0xAC, 0x02 }, out.toByteArray());
+	}
+
+	@Test
+	public void testDecimalAndUtf8() throws Exception {
+		RecordBuffer out = new RecordBuffer(1);
+		for (long value : new long[] { 0, 7, -7, 10, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			out.reset();
+			out.writeDecimal(value);
+			assertEquals(Long.toString(value), new String(out.toByteArray(), "US-ASCII"));
+		}
+		for (String s : new String[] { "", "plain", "caf\u00e9", "\u20ac100", "car \ud83d\ude97 ahead" }) {
+			out.reset();
+			out.writeUtf8(s);
+			assertArrayEquals(s.getBytes("UTF-8"), out.toByteArray());
+			assertEquals(s.getBytes("UTF-8").length, RecordBuffer.utf8Length(s));
+		}
+	}
+
+	@Test
+	public void testJson() throws Exception {
+		CVRecord record = new CVRecord();
+		record.setLong(CVField.DIALOG_ID, 154);
+		record.setDouble(CVField.NW_LAT, 42.5);
+		record.setBoolean(CVField.FROM_FORWARDER, true);
+		record.setString(CVField.DEST_HOST, "a \"quoted\\\" host\n\u0001\u00e9");
+		record.setBytes(CVField.CERTIFICATE, new byte[] { 1, 2, 3 });
+		RecordBuffer out = new RecordBuffer();
+		new JsonRecordEncoder().encode(154, record, "JUNIT", "UNCLASSIFIED", out);
+		assertEquals("{\"standardHeader\":{\"source\":\"JUNIT\",\"accessLabel\":\"UNCLASSIFIED\"},"
+				+ "\"dialogId\":154,\"nwLat\":42.5,\"fromForwarder\":true,"
+				+ "\"destHost\":\"a \\\"quoted\\\\\\\" host\\n\\u0001\u00e9\",\"certificate\":\"AQID\"}\n",
+				new String(out.toByteArray(), "UTF-8"));
+	}
+
+	@Test
+	public void testParseEncodedBinary() throws Exception {
+		VehSitDataMessage msg = CVSampleMessageBuilder.buildVehSitDataMessage();
+		String line = BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(msg), "cert".getBytes());
+		RecordBuffer out = parseEncoded(line, J2735Parser.BINARY_ENCODING);
+
+		DataBundle bundle = DataBundleUtil.decode(line);
+		VehSitDataMessageParser messageParser = new VehSitDataMessageParser();
+		RecordSchema schema = RecordSchema.VEH_SIT_DATA;
+		ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+		int count = msg.getBundle().getSize();
+		for (int i = 0; i < LINES * count; i++) {
+			CVRecord expected = new CVRecord();
+			expected.setEncodedPayload(bundle.encodePayload());
+			messageParser.parseRecord(msg, bundle, i % count, expected);
+
+			assertEquals(SemiDialogID.vehSitData.longValue(), readVarint(in));
+			assertEquals("JMH", readString(in));
+			assertEquals("UNCLASSIFIED", readString(in));
+			byte[] presence = new byte[(schema.getColumnCount() + 7) / 8];
+			in.get(presence);
+			for (int column = 0; column < schema.getColumnCount(); column++) {
+				CVField field = schema.getField(column);
+				if ((presence[column / 8] & (1 << (column % 8))) == 0) {
+					assertFalse(expected.has(field));
+					continue;
+				}
+				String value;
+				switch (schema.getKind(column)) {
+				case LONG:
+					value = String.valueOf(readSignedVarint(in));
+					break;
+				case DOUBLE:
+					value = String.valueOf(in.getDouble());
+					break;
+				case BOOLEAN:
+					value = Boolean.toString(in.get() != 0);
+					break;
+				case BYTES: {
+					byte[] bytes = new byte[(int) readVarint(in)];
+					in.get(bytes);
+					value = Base64.encodeBase64String(bytes);
+					break;
+				}
+				default:
+					value = readString(in);
+				}
+				assertEquals(expected.format(field), value);
+			}
+		}
+		assertFalse(in.hasRemaining());
+	}
+
+	@Test
+	public void testParseEncodedJson() throws Exception {
+		VehSitDataMessage msg = CVSampleMessageBuilder.buildVehSitDataMessage();
+		String line = BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(msg), "cert".getBytes());
+		String json = new String(parseEncoded(line, J2735Parser.JSON_ENCODING).toByteArray(), "UTF-8");
+		String[] records = json.split("\n");
+		assertEquals(LINES * msg.getBundle().getSize(), records.length);
+		for (String record : records) {
+			assertEquals(SemiDialogID.vehSitData.longValue(), JSONObject.fromObject(record).getLong("dialogId"));
+		}
+	}
+
+	private static RecordBuffer parseEncoded(String line, String encoding) throws Exception {
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			input.append(line).append('\n');
+		}
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setDecodeBundle(true);
+		parser.setOutputEncoding(encoding);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes("UTF-8")));
+			RecordBuffer out = new RecordBuffer();
+			while (parser.parseEncoded(2, out) >= 0) {
+				// keep appending
+			}
+			return out;
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	private static long readVarint(ByteBuffer in) {
+		long value = 0;
+		for (int shift = 0;; shift += 7) {
+			byte b = in.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) return value;
+		}
+	}
+
+	private static long readSignedVarint(ByteBuffer in) {
+		long value = readVarint(in);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static String readString(ByteBuffer in) throws Exception {
+		byte[] bytes = new byte[(int) readVarint(in)];
+		in.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}
@@ -0,0 +1,72 @@
+package gov.usdot.cv.parser;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link J2735Parser#parseBatch(int)} with each record parsed on a fixed pool of platform
+ * threads against a virtual thread per record, behind a translator that blocks for a
+ * given time per record. The none mode is the serial baseline. Virtual threads need a
+ * Java 21 JVM; on older ones that mode runs on the platform pool and the two match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordExecutorBenchmark {
+
+	private static final int BATCH_SIZE = 1024;
+
+	@Param({ "none", "platform", "virtual" })
+	public String mode;
+
+	@Param({ "0", "100", "1000" })
+	public long latencyMicros;
+
+	@Param({ "16", "256" })
+	public int concurrency;
+
+	private J2735Parser parser;
+	private byte[] lines;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSamples sample = BenchmarkSamples.vehSitData;
+		lines = sample.buildLines(BATCH_SIZE);
+		parser = sample.createParser(new BlockingTranslator(latencyMicros, TimeUnit.MICROSECONDS));
+		parser.setRecordThreadMode(mode);
+		parser.setRecordConcurrency(concurrency);
+		parser.initialize();
+	}
+
+	@TearDown
+	public void tearDown() {
+		parser.dispose();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<JSONObject> parseBatch() throws Exception {
+		parser.setInputStream(new ByteArrayInputStream(lines));
+		return parser.parseBatch(BATCH_SIZE);
+	}
+}
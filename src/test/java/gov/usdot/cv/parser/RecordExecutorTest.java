@@ -0,0 +1,88 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.dsrc.TemporaryID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+import com.deleidos.rtws.commons.exception.InitializationException;
+
+public class RecordExecutorTest {
+
+	private static final int RECORDS = 100;
+
+	@Test
+	public void testPlatformMatchesSerial() throws Exception {
+		assertMatchesSerial(J2735Parser.PLATFORM_RECORD_THREADS);
+	}
+
+	@Test
+	public void testVirtualMatchesSerial() throws Exception {
+		assertMatchesSerial(J2735Parser.VIRTUAL_RECORD_THREADS);
+	}
+
+	@Test(expected = InitializationException.class)
+	public void testUnknownMode() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setRecordThreadMode("green");
+		parser.initialize();
+	}
+
+	private static void assertMatchesSerial(String mode) throws Exception {
+		// every record has its own request id, so results out of input order differ
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < RECORDS; i++) {
+			if (i % 10 == 3) {
+				input.append("this is not a data bundle").append('\n');
+				continue;
+			}
+			VehSitDataMessage message = CVSampleMessageBuilder.buildVehSitDataMessage();
+			message.setRequestID(new TemporaryID(ByteBuffer.allocate(4).putInt(i).array()));
+			input.append(BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(message),
+					"Some Certificate Text".getBytes())).append('\n');
+		}
+		byte[] lines = input.toString().getBytes("UTF-8");
+
+		BlockingTranslator serialTranslator = new BlockingTranslator(0, TimeUnit.MILLISECONDS);
+		List<JSONObject> expected = parse(serialTranslator, J2735Parser.NO_RECORD_THREADS, lines);
+		assertEquals(1, serialTranslator.getMaxRunning());
+		assertEquals(RECORDS - RECORDS / 10, new HashSet<JSONObject>(expected).size());
+
+		BlockingTranslator translator = new BlockingTranslator(2, TimeUnit.MILLISECONDS);
+		List<JSONObject> actual = parse(translator, mode, lines);
+		assertEquals(RECORDS - RECORDS / 10, actual.size());
+		assertEquals(expected, actual);
+		assertTrue(translator.getMaxRunning() > 1);
+		assertTrue(translator.getMaxRunning() <= 8);
+	}
+
+	private static List<JSONObject> parse(BlockingTranslator translator, String mode, byte[] lines) throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser(translator);
+		parser.setRecordThreadMode(mode);
+		parser.setRecordConcurrency(8);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(lines));
+			List<JSONObject> results = new ArrayList<JSONObject>();
+			List<JSONObject> batch;
+			while ((batch = parser.parseBatch(32)) != null) {
+				results.addAll(batch);
+			}
+			return results;
+		} finally {
+			parser.dispose();
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.CVSampleMessageBuilder;
+import gov.usdot.cv.common.dialog.DataBundle;
+import gov.usdot.cv.common.dialog.DataBundleUtil;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+public class RecordExporterTest {
+
+	private static final int LINES = 10;
+
+	@Test
+	public void testExportMatchesTypedRecords() throws Exception {
+		VehSitDataMessage msg = CVSampleMessageBuilder.buildVehSitDataMessage();
+		String line = BenchmarkSamples.buildLine(CVSampleMessageBuilder.messageToEncodedBytes(msg), "cert".getBytes());
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < LINES; i++) {
+			input.append(line).append('\n');
+		}
+		int count = msg.getBundle().getSize();
+
+		CollectingFactory factory = new CollectingFactory();
+		RecordExporter exporter = new RecordExporter(factory, 7);
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setDecodeBundle(true);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes("UTF-8")));
+			int exported = 0;
+			int batch;
+			while ((batch = parser.parseExport(4, exporter)) >= 0) {
+				exported += batch;
+			}
+			assertEquals(LINES * count, exported);
+		} finally {
+			parser.dispose();
+		}
+		exporter.close();
+
+		List<RowGroup> groups = factory.groups;
+		int rows = 0;
+		for (int i = 0; i < groups.size(); i++) {
+			RowGroup group = groups.get(i);
+			assertEquals(RecordSchema.VEH_SIT_DATA, group.getSchema());
+			if (i < groups.size() - 1) {
+				assertEquals(7, group.size());
+			}
+			rows += group.size();
+		}
+		assertEquals(LINES * count, rows);
+
+		DataBundle bundle = DataBundleUtil.decode(line);
+		VehSitDataMessageParser messageParser = new VehSitDataMessageParser();
+		int row = 0;
+		for (int i = 0; i < LINES * count; i++) {
+			CVRecord expected = new CVRecord();
+			expected.setEncodedPayload(bundle.encodePayload());
+			messageParser.parseRecord(msg, bundle, i % count, expected);
+			RowGroup group = groups.get(i / 7);
+			for (int column = 0; column < group.getSchema().getColumnCount(); column++) {
+				assertEquals(expected.format(group.getSchema().getField(column)), format(group, column, row));
+			}
+			row = (row + 1) % 7;
+		}
+	}
+
+	@Test
+	public void testColumnFileRoundTrip() throws Exception {
+		RowGroup group = new RowGroup(RecordSchema.DATA_SUBSCRIPTION, 16);
+		CVRecord record = new CVRecord();
+		record.setLong(CVField.DIALOG_ID, 2);
+		record.setLong(CVField.REQUEST_ID, -5);
+		record.setDouble(CVField.NW_LAT, 42.5);
+		record.setString(CVField.DEST_HOST, "host");
+		record.setBoolean(CVField.FROM_FORWARDER, true);
+		record.setBytes(CVField.CERTIFICATE, new byte[] { 1, 2, 3 });
+		group.add(record);
+		record.clear();
+		record.setLong(CVField.SUBSCRIBER_ID, 9);
+		group.add(record);
+
+		File file = File.createTempFile("subscriptions", ColumnFileSink.EXTENSION);
+		file.deleteOnExit();
+		ColumnFileSink sink = new ColumnFileSink(file, RecordSchema.DATA_SUBSCRIPTION);
+		sink.write(group);
+		sink.close();
+		assertEquals(2, sink.getRowCount());
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			byte[] magic = new byte[ColumnFileSink.MAGIC.length];
+			in.readFully(magic);
+			assertArrayEquals(ColumnFileSink.MAGIC, magic);
+			assertEquals("dataSubscription", in.readUTF());
+			RecordSchema schema = RecordSchema.DATA_SUBSCRIPTION;
+			assertEquals(schema.getColumnCount(), in.readInt());
+			for (int column = 0; column < schema.getColumnCount(); column++) {
+				assertEquals(schema.getField(column).getName(), in.readUTF());
+				assertEquals(schema.getKind(column).ordinal(), in.readByte());
+			}
+			assertEquals(2, in.readInt());
+			List<String> values = new ArrayList<String>();
+			for (int column = 0; column < schema.getColumnCount(); column++) {
+				int bitmap = in.readByte();
+				for (int row = 0; row < 2; row++) {
+					values.add(((bitmap & (1 << row)) == 0) ? null : readValue(in, schema.getKind(column)));
+				}
+			}
+			for (int column = 0; column < schema.getColumnCount(); column++) {
+				assertEquals(format(group, column, 0), values.get(2 * column));
+				assertEquals(format(group, column, 1), values.get(2 * column + 1));
+			}
+			assertEquals("-5", values.get(2 * schema.indexOf(CVField.REQUEST_ID)));
+			assertEquals("9", values.get(2 * schema.indexOf(CVField.SUBSCRIBER_ID) + 1));
+			assertEquals(-1, in.read());
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testKindMismatch() {
+		RowGroup group = new RowGroup(RecordSchema.DATA_REQUEST, 4);
+		CVRecord record = new CVRecord();
+		record.setLong(CVField.TIME_BOUND, 3);
+		group.add(record);
+	}
+
+	@Test
+	public void testDialogWithoutSchemaIsIgnored() throws Exception {
+		CollectingFactory factory = new CollectingFactory();
+		RecordExporter exporter = new RecordExporter(factory, 4);
+		assertFalse(exporter.add(SemiDialogID.reserved1.longValue(), new CVRecord()));
+		assertTrue(exporter.add(SemiDialogID.objDisc.longValue(), new CVRecord()));
+		exporter.close();
+		assertEquals(1, factory.groups.size());
+		assertEquals(RecordSchema.OBJECT_DISCOVERY, factory.groups.get(0).getSchema());
+	}
+
+	private static String readValue(DataInputStream in, CVRecord.Kind kind) throws IOException {
+		switch (kind) {
+		case LONG:
+			return String.valueOf(in.readLong());
+		case DOUBLE:
+			return String.valueOf(in.readDouble());
+		case BOOLEAN:
+			return Boolean.toString(in.readByte() != 0);
+		default:
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return (kind == CVRecord.Kind.BYTES) ? Base64.encodeBase64String(bytes) : new String(bytes, "UTF-8");
+		}
+	}
+
+	/**
+	 * @return a row group value as {@link CVRecord#format(CVField)} renders it
+	 */
+	private static String format(RowGroup group, int column, int row) {
+		if (!group.isPresent(column, row)) return null;
+		switch (group.getSchema().getKind(column)) {
+		case LONG:
+			return String.valueOf(group.getLongs(column)[row]);
+		case DOUBLE:
+			return String.valueOf(group.getDoubles(column)[row]);
+		case BOOLEAN:
+			return Boolean.toString(group.getLongs(column)[row] != 0);
+		case BYTES:
+			return Base64.encodeBase64String((byte[]) group.getObjects(column)[row]);
+		default:
+			return (String) group.getObjects(column)[row];
+		}
+	}
+
+	private static class CollectingFactory implements RowGroupSink.Factory {
+		final List<RowGroup> groups = Collections.synchronizedList(new ArrayList<RowGroup>());
+
+		public RowGroupSink create(RecordSchema schema) {
+			return new RowGroupSink() {
+				public void write(RowGroup group) {
+					groups.add(group);
+				}
+
+				public void close() {
+				}
+			};
+		}
+	}
+}
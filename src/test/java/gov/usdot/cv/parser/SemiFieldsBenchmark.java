@@ -0,0 +1,85 @@
+package gov.usdot.cv.parser;
+
+import static gov.usdot.asn1.j2735.J2735Util.convertGeoCoordinateToDouble;
+import gov.usdot.asn1.generated.j2735.J2735;
+import gov.usdot.asn1.generated.j2735.semi.GeoRegion;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.cv.common.asn1.GroupIDHelper;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SEMI header and service region of an intersection situation data record, taken to
+ * the translator map the way the parsers used to, with a ByteBuffer per id and doubles
+ * formatted by String.valueOf, and through {@link SemiFields} and
+ * {@link GeoCoordinates}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SemiFieldsBenchmark {
+
+	private IntersectionSituationData message;
+	private final CVRecord record = new CVRecord();
+
+	@Setup
+	public void setUp() throws Exception {
+		J2735Parser parser = new J2735Parser();
+		parser.setCoderPoolSize(1);
+		parser.initializeCoder();
+		message = (IntersectionSituationData) parser.decodeBER(BenchmarkSamples.intersectionSitDataDep.buildPayload());
+	}
+
+	@TearDown
+	public void tearDown() {
+		J2735.deinitialize();
+	}
+
+	@Benchmark
+	public Map<String, String> legacy() {
+		record.clear();
+		record.setLong(CVField.DIALOG_ID, message.getDialogID().longValue());
+		record.setLong(CVField.SEQUENCE_ID, message.getSeqID().longValue());
+		record.setLong(CVField.GROUP_ID, GroupIDHelper.fromGroupID(message.getGroupID()));
+		record.setLong(CVField.REQUEST_ID, ByteBuffer.wrap(message.getRequestID().byteArrayValue()).getInt());
+		GeoRegion region = message.getServiceRegion();
+		if (region != null) {
+			if (region.getNwCorner() != null) {
+				record.setDouble(CVField.NW_LAT, convertGeoCoordinateToDouble(region.getNwCorner().getLat().intValue()));
+				record.setDouble(CVField.NW_LON, convertGeoCoordinateToDouble(region.getNwCorner().get_long().intValue()));
+			}
+			if (region.getSeCorner() != null) {
+				record.setDouble(CVField.SE_LAT, convertGeoCoordinateToDouble(region.getSeCorner().getLat().intValue()));
+				record.setDouble(CVField.SE_LON, convertGeoCoordinateToDouble(region.getSeCorner().get_long().intValue()));
+			}
+		}
+		return record.toMap();
+	}
+
+	@Benchmark
+	public Map<String, String> shared() {
+		record.clear();
+		SemiFields fields = AbstractCVMessageParser.semiFields()
+				.readHeader(message.getDialogID(), message.getSeqID(), message.getGroupID(), message.getRequestID());
+		fields.copyHeaderTo(record);
+		fields.readRegion(message.getServiceRegion()).copyRegionTo(record);
+		return record.toMap();
+	}
+}
@@ -0,0 +1,249 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import gov.usdot.asn1.generated.j2735.semi.IntersectionSituationData;
+import gov.usdot.asn1.generated.j2735.semi.SemiDialogID;
+import gov.usdot.asn1.generated.j2735.semi.SemiSequenceID;
+import gov.usdot.asn1.generated.j2735.semi.VehSitDataMessage;
+import gov.usdot.asn1.j2735.IntersectionSitDataBuilder;
+
+import java.io.ByteArrayInputStream;
+
+import net.sf.json.JSONObject;
+
+import org.junit.Test;
+
+import com.deleidos.rtws.commons.exception.InitializationException;
+import com.oss.asn1.AbstractData;
+
+public class SemiHeaderDecoderTest {
+
+	private static final int VERIFY_COUNT = 3;
+
+	/** SemiDialogID and SemiSequenceID values of the synthetic headers. */
+	private static final long[] DIALOGS = { 154, 155, 156, 157, 158, 159, 160, 161, 162, 163 };
+	private static final long[] SEQS = { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 };
+
+	@Test
+	public void testReadBits() {
+		byte[] payload = { (byte) 0xA5, (byte) 0x0F };
+		assertEquals(0xA, SemiHeaderDecoder.readBits(payload, 0, 4));
+		assertEquals(0x50, SemiHeaderDecoder.readBits(payload, 4, 8));
+		assertEquals(1, SemiHeaderDecoder.readBits(payload, 15, 1));
+		assertEquals(-1, SemiHeaderDecoder.readBits(payload, 10, 7));
+	}
+
+	@Test
+	public void testIndexBits() {
+		assertEquals(0, SemiHeaderDecoder.indexBits(1));
+		assertEquals(1, SemiHeaderDecoder.indexBits(2));
+		assertEquals(4, SemiHeaderDecoder.indexBits(10));
+		assertEquals(4, SemiHeaderDecoder.indexBits(16));
+		assertEquals(5, SemiHeaderDecoder.indexBits(17));
+	}
+
+	@Test
+	public void testSyntheticHeadersWithUnseenSeqIds() {
+		SemiHeaderDecoder decoder = new SemiHeaderDecoder(16, DIALOGS, SEQS);
+		Class<?>[] isdClass = { IntersectionSituationData.class };
+		for (int i = 0; i < 16; i++) {
+			decoder.learn(syntheticPayload(8, 4, 7, i), IntersectionSituationData.class, new SemiHeader(162, 5, 7, i));
+		}
+		assertTrue(decoder.isLearned(isdClass));
+		assertEquals(new SemiHeader(162, 5, 7, 99), decoder.decode(syntheticPayload(8, 4, 7, 99)));
+
+		boolean[] isdTable = new boolean[256];
+		isdTable[162] = true;
+		for (int seqIndex = 0; seqIndex < SEQS.length; seqIndex++) {
+			for (int i = 0; i < 200; i++) {
+				assertTrue(decoder.mayBeDialog(syntheticPayload(8, seqIndex, i % 5, i), isdClass, isdTable));
+			}
+		}
+		assertFalse(decoder.mayBeDialog(syntheticPayload(0, 4, 7, 1), isdClass, isdTable));
+		assertFalse(decoder.mayBeDialog(syntheticPayload(0, 9, 7, 1), isdClass, isdTable));
+	}
+
+	@Test
+	public void testAmbiguousLayoutIsNotLearned() {
+		// with dialog index 0 and both extension bits clear, the header also reads as one
+		// bit more of preamble and no seqID extension bit
+		SemiHeaderDecoder decoder = new SemiHeaderDecoder(16, DIALOGS, SEQS);
+		Class<?>[] vsdClass = { VehSitDataMessage.class };
+		for (int i = 0; i < SemiHeaderDecoder.MAX_TRAINING_SAMPLES; i++) {
+			assertFalse(decoder.isLearned(vsdClass));
+			decoder.learn(syntheticPayload(0, 4, 7, i), VehSitDataMessage.class, new SemiHeader(154, 5, 7, i));
+		}
+		assertFalse(decoder.isLearned(vsdClass));
+		assertNull(decoder.decode(syntheticPayload(0, 4, 7, 1)));
+		assertTrue(decoder.mayBeDialog(syntheticPayload(0, 4, 7, 1), vsdClass, new boolean[256]));
+	}
+
+	@Test
+	public void testVaryingIdsPinLayout() {
+		SemiHeaderDecoder decoder = new SemiHeaderDecoder(16, DIALOGS, SEQS);
+		Class<?>[] vsdClass = { VehSitDataMessage.class };
+		for (int i = 0; i < 16; i++) {
+			decoder.learn(syntheticPayload(0, 4, 7, i), VehSitDataMessage.class, new SemiHeader(154, 5, 7, i));
+		}
+		assertFalse(decoder.isLearned(vsdClass));
+		decoder.learn(syntheticPayload(1, 4, 7, 16), VehSitDataMessage.class, new SemiHeader(155, 5, 7, 16));
+		assertTrue(decoder.isLearned(vsdClass));
+		assertEquals(new SemiHeader(154, 5, 7, 17), decoder.decode(syntheticPayload(0, 4, 7, 17)));
+	}
+
+	@Test
+	public void testLearnedHeadersMatchFullDecode() throws Exception {
+		J2735Parser parser = BenchmarkSamples.vehSitData.buildParser();
+		try {
+			SemiHeaderDecoder decoder = new SemiHeaderDecoder(VERIFY_COUNT);
+			for (BenchmarkSamples sample : BenchmarkSamples.values()) {
+				byte[] payload = sample.buildPayload();
+				AbstractData message = parser.decodeBER(payload);
+				SemiHeader expected = SemiHeader.fromMessage(message);
+				assertNotNull(expected);
+				assertEquals(CVMessageParserCache.getDialogId(message), expected.getDialogId());
+
+				Class<?>[] messageClass = { message.getClass() };
+				if (decoder.isLearned(messageClass)) {
+					// learned from another dialog sharing the message type, whose dialog id
+					// the layout has not seen, so the header is left to a full decode
+					assertNull(decoder.decode(payload));
+					continue;
+				}
+				for (int i = 0; i < VERIFY_COUNT; i++) {
+					assertFalse(decoder.isLearned(messageClass));
+					decoder.learn(payload, message);
+				}
+				// a sample whose ids leave the layout in doubt is not learned from alone
+				if (decoder.isLearned(messageClass)) {
+					assertEquals(expected, decoder.decode(payload));
+				}
+			}
+			assertTrue(decoder.isLearned(new Class<?>[] { IntersectionSituationData.class }));
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testAcceptedDialogs() throws Exception {
+		String vsd = BenchmarkSamples.vehSitData.buildLine();
+		String isd = BenchmarkSamples.intersectionSitDataDep.buildLine();
+		String[] lines = { isd, vsd, isd, vsd, isd, vsd, vsd, vsd, vsd, vsd, isd };
+
+		StringBuilder input = new StringBuilder();
+		for (String line : lines) {
+			input.append(line).append('\n');
+		}
+
+		J2735Parser parser = BenchmarkSamples.intersectionSitDataDep.createParser();
+		parser.setAcceptedDialogs("intersectionSitDataDep");
+		parser.setHeaderVerifyCount(VERIFY_COUNT);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes("UTF-8")));
+			int parsed = 0;
+			JSONObject jsonObj;
+			while ((jsonObj = parser.parse()) != null) {
+				assertEquals(SemiDialogID.intersectionSitDataDep.longValue(), jsonObj.getLong("dialogId"));
+				parsed++;
+			}
+			assertEquals(4, parsed);
+			assertEquals(7, parser.getFilteredCount());
+			// the VSD records after the ISD layout is learned are dropped on their header alone
+			assertEquals(lines.length - 5, parser.getCoderPool().getBorrowCount());
+
+			byte[] payload = BenchmarkSamples.vehSitData.buildPayload();
+			assertEquals(SemiHeader.fromMessage(parser.decodeBER(payload)), parser.decodeHeader(payload));
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	@Test
+	public void testAcceptedDialogWithUnseenSeqId() throws Exception {
+		String vsd = BenchmarkSamples.vehSitData.buildLine();
+		String isd = BenchmarkSamples.intersectionSitDataDep.buildLine();
+		IntersectionSituationData unseen = IntersectionSitDataBuilder.buildIntersectionSituationData();
+		unseen.setSeqID(SemiSequenceID.data.equals(unseen.getSeqID()) ? SemiSequenceID.dataReq : SemiSequenceID.data);
+		byte[] unseenPayload = IntersectionSitDataBuilder.messageToEncodedBytes(unseen);
+		String[] lines = { isd, vsd, isd, vsd, isd, vsd,
+				BenchmarkSamples.buildLine(unseenPayload, "Some Certificate Text".getBytes()), vsd };
+
+		StringBuilder input = new StringBuilder();
+		for (String line : lines) {
+			input.append(line).append('\n');
+		}
+		// more accepted records, with seq ids none of the training records had
+		SemiSequenceID[] unseenSeqIds = { SemiSequenceID.svcReq, SemiSequenceID.subscriptionReq, SemiSequenceID.subscriptionCancel };
+		for (SemiSequenceID seqId : unseenSeqIds) {
+			IntersectionSituationData message = IntersectionSitDataBuilder.buildIntersectionSituationData();
+			message.setSeqID(seqId);
+			input.append(BenchmarkSamples.buildLine(IntersectionSitDataBuilder.messageToEncodedBytes(message),
+					"Some Certificate Text".getBytes())).append('\n').append(vsd).append('\n');
+		}
+
+		J2735Parser parser = BenchmarkSamples.intersectionSitDataDep.createParser();
+		parser.setAcceptedDialogs("intersectionSitDataDep");
+		parser.setHeaderVerifyCount(VERIFY_COUNT);
+		parser.initialize();
+		try {
+			parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes("UTF-8")));
+			int parsed = 0;
+			while (parser.parse() != null) {
+				parsed++;
+			}
+			assertEquals(4 + unseenSeqIds.length, parsed);
+			assertEquals(4 + unseenSeqIds.length, parser.getFilteredCount());
+
+			Class<?>[] isdClass = { IntersectionSituationData.class };
+			boolean[] isdTable = new boolean[256];
+			isdTable[(int) SemiDialogID.intersectionSitDataDep.longValue()] = true;
+			SemiHeaderDecoder decoder = new SemiHeaderDecoder(VERIFY_COUNT);
+			byte[] payload = BenchmarkSamples.intersectionSitDataDep.buildPayload();
+			AbstractData message = parser.decodeBER(payload);
+			for (int i = 0; i < VERIFY_COUNT; i++) {
+				decoder.learn(payload, message);
+			}
+			assertNull(decoder.decode(unseenPayload));
+			assertTrue(decoder.mayBeDialog(unseenPayload, isdClass, isdTable));
+			assertFalse(decoder.mayBeDialog(unseenPayload, isdClass, new boolean[256]));
+		} finally {
+			parser.dispose();
+		}
+	}
+
+	/**
+	 * @return a PER header with one preamble bit, the dialogID extension bit and 4 bit
+	 * index, the seqID extension bit and 4 bit index, then the group and request ids
+	 */
+	private static byte[] syntheticPayload(int dialogIndex, int seqIndex, int groupId, int requestId) {
+		long[] fields = { 1, 0, dialogIndex, 0, seqIndex, groupId & 0xFFFFFFFFL, requestId & 0xFFFFFFFFL };
+		int[] widths = { 1, 1, 4, 1, 4, 32, 32 };
+		byte[] payload = new byte[16];
+		int bit = 0;
+		for (int i = 0; i < fields.length; i++) {
+			for (int b = widths[i] - 1; b >= 0; b--, bit++) {
+				if (((fields[i] >>> b) & 1) != 0) {
+					payload[bit >>> 3] |= 0x80 >>> (bit & 7);
+				}
+			}
+		}
+		return payload;
+	}
+
+	@Test(expected = InitializationException.class)
+	public void testUnknownDialogName() {
+		J2735Parser parser = BenchmarkSamples.vehSitData.createParser();
+		parser.setAcceptedDialogs("vehSitData, noSuchDialog");
+		try {
+			parser.initialize();
+		} finally {
+			parser.dispose();
+		}
+	}
+}
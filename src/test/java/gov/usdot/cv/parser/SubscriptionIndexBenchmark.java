@@ -0,0 +1,82 @@
+package gov.usdot.cv.parser;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching a vehicle position against live subscriptions with {@link SubscriptionIndex}
+ * and with a linear scan, for subscriptions with regions of up to a few tenths of a
+ * degree scattered over a metro area.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionIndexBenchmark {
+
+	private static final int POSITIONS = 1024;
+
+	@Param({ "1000", "50000" })
+	public int subscriptions;
+
+	private SubscriptionIndex index;
+	/** North, west, south and east edge and type flags of each subscription. */
+	private int[][] regions;
+	private int[] lats;
+	private int[] lons;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(1);
+		index = new SubscriptionIndex();
+		regions = new int[subscriptions][];
+		for (int id = 0; id < subscriptions; id++) {
+			int south = 420000000 + random.nextInt(10000000);
+			int west = -840000000 + random.nextInt(10000000);
+			int[] region = { south + random.nextInt(3000000), west, south, west + random.nextInt(3000000), 1 << random.nextInt(5) };
+			regions[id] = region;
+			index.subscribe(id, SubscriptionIndex.VSM_TYPE, region[4], region[0], region[1], region[2], region[3]);
+		}
+		lats = new int[POSITIONS];
+		lons = new int[POSITIONS];
+		for (int i = 0; i < POSITIONS; i++) {
+			lats[i] = 420000000 + random.nextInt(10000000);
+			lons[i] = -840000000 + random.nextInt(10000000);
+		}
+	}
+
+	@Benchmark
+	public long[] index() {
+		int i = next++ & (POSITIONS - 1);
+		return index.match(SubscriptionIndex.VSM_TYPE, 1, lats[i], lons[i]);
+	}
+
+	@Benchmark
+	public int linearScan() {
+		int i = next++ & (POSITIONS - 1);
+		int lat = lats[i];
+		int lon = lons[i];
+		int matches = 0;
+		for (int[] region : regions) {
+			if ((region[4] & 1) != 0 && lat <= region[0] && lon >= region[1] && lat >= region[2] && lon <= region[3]) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+}
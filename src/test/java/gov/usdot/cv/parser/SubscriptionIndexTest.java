@@ -0,0 +1,114 @@
+package gov.usdot.cv.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SubscriptionIndexTest {
+
+	@Test
+	public void testMatchesLinearScan() {
+		Random random = new Random(42);
+		SubscriptionIndex index = new SubscriptionIndex(0.5, 64);
+		List<int[]> subscriptions = new ArrayList<int[]>();
+		for (int id = 0; id < 2000; id++) {
+			int south = random.nextInt(20000000) + 420000000;
+			int west = random.nextInt(20000000) - 840000000;
+			int height = random.nextInt((id % 10 == 0) ? 100000000 : 5000000);
+			int width = random.nextInt((id % 10 == 0) ? 100000000 : 5000000);
+			int typeValue = 1 << random.nextInt(5);
+			int[] subscription = { id, typeValue, south + height, west, south, west + width };
+			subscriptions.add(subscription);
+			index.subscribe(id, SubscriptionIndex.VSM_TYPE, typeValue, subscription[2], subscription[3], subscription[4], subscription[5]);
+		}
+		for (int id = 0; id < 2000; id += 7) {
+			assertTrue(index.remove(id));
+			subscriptions.set(id, null);
+		}
+		assertFalse(index.remove(0));
+
+		for (int i = 0; i < 2000; i++) {
+			int lat = random.nextInt(30000000) + 415000000;
+			int lon = random.nextInt(30000000) - 845000000;
+			int typeValue = random.nextInt(32);
+			List<Long> expected = new ArrayList<Long>();
+			for (int[] s : subscriptions) {
+				if (s != null && (s[1] & typeValue) != 0 && lat <= s[2] && lat >= s[4] && lon >= s[3] && lon <= s[5]) {
+					expected.add((long) s[0]);
+				}
+			}
+			assertArrayEquals(toArray(expected), sorted(index.match(SubscriptionIndex.VSM_TYPE, typeValue, lat, lon)));
+		}
+	}
+
+	@Test
+	public void testTypesAreSeparate() {
+		SubscriptionIndex index = new SubscriptionIndex();
+		index.subscribe(1, SubscriptionIndex.VSM_TYPE, 1, 430000000, -840000000, 420000000, -830000000);
+		index.subscribe(2, SubscriptionIndex.ISD_TYPE, 1, 430000000, -840000000, 420000000, -830000000);
+		assertArrayEquals(new long[] { 1 }, index.match(SubscriptionIndex.VSM_TYPE, 1, 425000000, -835000000));
+		assertArrayEquals(new long[] { 2 }, index.match(SubscriptionIndex.ISD_TYPE, 1, 425000000, -835000000));
+		assertEquals(0, index.match(SubscriptionIndex.VSM_TYPE, 2, 425000000, -835000000).length);
+	}
+
+	@Test
+	public void testAntimeridianAndEverywhere() {
+		SubscriptionIndex index = new SubscriptionIndex();
+		index.subscribe(1, SubscriptionIndex.VSM_TYPE, 1, 100000000, 1790000000, -100000000, -1790000000);
+		index.subscribeEverywhere(2, SubscriptionIndex.VSM_TYPE, 1);
+		assertArrayEquals(new long[] { 1, 2 }, sorted(index.match(SubscriptionIndex.VSM_TYPE, 1, 0, 1795000000)));
+		assertArrayEquals(new long[] { 1, 2 }, sorted(index.match(SubscriptionIndex.VSM_TYPE, 1, 0, -1795000000)));
+		assertArrayEquals(new long[] { 2 }, index.match(SubscriptionIndex.VSM_TYPE, 1, 0, 0));
+	}
+
+	@Test
+	public void testParsedRecords() {
+		SubscriptionIndex index = new SubscriptionIndex();
+		Map<String, String> request = new HashMap<String, String>();
+		request.put(DataSubscriptionMessageParser.TYPE, SubscriptionIndex.VSM_TYPE);
+		request.put(DataSubscriptionMessageParser.TYPE_VALUE, "3");
+		request.put(DataSubscriptionMessageParser.NW_LAT, "43.0");
+		request.put(DataSubscriptionMessageParser.NW_LON, "-84.0");
+		request.put(DataSubscriptionMessageParser.SE_LAT, "42.0");
+		request.put(DataSubscriptionMessageParser.SE_LON, "-83.0");
+		assertTrue(index.subscribe(77, request));
+		assertEquals(1, index.size());
+
+		Map<String, String> vsdm = new HashMap<String, String>();
+		vsdm.put(CVField.VSM_TYPE.getName(), "1");
+		vsdm.put(CVField.LAT.getName(), "42.5");
+		vsdm.put(CVField.LONG.getName(), "-83.5");
+		assertArrayEquals(new long[] { 77 }, index.matchVehSitData(vsdm));
+
+		Map<String, String> cancel = new HashMap<String, String>();
+		cancel.put(DataSubscriptionMessageParser.SUBSCRIBER_ID, "77");
+		assertFalse(index.subscribe(77, cancel));
+		assertTrue(index.cancel(cancel));
+		assertEquals(0, index.size());
+		assertEquals(0, index.matchVehSitData(vsdm).length);
+	}
+
+	private static long[] toArray(List<Long> values) {
+		long[] array = new long[values.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = values.get(i);
+		}
+		return array;
+	}
+
+	private static long[] sorted(long[] values) {
+		long[] copy = values.clone();
+		Arrays.sort(copy);
+		return copy;
+	}
+}
@@ -10,7 +10,11 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
 import java.util.Properties;
+import java.util.TimeZone;
 import java.util.UUID;
 
 import org.junit.After;
@@ -120,6 +124,12 @@ public class VehSitDataMessageParserTest {
 		parser.initialize();
 		parser.setInputStream(new ByteArrayInputStream(internalDataBundle.getBytes()));
 
+		Bundle bundle = msg.getBundle();
+		assertNotNull(bundle);
+		int count = bundle.getSize();
+		assertTrue(count >  0);
+		
+		int index = 0;
 		JSONObject jsonObj;
 		while ((jsonObj = parser.parse()) != null) {
 			System.out.println(jsonObj.toString(4));
@@ -136,15 +146,152 @@ public class VehSitDataMessageParserTest {
 			assertNotNull(jsonObj.getLong("requestId"));
 			assertEquals(ByteBuffer.wrap(msg.getType().byteArrayValue()).get(), jsonObj.getInt("vsmType"));
 			
-			Bundle bundle = msg.getBundle();
-			assertNotNull(bundle);
-			int count = bundle.getSize();
-			assertTrue(count >  0);
-			VehSitRecord vsr = bundle.get(0);
+			assertTrue(index < count);
+			VehSitRecord vsr = bundle.get(index++);
 			assertNotNull(vsr);
 			verifyVehSitRecord(jsonObj, vsr);
 			assertEquals(count, jsonObj.getInt("count"));
 		}
+		assertEquals(count, index);
+	}
+	
+	@Test
+	public void testFirstRecordOnly() throws Exception {
+		String internalDataBundle = DataBundleUtil.encode(
+			TEST_UUID.getBytes(), 
+			DEST_HOST.getBytes(), 
+			DEST_PORT, 
+			FROM_FORWARDER,
+			CERTIFICATE.getBytes(), 
+			encodedBytes);
+
+		parser.setDecodeBundle(false);
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream((internalDataBundle + "\n" + internalDataBundle).getBytes()));
+
+		for (int i = 0; i < 2; i++) {
+			JSONObject jsonObj = parser.parse();
+			assertNotNull(jsonObj);
+			verifyVehSitRecord(jsonObj, msg.getBundle().get(0));
+			assertEquals(msg.getBundle().getSize(), jsonObj.getInt("count"));
+		}
+		assertNull(parser.parse());
+		parser.dispose();
+	}
+	
+	@Test
+	public void testBatchParse() throws Exception {
+		String internalDataBundle = DataBundleUtil.encode(
+			TEST_UUID.getBytes(), 
+			DEST_HOST.getBytes(), 
+			DEST_PORT, 
+			FROM_FORWARDER,
+			CERTIFICATE.getBytes(), 
+			encodedBytes);
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			input.append(internalDataBundle).append('\n');
+		}
+
+		parser.setBatchDecodeThreads(2);
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes()));
+
+		int count = msg.getBundle().getSize();
+		List<JSONObject> batch = parser.parseBatch(3);
+		assertEquals(3 * count, batch.size());
+		for (int i = 0; i < batch.size(); i++) {
+			JSONObject jsonObj = batch.get(i);
+			assertEquals(SemiDialogID.vehSitData.longValue(), jsonObj.getLong("dialogId"));
+			verifyVehSitRecord(jsonObj, msg.getBundle().get(i % count));
+		}
+		assertEquals(2 * count, parser.parseBatch(3).size());
+		assertNull(parser.parseBatch(3));
+		parser.dispose();
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyBatch() throws Exception {
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream("line\n".getBytes()));
+		try {
+			parser.parseBatch(0);
+		} finally {
+			parser.dispose();
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeColumnBatch() throws Exception {
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream("line\n".getBytes()));
+		try {
+			parser.parseColumns(-1, null);
+		} finally {
+			parser.dispose();
+		}
+	}
+	
+	@Test
+	public void testColumns() throws Exception {
+		String internalDataBundle = DataBundleUtil.encode(
+			TEST_UUID.getBytes(), 
+			DEST_HOST.getBytes(), 
+			DEST_PORT, 
+			FROM_FORWARDER,
+			CERTIFICATE.getBytes(), 
+			encodedBytes);
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 5; i++) {
+			input.append(internalDataBundle).append('\n');
+		}
+		
+		parser.initialize();
+		parser.setInputStream(new ByteArrayInputStream(input.toString().getBytes()));
+		
+		int count = msg.getBundle().getSize();
+		final List<long[]> rows = new ArrayList<long[]>();
+		final List<Integer> blockSizes = new ArrayList<Integer>();
+		VehSitColumnWriter writer = new VehSitColumnWriter(2 * count + 1, new VehSitColumns.Sink() {
+			public void accept(VehSitColumns block) {
+				blockSizes.add(block.size());
+				for (int i = 0; i < block.size(); i++) {
+					rows.add(new long[] { block.getLatitudes()[i], block.getLongitudes()[i], block.getElevations()[i],
+							block.getTimes()[i], block.getGroupIds()[i], block.getRequestIds()[i] });
+				}
+			}
+		});
+		assertEquals(3 * count, parser.parseColumns(3, writer));
+		assertEquals(2 * count, parser.parseColumns(3, writer));
+		assertEquals(-1, parser.parseColumns(3, writer));
+		writer.flush();
+		parser.dispose();
+		
+		assertEquals(5 * count, rows.size());
+		assertEquals(5 * count, writer.getRowCount());
+		for (int i = 0; i < blockSizes.size() - 1; i++) {
+			assertEquals(2 * count + 1, blockSizes.get(i).intValue());
+		}
+		int requestId = ByteBuffer.wrap(msg.getRequestID().byteArrayValue()).getInt();
+		for (int i = 0; i < rows.size(); i++) {
+			VehSitRecord vsr = msg.getBundle().get(i % count);
+			long[] row = rows.get(i);
+			assertEquals(vsr.getPos().getLat().intValue(), row[0]);
+			assertEquals(vsr.getPos().get_long().intValue(), row[1]);
+			assertEquals(vsr.getPos().getElevation().intValue(), row[2]);
+			assertEquals(epochMillis(vsr.getTime()), row[3]);
+			assertEquals(GroupIDHelper.fromGroupID(msg.getGroupID()), row[4]);
+			assertEquals(requestId, row[5]);
+		}
+	}
+	
+	private static long epochMillis(DDateTime dateTime) {
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(dateTime.getYear().intValue(), dateTime.getMonth().intValue() - 1, dateTime.getDay().intValue(),
+				dateTime.getHour().intValue(), dateTime.getMinute().intValue());
+		long offset = dateTime.hasOffset() ? dateTime.getOffset().longValue() : 0;
+		return calendar.getTimeInMillis() + dateTime.getSecond().longValue() - offset * 60000;
 	}
 	
 	private static void verifyVehSitRecord(JSONObject jsonObj, VehSitRecord vsr){